@@ -0,0 +1,186 @@
+/*
+ * Licensed to Elasticsearch under one or more contributor
+ * license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright
+ * ownership. Elasticsearch licenses this file to you under
+ * the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.elasticsearch.benchmark.common.cache;
+
+import org.elasticsearch.common.cache.Cache;
+import org.elasticsearch.common.cache.CacheBuilder;
+import org.elasticsearch.common.cache.ConcurrentCache;
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.Arrays;
+import java.util.Random;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares the throughput and the hit rate of the LRU {@link Cache} with the Window TinyLFU cache that is built by
+ * {@link CacheBuilder#buildTinyLfu()}. Keys follow a Zipf distribution, optionally mixed with a scan of keys that are only
+ * used once. The hit rate is reported as the {@code hits} and {@code misses} secondary results.
+ */
+@Fork(2)
+@Warmup(iterations = 5)
+@Measurement(iterations = 5)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@State(Scope.Benchmark)
+@SuppressWarnings("unused") // invoked by benchmarking framework
+public class CacheBenchmark {
+    private static final int NUMBER_OF_SAMPLES = 1 << 20;
+    private static final int SAMPLE_MASK = NUMBER_OF_SAMPLES - 1;
+
+    @Param({ "lru", "tiny_lfu" })
+    public String policy;
+
+    @Param({ "1000", "100000" })
+    public int maximumSize;
+
+    /**
+     * The number of distinct keys, relative to the maximum size of the cache.
+     */
+    @Param({ "10" })
+    public int keySpaceRatio;
+
+    /**
+     * The percentage of the accesses that belong to a scan of keys that are only used once.
+     */
+    @Param({ "0", "20" })
+    public int scanPercentage;
+
+    private ConcurrentCache<Integer, Integer> cache;
+    private int[] keys;
+
+    @Setup
+    public void setup() {
+        CacheBuilder<Integer, Integer> builder = CacheBuilder.<Integer, Integer>builder().setMaximumWeight(maximumSize);
+        if ("tiny_lfu".equals(policy)) {
+            cache = builder.buildTinyLfu();
+        } else if ("lru".equals(policy)) {
+            cache = builder.build();
+        } else {
+            throw new IllegalArgumentException("unknown policy [" + policy + "]");
+        }
+        keys = sampleKeys(new Random(42), maximumSize * keySpaceRatio, scanPercentage);
+        // warm the cache up
+        for (int key : keys) {
+            load(key);
+        }
+    }
+
+    /**
+     * Samples keys with a Zipf distribution of exponent 1 over {@code numberOfKeys} keys, replacing the provided
+     * percentage of the samples with keys that are out of that range and only sampled once.
+     */
+    static int[] sampleKeys(Random random, int numberOfKeys, int scanPercentage) {
+        double[] cumulativeProbabilities = new double[numberOfKeys];
+        double sum = 0;
+        for (int i = 0; i < numberOfKeys; i++) {
+            sum += 1.0 / (i + 1);
+            cumulativeProbabilities[i] = sum;
+        }
+        int[] keys = new int[NUMBER_OF_SAMPLES];
+        int nextScanKey = numberOfKeys;
+        for (int i = 0; i < keys.length; i++) {
+            if (random.nextInt(100) < scanPercentage) {
+                keys[i] = nextScanKey++;
+            } else {
+                int index = Arrays.binarySearch(cumulativeProbabilities, random.nextDouble() * sum);
+                keys[i] = index >= 0 ? index : Math.min(numberOfKeys - 1, -1 - index);
+            }
+        }
+        return keys;
+    }
+
+    private Integer load(int key) {
+        try {
+            return cache.computeIfAbsent(key, k -> k);
+        } catch (ExecutionException e) {
+            throw new AssertionError(e);
+        }
+    }
+
+    @State(Scope.Thread)
+    @AuxCounters(AuxCounters.Type.EVENTS)
+    public static class Accesses {
+        public long hits;
+        public long misses;
+        private int index;
+
+        @Setup(Level.Iteration)
+        public void setup() {
+            hits = 0;
+            misses = 0;
+            index = ThreadLocalRandom.current().nextInt(NUMBER_OF_SAMPLES);
+        }
+
+        int nextKey(int[] keys) {
+            return keys[index++ & SAMPLE_MASK];
+        }
+    }
+
+    private Integer access(Accesses accesses) {
+        int key = accesses.nextKey(keys);
+        Integer value = cache.get(key);
+        if (value == null) {
+            accesses.misses++;
+            cache.put(key, key);
+            return key;
+        }
+        accesses.hits++;
+        return value;
+    }
+
+    @Benchmark
+    @Threads(1)
+    public Integer access_01(Accesses accesses) {
+        return access(accesses);
+    }
+
+    @Benchmark
+    @Threads(8)
+    public Integer access_08(Accesses accesses) {
+        return access(accesses);
+    }
+
+    @Benchmark
+    @Threads(16)
+    public Integer access_16(Accesses accesses) {
+        return access(accesses);
+    }
+
+    @Benchmark
+    @Threads(48)
+    public Integer access_48(Accesses accesses) {
+        return access(accesses);
+    }
+}
@@ -106,13 +106,18 @@ public class AllocationBenchmark {
         "       10|     10|        2|    50",
         "      100|      1|        2|    50",
         "      100|      3|        2|    50",
-        "      100|     10|        2|    50" })
+        "      100|     10|        2|    50",
+
+        // 100k shard copies
+        "     1000|     50|        1|   100",
+        "    10000|      5|        1|   100" })
     public String indicesShardsReplicasNodes = "10|1|0|1";
 
     public int numTags = 2;
 
     private AllocationService strategy;
     private ClusterState initialClusterState;
+    private ClusterState allocatedClusterState;
 
     @Setup
     public void setUp() throws Exception {
@@ -151,6 +156,7 @@ public class AllocationBenchmark {
             .routingTable(routingTable)
             .nodes(nb)
             .build();
+        allocatedClusterState = startInitializingShards(measureAllocation());
     }
 
     private int toInt(String v) {
@@ -169,4 +175,24 @@ public class AllocationBenchmark {
         }
         return clusterState;
     }
+
+    /**
+     * Measures a reroute of a cluster whose shards are all started and balanced, which is what the master pays for every
+     * cluster state update that triggers a reroute without changing the routing.
+     */
+    @Benchmark
+    public ClusterState measureReroute() {
+        return strategy.reroute(allocatedClusterState, "reroute");
+    }
+
+    private ClusterState startInitializingShards(ClusterState clusterState) {
+        while (clusterState.getRoutingNodes().shardsWithState(ShardRoutingState.INITIALIZING).isEmpty() == false) {
+            clusterState = strategy.applyStartedShards(
+                clusterState,
+                clusterState.getRoutingNodes().shardsWithState(ShardRoutingState.INITIALIZING)
+            );
+            clusterState = strategy.reroute(clusterState, "reroute");
+        }
+        return clusterState;
+    }
 }
@@ -0,0 +1,323 @@
+/*
+ * Licensed to Elasticsearch under one or more contributor
+ * license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright
+ * ownership. Elasticsearch licenses this file to you under
+ * the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.elasticsearch.benchmark.search.aggregations;
+
+import org.apache.lucene.document.Document;
+import org.apache.lucene.document.LongPoint;
+import org.apache.lucene.document.SortedNumericDocValuesField;
+import org.apache.lucene.document.SortedSetDocValuesField;
+import org.apache.lucene.index.DirectoryReader;
+import org.apache.lucene.index.IndexWriter;
+import org.apache.lucene.index.IndexWriterConfig;
+import org.apache.lucene.index.NoMergePolicy;
+import org.apache.lucene.search.IndexSearcher;
+import org.apache.lucene.search.MatchAllDocsQuery;
+import org.apache.lucene.search.Query;
+import org.apache.lucene.store.ByteBuffersDirectory;
+import org.apache.lucene.store.Directory;
+import org.apache.lucene.util.BytesRef;
+import org.apache.lucene.util.NumericUtils;
+import org.elasticsearch.Version;
+import org.elasticsearch.cluster.metadata.IndexMetadata;
+import org.elasticsearch.common.breaker.CircuitBreaker;
+import org.elasticsearch.common.breaker.NoopCircuitBreaker;
+import org.elasticsearch.common.io.stream.NamedWriteableRegistry;
+import org.elasticsearch.common.settings.Settings;
+import org.elasticsearch.common.util.BigArrays;
+import org.elasticsearch.common.util.PageCacheRecycler;
+import org.elasticsearch.common.xcontent.NamedXContentRegistry;
+import org.elasticsearch.core.internal.io.IOUtils;
+import org.elasticsearch.index.IndexSettings;
+import org.elasticsearch.index.fielddata.IndexFieldData;
+import org.elasticsearch.index.fielddata.IndexFieldDataCache;
+import org.elasticsearch.index.fielddata.LeafFieldData;
+import org.elasticsearch.index.mapper.DateFieldMapper;
+import org.elasticsearch.index.mapper.KeywordFieldMapper;
+import org.elasticsearch.index.mapper.MappedFieldType;
+import org.elasticsearch.index.mapper.NumberFieldMapper;
+import org.elasticsearch.index.query.QueryShardContext;
+import org.elasticsearch.indices.breaker.CircuitBreakerService;
+import org.elasticsearch.indices.breaker.NoneCircuitBreakerService;
+import org.elasticsearch.search.SearchModule;
+import org.elasticsearch.search.SearchShardTarget;
+import org.elasticsearch.search.aggregations.AggregationBuilder;
+import org.elasticsearch.search.aggregations.Aggregator;
+import org.elasticsearch.search.aggregations.AggregatorFactories;
+import org.elasticsearch.search.aggregations.InternalAggregation;
+import org.elasticsearch.search.aggregations.MultiBucketConsumerService;
+import org.elasticsearch.search.aggregations.SearchContextAggregations;
+import org.elasticsearch.search.aggregations.bucket.composite.CompositeAggregationBuilder;
+import org.elasticsearch.search.aggregations.bucket.composite.DateHistogramValuesSourceBuilder;
+import org.elasticsearch.search.aggregations.bucket.composite.TermsValuesSourceBuilder;
+import org.elasticsearch.search.aggregations.bucket.histogram.DateHistogramAggregationBuilder;
+import org.elasticsearch.search.aggregations.bucket.histogram.DateHistogramInterval;
+import org.elasticsearch.search.aggregations.bucket.terms.TermsAggregationBuilder;
+import org.elasticsearch.search.aggregations.metrics.CardinalityAggregationBuilder;
+import org.elasticsearch.search.aggregations.metrics.PercentilesAggregationBuilder;
+import org.elasticsearch.search.aggregations.support.ValuesSourceRegistry;
+import org.elasticsearch.search.internal.ContextIndexSearcher;
+import org.elasticsearch.search.internal.FilteredSearchContext;
+import org.elasticsearch.search.internal.SearchContext;
+import org.elasticsearch.search.profile.Profilers;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import java.util.function.BiFunction;
+
+import static java.util.Collections.emptyList;
+
+/**
+ * An in-memory Lucene index and the minimal search infrastructure that is needed to build and run aggregators
+ * against it the same way the query phase does: aggregation builders are turned into factories with a
+ * {@link QueryShardContext} and the resulting aggregators collect all documents of the index.
+ * <p>
+ * Every document has a {@value #KEYWORD_FIELD} field with a configurable number of distinct values, a
+ * {@value #LONG_FIELD} field with the same number of distinct values, a normally distributed {@value #DOUBLE_FIELD}
+ * field and a {@value #DATE_FIELD} field that is spread over one year.
+ */
+final class AggregationBenchmarkContext implements Closeable {
+    static final String KEYWORD_FIELD = "keyword";
+    static final String LONG_FIELD = "long";
+    static final String DOUBLE_FIELD = "double";
+    static final String DATE_FIELD = "date";
+
+    private static final long START_OF_2020 = 1577836800000L;
+    private static final long ONE_YEAR = TimeUnit.DAYS.toMillis(365);
+    private static final Query QUERY = new MatchAllDocsQuery();
+    private static final ValuesSourceRegistry VALUES_SOURCE_REGISTRY =
+        new SearchModule(Settings.EMPTY, emptyList()).getValuesSourceRegistry();
+
+    private final Directory directory;
+    private final DirectoryReader reader;
+    private final QueryShardContext queryShardContext;
+    private final BenchmarkSearchContext searchContext;
+
+    /**
+     * Builds an index of {@code numDocs} documents spread over roughly {@code numSegments} segments.
+     */
+    AggregationBenchmarkContext(Random random, int numDocs, int numSegments, int cardinality) throws IOException {
+        directory = new ByteBuffersDirectory();
+        final int docsPerSegment = Math.max(1, numDocs / numSegments);
+        try (IndexWriter writer = new IndexWriter(directory, new IndexWriterConfig().setMergePolicy(NoMergePolicy.INSTANCE))) {
+            for (int i = 0; i < numDocs; i++) {
+                final Document document = new Document();
+                final int value = random.nextInt(cardinality);
+                document.add(new SortedSetDocValuesField(KEYWORD_FIELD, new BytesRef("term_" + value)));
+                document.add(new SortedNumericDocValuesField(LONG_FIELD, value));
+                document.add(new SortedNumericDocValuesField(DOUBLE_FIELD, NumericUtils.doubleToSortableLong(random.nextGaussian())));
+                final long date = START_OF_2020 + (long) (random.nextDouble() * ONE_YEAR);
+                document.add(new LongPoint(DATE_FIELD, date));
+                document.add(new SortedNumericDocValuesField(DATE_FIELD, date));
+                writer.addDocument(document);
+                if ((i + 1) % docsPerSegment == 0) {
+                    writer.flush();
+                }
+            }
+        }
+        reader = DirectoryReader.open(directory);
+
+        final Map<String, MappedFieldType> fieldTypes = new HashMap<>();
+        final KeywordFieldMapper.KeywordFieldType keywordFieldType = new KeywordFieldMapper.KeywordFieldType();
+        keywordFieldType.setHasDocValues(true);
+        fieldTypes.put(KEYWORD_FIELD, keywordFieldType);
+        fieldTypes.put(LONG_FIELD, new NumberFieldMapper.NumberFieldType(NumberFieldMapper.NumberType.LONG));
+        fieldTypes.put(DOUBLE_FIELD, new NumberFieldMapper.NumberFieldType(NumberFieldMapper.NumberType.DOUBLE));
+        fieldTypes.put(DATE_FIELD, new DateFieldMapper.DateFieldType());
+        fieldTypes.forEach((name, fieldType) -> fieldType.setName(name));
+
+        final IndexSettings indexSettings = new IndexSettings(IndexMetadata.builder("index")
+            .settings(Settings.builder().put(IndexMetadata.SETTING_VERSION_CREATED, Version.CURRENT))
+            .numberOfShards(1)
+            .numberOfReplicas(0)
+            .build(), Settings.EMPTY);
+        final CircuitBreakerService breakerService = new NoneCircuitBreakerService();
+        final BigArrays bigArrays = new BigArrays(new PageCacheRecycler(Settings.EMPTY), breakerService, CircuitBreaker.REQUEST);
+        final IndexFieldDataCache fieldDataCache = new GlobalOrdinalsCache();
+        final Map<String, IndexFieldData<?>> fieldData = new HashMap<>();
+        final BiFunction<MappedFieldType, String, IndexFieldData<?>> fieldDataLookup = (fieldType, index) ->
+            fieldData.computeIfAbsent(fieldType.name(),
+                name -> fieldType.fielddataBuilder(index).build(indexSettings, fieldType, fieldDataCache, breakerService, null));
+        final ContextIndexSearcher searcher = new ContextIndexSearcher(reader, IndexSearcher.getDefaultSimilarity(), null,
+            IndexSearcher.getDefaultQueryCachingPolicy(), false);
+
+        queryShardContext = new QueryShardContext(0, indexSettings, bigArrays, null, fieldDataLookup, null, null, null,
+            NamedXContentRegistry.EMPTY, new NamedWriteableRegistry(emptyList()), null, searcher, System::currentTimeMillis, null,
+            index -> true, () -> true, VALUES_SOURCE_REGISTRY) {
+
+            @Override
+            public MappedFieldType fieldMapper(String name) {
+                return fieldTypes.get(name);
+            }
+        };
+        searchContext = new BenchmarkSearchContext(bigArrays, searcher, queryShardContext);
+    }
+
+    /**
+     * Creates the aggregation with the given name, one of {@code terms_global_ordinals}, {@code terms_map},
+     * {@code terms_long}, {@code date_histogram}, {@code composite}, {@code cardinality} or {@code percentiles}.
+     */
+    static AggregationBuilder aggregation(String name) {
+        switch (name) {
+            case "terms_global_ordinals":
+                return new TermsAggregationBuilder(name).field(KEYWORD_FIELD).executionHint("global_ordinals").size(100);
+            case "terms_map":
+                return new TermsAggregationBuilder(name).field(KEYWORD_FIELD).executionHint("map").size(100);
+            case "terms_long":
+                return new TermsAggregationBuilder(name).field(LONG_FIELD).size(100);
+            case "date_histogram":
+                return new DateHistogramAggregationBuilder(name).field(DATE_FIELD).calendarInterval(DateHistogramInterval.DAY);
+            case "composite":
+                return new CompositeAggregationBuilder(name, List.of(
+                    new TermsValuesSourceBuilder(KEYWORD_FIELD).field(KEYWORD_FIELD),
+                    new DateHistogramValuesSourceBuilder(DATE_FIELD).field(DATE_FIELD).calendarInterval(DateHistogramInterval.DAY)))
+                    .size(1000);
+            case "cardinality":
+                return new CardinalityAggregationBuilder(name).field(KEYWORD_FIELD);
+            case "percentiles":
+                return new PercentilesAggregationBuilder(name).field(DOUBLE_FIELD);
+            default:
+                throw new IllegalArgumentException("unknown aggregation [" + name + "]");
+        }
+    }
+
+    /**
+     * Runs the provided aggregation over all documents of the index and returns its result.
+     */
+    InternalAggregation collect(AggregationBuilder aggregation) throws IOException {
+        final AggregatorFactories factories = new AggregatorFactories.Builder().addAggregator(aggregation).build(queryShardContext, null);
+        try {
+            final Aggregator aggregator = factories.createTopLevelAggregators(searchContext)[0];
+            aggregator.preCollection();
+            searchContext.searcher().search(QUERY, aggregator);
+            aggregator.postCollection();
+            return aggregator.buildTopLevel();
+        } finally {
+            searchContext.clearReleasables(SearchContext.Lifetime.PHASE);
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        searchContext.clearReleasables(SearchContext.Lifetime.CONTEXT);
+        IOUtils.close(reader, directory);
+    }
+
+    /**
+     * Only exposes what aggregators use during the query phase, any other method fails.
+     */
+    private static final class BenchmarkSearchContext extends FilteredSearchContext {
+        private final BigArrays bigArrays;
+        private final ContextIndexSearcher searcher;
+        private final QueryShardContext queryShardContext;
+        private final SearchContextAggregations aggregations;
+
+        BenchmarkSearchContext(BigArrays bigArrays, ContextIndexSearcher searcher, QueryShardContext queryShardContext) {
+            super(null);
+            this.bigArrays = bigArrays;
+            this.searcher = searcher;
+            this.queryShardContext = queryShardContext;
+            this.aggregations = new SearchContextAggregations(AggregatorFactories.EMPTY, new MultiBucketConsumerService.MultiBucketConsumer(
+                MultiBucketConsumerService.DEFAULT_MAX_BUCKETS, new NoopCircuitBreaker(CircuitBreaker.REQUEST)));
+        }
+
+        @Override
+        public BigArrays bigArrays() {
+            return bigArrays;
+        }
+
+        @Override
+        public ContextIndexSearcher searcher() {
+            return searcher;
+        }
+
+        @Override
+        public QueryShardContext getQueryShardContext() {
+            return queryShardContext;
+        }
+
+        @Override
+        public SearchContextAggregations aggregations() {
+            return aggregations;
+        }
+
+        @Override
+        public Query query() {
+            return QUERY;
+        }
+
+        @Override
+        public SearchShardTarget shardTarget() {
+            return null;
+        }
+
+        @Override
+        public Profilers getProfilers() {
+            return null;
+        }
+
+        @Override
+        public boolean isCancelled() {
+            return false;
+        }
+
+        @Override
+        public boolean lowLevelCancellation() {
+            return false;
+        }
+
+        @Override
+        protected void doClose() {
+        }
+    }
+
+    /**
+     * Keeps global ordinals around like the node level field data cache does, so that they are only built once.
+     */
+    private static final class GlobalOrdinalsCache extends IndexFieldDataCache.None {
+        private final Map<String, IndexFieldData.Global<?>> globalOrdinals = new HashMap<>();
+
+        @Override
+        @SuppressWarnings("unchecked")
+        public <FD extends LeafFieldData, IFD extends IndexFieldData.Global<FD>> IFD load(DirectoryReader indexReader,
+                                                                                          IFD indexFieldData) throws Exception {
+            IndexFieldData.Global<?> global = globalOrdinals.get(indexFieldData.getFieldName());
+            if (global == null) {
+                global = super.load(indexReader, indexFieldData);
+                globalOrdinals.put(indexFieldData.getFieldName(), global);
+            }
+            return (IFD) global;
+        }
+
+        @Override
+        public void clear() {
+            globalOrdinals.clear();
+        }
+
+        @Override
+        public void clear(String fieldName) {
+            globalOrdinals.remove(fieldName);
+        }
+    }
+}
@@ -0,0 +1,88 @@
+/*
+ * Licensed to Elasticsearch under one or more contributor
+ * license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright
+ * ownership. Elasticsearch licenses this file to you under
+ * the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.elasticsearch.benchmark.search.aggregations;
+
+import org.elasticsearch.search.aggregations.AggregationBuilder;
+import org.elasticsearch.search.aggregations.InternalAggregation;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures how long it takes to build an aggregator, collect all documents of a shard and build the shard level
+ * result, the work that the query phase does for an aggregation.
+ */
+@Fork(1)
+@Warmup(iterations = 5)
+@Measurement(iterations = 10)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@State(Scope.Benchmark)
+@SuppressWarnings("unused") // invoked by benchmarking framework
+public class AggregatorCollectBenchmark {
+    @Param({ "terms_global_ordinals", "terms_map", "terms_long", "date_histogram", "composite", "cardinality", "percentiles" })
+    public String aggregation;
+
+    @Param({ "1000000" })
+    public int numDocs;
+
+    @Param({ "1", "10" })
+    public int numSegments;
+
+    /**
+     * The number of distinct values of the keyword and the long field.
+     */
+    @Param({ "100", "100000" })
+    public int cardinality;
+
+    private AggregationBenchmarkContext context;
+    private AggregationBuilder builder;
+
+    @Setup
+    public void setup() throws IOException {
+        context = new AggregationBenchmarkContext(new Random(42), numDocs, numSegments, cardinality);
+        builder = AggregationBenchmarkContext.aggregation(aggregation);
+        // builds global ordinals, those are cached across requests in production too
+        context.collect(builder);
+    }
+
+    @TearDown
+    public void tearDown() throws IOException {
+        context.close();
+    }
+
+    @Benchmark
+    public InternalAggregation collect() throws IOException {
+        return context.collect(builder);
+    }
+}
@@ -0,0 +1,97 @@
+/*
+ * Licensed to Elasticsearch under one or more contributor
+ * license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright
+ * ownership. Elasticsearch licenses this file to you under
+ * the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.elasticsearch.benchmark.search.aggregations;
+
+import org.elasticsearch.common.util.BigArrays;
+import org.elasticsearch.search.aggregations.AggregationBuilder;
+import org.elasticsearch.search.aggregations.InternalAggregation;
+import org.elasticsearch.search.aggregations.pipeline.PipelineAggregator.PipelineTree;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures the final reduction of the shard level results of an aggregation on the coordinating node. The shard
+ * results are produced by running the aggregation over one small in-memory index per shard, all with different
+ * documents.
+ */
+@Fork(1)
+@Warmup(iterations = 5)
+@Measurement(iterations = 10)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@State(Scope.Benchmark)
+@SuppressWarnings("unused") // invoked by benchmarking framework
+public class InternalAggregationReduceBenchmark {
+    @Param({ "terms_global_ordinals", "terms_map", "terms_long", "date_histogram", "composite", "cardinality", "percentiles" })
+    public String aggregation;
+
+    @Param({ "5", "100" })
+    public int numShards;
+
+    @Param({ "10000" })
+    public int numDocsPerShard;
+
+    /**
+     * The number of distinct values of the keyword and the long field.
+     */
+    @Param({ "100", "100000" })
+    public int cardinality;
+
+    private List<InternalAggregation> shardResults;
+    private InternalAggregation.ReduceContext reduceContext;
+
+    @Setup
+    public void setup() throws IOException {
+        final AggregationBuilder builder = AggregationBenchmarkContext.aggregation(aggregation);
+        shardResults = new ArrayList<>(numShards);
+        for (int shard = 0; shard < numShards; shard++) {
+            try (AggregationBenchmarkContext context =
+                     new AggregationBenchmarkContext(new Random(shard), numDocsPerShard, 1, cardinality)) {
+                shardResults.add(context.collect(builder));
+            }
+        }
+        reduceContext = InternalAggregation.ReduceContext.forFinalReduction(BigArrays.NON_RECYCLING_INSTANCE, null, buckets -> {},
+            PipelineTree.EMPTY);
+    }
+
+    /**
+     * The shard results are reused across invocations. Reducing terms adjusts the doc count error of the shard buckets
+     * in place, which doesn't change the amount of work that the next reduction has to do.
+     */
+    @Benchmark
+    public InternalAggregation reduce() {
+        return shardResults.get(0).reduce(shardResults, reduceContext);
+    }
+}
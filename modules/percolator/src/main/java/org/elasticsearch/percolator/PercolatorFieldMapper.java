@@ -359,6 +359,12 @@ public class PercolatorFieldMapper extends FieldMapper {
         this.rangeFieldMapper = rangeFieldMapper;
     }
 
+    @Override
+    public boolean isShareable() {
+        // percolator queries are parsed with the query shard context of the index that this mapper was parsed for
+        return false;
+    }
+
     @Override
     public void parse(ParseContext context) throws IOException {
         QueryShardContext queryShardContext = this.queryShardContext.get();
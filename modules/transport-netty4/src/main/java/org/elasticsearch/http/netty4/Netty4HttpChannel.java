@@ -19,12 +19,18 @@
 
 package org.elasticsearch.http.netty4;
 
+import io.netty.buffer.ByteBuf;
 import io.netty.channel.Channel;
+import io.netty.handler.codec.http.DefaultHttpContent;
+import io.netty.handler.codec.http.DefaultLastHttpContent;
+import io.netty.handler.codec.http.HttpContent;
 import org.elasticsearch.action.ActionListener;
+import org.elasticsearch.common.bytes.BytesReference;
 import org.elasticsearch.common.concurrent.CompletableContext;
 import org.elasticsearch.http.HttpChannel;
 import org.elasticsearch.http.HttpResponse;
 import org.elasticsearch.transport.netty4.Netty4TcpChannel;
+import org.elasticsearch.transport.netty4.Netty4Utils;
 
 import java.net.InetSocketAddress;
 
@@ -43,6 +49,13 @@ public class Netty4HttpChannel implements HttpChannel {
         channel.writeAndFlush(response, Netty4TcpChannel.addPromise(listener, channel));
     }
 
+    @Override
+    public void sendChunk(BytesReference chunk, boolean last, ActionListener<Void> listener) {
+        final ByteBuf content = Netty4Utils.toByteBuf(chunk);
+        final HttpContent httpContent = last ? new DefaultLastHttpContent(content) : new DefaultHttpContent(content);
+        channel.writeAndFlush(httpContent, Netty4TcpChannel.addPromise(listener, channel));
+    }
+
     @Override
     public InetSocketAddress getLocalAddress() {
         return (InetSocketAddress) channel.localAddress();
@@ -22,6 +22,8 @@ package org.elasticsearch.http.netty4;
 import io.netty.channel.ChannelDuplexHandler;
 import io.netty.channel.ChannelHandlerContext;
 import io.netty.channel.ChannelPromise;
+import io.netty.handler.codec.http.HttpContent;
+import io.netty.handler.codec.http.LastHttpContent;
 import org.apache.logging.log4j.Logger;
 import org.elasticsearch.common.collect.Tuple;
 import org.elasticsearch.http.HttpPipelinedRequest;
@@ -29,6 +31,8 @@ import org.elasticsearch.http.HttpPipelinedResponse;
 import org.elasticsearch.http.HttpPipeliningAggregator;
 
 import java.nio.channels.ClosedChannelException;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
 import java.util.List;
 
 /**
@@ -38,6 +42,9 @@ public class Netty4HttpPipeliningHandler extends ChannelDuplexHandler {
 
     private final Logger logger;
     private final HttpPipeliningAggregator<ChannelPromise> aggregator;
+    // responses that are ready to be written but have to wait for the body of a chunked response to be complete
+    private final ArrayDeque<Tuple<HttpPipelinedResponse, ChannelPromise>> heldResponses = new ArrayDeque<>();
+    private boolean writingChunks = false;
 
     /**
      * Construct a new pipelining handler; this handler should be used downstream of HTTP decoding/aggregation.
@@ -60,14 +67,23 @@ public class Netty4HttpPipeliningHandler extends ChannelDuplexHandler {
 
     @Override
     public void write(final ChannelHandlerContext ctx, final Object msg, final ChannelPromise promise) {
+        if (msg instanceof HttpContent) {
+            // a chunk of the body of the chunked response that is being written
+            assert writingChunks : "received a chunk without a chunked response";
+            ctx.write(msg, promise);
+            if (msg instanceof LastHttpContent) {
+                writingChunks = false;
+                writeHeldResponses(ctx);
+            }
+            return;
+        }
         assert msg instanceof HttpPipelinedResponse : "Invalid message type: " + msg.getClass();
         HttpPipelinedResponse response = (HttpPipelinedResponse) msg;
         boolean success = false;
         try {
             List<Tuple<HttpPipelinedResponse, ChannelPromise>> readyResponses = aggregator.write(response, promise);
-            for (Tuple<HttpPipelinedResponse, ChannelPromise> readyResponse : readyResponses) {
-                ctx.write(readyResponse.v1().getDelegateRequest(), readyResponse.v2());
-            }
+            heldResponses.addAll(readyResponses);
+            writeHeldResponses(ctx);
             success = true;
         } catch (IllegalStateException e) {
             ctx.channel().close();
@@ -78,9 +94,19 @@ public class Netty4HttpPipeliningHandler extends ChannelDuplexHandler {
         }
     }
 
+    private void writeHeldResponses(ChannelHandlerContext ctx) {
+        while (writingChunks == false && heldResponses.isEmpty() == false) {
+            Tuple<HttpPipelinedResponse, ChannelPromise> readyResponse = heldResponses.poll();
+            ctx.write(readyResponse.v1().getDelegateRequest(), readyResponse.v2());
+            writingChunks = readyResponse.v1().getDelegateRequest() instanceof Netty4ChunkedHttpResponse;
+        }
+    }
+
     @Override
     public void close(ChannelHandlerContext ctx, ChannelPromise promise) {
-        List<Tuple<HttpPipelinedResponse, ChannelPromise>> inflightResponses = aggregator.removeAllInflightResponses();
+        List<Tuple<HttpPipelinedResponse, ChannelPromise>> inflightResponses = new ArrayList<>(heldResponses);
+        heldResponses.clear();
+        inflightResponses.addAll(aggregator.removeAllInflightResponses());
 
         if (inflightResponses.isEmpty() == false) {
             ClosedChannelException closedChannelException = new ClosedChannelException();
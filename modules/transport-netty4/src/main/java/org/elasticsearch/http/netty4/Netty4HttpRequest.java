@@ -199,6 +199,11 @@ public class Netty4HttpRequest implements HttpRequest {
         return new Netty4HttpResponse(request.headers(), request.protocolVersion(), status, content);
     }
 
+    @Override
+    public Netty4ChunkedHttpResponse createChunkedResponse(RestStatus status) {
+        return new Netty4ChunkedHttpResponse(request.headers(), request.protocolVersion(), status);
+    }
+
     @Override
     public Exception getInboundException() {
         return inboundException;
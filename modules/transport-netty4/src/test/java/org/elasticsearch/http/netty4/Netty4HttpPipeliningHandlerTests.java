@@ -20,13 +20,17 @@
 package org.elasticsearch.http.netty4;
 
 import io.netty.buffer.ByteBufUtil;
+import io.netty.buffer.Unpooled;
 import io.netty.channel.ChannelHandlerContext;
 import io.netty.channel.ChannelPromise;
 import io.netty.channel.SimpleChannelInboundHandler;
 import io.netty.channel.embedded.EmbeddedChannel;
 import io.netty.handler.codec.http.DefaultFullHttpRequest;
+import io.netty.handler.codec.http.DefaultHttpContent;
 import io.netty.handler.codec.http.FullHttpResponse;
+import io.netty.handler.codec.http.HttpContent;
 import io.netty.handler.codec.http.HttpMethod;
+import io.netty.handler.codec.http.LastHttpContent;
 import io.netty.handler.codec.http.QueryStringDecoder;
 import org.elasticsearch.common.Randomness;
 import org.elasticsearch.common.bytes.BytesArray;
@@ -53,6 +57,7 @@ import java.util.stream.IntStream;
 
 import static io.netty.handler.codec.http.HttpHeaderNames.CONTENT_LENGTH;
 import static io.netty.handler.codec.http.HttpVersion.HTTP_1_1;
+import static org.hamcrest.Matchers.instanceOf;
 import static org.hamcrest.core.Is.is;
 
 public class Netty4HttpPipeliningHandlerTests extends ESTestCase {
@@ -204,6 +209,27 @@ public class Netty4HttpPipeliningHandlerTests extends ESTestCase {
         }
     }
 
+    public void testPipelinedResponsesWaitForChunkedResponse() {
+        final EmbeddedChannel embeddedChannel = new EmbeddedChannel(new Netty4HttpPipeliningHandler(logger, 10));
+        embeddedChannel.writeInbound(createHttpRequest("/chunked"));
+        embeddedChannel.writeInbound(createHttpRequest("/full"));
+        final HttpPipelinedRequest chunkedRequest = embeddedChannel.readInbound();
+        final HttpPipelinedRequest fullRequest = embeddedChannel.readInbound();
+
+        embeddedChannel.writeAndFlush(chunkedRequest.createChunkedResponse(RestStatus.OK));
+        assertThat(embeddedChannel.outboundMessages().poll(), instanceOf(Netty4ChunkedHttpResponse.class));
+        embeddedChannel.writeAndFlush(new DefaultHttpContent(Unpooled.copiedBuffer("chunk", StandardCharsets.UTF_8)));
+
+        // the full response must not be written in the middle of the chunks of the previous response
+        embeddedChannel.writeAndFlush(fullRequest.createResponse(RestStatus.OK, new BytesArray("full")));
+        HttpContent chunk = (HttpContent) embeddedChannel.outboundMessages().poll();
+        assertThat(chunk.content().toString(StandardCharsets.UTF_8), is("chunk"));
+        assertNull(embeddedChannel.outboundMessages().poll());
+
+        embeddedChannel.writeAndFlush(LastHttpContent.EMPTY_LAST_CONTENT);
+        assertThat(embeddedChannel.outboundMessages().poll(), instanceOf(LastHttpContent.class));
+        assertReadHttpMessageHasContent(embeddedChannel, "full");
+    }
 
     private void assertReadHttpMessageHasContent(EmbeddedChannel embeddedChannel, String expectedContent) {
         FullHttpResponse response = (FullHttpResponse) embeddedChannel.outboundMessages().poll();
@@ -478,6 +478,51 @@ public class IndicesRequestCacheIT extends ESIntegTestCase {
         }
     }
 
+    public void testCacheAggsPerSegment() {
+        Client client = client();
+        assertAcked(client.admin().indices().prepareCreate("index")
+            .setMapping("f", "type=date")
+            .setSettings(Settings.builder()
+                .put(IndicesRequestCache.INDEX_CACHE_REQUEST_ENABLED_SETTING.getKey(), true)
+                .put(IndicesRequestCache.INDEX_CACHE_REQUEST_PER_SEGMENT_SETTING.getKey(), true)
+                .put(IndexMetadata.SETTING_NUMBER_OF_SHARDS, 1)
+                .put(IndexMetadata.SETTING_NUMBER_OF_REPLICAS, 0)
+                .put("index.refresh_interval", -1)).get());
+        client.prepareIndex("index").setId("1").setSource("f", "2014-03-10T00:00:00.000Z").get();
+        refresh("index");
+
+        SearchResponse r1 = client.prepareSearch("index").setSize(0)
+            .addAggregation(dateHistogram("histo").field("f").calendarInterval(DateHistogramInterval.MONTH))
+            .get();
+        assertSearchResponse(r1);
+        assertThat(r1.getHits().getTotalHits().value, equalTo(1L));
+        assertSegmentCacheState(client, "index", 0, 1);
+
+        // only the new segment is computed
+        client.prepareIndex("index").setId("2").setSource("f", "2014-05-13T00:00:00.000Z").get();
+        refresh("index");
+        SearchResponse r2 = client.prepareSearch("index").setSize(0)
+            .addAggregation(dateHistogram("histo").field("f").calendarInterval(DateHistogramInterval.MONTH))
+            .get();
+        assertSearchResponse(r2);
+        assertThat(r2.getHits().getTotalHits().value, equalTo(2L));
+        assertSegmentCacheState(client, "index", 1, 2);
+        Histogram histogram = r2.getAggregations().get("histo");
+        assertThat(histogram.getBuckets().size(), equalTo(3));
+        assertThat(histogram.getBuckets().get(0).getDocCount(), equalTo(1L));
+        assertThat(histogram.getBuckets().get(1).getDocCount(), equalTo(0L));
+        assertThat(histogram.getBuckets().get(2).getDocCount(), equalTo(1L));
+        assertCacheState(client, "index", 0, 0);
+    }
+
+    private static void assertSegmentCacheState(Client client, String index, long expectedHits, long expectedMisses) {
+        RequestCacheStats requestCacheStats = client.admin().indices().prepareStats(index)
+            .setRequestCache(true)
+            .get().getTotal().getRequestCache();
+        assertEquals(Arrays.asList(expectedHits, expectedMisses),
+            Arrays.asList(requestCacheStats.getSegmentHitCount(), requestCacheStats.getSegmentMissCount()));
+    }
+
     private static void assertCacheState(Client client, String index, long expectedHits, long expectedMisses) {
         RequestCacheStats requestCacheStats = client.admin().indices().prepareStats(index)
             .setRequestCache(true)
@@ -0,0 +1,72 @@
+/*
+ * Licensed to Elasticsearch under one or more contributor
+ * license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright
+ * ownership. Elasticsearch licenses this file to you under
+ * the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.elasticsearch.search.fetch;
+
+import org.elasticsearch.action.index.IndexRequestBuilder;
+import org.elasticsearch.action.search.SearchResponse;
+import org.elasticsearch.common.settings.Settings;
+import org.elasticsearch.index.IndexSettings;
+import org.elasticsearch.search.SearchHit;
+import org.elasticsearch.search.fetch.subphase.highlight.HighlightBuilder;
+import org.elasticsearch.search.sort.SortOrder;
+import org.elasticsearch.test.ESIntegTestCase;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.elasticsearch.index.query.QueryBuilders.matchQuery;
+import static org.elasticsearch.test.hamcrest.ElasticsearchAssertions.assertAcked;
+import static org.elasticsearch.test.hamcrest.ElasticsearchAssertions.assertNoFailures;
+import static org.hamcrest.Matchers.equalTo;
+
+public class ParallelFetchIT extends ESIntegTestCase {
+
+    public void testParallelFetchKeepsHitsInOrder() throws Exception {
+        assertAcked(prepareCreate("test")
+            .setSettings(Settings.builder()
+                .put(IndexSettings.PARALLEL_FETCH_CHUNK_SIZE_SETTING.getKey(), randomIntBetween(1, 20))
+                .put("index.number_of_shards", randomIntBetween(1, 3)))
+            .setMapping("text", "type=text", "rank", "type=integer"));
+        int numDocs = randomIntBetween(50, 200);
+        List<IndexRequestBuilder> requests = new ArrayList<>();
+        for (int i = 0; i < numDocs; i++) {
+            requests.add(client().prepareIndex("test").setId(Integer.toString(i))
+                .setSource("text", "the quick brown fox number " + i, "rank", numDocs - i));
+        }
+        indexRandom(true, requests);
+
+        SearchResponse response = client().prepareSearch("test")
+            .setQuery(matchQuery("text", "fox"))
+            .addSort("rank", SortOrder.ASC)
+            .setSize(numDocs)
+            .highlighter(new HighlightBuilder().field("text"))
+            .get();
+        assertNoFailures(response);
+        SearchHit[] hits = response.getHits().getHits();
+        assertThat(hits.length, equalTo(numDocs));
+        for (int i = 0; i < numDocs; i++) {
+            String id = Integer.toString(numDocs - 1 - i);
+            assertThat(hits[i].getId(), equalTo(id));
+            assertThat(hits[i].getSourceAsMap().get("rank"), equalTo(i + 1));
+            assertThat(hits[i].getHighlightFields().get("text").fragments()[0].string(),
+                equalTo("the quick brown <em>fox</em> number " + id));
+        }
+    }
+}
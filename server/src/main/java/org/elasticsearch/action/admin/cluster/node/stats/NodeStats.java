@@ -30,6 +30,7 @@ import org.elasticsearch.common.xcontent.ToXContentFragment;
 import org.elasticsearch.common.xcontent.XContentBuilder;
 import org.elasticsearch.discovery.DiscoveryStats;
 import org.elasticsearch.http.HttpStats;
+import org.elasticsearch.index.mapper.SharedMappingStats;
 import org.elasticsearch.indices.NodeIndicesStats;
 import org.elasticsearch.indices.breaker.AllCircuitBreakerStats;
 import org.elasticsearch.ingest.IngestStats;
@@ -86,6 +87,9 @@ public class NodeStats extends BaseNodeResponse implements ToXContentFragment {
     @Nullable
     private ScriptCacheStats scriptCacheStats;
 
+    @Nullable
+    private SharedMappingStats sharedMappingStats;
+
     @Nullable
     private DiscoveryStats discoveryStats;
 
@@ -118,6 +122,11 @@ public class NodeStats extends BaseNodeResponse implements ToXContentFragment {
         } else {
             scriptCacheStats = null;
         }
+        if (in.getVersion().onOrAfter(Version.V_8_0_0)) {
+            sharedMappingStats = in.readOptionalWriteable(SharedMappingStats::new);
+        } else {
+            sharedMappingStats = null;
+        }
     }
 
     public NodeStats(DiscoveryNode node, long timestamp, @Nullable NodeIndicesStats indices,
@@ -128,7 +137,8 @@ public class NodeStats extends BaseNodeResponse implements ToXContentFragment {
                      @Nullable DiscoveryStats discoveryStats,
                      @Nullable IngestStats ingestStats,
                      @Nullable AdaptiveSelectionStats adaptiveSelectionStats,
-                     @Nullable ScriptCacheStats scriptCacheStats) {
+                     @Nullable ScriptCacheStats scriptCacheStats,
+                     @Nullable SharedMappingStats sharedMappingStats) {
         super(node);
         this.timestamp = timestamp;
         this.indices = indices;
@@ -145,6 +155,7 @@ public class NodeStats extends BaseNodeResponse implements ToXContentFragment {
         this.ingestStats = ingestStats;
         this.adaptiveSelectionStats = adaptiveSelectionStats;
         this.scriptCacheStats = scriptCacheStats;
+        this.sharedMappingStats = sharedMappingStats;
     }
 
     public long getTimestamp() {
@@ -244,6 +255,11 @@ public class NodeStats extends BaseNodeResponse implements ToXContentFragment {
         return scriptCacheStats;
     }
 
+    @Nullable
+    public SharedMappingStats getSharedMappingStats() {
+        return sharedMappingStats;
+    }
+
     @Override
     public void writeTo(StreamOutput out) throws IOException {
         super.writeTo(out);
@@ -269,6 +285,9 @@ public class NodeStats extends BaseNodeResponse implements ToXContentFragment {
         if (out.getVersion().onOrAfter(Version.V_7_8_0)) {
             out.writeOptionalWriteable(scriptCacheStats);
         }
+        if (out.getVersion().onOrAfter(Version.V_8_0_0)) {
+            out.writeOptionalWriteable(sharedMappingStats);
+        }
     }
 
     @Override
@@ -335,6 +354,9 @@ public class NodeStats extends BaseNodeResponse implements ToXContentFragment {
         if (getScriptCacheStats() != null) {
             getScriptCacheStats().toXContent(builder, params);
         }
+        if (getSharedMappingStats() != null) {
+            getSharedMappingStats().toXContent(builder, params);
+        }
         return builder;
     }
 }
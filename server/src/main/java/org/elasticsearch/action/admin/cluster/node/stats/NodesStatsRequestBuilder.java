@@ -157,6 +157,14 @@ public class NodesStatsRequestBuilder
         return this;
     }
 
+    /**
+     * Should statistics about the parsed mappings that indices share be returned
+     */
+    public NodesStatsRequestBuilder setSharedMappings(boolean sharedMappings) {
+        addOrRemoveMetric(sharedMappings, NodesStatsRequest.Metric.SHARED_MAPPINGS);
+        return this;
+    }
+
     /**
      * Helper method for adding metrics to a request
      */
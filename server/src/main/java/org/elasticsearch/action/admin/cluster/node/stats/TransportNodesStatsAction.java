@@ -84,7 +84,8 @@ public class TransportNodesStatsAction extends TransportNodesAction<NodesStatsRe
             NodesStatsRequest.Metric.DISCOVERY.containedIn(metrics),
             NodesStatsRequest.Metric.INGEST.containedIn(metrics),
             NodesStatsRequest.Metric.ADAPTIVE_SELECTION.containedIn(metrics),
-            NodesStatsRequest.Metric.SCRIPT_CACHE.containedIn(metrics));
+            NodesStatsRequest.Metric.SCRIPT_CACHE.containedIn(metrics),
+            NodesStatsRequest.Metric.SHARED_MAPPINGS.containedIn(metrics));
     }
 
     public static class NodeStatsRequest extends TransportRequest {
@@ -253,6 +253,17 @@ public class BulkRequest extends ActionRequest implements CompositeIndicesReques
         return this;
     }
 
+    /**
+     * Adds the documents of a batch in the columnar format of {@link ColumnarBulkRequestParser}.
+     */
+    public BulkRequest addColumnar(BytesReference data, @Nullable String defaultIndex, @Nullable String defaultRouting,
+                                   @Nullable String defaultPipeline, boolean allowExplicitIndex) throws IOException {
+        String routing = valueOrDefault(defaultRouting, globalRouting);
+        String pipeline = valueOrDefault(defaultPipeline, globalPipeline);
+        ColumnarBulkRequestParser.parse(data, defaultIndex, routing, pipeline, allowExplicitIndex, this::internalAdd);
+        return this;
+    }
+
     /**
      * Sets the number of shard copies that must be active before proceeding with the write.
      * See {@link ReplicationRequest#waitForActiveShards(ActiveShardCount)} for details.
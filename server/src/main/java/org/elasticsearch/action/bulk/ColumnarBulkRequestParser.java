@@ -0,0 +1,527 @@
+/*
+ * Licensed to Elasticsearch under one or more contributor
+ * license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright
+ * ownership. Elasticsearch licenses this file to you under
+ * the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.elasticsearch.action.bulk;
+
+import org.elasticsearch.action.index.IndexRequest;
+import org.elasticsearch.common.Nullable;
+import org.elasticsearch.common.bytes.BytesReference;
+import org.elasticsearch.common.io.stream.BytesStreamOutput;
+import org.elasticsearch.common.io.stream.StreamInput;
+import org.elasticsearch.common.xcontent.XContentType;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Consumer;
+
+/**
+ * Helper to parse bulk requests that index a batch of documents in a columnar binary layout. This should be considered an internal
+ * class.
+ * <p>
+ * Such requests are sent with the {@link #MEDIA_TYPE} content type and consist of a header that describes the batch followed by one
+ * block of values per field:
+ * <pre>
+ * header:   magic "ESCB" | vint version | optional string index | vint number of documents
+ *           | boolean has ids [ | optional string id per document ]
+ *           | vint number of fields | per field: string name, byte {@link ColumnType type}
+ * columns:  per field: one presence bit per document, followed by the values of the documents that have the field:
+ *           long: zlong per value | double: double per value | boolean: boolean per value
+ *           | keyword: vint dictionary size, string per dictionary entry, vint ordinal per value
+ * </pre>
+ * The values of a batch are decoded column by column, and the {@code _source} of each document is written straight from these values
+ * in the {@link XContentType#JSON json} format: field names and keyword dictionary entries are encoded once per batch, and the sources
+ * of all documents of a batch are slices of a single buffer.
+ * <p>
+ * This is only a wire format: it makes batches smaller and cheaper to build and to split into index requests than newline delimited
+ * json, but the documents are indexed like any other index request, so shards still parse the json source of every document.
+ */
+public final class ColumnarBulkRequestParser {
+
+    /**
+     * The content type of columnar bulk requests.
+     */
+    public static final String MEDIA_TYPE = "application/vnd.elasticsearch.bulk+columnar";
+
+    static final byte[] MAGIC = new byte[] { 'E', 'S', 'C', 'B' };
+    static final int CURRENT_VERSION = 1;
+
+    /**
+     * The {@link XContentType} of the sources that are generated for the documents of a columnar batch.
+     */
+    public static final XContentType SOURCE_CONTENT_TYPE = XContentType.JSON;
+
+    private static final byte[] TRUE = "true".getBytes(StandardCharsets.US_ASCII);
+    private static final byte[] FALSE = "false".getBytes(StandardCharsets.US_ASCII);
+
+    /**
+     * The type of the values of a column.
+     */
+    public enum ColumnType {
+        LONG((byte) 0),
+        DOUBLE((byte) 1),
+        BOOLEAN((byte) 2),
+        KEYWORD((byte) 3);
+
+        private final byte id;
+
+        ColumnType(byte id) {
+            this.id = id;
+        }
+
+        public byte id() {
+            return id;
+        }
+
+        static ColumnType fromId(byte id) {
+            switch (id) {
+                case 0:
+                    return LONG;
+                case 1:
+                    return DOUBLE;
+                case 2:
+                    return BOOLEAN;
+                case 3:
+                    return KEYWORD;
+                default:
+                    throw new IllegalArgumentException("Malformed columnar bulk request, unknown column type [" + id + "]");
+            }
+        }
+    }
+
+    private ColumnarBulkRequestParser() {}
+
+    /**
+     * Parse the provided columnar {@code data} assuming the provided default values. An index request is passed to the
+     * {@code indexRequestConsumer} for every document of the batch.
+     */
+    public static void parse(BytesReference data, @Nullable String defaultIndex, @Nullable String defaultRouting,
+                             @Nullable String defaultPipeline, boolean allowExplicitIndex,
+                             Consumer<IndexRequest> indexRequestConsumer) throws IOException {
+        try (StreamInput in = data.streamInput()) {
+            parse(in, defaultIndex, defaultRouting, defaultPipeline, allowExplicitIndex, indexRequestConsumer);
+        } catch (EOFException e) {
+            throw new IllegalArgumentException("Malformed columnar bulk request, unexpected end of content", e);
+        }
+    }
+
+    private static void parse(StreamInput in, @Nullable String defaultIndex, @Nullable String defaultRouting,
+                              @Nullable String defaultPipeline, boolean allowExplicitIndex,
+                              Consumer<IndexRequest> indexRequestConsumer) throws IOException {
+        final byte[] magic = readBytes(in, MAGIC.length);
+        if (Arrays.equals(MAGIC, magic) == false) {
+            throw new IllegalArgumentException("Malformed columnar bulk request, expected the header to start with "
+                + Arrays.toString(MAGIC) + " but found " + Arrays.toString(magic));
+        }
+        final int version = in.readVInt();
+        if (version != CURRENT_VERSION) {
+            throw new IllegalArgumentException("Unsupported columnar bulk request version [" + version + "], expected ["
+                + CURRENT_VERSION + "]");
+        }
+        String index = in.readOptionalString();
+        if (index != null && allowExplicitIndex == false) {
+            throw new IllegalArgumentException("explicit index in bulk is not allowed");
+        }
+        if (index == null) {
+            index = defaultIndex;
+        }
+        final int numDocs = in.readVInt();
+        if (numDocs > 8L * in.available()) {
+            throw new IllegalArgumentException("Malformed columnar bulk request, [" + numDocs + "] documents can't fit in the ["
+                + in.available() + "] remaining bytes");
+        }
+        final String[] ids = in.readBoolean() ? readIds(in, numDocs) : null;
+        final int numFields = in.readVInt();
+        if (numFields > in.available()) {
+            throw new IllegalArgumentException("Malformed columnar bulk request, [" + numFields + "] fields can't fit in the ["
+                + in.available() + "] remaining bytes");
+        }
+        final String[] names = new String[numFields];
+        final ColumnType[] types = new ColumnType[numFields];
+        final Set<String> uniqueNames = new HashSet<>();
+        for (int i = 0; i < numFields; i++) {
+            names[i] = in.readString();
+            if (uniqueNames.add(names[i]) == false) {
+                throw new IllegalArgumentException("Malformed columnar bulk request, duplicate field [" + names[i] + "]");
+            }
+            types[i] = ColumnType.fromId(in.readByte());
+        }
+        final Column[] columns = new Column[numFields];
+        for (int i = 0; i < numFields; i++) {
+            columns[i] = readColumn(in, names[i], types[i], numDocs);
+        }
+        if (in.available() > 0) {
+            throw new IllegalArgumentException("Malformed columnar bulk request, found [" + in.available()
+                + "] trailing bytes after the last column");
+        }
+
+        // the sources of all documents are written to a single buffer, each index request gets a slice of it
+        final BytesStreamOutput out = new BytesStreamOutput();
+        final int[] offsets = new int[numDocs + 1];
+        for (int doc = 0; doc < numDocs; doc++) {
+            offsets[doc] = Math.toIntExact(out.position());
+            out.writeByte((byte) '{');
+            boolean first = true;
+            for (Column column : columns) {
+                if (column.writeValue(doc, first, out)) {
+                    first = false;
+                }
+            }
+            out.writeByte((byte) '}');
+        }
+        offsets[numDocs] = Math.toIntExact(out.position());
+        final BytesReference sources = out.bytes();
+        for (int doc = 0; doc < numDocs; doc++) {
+            final IndexRequest indexRequest = new IndexRequest(index)
+                .id(ids == null ? null : ids[doc])
+                .routing(defaultRouting)
+                .setPipeline(defaultPipeline)
+                .source(sources.slice(offsets[doc], offsets[doc + 1] - offsets[doc]), SOURCE_CONTENT_TYPE);
+            indexRequestConsumer.accept(indexRequest);
+        }
+    }
+
+    /**
+     * Encodes the provided string as a quoted json string. Control characters and surrogates that aren't part of a pair, which
+     * have no UTF-8 encoding, are escaped.
+     */
+    static byte[] encodeJsonString(String value) {
+        final StringBuilder builder = new StringBuilder(value.length() + 2).append('"');
+        for (int i = 0; i < value.length(); i++) {
+            final char c = value.charAt(i);
+            if (c == '"' || c == '\\') {
+                builder.append('\\').append(c);
+            } else if (c < 0x20) {
+                builder.append(String.format(Locale.ROOT, "\\u%04x", (int) c));
+            } else if (Character.isHighSurrogate(c) && i + 1 < value.length() && Character.isLowSurrogate(value.charAt(i + 1))) {
+                builder.append(c).append(value.charAt(++i));
+            } else if (Character.isSurrogate(c)) {
+                builder.append(String.format(Locale.ROOT, "\\u%04x", (int) c));
+            } else {
+                builder.append(c);
+            }
+        }
+        return builder.append('"').toString().getBytes(StandardCharsets.UTF_8);
+    }
+
+    private static void writeAscii(String value, BytesStreamOutput out) {
+        for (int i = 0; i < value.length(); i++) {
+            out.writeByte((byte) value.charAt(i));
+        }
+    }
+
+    private static byte[] readBytes(StreamInput in, int length) throws IOException {
+        if (in.available() < length) {
+            throw new EOFException("tried to read [" + length + "] bytes but only [" + in.available() + "] are remaining");
+        }
+        final byte[] bytes = new byte[length];
+        in.readBytes(bytes, 0, length);
+        return bytes;
+    }
+
+    private static String[] readIds(StreamInput in, int numDocs) throws IOException {
+        final String[] ids = new String[numDocs];
+        for (int doc = 0; doc < numDocs; doc++) {
+            ids[doc] = in.readOptionalString();
+        }
+        return ids;
+    }
+
+    private static Column readColumn(StreamInput in, String name, ColumnType type, int numDocs) throws IOException {
+        final byte[] presence = readBytes(in, (numDocs + 7) / 8);
+        if ((numDocs & 7) != 0 && (presence[presence.length - 1] & 0xFF) >>> (numDocs & 7) != 0) {
+            throw new IllegalArgumentException("Malformed columnar bulk request, presence bits are set for documents beyond ["
+                + numDocs + "]");
+        }
+        int numValues = 0;
+        for (byte bits : presence) {
+            numValues += Integer.bitCount(bits & 0xFF);
+        }
+        switch (type) {
+            case LONG: {
+                final long[] values = new long[numValues];
+                for (int i = 0; i < numValues; i++) {
+                    values[i] = in.readZLong();
+                }
+                return new Column(name, presence, numDocs) {
+                    @Override
+                    void writeOrd(int ord, BytesStreamOutput out) throws IOException {
+                        writeAscii(Long.toString(values[ord]), out);
+                    }
+                };
+            }
+            case DOUBLE: {
+                final double[] values = new double[numValues];
+                for (int i = 0; i < numValues; i++) {
+                    values[i] = in.readDouble();
+                }
+                return new Column(name, presence, numDocs) {
+                    @Override
+                    void writeOrd(int ord, BytesStreamOutput out) throws IOException {
+                        final String value = Double.toString(values[ord]);
+                        if (Double.isFinite(values[ord])) {
+                            writeAscii(value, out);
+                        } else {
+                            // json has no representation of NaN and infinities, they are quoted like XContentBuilder does
+                            out.writeByte((byte) '"');
+                            writeAscii(value, out);
+                            out.writeByte((byte) '"');
+                        }
+                    }
+                };
+            }
+            case BOOLEAN: {
+                final boolean[] values = new boolean[numValues];
+                for (int i = 0; i < numValues; i++) {
+                    values[i] = in.readBoolean();
+                }
+                return new Column(name, presence, numDocs) {
+                    @Override
+                    void writeOrd(int ord, BytesStreamOutput out) throws IOException {
+                        out.writeBytes(values[ord] ? TRUE : FALSE);
+                    }
+                };
+            }
+            case KEYWORD: {
+                final String[] dictionary = in.readStringArray();
+                final int[] ords = new int[numValues];
+                for (int i = 0; i < numValues; i++) {
+                    ords[i] = in.readVInt();
+                    if (ords[i] >= dictionary.length) {
+                        throw new IllegalArgumentException("Malformed columnar bulk request, ordinal [" + ords[i]
+                            + "] is out of the bounds of a dictionary of [" + dictionary.length + "] values");
+                    }
+                }
+                // every distinct value is encoded once, however many documents have it
+                final byte[][] encoded = new byte[dictionary.length][];
+                for (int i = 0; i < dictionary.length; i++) {
+                    encoded[i] = encodeJsonString(dictionary[i]);
+                }
+                return new Column(name, presence, numDocs) {
+                    @Override
+                    void writeOrd(int ord, BytesStreamOutput out) throws IOException {
+                        out.writeBytes(encoded[ords[ord]]);
+                    }
+                };
+            }
+            default:
+                throw new AssertionError("unknown column type [" + type + "]");
+        }
+    }
+
+    /**
+     * The decoded values of a column, which are only stored for the documents that have a value.
+     */
+    private abstract static class Column {
+        private final byte[] encodedName;
+        private final byte[] presence;
+        private int nextDoc;
+        private int nextOrd;
+
+        Column(String name, byte[] presence, int numDocs) {
+            assert presence.length == (numDocs + 7) / 8;
+            this.encodedName = encodeJsonString(name);
+            this.presence = presence;
+        }
+
+        /**
+         * Writes the field and value of the provided document as a json object entry, if the document has a value. Documents must be
+         * visited in order.
+         *
+         * @param first whether no entry was written for the document yet
+         * @return whether an entry was written
+         */
+        final boolean writeValue(int doc, boolean first, BytesStreamOutput out) throws IOException {
+            assert doc == nextDoc : "expected doc [" + nextDoc + "] but got [" + doc + "]";
+            nextDoc++;
+            if ((presence[doc >>> 3] & (1 << (doc & 7))) == 0) {
+                return false;
+            }
+            if (first == false) {
+                out.writeByte((byte) ',');
+            }
+            out.writeBytes(encodedName);
+            out.writeByte((byte) ':');
+            writeOrd(nextOrd++, out);
+            return true;
+        }
+
+        /**
+         * Writes the value with the provided ordinal, which is the index of the value among the values of the column.
+         */
+        abstract void writeOrd(int ord, BytesStreamOutput out) throws IOException;
+    }
+
+    /**
+     * Builds the content of a columnar bulk request. All documents of a batch share the same fields, which are declared upfront
+     * with {@link #field(String, ColumnType)}.
+     */
+    public static final class Builder {
+        private final String index;
+        private final Map<String, ColumnType> fields = new LinkedHashMap<>();
+        private final List<String> ids = new ArrayList<>();
+        private final List<Object[]> docs = new ArrayList<>();
+        private boolean hasIds;
+
+        /**
+         * @param index the index of the documents, or {@code null} to use the index of the request
+         */
+        public Builder(@Nullable String index) {
+            this.index = index;
+        }
+
+        /**
+         * Declares a field of the documents of the batch.
+         */
+        public Builder field(String name, ColumnType type) {
+            if (docs.isEmpty() == false) {
+                throw new IllegalStateException("fields must be declared before documents are added");
+            }
+            if (fields.putIfAbsent(name, type) != null) {
+                throw new IllegalArgumentException("field [" + name + "] is already declared");
+            }
+            return this;
+        }
+
+        /**
+         * Adds a document to the batch.
+         * @param id the id of the document, or {@code null} to generate one
+         * @param values the values of the document in the order of the declared fields, {@code null} if the document doesn't have
+         *               the field
+         */
+        public Builder add(@Nullable String id, Object... values) {
+            if (values.length != fields.size()) {
+                throw new IllegalArgumentException("expected [" + fields.size() + "] values but got [" + values.length + "]");
+            }
+            int i = 0;
+            for (Map.Entry<String, ColumnType> field : fields.entrySet()) {
+                final Object value = values[i++];
+                if (value != null && isCompatible(field.getValue(), value) == false) {
+                    throw new IllegalArgumentException("value [" + value + "] of field [" + field.getKey()
+                        + "] is not compatible with type [" + field.getValue() + "]");
+                }
+            }
+            hasIds |= id != null;
+            ids.add(id);
+            docs.add(values.clone());
+            return this;
+        }
+
+        private static boolean isCompatible(ColumnType type, Object value) {
+            switch (type) {
+                case LONG:
+                    return value instanceof Long || value instanceof Integer || value instanceof Short || value instanceof Byte;
+                case DOUBLE:
+                    return value instanceof Number;
+                case BOOLEAN:
+                    return value instanceof Boolean;
+                case KEYWORD:
+                    return value instanceof String;
+                default:
+                    throw new AssertionError("unknown column type [" + type + "]");
+            }
+        }
+
+        /**
+         * The number of documents in the batch.
+         */
+        public int numberOfDocuments() {
+            return docs.size();
+        }
+
+        public BytesReference build() throws IOException {
+            try (BytesStreamOutput out = new BytesStreamOutput()) {
+                out.writeBytes(MAGIC);
+                out.writeVInt(CURRENT_VERSION);
+                out.writeOptionalString(index);
+                out.writeVInt(docs.size());
+                out.writeBoolean(hasIds);
+                if (hasIds) {
+                    for (String id : ids) {
+                        out.writeOptionalString(id);
+                    }
+                }
+                out.writeVInt(fields.size());
+                for (Map.Entry<String, ColumnType> field : fields.entrySet()) {
+                    out.writeString(field.getKey());
+                    out.writeByte(field.getValue().id());
+                }
+                int column = 0;
+                for (ColumnType type : fields.values()) {
+                    writeColumn(out, type, column++);
+                }
+                return out.bytes();
+            }
+        }
+
+        private void writeColumn(BytesStreamOutput out, ColumnType type, int column) throws IOException {
+            final byte[] presence = new byte[(docs.size() + 7) / 8];
+            for (int doc = 0; doc < docs.size(); doc++) {
+                if (docs.get(doc)[column] != null) {
+                    presence[doc >>> 3] |= 1 << (doc & 7);
+                }
+            }
+            out.writeBytes(presence);
+            if (type == ColumnType.KEYWORD) {
+                final Map<String, Integer> dictionary = new HashMap<>();
+                final List<String> terms = new ArrayList<>();
+                for (Object[] doc : docs) {
+                    if (doc[column] != null && dictionary.putIfAbsent((String) doc[column], terms.size()) == null) {
+                        terms.add((String) doc[column]);
+                    }
+                }
+                out.writeStringCollection(terms);
+                for (Object[] doc : docs) {
+                    if (doc[column] != null) {
+                        out.writeVInt(dictionary.get((String) doc[column]));
+                    }
+                }
+                return;
+            }
+            for (Object[] doc : docs) {
+                final Object value = doc[column];
+                if (value == null) {
+                    continue;
+                }
+                switch (type) {
+                    case LONG:
+                        out.writeZLong(((Number) value).longValue());
+                        break;
+                    case DOUBLE:
+                        out.writeDouble(((Number) value).doubleValue());
+                        break;
+                    case BOOLEAN:
+                        out.writeBoolean((Boolean) value);
+                        break;
+                    default:
+                        throw new AssertionError("unknown column type [" + type + "]");
+                }
+            }
+        }
+    }
+}
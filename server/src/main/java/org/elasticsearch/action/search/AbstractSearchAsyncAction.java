@@ -33,15 +33,21 @@ import org.elasticsearch.cluster.ClusterState;
 import org.elasticsearch.cluster.routing.GroupShardsIterator;
 import org.elasticsearch.cluster.routing.ShardRouting;
 import org.elasticsearch.common.Nullable;
+import org.elasticsearch.common.lease.Releasable;
+import org.elasticsearch.common.lease.Releasables;
+import org.elasticsearch.common.unit.TimeValue;
 import org.elasticsearch.common.util.concurrent.AbstractRunnable;
 import org.elasticsearch.common.util.concurrent.AtomicArray;
 import org.elasticsearch.index.shard.ShardId;
+import org.elasticsearch.node.ResponseCollectorService;
 import org.elasticsearch.search.SearchPhaseResult;
 import org.elasticsearch.search.SearchShardTarget;
 import org.elasticsearch.search.internal.AliasFilter;
 import org.elasticsearch.search.internal.InternalSearchResponse;
 import org.elasticsearch.search.internal.SearchContext;
 import org.elasticsearch.search.internal.ShardSearchRequest;
+import org.elasticsearch.threadpool.Scheduler;
+import org.elasticsearch.threadpool.ThreadPool;
 import org.elasticsearch.transport.Transport;
 
 import java.util.ArrayDeque;
@@ -49,8 +55,10 @@ import java.util.ArrayList;
 import java.util.Collections;
 import java.util.List;
 import java.util.Map;
+import java.util.Objects;
 import java.util.Set;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
 import java.util.concurrent.Executor;
 import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.concurrent.atomic.AtomicInteger;
@@ -97,6 +105,12 @@ abstract class AbstractSearchAsyncAction<Result extends SearchPhaseResult> exten
     private final int maxConcurrentRequestsPerNode;
     private final Map<String, PendingExecutions> pendingExecutionsPerNode = new ConcurrentHashMap<>();
     private final boolean throttleConcurrentRequests;
+    private final List<Releasable> releasables = new CopyOnWriteArrayList<>();
+    private ThreadPool threadPool;
+    private ResponseCollectorService responseCollectorService;
+    private double hedgePercentile;
+    private TimeValue minHedgeDelay;
+    private double maxHedgedRequestsRatio;
 
     AbstractSearchAsyncAction(String name, Logger logger, SearchTransportService searchTransportService,
                               BiFunction<String, String, Transport.Connection> nodeIdToConnection,
@@ -133,7 +147,7 @@ abstract class AbstractSearchAsyncAction<Result extends SearchPhaseResult> exten
         this.executor = executor;
         this.request = request;
         this.task = task;
-        this.listener = listener;
+        this.listener = ActionListener.runAfter(listener, this::releaseContext);
         this.nodeIdToConnection = nodeIdToConnection;
         this.clusterState = clusterState;
         this.concreteIndexBoosts = concreteIndexBoosts;
@@ -141,6 +155,11 @@ abstract class AbstractSearchAsyncAction<Result extends SearchPhaseResult> exten
         this.indexRoutings = indexRoutings;
         this.results = resultConsumer;
         this.clusters = clusters;
+        addReleasable(resultConsumer);
+    }
+
+    private void releaseContext() {
+        Releasables.close(releasables);
     }
 
     /**
@@ -225,6 +244,8 @@ abstract class AbstractSearchAsyncAction<Result extends SearchPhaseResult> exten
             final PendingExecutions pendingExecutions = throttleConcurrentRequests ?
                 pendingExecutionsPerNode.computeIfAbsent(shard.currentNodeId(), n -> new PendingExecutions(maxConcurrentRequestsPerNode))
                 : null;
+            final TimeValue hedgeDelay = hedgeDelay(shard.currentNodeId());
+            final HedgedShardExecution hedgedExecution = hedgeDelay != null ? new HedgedShardExecution(hedgeDelay) : null;
             Runnable r = () -> {
                 final Thread thread = Thread.currentThread();
                 try {
@@ -233,7 +254,7 @@ abstract class AbstractSearchAsyncAction<Result extends SearchPhaseResult> exten
                             @Override
                             public void innerOnResponse(Result result) {
                                 try {
-                                    onShardResult(result, shardIt);
+                                    onShardAttemptResult(hedgedExecution, false, result, shardIt);
                                 } finally {
                                     executeNext(pendingExecutions, thread);
                                 }
@@ -242,19 +263,22 @@ abstract class AbstractSearchAsyncAction<Result extends SearchPhaseResult> exten
                             @Override
                             public void onFailure(Exception t) {
                                 try {
-                                    onShardFailure(shardIndex, shard, shard.currentNodeId(), shardIt, t);
+                                    onShardAttemptFailure(hedgedExecution, shardIndex, shard, shardIt, t);
                                 } finally {
                                     executeNext(pendingExecutions, thread);
                                 }
                             }
                         });
+                    if (hedgedExecution != null) {
+                        hedgedExecution.scheduleHedge(() -> hedgeShardRequest(hedgedExecution, shardIndex, shardIt));
+                    }
                 } catch (final Exception e) {
                     try {
                         /*
                          * It is possible to run into connection exceptions here because we are getting the connection early and might
                          * run into nodes that are not connected. In this case, on shard failure will move us to the next shard copy.
                          */
-                        fork(() -> onShardFailure(shardIndex, shard, shard.currentNodeId(), shardIt, e));
+                        fork(() -> onShardAttemptFailure(hedgedExecution, shardIndex, shard, shardIt, e));
                     } finally {
                         executeNext(pendingExecutions, thread);
                     }
@@ -268,6 +292,155 @@ abstract class AbstractSearchAsyncAction<Result extends SearchPhaseResult> exten
         }
     }
 
+    /**
+     * Returns how long to wait for a response of the given node before the request is hedged, or {@code null} if requests to this
+     * node are not hedged. The delay is a percentile of the recent response times of that node, so that a node that is slow for
+     * all shards, like one that holds larger shards, doesn't get all of its requests hedged.
+     */
+    @Nullable
+    private TimeValue hedgeDelay(String nodeId) {
+        if (minHedgeDelay == null) {
+            return null;
+        }
+        final long percentileNanos = responseCollectorService.getResponseTimePercentile(nodeId, hedgePercentile);
+        // we don't hedge until we know what a slow response of this node looks like
+        return percentileNanos >= 0 ? TimeValue.timeValueNanos(Math.max(percentileNanos, minHedgeDelay.nanos())) : null;
+    }
+
+    /**
+     * Returns how many hedged requests this node may have in flight, as a fraction of the search requests that it has in flight.
+     * This keeps a slowdown of the whole cluster from doubling its load, since all shard requests would be hedged otherwise.
+     */
+    private long maxHedgedRequestsInFlight() {
+        long inFlight = 0;
+        for (long requests : searchTransportService.getPendingSearchRequests().values()) {
+            inFlight += requests;
+        }
+        return Math.max(1L, (long) (inFlight * maxHedgedRequestsRatio));
+    }
+
+    /**
+     * Sends the request of a shard that did not respond within the hedge delay to the next copy of the shard. The hedged request
+     * doesn't take a permit from the per node throttling since it only exists to cut the tail latency of a request that holds one.
+     */
+    private void hedgeShardRequest(HedgedShardExecution hedgedExecution, int shardIndex, SearchShardIterator shardIt) {
+        final long maxHedgedRequestsInFlight = maxHedgedRequestsInFlight();
+        final ShardRouting shard;
+        synchronized (hedgedExecution) {
+            if (hedgedExecution.done || hedgedExecution.inFlight != 1 || hedgedExecution.hedged) {
+                return;
+            }
+            if (responseCollectorService.tryReserveHedgedRequest(maxHedgedRequestsInFlight) == false) {
+                logger.trace("not hedging request for shard [{}], too many hedged requests are in flight", shardIt.shardId());
+                return;
+            }
+            // the iterator is only advanced by the failure handling once no request of this execution is in flight anymore
+            shard = shardIt.nextOrNull();
+            if (shard == null) {
+                responseCollectorService.releaseHedgedRequest();
+                return;
+            }
+            hedgedExecution.hedged = true;
+            hedgedExecution.inFlight++;
+        }
+        responseCollectorService.onHedgedRequest();
+        logger.trace("hedging request for shard [{}] to [{}] after [{}]", shardIt.shardId(), shard.currentNodeId(),
+            hedgedExecution.delay);
+        final Releasable reservation = Releasables.releaseOnce(responseCollectorService::releaseHedgedRequest);
+        try {
+            executePhaseOnShard(shardIt, shard,
+                new SearchActionListener<Result>(shardIt.newSearchShardTarget(shard.currentNodeId()), shardIndex) {
+                    @Override
+                    public void innerOnResponse(Result result) {
+                        reservation.close();
+                        onShardAttemptResult(hedgedExecution, true, result, shardIt);
+                    }
+
+                    @Override
+                    public void onFailure(Exception t) {
+                        reservation.close();
+                        onShardAttemptFailure(hedgedExecution, shardIndex, shard, shardIt, t);
+                    }
+                });
+        } catch (final Exception e) {
+            reservation.close();
+            fork(() -> onShardAttemptFailure(hedgedExecution, shardIndex, shard, shardIt, e));
+        }
+    }
+
+    private void onShardAttemptResult(@Nullable HedgedShardExecution hedgedExecution, boolean hedge, Result result,
+                                      SearchShardIterator shardIt) {
+        if (hedgedExecution != null) {
+            final int losers;
+            synchronized (hedgedExecution) {
+                hedgedExecution.inFlight--;
+                if (hedgedExecution.done) {
+                    // we lost the race against the other copy, the ops of this request were counted when the winner responded
+                    releaseHedgedResult(result);
+                    return;
+                }
+                hedgedExecution.done = true;
+                losers = hedgedExecution.inFlight;
+            }
+            hedgedExecution.cancelHedge();
+            if (hedge) {
+                responseCollectorService.onHedgedRequestWon();
+            }
+            // the responses of the requests that are still in flight are ignored, they must not hold back the end of the phase
+            totalOps.addAndGet(losers);
+        }
+        onShardResult(result, shardIt);
+    }
+
+    private void onShardAttemptFailure(@Nullable HedgedShardExecution hedgedExecution, int shardIndex, ShardRouting shard,
+                                       SearchShardIterator shardIt, Exception e) {
+        if (hedgedExecution != null) {
+            synchronized (hedgedExecution) {
+                hedgedExecution.inFlight--;
+                if (hedgedExecution.done) {
+                    return;
+                }
+                if (hedgedExecution.inFlight > 0) {
+                    // the other copy may still succeed, the shard only fails or moves on to the next copy once it failed too
+                    logger.trace(() -> new ParameterizedMessage("{}: failed to execute hedged request [{}]", shard.shortSummary(), request),
+                        e);
+                    totalOps.incrementAndGet();
+                    return;
+                }
+            }
+            hedgedExecution.cancelHedge();
+        }
+        onShardFailure(shardIndex, shard, shard.currentNodeId(), shardIt, e);
+    }
+
+    private void releaseHedgedResult(Result result) {
+        if (result.getContextId() != null) {
+            try {
+                SearchShardTarget searchShardTarget = result.getSearchShardTarget();
+                Transport.Connection connection = getConnection(searchShardTarget.getClusterAlias(), searchShardTarget.getNodeId());
+                sendReleaseSearchContext(result.getContextId(), connection, searchShardTarget.getOriginalIndices());
+            } catch (Exception e) {
+                logger.trace("failed to release context", e);
+            }
+        }
+    }
+
+    /**
+     * Enables hedged requests for this phase: if a shard copy did not respond within the given percentile of the recent response
+     * times of its node, and at least the given minimum delay, the same request is sent to the next copy of the shard and the first
+     * response wins. Hedged requests in flight are capped to the given ratio of the search requests in flight. The search context
+     * that the losing request may have created is released as soon as its response arrives. Must be called before the phase is
+     * started.
+     */
+    final void enableHedging(ThreadPool threadPool, ResponseCollectorService responseCollectorService, double percentile,
+                             TimeValue minDelay, double maxHedgedRequestsRatio) {
+        this.threadPool = Objects.requireNonNull(threadPool);
+        this.responseCollectorService = Objects.requireNonNull(responseCollectorService);
+        this.hedgePercentile = percentile;
+        this.minHedgeDelay = Objects.requireNonNull(minDelay);
+        this.maxHedgedRequestsRatio = maxHedgedRequestsRatio;
+    }
+
     /**
      * Sends the request to the actual shard.
      * @param shardIt the shards iterator
@@ -602,6 +775,11 @@ abstract class AbstractSearchAsyncAction<Result extends SearchPhaseResult> exten
         listener.onFailure(e);
     }
 
+    @Override
+    public final void addReleasable(Releasable releasable) {
+        releasables.add(releasable);
+    }
+
     @Override
     public final ShardSearchRequest buildShardSearchRequest(SearchShardIterator shardIt) {
         AliasFilter filter = aliasFilter.get(shardIt.shardId().getIndex().getUUID());
@@ -644,6 +822,39 @@ abstract class AbstractSearchAsyncAction<Result extends SearchPhaseResult> exten
         }
     }
 
+    /**
+     * Tracks the requests that are in flight for the same shard once hedging is enabled. A new execution is started whenever the
+     * failure of all in flight requests moves on to the next copy of the shard.
+     */
+    private final class HedgedShardExecution {
+        private final TimeValue delay;
+        private int inFlight = 1;
+        private boolean hedged;
+        private boolean done;
+        private volatile Scheduler.Cancellable scheduledHedge;
+
+        HedgedShardExecution(TimeValue delay) {
+            this.delay = delay;
+        }
+
+        void scheduleHedge(Runnable hedge) {
+            synchronized (this) {
+                if (done || inFlight == 0) {
+                    return;
+                }
+            }
+            // the scheduler thread only forks the hedge, which builds and sends the shard request on the search executor
+            scheduledHedge = threadPool.schedule(() -> fork(hedge), delay, ThreadPool.Names.SAME);
+        }
+
+        void cancelHedge() {
+            final Scheduler.Cancellable scheduledHedge = this.scheduledHedge;
+            if (scheduledHedge != null) {
+                scheduledHedge.cancel();
+            }
+        }
+    }
+
     private static final class PendingExecutions {
         private final int permits;
         private int permitsTaken = 0;
@@ -36,9 +36,13 @@ import org.apache.lucene.search.TopFieldDocs;
 import org.apache.lucene.search.TotalHits;
 import org.apache.lucene.search.TotalHits.Relation;
 import org.apache.lucene.search.grouping.CollapseTopFieldDocs;
+import org.elasticsearch.common.breaker.CircuitBreaker;
+import org.elasticsearch.common.breaker.CircuitBreakingException;
+import org.elasticsearch.common.breaker.NoopCircuitBreaker;
 import org.elasticsearch.common.collect.HppcMaps;
 import org.elasticsearch.common.io.stream.DelayableWriteable;
 import org.elasticsearch.common.io.stream.NamedWriteableRegistry;
+import org.elasticsearch.common.lease.Releasable;
 import org.elasticsearch.common.lucene.search.TopDocsAndMaxScore;
 import org.elasticsearch.search.DocValueFormat;
 import org.elasticsearch.search.SearchHit;
@@ -79,11 +83,23 @@ public final class SearchPhaseController {
 
     private final NamedWriteableRegistry namedWriteableRegistry;
     private final Function<SearchRequest, InternalAggregation.ReduceContextBuilder> requestToAggReduceContextBuilder;
+    private final CircuitBreaker circuitBreaker;
 
     public SearchPhaseController(NamedWriteableRegistry namedWriteableRegistry,
             Function<SearchRequest, InternalAggregation.ReduceContextBuilder> requestToAggReduceContextBuilder) {
+        this(namedWriteableRegistry, requestToAggReduceContextBuilder, new NoopCircuitBreaker(CircuitBreaker.REQUEST));
+    }
+
+    /**
+     * @param circuitBreaker the breaker that accounts for the shard aggregations that are buffered and reduced on the
+     *                       coordinating node
+     */
+    public SearchPhaseController(NamedWriteableRegistry namedWriteableRegistry,
+            Function<SearchRequest, InternalAggregation.ReduceContextBuilder> requestToAggReduceContextBuilder,
+            CircuitBreaker circuitBreaker) {
         this.namedWriteableRegistry = namedWriteableRegistry;
         this.requestToAggReduceContextBuilder = requestToAggReduceContextBuilder;
+        this.circuitBreaker = circuitBreaker;
     }
 
     public AggregatedDfs aggregateDfs(Collection<DfsSearchResult> results) {
@@ -420,8 +436,16 @@ public final class SearchPhaseController {
                                                boolean isScrollRequest, int trackTotalHitsUpTo,
                                                InternalAggregation.ReduceContextBuilder aggReduceContextBuilder,
                                                boolean performFinalReduce) {
-        return reducedQueryPhase(queryResults, null, new ArrayList<>(), new TopDocsStats(trackTotalHitsUpTo),
-            0, isScrollRequest, aggReduceContextBuilder, performFinalReduce);
+        try (AggsMemoryAccounting aggsMemoryAccounting = new AggsMemoryAccounting(circuitBreaker)) {
+            for (SearchPhaseResult result : queryResults) {
+                final long bytes = aggsRamBytesUsed(result.queryResult());
+                if (bytes > 0) {
+                    aggsMemoryAccounting.addEstimateBytesAndMaybeBreak(bytes);
+                }
+            }
+            return reducedQueryPhase(queryResults, null, new ArrayList<>(), new TopDocsStats(trackTotalHitsUpTo),
+                0, isScrollRequest, aggReduceContextBuilder, performFinalReduce, aggsMemoryAccounting);
+        }
     }
 
     /**
@@ -432,6 +456,8 @@ public final class SearchPhaseController {
      * @param bufferedTopDocs a list of pre-collected / buffered top docs. if this list is non-null all top docs have been consumed
      *                    from all non-null query results.
      * @param numReducePhases the number of non-final reduce phases applied to the query results.
+     * @param aggsMemoryAccounting accounts for the memory used by the aggregations. the aggregations of the query results
+     *                             and the buffered aggregations must already be accounted for.
      * @see QuerySearchResult#consumeAggs()
      * @see QuerySearchResult#consumeProfileResult()
      */
@@ -440,7 +466,8 @@ public final class SearchPhaseController {
                                                 List<TopDocs> bufferedTopDocs,
                                                 TopDocsStats topDocsStats, int numReducePhases, boolean isScrollRequest,
                                                 InternalAggregation.ReduceContextBuilder aggReduceContextBuilder,
-                                                boolean performFinalReduce) {
+                                                boolean performFinalReduce,
+                                                AggsMemoryAccounting aggsMemoryAccounting) {
         assert numReducePhases >= 0 : "num reduce phases must be >= 0 but was: " + numReducePhases;
         numReducePhases++; // increment for this phase
         if (queryResults.isEmpty()) { // early terminate we have nothing to reduce
@@ -516,8 +543,11 @@ public final class SearchPhaseController {
             reducedSuggest = new Suggest(Suggest.reduce(groupedSuggestions));
             reducedCompletionSuggestions = reducedSuggest.filter(CompletionSuggestion.class);
         }
-        final InternalAggregations aggregations = reduceAggs(aggReduceContextBuilder, performFinalReduce, aggregationsList);
-        final SearchProfileShardResults shardResults = profileResults.isEmpty() ? null : new SearchProfileShardResults(profileResults);
+        final InternalAggregations aggregations = aggregationsList.isEmpty() ? null : reduceAggs(aggregationsList,
+            performFinalReduce ? aggReduceContextBuilder.forFinalReduction() : aggReduceContextBuilder.forPartialReduction(),
+            aggsMemoryAccounting);
+        final SearchProfileShardResults shardResults = profileResults.isEmpty() ? null
+            : new SearchProfileShardResults(profileResults, firstResult.hasAggs() ? aggsMemoryAccounting.getPeakBytes() : -1);
         final SortedTopDocs sortedTopDocs = sortDocs(isScrollRequest, queryResults, bufferedTopDocs, topDocsStats, from, size,
             reducedCompletionSuggestions);
         final TotalHits totalHits = topDocsStats.getTotalHits();
@@ -526,22 +556,113 @@ public final class SearchPhaseController {
             firstResult.sortValueFormats(), numReducePhases, size, from, false);
     }
 
-    private static InternalAggregations reduceAggs(
-        InternalAggregation.ReduceContextBuilder aggReduceContextBuilder,
-        boolean performFinalReduce,
-        List<DelayableWriteable<InternalAggregations>> aggregationsList
-    ) {
-        /*
-         * Parse the aggregations, clearing the list as we go so bits backing
-         * the DelayedWriteable can be collected immediately.
+    /**
+     * Expands and reduces the provided aggregations, clearing the list as we go so bits backing the
+     * DelayedWriteable can be collected immediately. The heap used by the expanded aggregations is
+     * accounted for as they are expanded, together with a reservation for the reduced aggregations of the
+     * size of the largest expanded ones, since the reduced aggregations usually hold all of their buckets.
+     */
+    private static InternalAggregations reduceAggs(List<? extends DelayableWriteable<InternalAggregations>> aggregationsList,
+                                                   ReduceContext reduceContext, AggsMemoryAccounting aggsMemoryAccounting) {
+        long accountedBytes = 0;
+        try {
+            long largestBytes = 0;
+            List<InternalAggregations> toReduce = new ArrayList<>(aggregationsList.size());
+            for (int i = 0; i < aggregationsList.size(); i++) {
+                final DelayableWriteable<InternalAggregations> aggregations = aggregationsList.get(i);
+                final InternalAggregations expanded = aggregations.expand();
+                final long bytes = expanded.estimateRamBytesUsed();
+                if (aggregations instanceof DelayableWriteable.Serialized) {
+                    // aggregations that weren't serialized are already accounted for with their in-memory size
+                    aggsMemoryAccounting.addEstimateBytesAndMaybeBreak(bytes);
+                    accountedBytes += bytes;
+                }
+                largestBytes = Math.max(largestBytes, bytes);
+                toReduce.add(expanded);
+                aggregationsList.set(i, null);
+            }
+            aggsMemoryAccounting.addEstimateBytesAndMaybeBreak(largestBytes);
+            accountedBytes += largestBytes;
+            return InternalAggregations.topLevelReduce(toReduce, reduceContext);
+        } finally {
+            aggsMemoryAccounting.release(accountedBytes);
+        }
+    }
+
+    /**
+     * Returns the heap used by the aggregations of the provided result that were not consumed yet: the size of their
+     * serialized form if they are buffered serialized, or the estimated size of the aggregations otherwise.
+     */
+    private static long aggsRamBytesUsed(QuerySearchResult queryResult) {
+        if (queryResult.isNull() || queryResult.aggregations() == null) {
+            return 0;
+        }
+        final DelayableWriteable<InternalAggregations> aggregations = queryResult.aggregations();
+        if (aggregations instanceof DelayableWriteable.Serialized) {
+            return ((DelayableWriteable.Serialized<InternalAggregations>) aggregations).ramBytesUsed();
+        }
+        return aggregations.expand().estimateRamBytesUsed();
+    }
+
+    /**
+     * Accounts for the memory that the coordinating node uses to buffer and reduce shard aggregations
+     * in the request circuit breaker and keeps track of the peak.
+     */
+    static final class AggsMemoryAccounting implements Releasable {
+        private final CircuitBreaker circuitBreaker;
+        private long bytes;
+        private long peakBytes;
+
+        AggsMemoryAccounting(CircuitBreaker circuitBreaker) {
+            this.circuitBreaker = circuitBreaker;
+        }
+
+        /**
+         * Adds the provided bytes to the circuit breaker, throwing a {@link CircuitBreakingException}
+         * without accounting for them if the breaker trips.
          */
-        List<InternalAggregations> toReduce = new ArrayList<>(aggregationsList.size());
-        for (int i = 0; i < aggregationsList.size(); i++) {
-            toReduce.add(aggregationsList.get(i).expand());
-            aggregationsList.set(i, null);
+        synchronized void addEstimateBytesAndMaybeBreak(long bytes) {
+            circuitBreaker.addEstimateBytesAndMaybeBreak(bytes, "<reduce_aggs>");
+            add(bytes);
+        }
+
+        synchronized void addWithoutBreaking(long bytes) {
+            circuitBreaker.addWithoutBreaking(bytes);
+            add(bytes);
+        }
+
+        synchronized void release(long bytes) {
+            assert bytes <= this.bytes : "releasing [" + bytes + "] but only [" + this.bytes + "] are accounted for";
+            circuitBreaker.addWithoutBreaking(-bytes);
+            this.bytes -= bytes;
+        }
+
+        private void add(long bytes) {
+            this.bytes += bytes;
+            peakBytes = Math.max(peakBytes, this.bytes);
+        }
+
+        /**
+         * The bytes that are currently accounted for.
+         */
+        synchronized long getBytes() {
+            return bytes;
+        }
+
+        /**
+         * The maximum number of bytes that were accounted for at once.
+         */
+        synchronized long getPeakBytes() {
+            return peakBytes;
+        }
+
+        /**
+         * Releases all bytes that are still accounted for, the peak is preserved.
+         */
+        @Override
+        public synchronized void close() {
+            release(bytes);
         }
-        return aggregationsList.isEmpty() ? null : InternalAggregations.topLevelReduce(toReduce,
-            performFinalReduce ? aggReduceContextBuilder.forFinalReduction() : aggReduceContextBuilder.forPartialReduction());
     }
 
     /*
@@ -621,7 +742,9 @@ public final class SearchPhaseController {
      * A {@link ArraySearchPhaseResults} implementation
      * that incrementally reduces aggregation results as shard results are consumed.
      * This implementation can be configured to batch up a certain amount of results and only reduce them
-     * iff the buffer is exhausted.
+     * iff the buffer is exhausted. The buffered aggregations and the memory needed to reduce them are
+     * accounted for in the request circuit breaker as shard results arrive, so that a search whose
+     * aggregations don't fit on the coordinating node fails instead of exhausting its heap.
      */
     static final class QueryPhaseResultConsumer extends ArraySearchPhaseResults<SearchPhaseResult> {
         private final NamedWriteableRegistry namedWriteableRegistry;
@@ -641,6 +764,8 @@ public final class SearchPhaseController {
         private final boolean performFinalReduce;
         private long aggsCurrentBufferSize;
         private long aggsMaxBufferSize;
+        private final AggsMemoryAccounting aggsMemoryAccounting;
+        private CircuitBreakingException aggsFailure;
 
         /**
          * Creates a new {@link QueryPhaseResultConsumer}
@@ -652,7 +777,7 @@ public final class SearchPhaseController {
          *                   the buffer is used to incrementally reduce aggregation results before all shards responded.
          */
         private QueryPhaseResultConsumer(NamedWriteableRegistry namedWriteableRegistry, SearchProgressListener progressListener,
-                                         SearchPhaseController controller,
+                                         SearchPhaseController controller, CircuitBreaker circuitBreaker,
                                          int expectedResultSize, int bufferSize, boolean hasTopDocs, boolean hasAggs,
                                          int trackTotalHitsUpTo, int topNSize,
                                          InternalAggregation.ReduceContextBuilder aggReduceContextBuilder,
@@ -683,6 +808,7 @@ public final class SearchPhaseController {
             this.topNSize = topNSize;
             this.aggReduceContextBuilder = aggReduceContextBuilder;
             this.performFinalReduce = performFinalReduce;
+            this.aggsMemoryAccounting = new AggsMemoryAccounting(circuitBreaker);
         }
 
         @Override
@@ -697,21 +823,8 @@ public final class SearchPhaseController {
             if (querySearchResult.isNull() == false) {
                 if (index == bufferSize) {
                     DelayableWriteable.Serialized<InternalAggregations> reducedAggs = null;
-                    if (hasAggs) {
-                        List<InternalAggregations> aggs = new ArrayList<>(aggsBuffer.length);
-                        for (int i = 0; i < aggsBuffer.length; i++) {
-                            aggs.add(aggsBuffer[i].expand());
-                            aggsBuffer[i] = null; // null the buffer so it can be GCed now.
-                        }
-                        InternalAggregations reduced =
-                                InternalAggregations.topLevelReduce(aggs, aggReduceContextBuilder.forPartialReduction());
-                        reducedAggs = aggsBuffer[0] = DelayableWriteable.referencing(reduced)
-                                .asSerialized(InternalAggregations::new, namedWriteableRegistry);
-                        long previousBufferSize = aggsCurrentBufferSize;
-                        aggsMaxBufferSize = Math.max(aggsMaxBufferSize, aggsCurrentBufferSize);
-                        aggsCurrentBufferSize = aggsBuffer[0].ramBytesUsed();
-                        logger.trace("aggs partial reduction [{}->{}] max [{}]",
-                                previousBufferSize, aggsCurrentBufferSize, aggsMaxBufferSize);
+                    if (hasAggs && aggsFailure == null) {
+                        reducedAggs = partialReduceAggs();
                     }
                     if (hasTopDocs) {
                         TopDocs reducedTopDocs = mergeTopDocs(Arrays.asList(topDocsBuffer),
@@ -729,8 +842,18 @@ public final class SearchPhaseController {
                 }
                 final int i = index++;
                 if (hasAggs) {
-                    aggsBuffer[i] = querySearchResult.consumeAggs().asSerialized(InternalAggregations::new, namedWriteableRegistry);
-                    aggsCurrentBufferSize += aggsBuffer[i].ramBytesUsed();
+                    final DelayableWriteable<InternalAggregations> aggs = querySearchResult.consumeAggs();
+                    if (aggsFailure == null) {
+                        final DelayableWriteable.Serialized<InternalAggregations> serialized =
+                            aggs.asSerialized(InternalAggregations::new, namedWriteableRegistry);
+                        try {
+                            aggsMemoryAccounting.addEstimateBytesAndMaybeBreak(serialized.ramBytesUsed());
+                            aggsBuffer[i] = serialized;
+                            aggsCurrentBufferSize += serialized.ramBytesUsed();
+                        } catch (CircuitBreakingException e) {
+                            onAggsFailure(e);
+                        }
+                    }
                 }
                 if (hasTopDocs) {
                     final TopDocsAndMaxScore topDocs = querySearchResult.consumeTopDocs(); // can't be null
@@ -742,6 +865,45 @@ public final class SearchPhaseController {
             processedShards[querySearchResult.getShardIndex()] = querySearchResult.getSearchShardTarget();
         }
 
+        /**
+         * Reduces the buffered aggregations into the first slot of the buffer and returns the result,
+         * or {@code null} if the circuit breaker tripped.
+         */
+        private DelayableWriteable.Serialized<InternalAggregations> partialReduceAggs() {
+            assert Thread.holdsLock(this);
+            final InternalAggregations reduced;
+            try {
+                // null the buffer as the aggregations are expanded so it can be GCed now.
+                reduced = reduceAggs(Arrays.asList(aggsBuffer), aggReduceContextBuilder.forPartialReduction(), aggsMemoryAccounting);
+            } catch (CircuitBreakingException e) {
+                onAggsFailure(e);
+                return null;
+            }
+            aggsBuffer[0] = DelayableWriteable.referencing(reduced).asSerialized(InternalAggregations::new, namedWriteableRegistry);
+            long previousBufferSize = aggsCurrentBufferSize;
+            aggsMaxBufferSize = Math.max(aggsMaxBufferSize, aggsCurrentBufferSize);
+            aggsCurrentBufferSize = aggsBuffer[0].ramBytesUsed();
+            // the reduced aggregations replace the buffered ones, which are usually bigger, so we don't check the breaker here
+            aggsMemoryAccounting.release(previousBufferSize);
+            aggsMemoryAccounting.addWithoutBreaking(aggsCurrentBufferSize);
+            logger.trace("aggs partial reduction [{}->{}] max [{}]",
+                    previousBufferSize, aggsCurrentBufferSize, aggsMaxBufferSize);
+            return aggsBuffer[0];
+        }
+
+        /**
+         * Drops all buffered aggregations once the circuit breaker tripped, the failure is rethrown
+         * by {@link #reduce()}.
+         */
+        private void onAggsFailure(CircuitBreakingException e) {
+            assert Thread.holdsLock(this);
+            logger.debug("aggs reduction tripped the circuit breaker", e);
+            aggsFailure = e;
+            Arrays.fill(aggsBuffer, null);
+            aggsCurrentBufferSize = 0;
+            aggsMemoryAccounting.close();
+        }
+
         private synchronized List<DelayableWriteable<InternalAggregations>> getRemainingAggs() {
             return hasAggs ? Arrays.asList((DelayableWriteable<InternalAggregations>[]) aggsBuffer).subList(0, index) : null;
         }
@@ -752,13 +914,27 @@ public final class SearchPhaseController {
 
         @Override
         public ReducedQueryPhase reduce() {
-            aggsMaxBufferSize = Math.max(aggsMaxBufferSize, aggsCurrentBufferSize);
-            logger.trace("aggs final reduction [{}] max [{}]", aggsCurrentBufferSize, aggsMaxBufferSize);
-            ReducedQueryPhase reducePhase = controller.reducedQueryPhase(results.asList(), getRemainingAggs(), getRemainingTopDocs(),
-                    topDocsStats, numReducePhases, false, aggReduceContextBuilder, performFinalReduce);
-            progressListener.notifyFinalReduce(SearchProgressListener.buildSearchShards(results.asList()),
-                reducePhase.totalHits, reducePhase.aggregations, reducePhase.numReducePhases);
-            return reducePhase;
+            try {
+                synchronized (this) {
+                    if (aggsFailure != null) {
+                        throw aggsFailure;
+                    }
+                }
+                aggsMaxBufferSize = Math.max(aggsMaxBufferSize, aggsCurrentBufferSize);
+                logger.trace("aggs final reduction [{}] max [{}]", aggsCurrentBufferSize, aggsMaxBufferSize);
+                ReducedQueryPhase reducePhase = controller.reducedQueryPhase(results.asList(), getRemainingAggs(), getRemainingTopDocs(),
+                        topDocsStats, numReducePhases, false, aggReduceContextBuilder, performFinalReduce, aggsMemoryAccounting);
+                progressListener.notifyFinalReduce(SearchProgressListener.buildSearchShards(results.asList()),
+                    reducePhase.totalHits, reducePhase.aggregations, reducePhase.numReducePhases);
+                return reducePhase;
+            } finally {
+                close();
+            }
+        }
+
+        @Override
+        public void close() {
+            aggsMemoryAccounting.close();
         }
 
         /**
@@ -788,25 +964,72 @@ public final class SearchPhaseController {
             if (request.getBatchedReduceSize() < numShards) {
                 int topNSize = getTopDocsSize(request);
                 // only use this if there are aggs and if there are more shards than we should reduce at once
-                return new QueryPhaseResultConsumer(namedWriteableRegistry, listener, this, numShards, request.getBatchedReduceSize(),
-                    hasTopDocs, hasAggs, trackTotalHitsUpTo, topNSize, aggReduceContextBuilder, request.isFinalReduce());
+                return new QueryPhaseResultConsumer(namedWriteableRegistry, listener, this, circuitBreaker, numShards,
+                    request.getBatchedReduceSize(), hasTopDocs, hasAggs, trackTotalHitsUpTo, topNSize, aggReduceContextBuilder,
+                    request.isFinalReduce());
             }
         }
+        final AggsMemoryAccounting aggsMemoryAccounting = new AggsMemoryAccounting(circuitBreaker);
         return new ArraySearchPhaseResults<SearchPhaseResult>(numShards) {
+            private CircuitBreakingException aggsFailure;
+
             @Override
             void consumeResult(SearchPhaseResult result) {
                 super.consumeResult(result);
+                accountAggs(result.queryResult());
                 listener.notifyQueryResult(result.queryResult().getShardIndex());
             }
 
+            /**
+             * Accounts for the aggregations of the provided result as it arrives. Once the circuit breaker tripped
+             * the aggregations of all results are dropped and the failure is rethrown by {@link #reduce()}.
+             */
+            private synchronized void accountAggs(QuerySearchResult queryResult) {
+                if (aggsFailure == null) {
+                    final long bytes = aggsRamBytesUsed(queryResult);
+                    if (bytes == 0) {
+                        return;
+                    }
+                    try {
+                        aggsMemoryAccounting.addEstimateBytesAndMaybeBreak(bytes);
+                        return;
+                    } catch (CircuitBreakingException e) {
+                        logger.debug("aggs reduction tripped the circuit breaker", e);
+                        aggsFailure = e;
+                        aggsMemoryAccounting.close();
+                    }
+                }
+                for (SearchPhaseResult result : results.asList()) {
+                    final QuerySearchResult other = result.queryResult();
+                    if (other.isNull() == false && other.aggregations() != null) {
+                        other.consumeAggs();
+                    }
+                }
+            }
+
             @Override
             ReducedQueryPhase reduce() {
-                List<SearchPhaseResult> resultList = results.asList();
-                final ReducedQueryPhase reducePhase =
-                    reducedQueryPhase(resultList, isScrollRequest, trackTotalHitsUpTo, aggReduceContextBuilder, request.isFinalReduce());
-                listener.notifyFinalReduce(SearchProgressListener.buildSearchShards(resultList),
-                    reducePhase.totalHits, reducePhase.aggregations, reducePhase.numReducePhases);
-                return reducePhase;
+                try {
+                    synchronized (this) {
+                        if (aggsFailure != null) {
+                            throw aggsFailure;
+                        }
+                    }
+                    List<SearchPhaseResult> resultList = results.asList();
+                    final ReducedQueryPhase reducePhase = reducedQueryPhase(resultList, null, new ArrayList<>(),
+                        new TopDocsStats(trackTotalHitsUpTo), 0, isScrollRequest, aggReduceContextBuilder, request.isFinalReduce(),
+                        aggsMemoryAccounting);
+                    listener.notifyFinalReduce(SearchProgressListener.buildSearchShards(resultList),
+                        reducePhase.totalHits, reducePhase.aggregations, reducePhase.numReducePhases);
+                    return reducePhase;
+                } finally {
+                    close();
+                }
+            }
+
+            @Override
+            public void close() {
+                aggsMemoryAccounting.close();
             }
         };
     }
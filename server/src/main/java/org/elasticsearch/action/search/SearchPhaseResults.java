@@ -19,15 +19,17 @@
 
 package org.elasticsearch.action.search;
 
+import org.elasticsearch.common.lease.Releasable;
 import org.elasticsearch.common.util.concurrent.AtomicArray;
 import org.elasticsearch.search.SearchPhaseResult;
 
 import java.util.stream.Stream;
 
 /**
- * This class acts as a basic result collection that can be extended to do on-the-fly reduction or result processing
+ * This class acts as a basic result collection that can be extended to do on-the-fly reduction or result processing.
+ * It is closed once the search request completes in order to release any resources that are held for the results.
  */
-abstract class SearchPhaseResults<Result extends SearchPhaseResult> {
+abstract class SearchPhaseResults<Result extends SearchPhaseResult> implements Releasable {
     private final int numShards;
 
     SearchPhaseResults(int numShards) {
@@ -68,4 +70,7 @@ abstract class SearchPhaseResults<Result extends SearchPhaseResult> {
     SearchPhaseController.ReducedQueryPhase reduce() {
         throw new UnsupportedOperationException("reduce is not supported");
     }
+
+    @Override
+    public void close() {}
 }
@@ -123,6 +123,7 @@ final class SearchResponseMerger {
         int numReducePhases = 1;
         List<ShardSearchFailure> failures = new ArrayList<>();
         Map<String, ProfileShardResult> profileResults = new HashMap<>();
+        long aggregationReducePeakMemoryInBytes = -1;
         List<InternalAggregations> aggs = new ArrayList<>();
         Map<ShardIdAndClusterAlias, Integer> shards = new TreeMap<>();
         List<TopDocs> topDocsList = new ArrayList<>(searchResponses.size());
@@ -140,6 +141,11 @@ final class SearchResponseMerger {
             Collections.addAll(failures, searchResponse.getShardFailures());
 
             profileResults.putAll(searchResponse.getProfileResults());
+            SearchProfileShardResults clusterProfileResults = searchResponse.getInternalResponse().profileResults;
+            if (clusterProfileResults != null) {
+                aggregationReducePeakMemoryInBytes =
+                    Math.max(aggregationReducePeakMemoryInBytes, clusterProfileResults.getAggregationReducePeakMemoryInBytes());
+            }
 
             if (searchResponse.getAggregations() != null) {
                 InternalAggregations internalAggs = (InternalAggregations) searchResponse.getAggregations();
@@ -197,7 +203,8 @@ final class SearchResponseMerger {
         Suggest suggest = groupedSuggestions.isEmpty() ? null : new Suggest(Suggest.reduce(groupedSuggestions));
         InternalAggregations reducedAggs = InternalAggregations.topLevelReduce(aggs, aggReduceContextBuilder.forFinalReduction());
         ShardSearchFailure[] shardFailures = failures.toArray(ShardSearchFailure.EMPTY_ARRAY);
-        SearchProfileShardResults profileShardResults = profileResults.isEmpty() ? null : new SearchProfileShardResults(profileResults);
+        SearchProfileShardResults profileShardResults = profileResults.isEmpty() ? null
+            : new SearchProfileShardResults(profileResults, aggregationReducePeakMemoryInBytes);
         //make failures ordering consistent between ordinary search and CCS by looking at the shard they come from
         Arrays.sort(shardFailures, FAILURES_COMPARATOR);
         InternalSearchResponse response = new InternalSearchResponse(mergedSearchHits, reducedAggs, suggest, profileShardResults,
@@ -40,8 +40,10 @@ import org.elasticsearch.cluster.service.ClusterService;
 import org.elasticsearch.common.Nullable;
 import org.elasticsearch.common.inject.Inject;
 import org.elasticsearch.common.io.stream.Writeable;
+import org.elasticsearch.common.settings.ClusterSettings;
 import org.elasticsearch.common.settings.Setting;
 import org.elasticsearch.common.settings.Setting.Property;
+import org.elasticsearch.common.unit.TimeValue;
 import org.elasticsearch.common.util.concurrent.CountDown;
 import org.elasticsearch.index.Index;
 import org.elasticsearch.index.query.Rewriteable;
@@ -91,6 +93,32 @@ public class TransportSearchAction extends HandledTransportAction<SearchRequest,
     public static final Setting<Long> SHARD_COUNT_LIMIT_SETTING = Setting.longSetting(
             "action.search.shard_count.limit", Long.MAX_VALUE, 1L, Property.Dynamic, Property.NodeScope);
 
+    /**
+     * Whether shard requests of the initial search phase that are slow to respond are hedged, sent to another copy of the shard.
+     */
+    public static final Setting<Boolean> HEDGED_REQUESTS_ENABLED_SETTING = Setting.boolSetting(
+            "action.search.hedged_requests.enabled", false, Property.Dynamic, Property.NodeScope);
+
+    /**
+     * The percentile of the recent response times of the node that a shard request is sent to, that it must exceed to be hedged.
+     */
+    public static final Setting<Double> HEDGED_REQUESTS_PERCENTILE_SETTING = Setting.doubleSetting(
+            "action.search.hedged_requests.percentile", 95.0, 50.0, 100.0, Property.Dynamic, Property.NodeScope);
+
+    /**
+     * The minimum time to wait for a shard request before it is hedged, which keeps fast searches from being hedged.
+     */
+    public static final Setting<TimeValue> HEDGED_REQUESTS_MIN_DELAY_SETTING = Setting.timeSetting(
+            "action.search.hedged_requests.min_delay", TimeValue.timeValueMillis(50), TimeValue.timeValueMillis(10),
+            Property.Dynamic, Property.NodeScope);
+
+    /**
+     * The maximum number of hedged requests that may be in flight, as a ratio of the search requests in flight, which keeps a
+     * slowdown of the whole cluster from being made worse by hedging all of its requests.
+     */
+    public static final Setting<Double> HEDGED_REQUESTS_MAX_RATIO_SETTING = Setting.doubleSetting(
+            "action.search.hedged_requests.max_ratio", 0.1, 0.0, 1.0, Property.Dynamic, Property.NodeScope);
+
     private final ThreadPool threadPool;
     private final ClusterService clusterService;
     private final SearchTransportService searchTransportService;
@@ -630,10 +658,20 @@ public class TransportSearchAction extends HandledTransportAction<SearchRequest,
                 default:
                     throw new IllegalStateException("Unknown search type: [" + searchRequest.searchType() + "]");
             }
+            maybeEnableHedging(searchAsyncAction);
             return searchAsyncAction;
         }
     }
 
+    private void maybeEnableHedging(AbstractSearchAsyncAction<? extends SearchPhaseResult> searchAsyncAction) {
+        final ClusterSettings clusterSettings = clusterService.getClusterSettings();
+        if (clusterSettings.get(HEDGED_REQUESTS_ENABLED_SETTING)) {
+            searchAsyncAction.enableHedging(threadPool, searchService.getResponseCollectorService(),
+                clusterSettings.get(HEDGED_REQUESTS_PERCENTILE_SETTING), clusterSettings.get(HEDGED_REQUESTS_MIN_DELAY_SETTING),
+                clusterSettings.get(HEDGED_REQUESTS_MAX_RATIO_SETTING));
+        }
+    }
+
     private static void failIfOverShardCountLimit(ClusterService clusterService, int shardCount) {
         final long shardCountLimit = clusterService.getClusterSettings().get(SHARD_COUNT_LIMIT_SETTING);
         if (shardCount > shardCountLimit) {
@@ -28,6 +28,7 @@ import org.elasticsearch.cluster.ClusterChangedEvent;
 import org.elasticsearch.cluster.ClusterState;
 import org.elasticsearch.cluster.Diff;
 import org.elasticsearch.cluster.IncompatibleClusterStateVersionException;
+import org.elasticsearch.cluster.metadata.IndexMetadata;
 import org.elasticsearch.cluster.node.DiscoveryNode;
 import org.elasticsearch.cluster.node.DiscoveryNodes;
 import org.elasticsearch.common.bytes.BytesReference;
@@ -38,6 +39,10 @@ import org.elasticsearch.common.io.stream.NamedWriteableAwareStreamInput;
 import org.elasticsearch.common.io.stream.NamedWriteableRegistry;
 import org.elasticsearch.common.io.stream.StreamInput;
 import org.elasticsearch.common.io.stream.StreamOutput;
+import org.elasticsearch.common.settings.Setting;
+import org.elasticsearch.common.settings.Settings;
+import org.elasticsearch.common.util.concurrent.EsExecutors;
+import org.elasticsearch.common.util.concurrent.EsRejectedExecutionException;
 import org.elasticsearch.core.internal.io.IOUtils;
 import org.elasticsearch.threadpool.ThreadPool;
 import org.elasticsearch.transport.BytesTransportRequest;
@@ -49,8 +54,14 @@ import org.elasticsearch.transport.TransportResponseHandler;
 import org.elasticsearch.transport.TransportService;
 
 import java.io.IOException;
+import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.concurrent.atomic.AtomicLong;
 import java.util.concurrent.atomic.AtomicReference;
 import java.util.function.BiConsumer;
@@ -64,9 +75,21 @@ public class PublicationTransportHandler {
     public static final String PUBLISH_STATE_ACTION_NAME = "internal:cluster/coordination/publish_state";
     public static final String COMMIT_STATE_ACTION_NAME = "internal:cluster/coordination/commit_state";
 
+    /**
+     * The number of threads, including the master thread, that serialize the metadata of the indices of a cluster state before the
+     * cluster state itself is serialized for publication. The serialized metadata is kept until the index changes, so unchanged
+     * indices are not serialized again for the next publication. Set to {@code 0} to serialize everything on the master thread
+     * without keeping anything.
+     */
+    public static final Setting<Integer> PUBLISH_SERIALIZATION_THREADS_SETTING =
+        new Setting<>("cluster.publish.serialization_threads",
+            (s) -> Integer.toString(Math.min(4, EsExecutors.allocatedProcessors(s))),
+            (s) -> Setting.parseInt(s, 0, "cluster.publish.serialization_threads"), Setting.Property.NodeScope);
+
     private final TransportService transportService;
     private final NamedWriteableRegistry namedWriteableRegistry;
     private final Function<PublishRequest, PublishWithJoinResponse> handlePublishRequest;
+    private final int serializationThreads;
 
     private AtomicReference<ClusterState> lastSeenClusterState = new AtomicReference<>();
 
@@ -80,17 +103,24 @@ public class PublicationTransportHandler {
     private final AtomicLong fullClusterStateReceivedCount = new AtomicLong();
     private final AtomicLong incompatibleClusterStateDiffReceivedCount = new AtomicLong();
     private final AtomicLong compatibleClusterStateDiffReceivedCount = new AtomicLong();
+    private final AtomicLong publicationCount = new AtomicLong();
+    private final AtomicLong diffTimeNanos = new AtomicLong();
+    private final AtomicLong indexMetadataSerializationTimeNanos = new AtomicLong();
+    private final AtomicLong stateSerializationTimeNanos = new AtomicLong();
+    private final AtomicLong indexMetadataSerializedCount = new AtomicLong();
+    private final AtomicLong indexMetadataReusedCount = new AtomicLong();
     // -> no need to put a timeout on the options here, because we want the response to eventually be received
     //  and not log an error if it arrives after the timeout
     private final TransportRequestOptions stateRequestOptions = TransportRequestOptions.builder()
         .withType(TransportRequestOptions.Type.STATE).build();
 
-    public PublicationTransportHandler(TransportService transportService, NamedWriteableRegistry namedWriteableRegistry,
+    public PublicationTransportHandler(Settings settings, TransportService transportService, NamedWriteableRegistry namedWriteableRegistry,
                                        Function<PublishRequest, PublishWithJoinResponse> handlePublishRequest,
                                        BiConsumer<ApplyCommitRequest, ActionListener<Void>> handleApplyCommit) {
         this.transportService = transportService;
         this.namedWriteableRegistry = namedWriteableRegistry;
         this.handlePublishRequest = handlePublishRequest;
+        this.serializationThreads = PUBLISH_SERIALIZATION_THREADS_SETTING.get(settings);
 
         transportService.registerRequestHandler(PUBLISH_STATE_ACTION_NAME, ThreadPool.Names.GENERIC, false, false,
             BytesTransportRequest::new, (request, channel, task) -> channel.sendResponse(handleIncomingPublishRequest(request)));
@@ -128,7 +158,13 @@ public class PublicationTransportHandler {
         return new PublishClusterStateStats(
             fullClusterStateReceivedCount.get(),
             incompatibleClusterStateDiffReceivedCount.get(),
-            compatibleClusterStateDiffReceivedCount.get());
+            compatibleClusterStateDiffReceivedCount.get(),
+            publicationCount.get(),
+            TimeUnit.NANOSECONDS.toMillis(diffTimeNanos.get()),
+            TimeUnit.NANOSECONDS.toMillis(indexMetadataSerializationTimeNanos.get()),
+            TimeUnit.NANOSECONDS.toMillis(stateSerializationTimeNanos.get()),
+            indexMetadataSerializedCount.get(),
+            indexMetadataReusedCount.get());
     }
 
     public interface PublicationContext {
@@ -270,23 +306,39 @@ public class PublicationTransportHandler {
         }
     }
 
-    private static void buildDiffAndSerializeStates(ClusterState clusterState, ClusterState previousState, DiscoveryNodes discoveryNodes,
-                                                    boolean sendFullVersion, Map<Version, BytesReference> serializedStates,
-                                                    Map<Version, BytesReference> serializedDiffs) {
+    private void buildDiffAndSerializeStates(ClusterState clusterState, ClusterState previousState, DiscoveryNodes discoveryNodes,
+                                             boolean sendFullVersion, Map<Version, BytesReference> serializedStates,
+                                             Map<Version, BytesReference> serializedDiffs) {
+        publicationCount.incrementAndGet();
+        boolean sendsFullState = false;
+        boolean sendsDiff = false;
+        for (DiscoveryNode node : discoveryNodes) {
+            if (sendFullVersion || !previousState.nodes().nodeExists(node)) {
+                sendsFullState = true;
+            } else {
+                sendsDiff = true;
+            }
+        }
+        serializeIndexMetadata(clusterState, previousState, sendsFullState, sendsDiff);
+
         Diff<ClusterState> diff = null;
         for (DiscoveryNode node : discoveryNodes) {
             try {
                 if (sendFullVersion || !previousState.nodes().nodeExists(node)) {
                     if (serializedStates.containsKey(node.getVersion()) == false) {
-                        serializedStates.put(node.getVersion(), serializeFullClusterState(clusterState, node.getVersion()));
+                        serializedStates.put(node.getVersion(), timedSerializeFullClusterState(clusterState, node.getVersion()));
                     }
                 } else {
                     // will send a diff
                     if (diff == null) {
+                        final long startNanos = System.nanoTime();
                         diff = clusterState.diff(previousState);
+                        diffTimeNanos.addAndGet(System.nanoTime() - startNanos);
                     }
                     if (serializedDiffs.containsKey(node.getVersion()) == false) {
+                        final long startNanos = System.nanoTime();
                         serializedDiffs.put(node.getVersion(), serializeDiffClusterState(diff, node.getVersion()));
+                        stateSerializationTimeNanos.addAndGet(System.nanoTime() - startNanos);
                     }
                 }
             } catch (IOException e) {
@@ -295,12 +347,86 @@ public class PublicationTransportHandler {
         }
     }
 
+    /**
+     * Serializes the metadata of the indices that the cluster state or the diff that is about to be published writes in full, spread
+     * over up to {@link #PUBLISH_SERIALIZATION_THREADS_SETTING} threads. The bytes are kept by the {@link IndexMetadata} instances
+     * for the version of this node, so the sequential serialization of the cluster state only has to copy and compress them, and the
+     * next publication reuses them for every index that didn't change. Nodes of other versions get index metadata serialized as
+     * part of the cluster state, like before.
+     * <p>
+     * A diff writes the full metadata of the indices that were created since the previous state and a diff of the metadata of the
+     * indices that changed, which is left to the diff.
+     */
+    private void serializeIndexMetadata(ClusterState clusterState, ClusterState previousState, boolean sendsFullState,
+                                        boolean sendsDiff) {
+        if (serializationThreads == 0) {
+            return;
+        }
+        final long startNanos = System.nanoTime();
+        final List<IndexMetadata> indices = new ArrayList<>();
+        for (IndexMetadata indexMetadata : clusterState.metadata()) {
+            if (sendsFullState || (sendsDiff && previousState.metadata().hasIndex(indexMetadata.getIndex().getName()) == false)) {
+                indices.add(indexMetadata);
+            }
+        }
+        if (indices.isEmpty()) {
+            return;
+        }
+
+        final Version version = transportService.getLocalNode().getVersion();
+        final AtomicInteger nextIndex = new AtomicInteger();
+        final CountDownLatch serialized = new CountDownLatch(indices.size());
+        final Runnable serializeIndices = () -> {
+            for (int i = nextIndex.getAndIncrement(); i < indices.size(); i = nextIndex.getAndIncrement()) {
+                final IndexMetadata indexMetadata = indices.get(i);
+                try {
+                    if (indexMetadata.cacheSerializedForm(version)) {
+                        indexMetadataSerializedCount.incrementAndGet();
+                    } else {
+                        indexMetadataReusedCount.incrementAndGet();
+                    }
+                } catch (Exception e) {
+                    // the index metadata is serialized again along with the cluster state, which reports the failure
+                    logger.debug(() -> new ParameterizedMessage("failed to serialize metadata of index {}", indexMetadata.getIndex()), e);
+                } finally {
+                    serialized.countDown();
+                }
+            }
+        };
+        final int forks = Math.min(serializationThreads, indices.size()) - 1;
+        final ExecutorService executor = transportService.getThreadPool().executor(ThreadPool.Names.GENERIC);
+        for (int i = 0; i < forks; i++) {
+            try {
+                executor.execute(serializeIndices);
+            } catch (EsRejectedExecutionException e) {
+                logger.debug("failed to fork serialization of index metadata", e);
+                break;
+            }
+        }
+        // the master thread takes every index that no other thread took yet, so it only waits for indices that are being serialized
+        serializeIndices.run();
+        try {
+            serialized.await();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new ElasticsearchException("interrupted while serializing index metadata for publication", e);
+        }
+        indexMetadataSerializationTimeNanos.addAndGet(System.nanoTime() - startNanos);
+    }
+
+    private BytesReference timedSerializeFullClusterState(ClusterState clusterState, Version nodeVersion) throws IOException {
+        final long startNanos = System.nanoTime();
+        final BytesReference bytes = serializeFullClusterState(clusterState, nodeVersion);
+        stateSerializationTimeNanos.addAndGet(System.nanoTime() - startNanos);
+        return bytes;
+    }
+
     private void sendFullClusterState(ClusterState clusterState, Map<Version, BytesReference> serializedStates,
                                       DiscoveryNode node, ActionListener<PublishWithJoinResponse> responseActionListener) {
         BytesReference bytes = serializedStates.get(node.getVersion());
         if (bytes == null) {
             try {
-                bytes = serializeFullClusterState(clusterState, node.getVersion());
+                bytes = timedSerializeFullClusterState(clusterState, node.getVersion());
                 serializedStates.put(node.getVersion(), bytes);
             } catch (Exception e) {
                 logger.warn(() -> new ParameterizedMessage("failed to serialize cluster state before publishing it to node {}", node), e);
@@ -19,9 +19,11 @@
 
 package org.elasticsearch.cluster.coordination;
 
+import org.elasticsearch.Version;
 import org.elasticsearch.common.io.stream.StreamInput;
 import org.elasticsearch.common.io.stream.StreamOutput;
 import org.elasticsearch.common.io.stream.Writeable;
+import org.elasticsearch.common.unit.TimeValue;
 import org.elasticsearch.common.xcontent.ToXContentObject;
 import org.elasticsearch.common.xcontent.XContentBuilder;
 
@@ -35,24 +37,64 @@ public class PublishClusterStateStats implements Writeable, ToXContentObject {
     private final long fullClusterStateReceivedCount;
     private final long incompatibleClusterStateDiffReceivedCount;
     private final long compatibleClusterStateDiffReceivedCount;
+    private final long publicationCount;
+    private final long diffTimeMillis;
+    private final long indexMetadataSerializationTimeMillis;
+    private final long stateSerializationTimeMillis;
+    private final long indexMetadataSerializedCount;
+    private final long indexMetadataReusedCount;
 
     /**
      * @param fullClusterStateReceivedCount the number of times this node has received a full copy of the cluster state from the master.
      * @param incompatibleClusterStateDiffReceivedCount the number of times this node has received a cluster-state diff from the master.
      * @param compatibleClusterStateDiffReceivedCount the number of times that received cluster-state diffs were compatible with
+     * @param publicationCount the number of cluster states that this node has published as the master.
+     * @param diffTimeMillis the time this node spent computing cluster-state diffs to publish.
+     * @param indexMetadataSerializationTimeMillis the time this node spent serializing index metadata ahead of serializing the
+     *                                             cluster states and diffs to publish.
+     * @param stateSerializationTimeMillis the time this node spent serializing and compressing cluster states and diffs to publish.
+     * @param indexMetadataSerializedCount the number of times that this node serialized the metadata of an index ahead of publishing.
+     * @param indexMetadataReusedCount the number of times that this node reused the serialized metadata of an unchanged index.
      */
     public PublishClusterStateStats(long fullClusterStateReceivedCount,
                                     long incompatibleClusterStateDiffReceivedCount,
-                                    long compatibleClusterStateDiffReceivedCount) {
+                                    long compatibleClusterStateDiffReceivedCount,
+                                    long publicationCount,
+                                    long diffTimeMillis,
+                                    long indexMetadataSerializationTimeMillis,
+                                    long stateSerializationTimeMillis,
+                                    long indexMetadataSerializedCount,
+                                    long indexMetadataReusedCount) {
         this.fullClusterStateReceivedCount = fullClusterStateReceivedCount;
         this.incompatibleClusterStateDiffReceivedCount = incompatibleClusterStateDiffReceivedCount;
         this.compatibleClusterStateDiffReceivedCount = compatibleClusterStateDiffReceivedCount;
+        this.publicationCount = publicationCount;
+        this.diffTimeMillis = diffTimeMillis;
+        this.indexMetadataSerializationTimeMillis = indexMetadataSerializationTimeMillis;
+        this.stateSerializationTimeMillis = stateSerializationTimeMillis;
+        this.indexMetadataSerializedCount = indexMetadataSerializedCount;
+        this.indexMetadataReusedCount = indexMetadataReusedCount;
     }
 
     public PublishClusterStateStats(StreamInput in) throws IOException {
         fullClusterStateReceivedCount = in.readVLong();
         incompatibleClusterStateDiffReceivedCount = in.readVLong();
         compatibleClusterStateDiffReceivedCount = in.readVLong();
+        if (in.getVersion().onOrAfter(Version.V_8_0_0)) {
+            publicationCount = in.readVLong();
+            diffTimeMillis = in.readVLong();
+            indexMetadataSerializationTimeMillis = in.readVLong();
+            stateSerializationTimeMillis = in.readVLong();
+            indexMetadataSerializedCount = in.readVLong();
+            indexMetadataReusedCount = in.readVLong();
+        } else {
+            publicationCount = 0;
+            diffTimeMillis = 0;
+            indexMetadataSerializationTimeMillis = 0;
+            stateSerializationTimeMillis = 0;
+            indexMetadataSerializedCount = 0;
+            indexMetadataReusedCount = 0;
+        }
     }
 
     @Override
@@ -60,6 +102,14 @@ public class PublishClusterStateStats implements Writeable, ToXContentObject {
         out.writeVLong(fullClusterStateReceivedCount);
         out.writeVLong(incompatibleClusterStateDiffReceivedCount);
         out.writeVLong(compatibleClusterStateDiffReceivedCount);
+        if (out.getVersion().onOrAfter(Version.V_8_0_0)) {
+            out.writeVLong(publicationCount);
+            out.writeVLong(diffTimeMillis);
+            out.writeVLong(indexMetadataSerializationTimeMillis);
+            out.writeVLong(stateSerializationTimeMillis);
+            out.writeVLong(indexMetadataSerializedCount);
+            out.writeVLong(indexMetadataReusedCount);
+        }
     }
 
     @Override
@@ -69,6 +119,17 @@ public class PublishClusterStateStats implements Writeable, ToXContentObject {
             builder.field("full_states", fullClusterStateReceivedCount);
             builder.field("incompatible_diffs", incompatibleClusterStateDiffReceivedCount);
             builder.field("compatible_diffs", compatibleClusterStateDiffReceivedCount);
+            builder.startObject("serialization");
+            {
+                builder.field("publications", publicationCount);
+                builder.humanReadableField("diff_time_in_millis", "diff_time", new TimeValue(diffTimeMillis));
+                builder.humanReadableField("index_metadata_time_in_millis", "index_metadata_time",
+                    new TimeValue(indexMetadataSerializationTimeMillis));
+                builder.humanReadableField("state_time_in_millis", "state_time", new TimeValue(stateSerializationTimeMillis));
+                builder.field("index_metadata_serialized", indexMetadataSerializedCount);
+                builder.field("index_metadata_reused", indexMetadataReusedCount);
+            }
+            builder.endObject();
         }
         builder.endObject();
         return builder;
@@ -80,11 +141,29 @@ public class PublishClusterStateStats implements Writeable, ToXContentObject {
 
     public long getCompatibleClusterStateDiffReceivedCount() { return compatibleClusterStateDiffReceivedCount; }
 
+    public long getPublicationCount() { return publicationCount; }
+
+    public long getDiffTimeMillis() { return diffTimeMillis; }
+
+    public long getIndexMetadataSerializationTimeMillis() { return indexMetadataSerializationTimeMillis; }
+
+    public long getStateSerializationTimeMillis() { return stateSerializationTimeMillis; }
+
+    public long getIndexMetadataSerializedCount() { return indexMetadataSerializedCount; }
+
+    public long getIndexMetadataReusedCount() { return indexMetadataReusedCount; }
+
     @Override
     public String toString() {
         return "PublishClusterStateStats(full=" + fullClusterStateReceivedCount
             + ", incompatible=" + incompatibleClusterStateDiffReceivedCount
             + ", compatible=" + compatibleClusterStateDiffReceivedCount
+            + ", publications=" + publicationCount
+            + ", diffTimeMillis=" + diffTimeMillis
+            + ", indexMetadataSerializationTimeMillis=" + indexMetadataSerializationTimeMillis
+            + ", stateSerializationTimeMillis=" + stateSerializationTimeMillis
+            + ", indexMetadataSerialized=" + indexMetadataSerializedCount
+            + ", indexMetadataReused=" + indexMetadataReusedCount
             + ")";
     }
 }
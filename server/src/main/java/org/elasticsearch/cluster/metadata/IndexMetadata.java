@@ -36,10 +36,12 @@ import org.elasticsearch.cluster.node.DiscoveryNodeFilters;
 import org.elasticsearch.cluster.routing.allocation.IndexMetadataUpdater;
 import org.elasticsearch.common.Nullable;
 import org.elasticsearch.common.bytes.BytesArray;
+import org.elasticsearch.common.bytes.BytesReference;
 import org.elasticsearch.common.collect.ImmutableOpenIntMap;
 import org.elasticsearch.common.collect.ImmutableOpenMap;
 import org.elasticsearch.common.collect.MapBuilder;
 import org.elasticsearch.common.compress.CompressedXContent;
+import org.elasticsearch.common.io.stream.BytesStreamOutput;
 import org.elasticsearch.common.io.stream.StreamInput;
 import org.elasticsearch.common.io.stream.StreamOutput;
 import org.elasticsearch.common.settings.Setting;
@@ -330,6 +332,10 @@ public class IndexMetadata implements Diffable<IndexMetadata>, ToXContentFragmen
     private final ActiveShardCount waitForActiveShards;
     private final ImmutableOpenMap<String, RolloverInfo> rolloverInfos;
 
+    // the bytes that writeTo produces for one wire version except for the mappings, kept by the master for indices that it publishes so
+    // that unchanged indices are not serialized again for every publication, see cacheSerializedForm
+    private volatile SerializedForm serializedForm;
+
     private IndexMetadata(
             final Index index,
             final long version,
@@ -790,6 +796,62 @@ public class IndexMetadata implements Diffable<IndexMetadata>, ToXContentFragmen
 
     @Override
     public void writeTo(StreamOutput out) throws IOException {
+        final SerializedForm serializedForm = this.serializedForm;
+        if (serializedForm != null && serializedForm.version.equals(out.getVersion())) {
+            serializedForm.beforeMappings.writeTo(out);
+            writeMappings(out);
+            serializedForm.afterMappings.writeTo(out);
+        } else {
+            writeBeforeMappings(out);
+            writeMappings(out);
+            writeAfterMappings(out);
+        }
+    }
+
+    /**
+     * Serializes this index metadata for the given wire version and keeps the bytes so that {@link #writeTo(StreamOutput)} copies
+     * them rather than serializing it again. Only the bytes for a single version are kept. The mappings are left out, they are
+     * written from the {@link MappingMetadata} instances, which only copies their compressed source, so that indices that share a
+     * mapping don't each hold a copy of it.
+     *
+     * @return {@code false} if the bytes for this version were already kept
+     */
+    public boolean cacheSerializedForm(Version version) throws IOException {
+        final SerializedForm serializedForm = this.serializedForm;
+        if (serializedForm != null && serializedForm.version.equals(version)) {
+            return false;
+        }
+        final BytesStreamOutput beforeMappings = new BytesStreamOutput();
+        beforeMappings.setVersion(version);
+        writeBeforeMappings(beforeMappings);
+        final BytesStreamOutput afterMappings = new BytesStreamOutput();
+        afterMappings.setVersion(version);
+        writeAfterMappings(afterMappings);
+        this.serializedForm = new SerializedForm(version, beforeMappings.bytes(), afterMappings.bytes());
+        return true;
+    }
+
+    /**
+     * Returns the number of bytes that {@link #cacheSerializedForm(Version)} keeps, or {@code 0} if there are none.
+     */
+    long serializedFormSizeInBytes() {
+        final SerializedForm serializedForm = this.serializedForm;
+        return serializedForm == null ? 0 : serializedForm.beforeMappings.length() + serializedForm.afterMappings.length();
+    }
+
+    private static final class SerializedForm {
+        private final Version version;
+        private final BytesReference beforeMappings;
+        private final BytesReference afterMappings;
+
+        SerializedForm(Version version, BytesReference beforeMappings, BytesReference afterMappings) {
+            this.version = version;
+            this.beforeMappings = beforeMappings;
+            this.afterMappings = afterMappings;
+        }
+    }
+
+    private void writeBeforeMappings(StreamOutput out) throws IOException {
         out.writeString(index.getName()); // uuid will come as part of settings
         out.writeLong(version);
         out.writeVLong(mappingVersion);
@@ -801,10 +863,16 @@ public class IndexMetadata implements Diffable<IndexMetadata>, ToXContentFragmen
         out.writeByte(state.id());
         writeSettingsToStream(settings, out);
         out.writeVLongArray(primaryTerms);
+    }
+
+    private void writeMappings(StreamOutput out) throws IOException {
         out.writeVInt(mappings.size());
         for (ObjectCursor<MappingMetadata> cursor : mappings.values()) {
             cursor.value.writeTo(out);
         }
+    }
+
+    private void writeAfterMappings(StreamOutput out) throws IOException {
         out.writeVInt(aliases.size());
         for (ObjectCursor<AliasMetadata> cursor : aliases.values()) {
             cursor.value.writeTo(out);
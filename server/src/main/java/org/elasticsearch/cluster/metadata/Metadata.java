@@ -56,6 +56,7 @@ import org.elasticsearch.common.xcontent.XContentParser;
 import org.elasticsearch.gateway.MetadataStateFormat;
 import org.elasticsearch.index.Index;
 import org.elasticsearch.index.IndexNotFoundException;
+import org.elasticsearch.index.mapper.MapperService;
 import org.elasticsearch.plugins.MapperPlugin;
 import org.elasticsearch.rest.RestStatus;
 
@@ -67,6 +68,7 @@ import java.util.Comparator;
 import java.util.EnumSet;
 import java.util.HashMap;
 import java.util.HashSet;
+import java.util.IdentityHashMap;
 import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
@@ -1290,12 +1292,68 @@ public class Metadata implements Iterable<IndexMetadata>, Diffable<Metadata>, To
             return this;
         }
 
+        /**
+         * Makes indices with identical mappings share a single {@link MappingMetadata} instance, so that the mappings of the indices
+         * that were created from the same template are only held once in memory, however they were created, read from the wire or
+         * loaded from disk. Of the instances with the same content, the one that the most indices share is kept, so that building the
+         * metadata again after an index was added only replaces the metadata of that index. Instances are compared by identity first,
+         * so that the contents of mappings are only compared when a new instance shows up.
+         */
+        private void deduplicateMappings() {
+            final Map<MappingMetadata, Integer> usages = new IdentityHashMap<>();
+            for (ObjectCursor<IndexMetadata> cursor : indices.values()) {
+                final MappingMetadata mapping = dedupableMapping(cursor.value);
+                if (mapping != null) {
+                    usages.merge(mapping, 1, Integer::sum);
+                }
+            }
+            if (usages.size() < 2) {
+                return;
+            }
+
+            final Map<MappingMetadata, MappingMetadata> sharedMappings = new HashMap<>(usages.size());
+            boolean foundDuplicates = false;
+            for (MappingMetadata mapping : usages.keySet()) {
+                foundDuplicates |= sharedMappings.putIfAbsent(mapping, mapping) != null;
+            }
+            if (foundDuplicates == false) {
+                return;
+            }
+            sharedMappings.clear();
+            final List<Map.Entry<MappingMetadata, Integer>> mostUsedFirst = new ArrayList<>(usages.entrySet());
+            mostUsedFirst.sort(Map.Entry.<MappingMetadata, Integer>comparingByValue().reversed());
+            for (Map.Entry<MappingMetadata, Integer> entry : mostUsedFirst) {
+                sharedMappings.putIfAbsent(entry.getKey(), entry.getKey());
+            }
+
+            final List<IndexMetadata> deduplicated = new ArrayList<>();
+            for (ObjectCursor<IndexMetadata> cursor : indices.values()) {
+                final MappingMetadata mapping = dedupableMapping(cursor.value);
+                if (mapping != null) {
+                    final MappingMetadata sharedMapping = sharedMappings.get(mapping);
+                    if (sharedMapping != mapping) {
+                        deduplicated.add(IndexMetadata.builder(cursor.value).putMapping(sharedMapping).build());
+                    }
+                }
+            }
+            for (IndexMetadata indexMetadata : deduplicated) {
+                indices.put(indexMetadata.getIndex().getName(), indexMetadata);
+            }
+        }
+
+        private static MappingMetadata dedupableMapping(IndexMetadata indexMetadata) {
+            final ImmutableOpenMap<String, MappingMetadata> mappings = indexMetadata.getMappings();
+            return mappings.size() == 1 ? mappings.get(MapperService.SINGLE_MAPPING_NAME) : null;
+        }
+
         public Metadata build() {
             // TODO: We should move these datastructures to IndexNameExpressionResolver, this will give the following benefits:
             // 1) The datastructures will be rebuilt only when needed. Now during serializing we rebuild these datastructures
             //    while these datastructures aren't even used.
             // 2) The aliasAndIndexLookup can be updated instead of rebuilding it all the time.
 
+            deduplicateMappings();
+
             final Set<String> allIndices = new HashSet<>(indices.size());
             final List<String> visibleIndices = new ArrayList<>();
             final List<String> allOpenIndices = new ArrayList<>();
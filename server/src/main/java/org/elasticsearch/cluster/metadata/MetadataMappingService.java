@@ -47,7 +47,6 @@ import org.elasticsearch.indices.IndicesService;
 
 import java.io.IOException;
 import java.util.ArrayList;
-import java.util.Collections;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
@@ -144,7 +143,7 @@ public class MetadataMappingService {
             IndexService indexService = indicesService.indexService(indexMetadata.getIndex());
             if (indexService == null) {
                 // we need to create the index here, and add the current mapping to it, so we can merge
-                indexService = indicesService.createIndex(indexMetadata, Collections.emptyList(), false);
+                indexService = indicesService.createTemporaryIndex(indexMetadata);
                 removeIndex = true;
                 indexService.mapperService().merge(indexMetadata, MergeReason.MAPPING_RECOVERY);
             }
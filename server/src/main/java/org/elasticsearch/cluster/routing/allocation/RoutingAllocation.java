@@ -28,16 +28,20 @@ import org.elasticsearch.cluster.routing.RoutingChangesObserver;
 import org.elasticsearch.cluster.routing.RoutingNodes;
 import org.elasticsearch.cluster.routing.RoutingTable;
 import org.elasticsearch.cluster.routing.ShardRouting;
+import org.elasticsearch.cluster.routing.UnassignedInfo;
 import org.elasticsearch.cluster.routing.allocation.decider.AllocationDeciders;
 import org.elasticsearch.cluster.routing.allocation.decider.Decision;
 import org.elasticsearch.common.collect.ImmutableOpenMap;
+import org.elasticsearch.index.Index;
 import org.elasticsearch.index.shard.ShardId;
 import org.elasticsearch.snapshots.RestoreService.RestoreInProgressUpdater;
 
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.Map;
+import java.util.Objects;
 import java.util.Set;
+import java.util.function.Supplier;
 
 import static java.util.Collections.emptySet;
 
@@ -75,10 +79,14 @@ public class RoutingAllocation {
     private final IndexMetadataUpdater indexMetadataUpdater = new IndexMetadataUpdater();
     private final RoutingNodesChangedObserver nodesChangedObserver = new RoutingNodesChangedObserver();
     private final RestoreInProgressUpdater restoreInProgressUpdater = new RestoreInProgressUpdater();
+    private final RoutingChangesCounter routingChangesCounter = new RoutingChangesCounter();
     private final RoutingChangesObserver routingChangesObserver = new RoutingChangesObserver.DelegatingRoutingChangesObserver(
-        nodesChangedObserver, indexMetadataUpdater, restoreInProgressUpdater
+        nodesChangedObserver, indexMetadataUpdater, restoreInProgressUpdater, routingChangesCounter
     );
 
+    private final Map<DecisionKey, Decision> memoizedDecisions = new HashMap<>();
+    private final Map<DecisionKey, MemoizedRoutingDecision> memoizedRoutingDecisions = new HashMap<>();
+
 
     /**
      * Creates a new {@link RoutingAllocation}
@@ -157,6 +165,11 @@ public class RoutingAllocation {
     }
 
     public void ignoreDisable(boolean ignoreDisable) {
+        if (this.ignoreDisable != ignoreDisable) {
+            // deciders may take this flag into account, so decisions made with the previous value must not be reused
+            memoizedDecisions.clear();
+            memoizedRoutingDecisions.clear();
+        }
         this.ignoreDisable = ignoreDisable;
     }
 
@@ -268,6 +281,140 @@ public class RoutingAllocation {
         }
     }
 
+    /**
+     * Returns the decision for the given key, only computing it the first time it is asked for during this allocation. Use this for
+     * decisions that only depend on the metadata, the nodes and the settings of the cluster, which don't change during an
+     * allocation. Decisions are always computed when debugging since they then carry an explanation.
+     */
+    public Decision memoizeDecision(DecisionKey key, Supplier<Decision> decision) {
+        if (debugDecision()) {
+            return decision.get();
+        }
+        Decision memoized = memoizedDecisions.get(key);
+        if (memoized == null) {
+            memoized = decision.get();
+            memoizedDecisions.put(key, memoized);
+        }
+        return memoized;
+    }
+
+    /**
+     * Like {@link #memoizeDecision(DecisionKey, Supplier)} but for decisions that also depend on the routing nodes: the decision
+     * is computed again if any shard was initialized, started, relocated or failed since it was last computed.
+     */
+    public Decision memoizeDecisionUntilRoutingChanges(DecisionKey key, Supplier<Decision> decision) {
+        if (debugDecision()) {
+            return decision.get();
+        }
+        final long routingVersion = routingChangesCounter.changes;
+        MemoizedRoutingDecision memoized = memoizedRoutingDecisions.get(key);
+        if (memoized == null || memoized.routingVersion != routingVersion) {
+            memoized = new MemoizedRoutingDecision(routingVersion, decision.get());
+            memoizedRoutingDecisions.put(key, memoized);
+        }
+        return memoized.decision;
+    }
+
+    /**
+     * Identifies a decision of a decider instance about an index, a node or an index on a node. Either the index or the node may
+     * be {@code null} for decisions that don't depend on them.
+     */
+    public static final class DecisionKey {
+        private final Object decider;
+        private final Index index;
+        private final String nodeId;
+
+        public DecisionKey(Object decider, Index index, String nodeId) {
+            this.decider = Objects.requireNonNull(decider);
+            this.index = index;
+            this.nodeId = nodeId;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) {
+                return true;
+            }
+            if (o == null || getClass() != o.getClass()) {
+                return false;
+            }
+            DecisionKey that = (DecisionKey) o;
+            return decider == that.decider && Objects.equals(index, that.index) && Objects.equals(nodeId, that.nodeId);
+        }
+
+        @Override
+        public int hashCode() {
+            return 31 * (31 * System.identityHashCode(decider) + Objects.hashCode(index)) + Objects.hashCode(nodeId);
+        }
+
+        @Override
+        public String toString() {
+            return "[" + decider.getClass().getSimpleName() + "][" + index + "][" + nodeId + "]";
+        }
+    }
+
+    private static final class MemoizedRoutingDecision {
+        private final long routingVersion;
+        private final Decision decision;
+
+        MemoizedRoutingDecision(long routingVersion, Decision decision) {
+            this.routingVersion = routingVersion;
+            this.decision = decision;
+        }
+    }
+
+    /**
+     * Counts the changes made to the routing nodes so that decisions that depend on them can tell whether they are stale.
+     */
+    private static final class RoutingChangesCounter implements RoutingChangesObserver {
+        private long changes;
+
+        @Override
+        public void shardInitialized(ShardRouting unassignedShard, ShardRouting initializedShard) {
+            changes++;
+        }
+
+        @Override
+        public void shardStarted(ShardRouting initializingShard, ShardRouting startedShard) {
+            changes++;
+        }
+
+        @Override
+        public void relocationStarted(ShardRouting startedShard, ShardRouting targetRelocatingShard) {
+            changes++;
+        }
+
+        @Override
+        public void unassignedInfoUpdated(ShardRouting unassignedShard, UnassignedInfo newUnassignedInfo) {
+            changes++;
+        }
+
+        @Override
+        public void shardFailed(ShardRouting failedShard, UnassignedInfo unassignedInfo) {
+            changes++;
+        }
+
+        @Override
+        public void relocationCompleted(ShardRouting removedRelocationSource) {
+            changes++;
+        }
+
+        @Override
+        public void relocationSourceRemoved(ShardRouting removedReplicaRelocationSource) {
+            changes++;
+        }
+
+        @Override
+        public void replicaPromoted(ShardRouting replicaShard) {
+            changes++;
+        }
+
+        @Override
+        public void initializedReplicaReinitialized(ShardRouting oldReplica, ShardRouting reinitializedReplica) {
+            changes++;
+        }
+    }
+
     /**
      * Returns <code>true</code> iff the current allocation run has not processed all of the in-flight or available
      * shard or store fetches. Otherwise <code>true</code>
@@ -51,6 +51,7 @@ import org.elasticsearch.common.util.set.Sets;
 import org.elasticsearch.gateway.PriorityComparator;
 
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collections;
 import java.util.Comparator;
 import java.util.HashMap;
@@ -245,6 +246,10 @@ public class BalancedShardsAllocator implements ShardsAllocator {
         private final Metadata metadata;
         private final float avgShardsPerNode;
         private final NodeSorter sorter;
+        private final ModelLocations locations = new ModelLocations();
+        /* the nodes sorted by their number of shards, valid as long as the version of the locations doesn't change */
+        private ModelNode[] nodesByNumShards;
+        private long nodesByNumShardsVersion = -1;
 
         public Balancer(Logger logger, RoutingAllocation allocation, WeightFunction weight, float threshold) {
             this.logger = logger;
@@ -289,6 +294,48 @@ public class BalancedShardsAllocator implements ShardsAllocator {
             return new NodeSorter(nodesArray(), weight, this);
         }
 
+        /**
+         * Returns the difference between the highest and the lowest weight of all nodes with respect to the given index,
+         * the same as {@link NodeSorter#delta()} after {@link NodeSorter#reset(String)}. Nodes without a shard of the index
+         * are ordered by their total number of shards only, so this only needs to compute the weights of the nodes that hold
+         * the index plus the lightest and the heaviest of the other nodes, rather than sorting all nodes for every index.
+         */
+        private float weightDelta(String index) {
+            final Set<ModelNode> holdingNodes = locations.nodesHolding(index);
+            float min = Float.POSITIVE_INFINITY;
+            float max = Float.NEGATIVE_INFINITY;
+            for (ModelNode node : holdingNodes) {
+                final float nodeWeight = weight.weight(this, node, index);
+                min = Math.min(min, nodeWeight);
+                max = Math.max(max, nodeWeight);
+            }
+            if (holdingNodes.size() < nodes.size()) {
+                final ModelNode[] sortedNodes = nodesByNumShards();
+                for (ModelNode node : sortedNodes) {
+                    if (holdingNodes.contains(node) == false) {
+                        min = Math.min(min, weight.weight(this, node, index));
+                        break;
+                    }
+                }
+                for (int i = sortedNodes.length - 1; i >= 0; i--) {
+                    if (holdingNodes.contains(sortedNodes[i]) == false) {
+                        max = Math.max(max, weight.weight(this, sortedNodes[i], index));
+                        break;
+                    }
+                }
+            }
+            return max - min;
+        }
+
+        private ModelNode[] nodesByNumShards() {
+            if (nodesByNumShardsVersion != locations.version()) {
+                nodesByNumShards = nodesArray();
+                Arrays.sort(nodesByNumShards, Comparator.comparingInt(ModelNode::numShards));
+                nodesByNumShardsVersion = locations.version();
+            }
+            return nodesByNumShards;
+        }
+
         /**
          * The absolute value difference between two weights.
          */
@@ -467,6 +514,13 @@ public class BalancedShardsAllocator implements ShardsAllocator {
             final ModelNode[] modelNodes = sorter.modelNodes;
             final float[] weights = sorter.weights;
             for (String index : buildWeightOrderedIndices()) {
+                if (lessThan(weightDelta(index), threshold)) {
+                    /*
+                     * No two nodes differ by more than the threshold, so the loop below can't find a relocation whatever the
+                     * deciders say. Skip it to avoid asking the deciders about every node for every balanced index.
+                     */
+                    continue;
+                }
                 IndexMetadata indexMetadata = metadata.index(index);
 
                 // find nodes that have a shard of this index or where shards of this index are allowed to be allocated to,
@@ -585,8 +639,7 @@ public class BalancedShardsAllocator implements ShardsAllocator {
             final String[] indices = allocation.routingTable().indicesRouting().keys().toArray(String.class);
             final float[] deltas = new float[indices.length];
             for (int i = 0; i < deltas.length; i++) {
-                sorter.reset(indices[i]);
-                deltas[i] = sorter.delta();
+                deltas[i] = weightDelta(indices[i]);
             }
             new IntroSorter() {
 
@@ -733,7 +786,7 @@ public class BalancedShardsAllocator implements ShardsAllocator {
         private Map<String, ModelNode> buildModelFromAssigned() {
             Map<String, ModelNode> nodes = new HashMap<>();
             for (RoutingNode rn : routingNodes) {
-                ModelNode node = new ModelNode(rn);
+                ModelNode node = new ModelNode(rn, locations);
                 nodes.put(rn.nodeId(), node);
                 for (ShardRouting shard : rn) {
                     assert rn.nodeId().equals(shard.currentNodeId());
@@ -1032,13 +1085,50 @@ public class BalancedShardsAllocator implements ShardsAllocator {
 
     }
 
+    /**
+     * Tracks which nodes of the model hold shards of an index, and a version that changes whenever a shard is added to or
+     * removed from any node of the model.
+     */
+    static final class ModelLocations {
+        private final Map<String, Set<ModelNode>> nodesByIndex = new HashMap<>();
+        private long version = 0;
+
+        Set<ModelNode> nodesHolding(String index) {
+            return nodesByIndex.getOrDefault(index, Collections.emptySet());
+        }
+
+        long version() {
+            return version;
+        }
+
+        private void onIndexAdded(String index, ModelNode node) {
+            nodesByIndex.computeIfAbsent(index, k -> new HashSet<>()).add(node);
+        }
+
+        private void onIndexRemoved(String index, ModelNode node) {
+            final Set<ModelNode> holdingNodes = nodesByIndex.get(index);
+            if (holdingNodes != null) {
+                holdingNodes.remove(node);
+                if (holdingNodes.isEmpty()) {
+                    nodesByIndex.remove(index);
+                }
+            }
+        }
+
+        private void onShardsChanged() {
+            version++;
+        }
+    }
+
     static class ModelNode implements Iterable<ModelIndex> {
         private final Map<String, ModelIndex> indices = new HashMap<>();
         private int numShards = 0;
         private final RoutingNode routingNode;
+        private final ModelLocations locations;
 
-        ModelNode(RoutingNode routingNode) {
+        ModelNode(RoutingNode routingNode, ModelLocations locations) {
             this.routingNode = routingNode;
+            this.locations = locations;
         }
 
         public ModelIndex getIndex(String indexId) {
@@ -1075,9 +1165,11 @@ public class BalancedShardsAllocator implements ShardsAllocator {
             if (index == null) {
                 index = new ModelIndex(shard.getIndexName());
                 indices.put(index.getIndexId(), index);
+                locations.onIndexAdded(index.getIndexId(), this);
             }
             index.addShard(shard);
             numShards++;
+            locations.onShardsChanged();
         }
 
         public void removeShard(ShardRouting shard) {
@@ -1086,9 +1178,11 @@ public class BalancedShardsAllocator implements ShardsAllocator {
                 index.removeShard(shard);
                 if (index.numShards() == 0) {
                     indices.remove(shard.getIndexName());
+                    locations.onIndexRemoved(shard.getIndexName(), this);
                 }
             }
             numShards--;
+            locations.onShardsChanged();
         }
 
         @Override
@@ -26,6 +26,7 @@ import org.elasticsearch.cluster.node.DiscoveryNode;
 import org.elasticsearch.cluster.routing.RoutingNode;
 import org.elasticsearch.cluster.routing.ShardRouting;
 import org.elasticsearch.cluster.routing.allocation.RoutingAllocation;
+import org.elasticsearch.cluster.routing.allocation.RoutingAllocation.DecisionKey;
 
 import java.util.Collection;
 import java.util.Collections;
@@ -119,8 +120,16 @@ public class AllocationDeciders extends AllocationDecider {
         return ret;
     }
 
+    /**
+     * The balancer asks this for every index on every node, the decision is reused until the routing nodes change.
+     */
     @Override
     public Decision canAllocate(IndexMetadata indexMetadata, RoutingNode node, RoutingAllocation allocation) {
+        return allocation.memoizeDecisionUntilRoutingChanges(new DecisionKey(this, indexMetadata.getIndex(), node.nodeId()),
+            () -> doCanAllocate(indexMetadata, node, allocation));
+    }
+
+    private Decision doCanAllocate(IndexMetadata indexMetadata, RoutingNode node, RoutingAllocation allocation) {
         Decision.Multi ret = new Decision.Multi();
         for (AllocationDecider allocationDecider : allocations) {
             Decision decision = allocationDecider.canAllocate(indexMetadata, node, allocation);
@@ -176,8 +185,16 @@ public class AllocationDeciders extends AllocationDecider {
         return ret;
     }
 
+    /**
+     * The decision is reused until the routing nodes change.
+     */
     @Override
     public Decision canAllocate(RoutingNode node, RoutingAllocation allocation) {
+        return allocation.memoizeDecisionUntilRoutingChanges(new DecisionKey(this, null, node.nodeId()),
+            () -> doCanAllocate(node, allocation));
+    }
+
+    private Decision doCanAllocate(RoutingNode node, RoutingAllocation allocation) {
         Decision.Multi ret = new Decision.Multi();
         for (AllocationDecider allocationDecider : allocations) {
             Decision decision = allocationDecider.canAllocate(node, allocation);
@@ -26,6 +26,7 @@ import org.elasticsearch.cluster.routing.RecoverySource;
 import org.elasticsearch.cluster.routing.RoutingNode;
 import org.elasticsearch.cluster.routing.ShardRouting;
 import org.elasticsearch.cluster.routing.allocation.RoutingAllocation;
+import org.elasticsearch.cluster.routing.allocation.RoutingAllocation.DecisionKey;
 import org.elasticsearch.common.settings.ClusterSettings;
 import org.elasticsearch.common.settings.Setting;
 import org.elasticsearch.common.settings.Setting.Property;
@@ -135,16 +136,19 @@ public class FilterAllocationDecider extends AllocationDecider {
     }
 
     private Decision shouldFilter(ShardRouting shardRouting, DiscoveryNode node, RoutingAllocation allocation) {
-        Decision decision = shouldClusterFilter(node, allocation);
-        if (decision != null) return decision;
-
-        decision = shouldIndexFilter(allocation.metadata().getIndexSafe(shardRouting.index()), node, allocation);
-        if (decision != null) return decision;
-
-        return allocation.decision(Decision.YES, NAME, "node passes include/exclude/require filters");
+        return shouldFilter(allocation.metadata().getIndexSafe(shardRouting.index()), node, allocation);
     }
 
+    /**
+     * The filters only depend on the index metadata, the node and the cluster settings, so every shard of an index gets the same
+     * decision on a node and it is only computed once per allocation.
+     */
     private Decision shouldFilter(IndexMetadata indexMd, DiscoveryNode node, RoutingAllocation allocation) {
+        return allocation.memoizeDecision(new DecisionKey(this, indexMd.getIndex(), node.getId()),
+            () -> doShouldFilter(indexMd, node, allocation));
+    }
+
+    private Decision doShouldFilter(IndexMetadata indexMd, DiscoveryNode node, RoutingAllocation allocation) {
         Decision decision = shouldClusterFilter(node, allocation);
         if (decision != null) return decision;
 
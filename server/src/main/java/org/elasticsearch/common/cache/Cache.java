@@ -67,7 +67,7 @@ import java.util.function.ToLongBiFunction;
  * @param <K> The type of the keys
  * @param <V> The type of the values
  */
-public class Cache<K, V> {
+public class Cache<K, V> implements ConcurrentCache<K, V> {
 
     // positive if entries have an expiration
     private long expireAfterAccessNanos = -1;
@@ -357,6 +357,7 @@ public class Cache<K, V> {
      * @param key the key whose associated value is to be returned
      * @return the value to which the specified key is mapped, or null if this map contains no mapping for the key
      */
+    @Override
     public V get(K key) {
         return get(key, now(), e -> {});
     }
@@ -386,6 +387,7 @@ public class Cache<K, V> {
      * @return the current (existing or computed) non-null value associated with the specified key
      * @throws ExecutionException thrown if loader throws an exception or returns a null value
      */
+    @Override
     public V computeIfAbsent(K key, CacheLoader<K, V> loader) throws ExecutionException {
         long now = now();
         // we have to eagerly evict expired entries or our putIfAbsent call below will fail
@@ -468,6 +470,7 @@ public class Cache<K, V> {
      * @param key   key with which the specified value is to be associated
      * @param value value to be associated with the specified key
      */
+    @Override
     public void put(K key, V value) {
         long now = now();
         put(key, value, now);
@@ -510,6 +513,7 @@ public class Cache<K, V> {
      *
      * @param key the key whose mapping is to be invalidated from the cache
      */
+    @Override
     public void invalidate(K key) {
         CacheSegment<K, V> segment = getCacheSegment(key);
         segment.remove(key, invalidationConsumer);
@@ -523,6 +527,7 @@ public class Cache<K, V> {
      * @param key the key whose mapping is to be invalidated from the cache
      * @param value the expected value that should be associated with the key
      */
+    @Override
     public void invalidate(K key, V value) {
         CacheSegment<K, V> segment = getCacheSegment(key);
         segment.remove(key, value, invalidationConsumer);
@@ -532,6 +537,7 @@ public class Cache<K, V> {
      * Invalidate all cache entries. A removal notification will be issued for invalidated entries with
      * {@link org.elasticsearch.common.cache.RemovalNotification.RemovalReason} INVALIDATED.
      */
+    @Override
     public void invalidateAll() {
         Entry<K, V> h;
 
@@ -569,6 +575,7 @@ public class Cache<K, V> {
     /**
      * Force any outstanding size-based and time-based evictions to occur
      */
+    @Override
     public void refresh() {
         long now = now();
         try (ReleasableLock ignored = lruLock.acquire()) {
@@ -581,6 +588,7 @@ public class Cache<K, V> {
      *
      * @return the number of entries in the cache
      */
+    @Override
     public int count() {
         return count;
     }
@@ -590,6 +598,7 @@ public class Cache<K, V> {
      *
      * @return the weight of the entries in the cache
      */
+    @Override
     public long weight() {
         return weight;
     }
@@ -601,6 +610,7 @@ public class Cache<K, V> {
      *
      * @return an LRU-ordered {@link Iterable} over the keys in the cache
      */
+    @Override
     public Iterable<K> keys() {
         return () -> new Iterator<K>() {
             private CacheIterator iterator = new CacheIterator(head);
@@ -629,6 +639,7 @@ public class Cache<K, V> {
      *
      * @return an LRU-ordered {@link Iterable} over the values in the cache
      */
+    @Override
     public Iterable<V> values() {
         return () -> new Iterator<V>() {
             private CacheIterator iterator = new CacheIterator(head);
@@ -691,6 +702,7 @@ public class Cache<K, V> {
      *
      * @return the current cache statistics
      */
+    @Override
     public CacheStats stats() {
         long hits = 0;
         long misses = 0;
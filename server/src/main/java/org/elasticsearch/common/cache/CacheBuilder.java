@@ -109,4 +109,29 @@ public class CacheBuilder<K, V> {
         }
         return cache;
     }
+
+    /**
+     * Builds a cache that doesn't lock on reads and that only admits new entries in place of less frequently used entries
+     * when it is full, see {@link TinyLfuCache}. This suits caches that are read concurrently by many threads, or whose
+     * workload mixes frequently used entries with many entries that are only used once.
+     */
+    public ConcurrentCache<K, V> buildTinyLfu() {
+        TinyLfuCache<K, V> cache = new TinyLfuCache<>();
+        if (maximumWeight != -1) {
+            cache.setMaximumWeight(maximumWeight);
+        }
+        if (expireAfterAccessNanos != -1) {
+            cache.setExpireAfterAccessNanos(expireAfterAccessNanos);
+        }
+        if (expireAfterWriteNanos != -1) {
+            cache.setExpireAfterWriteNanos(expireAfterWriteNanos);
+        }
+        if (weigher != null) {
+            cache.setWeigher(weigher);
+        }
+        if (removalListener != null) {
+            cache.setRemovalListener(removalListener);
+        }
+        return cache;
+    }
 }
@@ -0,0 +1,900 @@
+/*
+ * Licensed to Elasticsearch under one or more contributor
+ * license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright
+ * ownership. Elasticsearch licenses this file to you under
+ * the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.elasticsearch.common.cache;
+
+import org.elasticsearch.common.util.concurrent.ConcurrentCollections;
+
+import java.util.Iterator;
+import java.util.Objects;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.function.ToLongBiFunction;
+
+/**
+ * A concurrent cache that doesn't lock on reads and that uses a Window TinyLFU admission policy.
+ * <p>
+ * Entries are stored in a {@link java.util.concurrent.ConcurrentHashMap}, so that reads never block. Instead of promoting
+ * the entry in an LRU list, which requires a global lock, a read records the access in one of several lossy ring buffers
+ * that are striped by thread. The buffers are drained under the eviction lock by whichever thread fills a buffer or next
+ * writes to the cache. Writes take the eviction lock and apply their changes to the eviction policy immediately, so that
+ * {@link #count()} and {@link #weight()} are accurate once a write returns, like with {@link Cache}.
+ * <p>
+ * The eviction policy splits the entries into a small admission window (1% of the maximum weight) and a main space that
+ * is itself split into a probation and a protected segment. New entries enter the window, and entries that overflow the
+ * window become candidates for the main space: a candidate only replaces the least recently used entry of the probation
+ * segment if it was accessed more frequently, according to a compact count-min sketch of the access frequencies of recent
+ * keys. Entries of the probation segment that are accessed again are promoted to the protected segment. This keeps
+ * frequently used entries in the cache when it is flooded with entries that are only used once, which an LRU policy
+ * doesn't.
+ * <p>
+ * Expired entries are not returned by reads, and are evicted on the next write, buffer drain or {@link #refresh()}.
+ *
+ * @param <K> The type of the keys
+ * @param <V> The type of the values
+ */
+class TinyLfuCache<K, V> implements ConcurrentCache<K, V> {
+
+    // the percentage of the maximum weight dedicated to the admission window
+    private static final int WINDOW_PERCENTAGE = 1;
+
+    // the percentage of the main space dedicated to the protected segment
+    private static final int PROTECTED_PERCENTAGE = 80;
+
+    private long expireAfterAccessNanos = -1;
+    private boolean entriesExpireAfterAccess;
+    private long expireAfterWriteNanos = -1;
+    private boolean entriesExpireAfterWrite;
+    private long maximumWeight = -1;
+    private long maximumWindowWeight = -1;
+    private long maximumProtectedWeight = -1;
+    private ToLongBiFunction<K, V> weigher = (k, v) -> 1;
+    private RemovalListener<K, V> removalListener = notification -> {
+    };
+
+    private final ConcurrentMap<K, Node<K, V>> map = ConcurrentCollections.newConcurrentMap();
+    private final ReadBuffer<K, V> readBuffer = new ReadBuffer<>();
+
+    // lock protecting the eviction policy, all the fields below are guarded by this lock
+    private final ReentrantLock evictionLock = new ReentrantLock();
+    private final AccessOrderQueue<K, V> window = new AccessOrderQueue<>(Node.WINDOW);
+    private final AccessOrderQueue<K, V> probation = new AccessOrderQueue<>(Node.PROBATION);
+    private final AccessOrderQueue<K, V> protect = new AccessOrderQueue<>(Node.PROTECTED);
+    private final FrequencySketch sketch = new FrequencySketch();
+    private Node<K, V> oldestWrite;
+    private Node<K, V> newestWrite;
+
+    // written under the eviction lock, but read without
+    private volatile int count = 0;
+    private volatile long weight = 0;
+
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder evictions = new LongAdder();
+
+    // use CacheBuilder to construct
+    TinyLfuCache() {
+    }
+
+    void setExpireAfterAccessNanos(long expireAfterAccessNanos) {
+        if (expireAfterAccessNanos <= 0) {
+            throw new IllegalArgumentException("expireAfterAccessNanos <= 0");
+        }
+        this.expireAfterAccessNanos = expireAfterAccessNanos;
+        this.entriesExpireAfterAccess = true;
+    }
+
+    long getExpireAfterAccessNanos() {
+        return this.expireAfterAccessNanos;
+    }
+
+    void setExpireAfterWriteNanos(long expireAfterWriteNanos) {
+        if (expireAfterWriteNanos <= 0) {
+            throw new IllegalArgumentException("expireAfterWriteNanos <= 0");
+        }
+        this.expireAfterWriteNanos = expireAfterWriteNanos;
+        this.entriesExpireAfterWrite = true;
+    }
+
+    long getExpireAfterWriteNanos() {
+        return this.expireAfterWriteNanos;
+    }
+
+    void setMaximumWeight(long maximumWeight) {
+        if (maximumWeight < 0) {
+            throw new IllegalArgumentException("maximumWeight < 0");
+        }
+        this.maximumWeight = maximumWeight;
+        this.maximumWindowWeight = maximumWeight * WINDOW_PERCENTAGE / 100;
+        this.maximumProtectedWeight = (maximumWeight - maximumWindowWeight) * PROTECTED_PERCENTAGE / 100;
+    }
+
+    void setWeigher(ToLongBiFunction<K, V> weigher) {
+        Objects.requireNonNull(weigher);
+        this.weigher = weigher;
+    }
+
+    void setRemovalListener(RemovalListener<K, V> removalListener) {
+        Objects.requireNonNull(removalListener);
+        this.removalListener = removalListener;
+    }
+
+    /**
+     * The relative time used to track time-based evictions.
+     *
+     * @return the current relative time
+     */
+    protected long now() {
+        // System.nanoTime takes non-negligible time, so we only use it if we need it
+        return entriesExpireAfterAccess || entriesExpireAfterWrite ? System.nanoTime() : 0;
+    }
+
+    /**
+     * An entry of the cache. The value of entries that are added by {@link #computeIfAbsent(Object, CacheLoader)} is only
+     * available through the {@link #loading} future.
+     */
+    static final class Node<K, V> {
+        static final int UNLINKED = 0;
+        static final int WINDOW = 1;
+        static final int PROBATION = 2;
+        static final int PROTECTED = 3;
+        static final int DELETED = 4;
+
+        final K key;
+        final V value;
+        final CompletableFuture<V> loading;
+        final long writeTime;
+        volatile long accessTime;
+
+        // guarded by the eviction lock
+        int queue = UNLINKED;
+        long weight;
+        Node<K, V> previous;
+        Node<K, V> next;
+        Node<K, V> previousWrite;
+        Node<K, V> nextWrite;
+
+        Node(K key, V value, CompletableFuture<V> loading, long writeTime) {
+            this.key = key;
+            this.value = value;
+            this.loading = loading;
+            this.writeTime = this.accessTime = writeTime;
+        }
+
+        /**
+         * The value of this entry, waiting for it to be loaded if needed.
+         *
+         * @throws ExecutionException if the value failed to load
+         */
+        V value() throws ExecutionException {
+            if (loading == null) {
+                return value;
+            }
+            try {
+                return loading.get();
+            } catch (InterruptedException e) {
+                throw new IllegalStateException(e);
+            }
+        }
+
+        /**
+         * The value of this entry, or null if it is still loading or failed to load.
+         */
+        V valueNow() {
+            if (loading == null) {
+                return value;
+            }
+            return loading.isCompletedExceptionally() ? null : loading.getNow(null);
+        }
+    }
+
+    /**
+     * A doubly-linked list of nodes in access order, from the least recently used to the most recently used node.
+     */
+    static final class AccessOrderQueue<K, V> {
+        final int queue;
+        Node<K, V> head;
+        Node<K, V> tail;
+        long weight;
+
+        AccessOrderQueue(int queue) {
+            this.queue = queue;
+        }
+
+        void addLast(Node<K, V> node) {
+            assert node.queue == Node.UNLINKED;
+            node.queue = queue;
+            node.previous = tail;
+            node.next = null;
+            if (tail == null) {
+                head = node;
+            } else {
+                tail.next = node;
+            }
+            tail = node;
+            weight += node.weight;
+        }
+
+        void remove(Node<K, V> node) {
+            assert node.queue == queue;
+            if (node.previous == null) {
+                head = node.next;
+            } else {
+                node.previous.next = node.next;
+            }
+            if (node.next == null) {
+                tail = node.previous;
+            } else {
+                node.next.previous = node.previous;
+            }
+            node.previous = node.next = null;
+            node.queue = Node.UNLINKED;
+            weight -= node.weight;
+        }
+
+        void moveToLast(Node<K, V> node) {
+            if (tail != node) {
+                remove(node);
+                addLast(node);
+            }
+        }
+    }
+
+    /**
+     * Lossy ring buffers that record the reads of entries, striped by thread to reduce contention. Reads are dropped when
+     * a buffer is full or contended: the eviction policy only needs a sample of the reads.
+     */
+    static final class ReadBuffer<K, V> {
+        static final int NUMBER_OF_STRIPES = numberOfStripes(Runtime.getRuntime().availableProcessors());
+        static final int BUFFER_SIZE = 16;
+        static final int BUFFER_MASK = BUFFER_SIZE - 1;
+
+        @SuppressWarnings({"unchecked", "rawtypes"})
+        private final Stripe<K, V>[] stripes = new Stripe[NUMBER_OF_STRIPES];
+
+        ReadBuffer() {
+            for (int i = 0; i < stripes.length; i++) {
+                stripes[i] = new Stripe<>();
+            }
+        }
+
+        // four stripes per processor, rounded up to a power of two and capped to 64
+        static int numberOfStripes(int availableProcessors) {
+            int stripes = Math.min(64, 4 * Math.max(1, availableProcessors));
+            return Integer.highestOneBit(stripes - 1) << 1;
+        }
+
+        /**
+         * Records a read of the provided node.
+         *
+         * @return true if the buffer of the current thread is full and should be drained
+         */
+        boolean offer(Node<K, V> node) {
+            long id = Thread.currentThread().getId();
+            int hash = (int) (id ^ (id >>> 32)) * 0x9E3779B9;
+            return stripes[(hash >>> 16) & (NUMBER_OF_STRIPES - 1)].offer(node);
+        }
+
+        void drain(Consumer<Node<K, V>> consumer) {
+            for (Stripe<K, V> stripe : stripes) {
+                stripe.drain(consumer);
+            }
+        }
+
+        static final class Stripe<K, V> {
+            final AtomicReferenceArray<Node<K, V>> buffer = new AtomicReferenceArray<>(BUFFER_SIZE);
+            final AtomicLong writeCounter = new AtomicLong();
+            // only written by the thread that holds the eviction lock
+            volatile long readCounter;
+
+            boolean offer(Node<K, V> node) {
+                long head = readCounter;
+                long tail = writeCounter.get();
+                if (tail - head >= BUFFER_SIZE) {
+                    return true;
+                }
+                if (writeCounter.compareAndSet(tail, tail + 1)) {
+                    buffer.lazySet((int) (tail & BUFFER_MASK), node);
+                    return tail - head == BUFFER_SIZE - 1;
+                }
+                // another thread is recording a read, dropping this one is fine
+                return false;
+            }
+
+            void drain(Consumer<Node<K, V>> consumer) {
+                long head = readCounter;
+                long tail = writeCounter.get();
+                while (head != tail) {
+                    int index = (int) (head & BUFFER_MASK);
+                    Node<K, V> node = buffer.get(index);
+                    if (node == null) {
+                        // the read is not published yet
+                        break;
+                    }
+                    buffer.lazySet(index, null);
+                    consumer.accept(node);
+                    head++;
+                }
+                readCounter = head;
+            }
+        }
+    }
+
+    /**
+     * A count-min sketch of the access frequency of keys, with 4-bit counters that are halved periodically so that the
+     * frequencies reflect recent accesses.
+     */
+    static final class FrequencySketch {
+        private static final long[] SEEDS = { 0xc3a5c85c97cb3127L, 0xb492b66fbe98f273L, 0x9ae16a3b2f90404fL, 0xcbf29ce484222325L };
+        private static final long RESET_MASK = 0x7777777777777777L;
+        private static final long ONE_MASK = 0x1111111111111111L;
+        private static final int MAXIMUM_TABLE_SIZE = 1 << 24;
+
+        long[] table = new long[0];
+        private int tableMask;
+        private int sampleSize;
+        private int size;
+
+        /**
+         * Grows the sketch so that it can track the frequency of the provided number of entries accurately. Frequencies
+         * are forgotten when the sketch grows.
+         */
+        void ensureCapacity(int numberOfEntries) {
+            int entries = Math.min(MAXIMUM_TABLE_SIZE, Math.max(16, numberOfEntries));
+            int tableSize = Integer.highestOneBit(entries - 1) << 1;
+            if (table.length >= tableSize) {
+                return;
+            }
+            table = new long[tableSize];
+            tableMask = tableSize - 1;
+            sampleSize = 10 * tableSize;
+            size = 0;
+        }
+
+        int frequency(int hash) {
+            int start = (hash & 3) << 2;
+            int frequency = Integer.MAX_VALUE;
+            for (int i = 0; i < 4; i++) {
+                int index = indexOf(hash, i);
+                int count = (int) ((table[index] >>> ((start + i) << 2)) & 0xfL);
+                frequency = Math.min(frequency, count);
+            }
+            return frequency;
+        }
+
+        void increment(int hash) {
+            int start = (hash & 3) << 2;
+            boolean added = false;
+            for (int i = 0; i < 4; i++) {
+                added |= incrementAt(indexOf(hash, i), start + i);
+            }
+            if (added && ++size == sampleSize) {
+                reset();
+            }
+        }
+
+        private boolean incrementAt(int index, int counter) {
+            int offset = counter << 2;
+            long mask = 0xfL << offset;
+            if ((table[index] & mask) != mask) {
+                table[index] += 1L << offset;
+                return true;
+            }
+            return false;
+        }
+
+        private void reset() {
+            int odd = 0;
+            for (int i = 0; i < table.length; i++) {
+                odd += Long.bitCount(table[i] & ONE_MASK);
+                table[i] = (table[i] >>> 1) & RESET_MASK;
+            }
+            size = (size >>> 1) - (odd >>> 2);
+        }
+
+        private int indexOf(int hash, int i) {
+            long h = (hash + SEEDS[i]) * SEEDS[i];
+            h += h >>> 32;
+            return ((int) h) & tableMask;
+        }
+
+        static int spread(int hashCode) {
+            int h = ((hashCode >>> 16) ^ hashCode) * 0x45d9f3b;
+            return (h >>> 16) ^ h;
+        }
+    }
+
+    @Override
+    public V get(K key) {
+        Node<K, V> node = map.get(key);
+        if (node == null) {
+            misses.increment();
+            return null;
+        }
+        V value;
+        try {
+            value = node.value();
+        } catch (ExecutionException e) {
+            misses.increment();
+            return null;
+        }
+        long now = now();
+        if (isExpired(node, now)) {
+            misses.increment();
+            return null;
+        }
+        onHit(node, now);
+        return value;
+    }
+
+    private void onHit(Node<K, V> node, long now) {
+        hits.increment();
+        if (entriesExpireAfterAccess) {
+            node.accessTime = now;
+        }
+        if (readBuffer.offer(node) && evictionLock.tryLock()) {
+            try {
+                maintenance(now);
+            } finally {
+                evictionLock.unlock();
+            }
+        }
+    }
+
+    @Override
+    public V computeIfAbsent(K key, CacheLoader<K, V> loader) throws ExecutionException {
+        long now = now();
+        while (true) {
+            Node<K, V> node = map.get(key);
+            if (node == null) {
+                Node<K, V> loading = new Node<>(key, null, new CompletableFuture<>(), now);
+                node = map.putIfAbsent(key, loading);
+                if (node == null) {
+                    misses.increment();
+                    return load(loading, loader, now);
+                }
+            }
+            if (node.loading != null && node.loading.isDone() == false) {
+                // another thread is loading this key, use its result, including its failure
+                V value;
+                try {
+                    value = node.value();
+                } catch (ExecutionException e) {
+                    misses.increment();
+                    throw e;
+                }
+                onHit(node, now);
+                return value;
+            }
+            V value = node.valueNow();
+            if (value == null) {
+                // the value failed to load, but the loading thread didn't remove it yet
+                map.remove(key, node);
+            } else if (isExpired(node, now)) {
+                evictionLock.lock();
+                try {
+                    if (map.remove(key, node)) {
+                        evictions.increment();
+                        delete(node, RemovalNotification.RemovalReason.EVICTED);
+                    }
+                } finally {
+                    evictionLock.unlock();
+                }
+            } else {
+                onHit(node, now);
+                return value;
+            }
+        }
+    }
+
+    private V load(Node<K, V> node, CacheLoader<K, V> loader, long now) throws ExecutionException {
+        V value;
+        try {
+            value = loader.load(node.key);
+            if (value == null) {
+                throw new NullPointerException("loader returned a null value");
+            }
+        } catch (Exception e) {
+            map.remove(node.key, node);
+            node.loading.completeExceptionally(e);
+            throw new ExecutionException(e);
+        }
+        node.loading.complete(value);
+        evictionLock.lock();
+        try {
+            if (map.get(node.key) == node) {
+                link(node, value);
+                maintenance(now);
+            } else {
+                // the entry was replaced or invalidated while it was loading
+                RemovalNotification.RemovalReason reason = map.containsKey(node.key)
+                    ? RemovalNotification.RemovalReason.REPLACED
+                    : RemovalNotification.RemovalReason.INVALIDATED;
+                removalListener.onRemoval(new RemovalNotification<>(node.key, value, reason));
+            }
+        } finally {
+            evictionLock.unlock();
+        }
+        return value;
+    }
+
+    @Override
+    public void put(K key, V value) {
+        long now = now();
+        Node<K, V> node = new Node<>(key, value, null, now);
+        evictionLock.lock();
+        try {
+            Node<K, V> existing = map.put(key, node);
+            if (existing != null) {
+                delete(existing, RemovalNotification.RemovalReason.REPLACED);
+            }
+            link(node, value);
+            maintenance(now);
+        } finally {
+            evictionLock.unlock();
+        }
+    }
+
+    @Override
+    public void invalidate(K key) {
+        evictionLock.lock();
+        try {
+            Node<K, V> node = map.remove(key);
+            if (node != null) {
+                evictions.increment();
+                delete(node, RemovalNotification.RemovalReason.INVALIDATED);
+            }
+        } finally {
+            evictionLock.unlock();
+        }
+    }
+
+    @Override
+    public void invalidate(K key, V value) {
+        evictionLock.lock();
+        try {
+            Node<K, V> node = map.get(key);
+            if (node != null && node.valueNow() != null && Objects.equals(value, node.valueNow()) && map.remove(key, node)) {
+                evictions.increment();
+                delete(node, RemovalNotification.RemovalReason.INVALIDATED);
+            }
+        } finally {
+            evictionLock.unlock();
+        }
+    }
+
+    @Override
+    public void invalidateAll() {
+        evictionLock.lock();
+        try {
+            for (Node<K, V> node : map.values()) {
+                if (map.remove(node.key, node)) {
+                    delete(node, RemovalNotification.RemovalReason.INVALIDATED);
+                }
+            }
+        } finally {
+            evictionLock.unlock();
+        }
+    }
+
+    @Override
+    public void refresh() {
+        long now = now();
+        evictionLock.lock();
+        try {
+            maintenance(now);
+        } finally {
+            evictionLock.unlock();
+        }
+    }
+
+    @Override
+    public int count() {
+        return count;
+    }
+
+    @Override
+    public long weight() {
+        return weight;
+    }
+
+    /**
+     * The keys of the cache, in no particular order. The iteration is weakly consistent and supports removal.
+     */
+    @Override
+    public Iterable<K> keys() {
+        return () -> new CacheIterator<>(this, node -> node.key);
+    }
+
+    /**
+     * The values of the cache, in no particular order. The iteration is weakly consistent and supports removal.
+     */
+    @Override
+    public Iterable<V> values() {
+        return () -> new CacheIterator<>(this, Node::valueNow);
+    }
+
+    private static final class CacheIterator<K, V, T> implements Iterator<T> {
+        private final TinyLfuCache<K, V> cache;
+        private final Iterator<Node<K, V>> iterator;
+        private final Function<Node<K, V>, T> mapper;
+        private Node<K, V> current;
+        private Node<K, V> next;
+
+        CacheIterator(TinyLfuCache<K, V> cache, Function<Node<K, V>, T> mapper) {
+            this.cache = cache;
+            this.iterator = cache.map.values().iterator();
+            this.mapper = mapper;
+            advance();
+        }
+
+        private void advance() {
+            next = null;
+            while (iterator.hasNext()) {
+                Node<K, V> node = iterator.next();
+                // skip the entries that are still loading
+                if (node.valueNow() != null) {
+                    next = node;
+                    return;
+                }
+            }
+        }
+
+        @Override
+        public boolean hasNext() {
+            return next != null;
+        }
+
+        @Override
+        public T next() {
+            current = next;
+            advance();
+            return mapper.apply(current);
+        }
+
+        @Override
+        public void remove() {
+            if (current != null) {
+                cache.invalidate(current.key, current.valueNow());
+                current = null;
+            }
+        }
+    }
+
+    @Override
+    public Cache.CacheStats stats() {
+        return new Cache.CacheStats(hits.longValue(), misses.longValue(), evictions.longValue());
+    }
+
+    private boolean isExpired(Node<K, V> node, long now) {
+        return (entriesExpireAfterAccess && now - node.accessTime > expireAfterAccessNanos) ||
+            (entriesExpireAfterWrite && now - node.writeTime > expireAfterWriteNanos);
+    }
+
+    /**
+     * Adds a node that was just added to the map to the eviction policy.
+     */
+    private void link(Node<K, V> node, V value) {
+        assert evictionLock.isHeldByCurrentThread();
+        node.weight = weigher.applyAsLong(node.key, value);
+        window.addLast(node);
+        if (entriesExpireAfterWrite) {
+            node.previousWrite = newestWrite;
+            if (newestWrite == null) {
+                oldestWrite = node;
+            } else {
+                newestWrite.nextWrite = node;
+            }
+            newestWrite = node;
+        }
+        count++;
+        weight += node.weight;
+        if (maximumWeight != -1) {
+            if (sketch.table.length < count) {
+                sketch.ensureCapacity(count);
+            }
+            sketch.increment(FrequencySketch.spread(node.key.hashCode()));
+        }
+    }
+
+    /**
+     * Removes a node that was just removed from the map from the eviction policy, notifying the removal listener if it was
+     * part of the cache.
+     */
+    private void delete(Node<K, V> node, RemovalNotification.RemovalReason reason) {
+        assert evictionLock.isHeldByCurrentThread();
+        switch (node.queue) {
+            case Node.WINDOW:
+                window.remove(node);
+                break;
+            case Node.PROBATION:
+                probation.remove(node);
+                break;
+            case Node.PROTECTED:
+                protect.remove(node);
+                break;
+            default:
+                // the node is still loading, or was never linked
+                node.queue = Node.DELETED;
+                return;
+        }
+        node.queue = Node.DELETED;
+        if (entriesExpireAfterWrite) {
+            if (node.previousWrite == null) {
+                oldestWrite = node.nextWrite;
+            } else {
+                node.previousWrite.nextWrite = node.nextWrite;
+            }
+            if (node.nextWrite == null) {
+                newestWrite = node.previousWrite;
+            } else {
+                node.nextWrite.previousWrite = node.previousWrite;
+            }
+            node.previousWrite = node.nextWrite = null;
+        }
+        count--;
+        weight -= node.weight;
+        removalListener.onRemoval(new RemovalNotification<>(node.key, node.valueNow(), reason));
+    }
+
+    private void evict(Node<K, V> node) {
+        if (map.remove(node.key, node)) {
+            evictions.increment();
+        }
+        delete(node, RemovalNotification.RemovalReason.EVICTED);
+    }
+
+    /**
+     * Applies the recorded reads to the eviction policy, then evicts expired entries and entries that exceed the
+     * maximum weight.
+     */
+    private void maintenance(long now) {
+        assert evictionLock.isHeldByCurrentThread();
+        readBuffer.drain(this::onAccess);
+        if (entriesExpireAfterAccess) {
+            expire(window, now);
+            expire(probation, now);
+            expire(protect, now);
+        }
+        if (entriesExpireAfterWrite) {
+            while (oldestWrite != null && now - oldestWrite.writeTime > expireAfterWriteNanos) {
+                evict(oldestWrite);
+            }
+        }
+        if (maximumWeight != -1) {
+            evictFromMain(evictFromWindow());
+        }
+    }
+
+    private void onAccess(Node<K, V> node) {
+        switch (node.queue) {
+            case Node.WINDOW:
+                window.moveToLast(node);
+                break;
+            case Node.PROBATION:
+                probation.remove(node);
+                protect.addLast(node);
+                while (protect.weight > maximumProtectedWeight && protect.head != node) {
+                    // demote the least recently used entries of the protected segment
+                    Node<K, V> demoted = protect.head;
+                    protect.remove(demoted);
+                    probation.addLast(demoted);
+                }
+                break;
+            case Node.PROTECTED:
+                protect.moveToLast(node);
+                break;
+            default:
+                // the node was removed since it was read, or is not linked yet
+                return;
+        }
+        if (maximumWeight != -1) {
+            sketch.increment(FrequencySketch.spread(node.key.hashCode()));
+        }
+    }
+
+    private void expire(AccessOrderQueue<K, V> queue, long now) {
+        // queues are only approximately in access order since reads may be dropped, so this may leave some expired entries
+        // until the next maintenance, but they are never returned by reads
+        while (queue.head != null && now - queue.head.accessTime > expireAfterAccessNanos) {
+            evict(queue.head);
+        }
+    }
+
+    /**
+     * Moves the entries that overflow the admission window to the probation segment.
+     *
+     * @return the first entry that was moved, or null if the window doesn't overflow
+     */
+    private Node<K, V> evictFromWindow() {
+        Node<K, V> first = null;
+        while (window.weight > maximumWindowWeight && window.head != null) {
+            Node<K, V> node = window.head;
+            window.remove(node);
+            probation.addLast(node);
+            if (first == null) {
+                first = node;
+            }
+        }
+        return first;
+    }
+
+    /**
+     * Evicts entries until the weight of the cache is under its maximum, deciding for each candidate that overflowed the
+     * admission window whether it replaces the least recently used entry of the probation segment.
+     */
+    private void evictFromMain(Node<K, V> candidate) {
+        Node<K, V> victim = probation.head;
+        while (weight > maximumWeight) {
+            if (victim == null) {
+                // the probation segment is empty, fall back to the least recently used entries of the other segments
+                Node<K, V> node = protect.head != null ? protect.head : window.head;
+                if (node == null) {
+                    break;
+                }
+                evict(node);
+            } else if (candidate == null || candidate == victim) {
+                // no more candidates to compare the victim with
+                Node<K, V> next = victim.next;
+                if (candidate == victim) {
+                    candidate = next;
+                }
+                evict(victim);
+                victim = next;
+            } else if (candidate.weight > maximumWeight) {
+                Node<K, V> next = candidate.next;
+                evict(candidate);
+                candidate = next;
+            } else if (admit(candidate, victim)) {
+                Node<K, V> next = victim.next;
+                evict(victim);
+                victim = next;
+                candidate = candidate.next;
+            } else {
+                Node<K, V> next = candidate.next;
+                evict(candidate);
+                candidate = next;
+            }
+        }
+    }
+
+    /**
+     * Should the candidate replace the victim in the cache?
+     */
+    private boolean admit(Node<K, V> candidate, Node<K, V> victim) {
+        int candidateFrequency = sketch.frequency(FrequencySketch.spread(candidate.key.hashCode()));
+        int victimFrequency = sketch.frequency(FrequencySketch.spread(victim.key.hashCode()));
+        if (candidateFrequency > victimFrequency) {
+            return true;
+        } else if (candidateFrequency <= 5) {
+            return false;
+        }
+        // admit warm candidates once in a while, so that an attacker can't keep new entries out of the cache by raising the
+        // frequency of the victim with hash collisions
+        return (ThreadLocalRandom.current().nextInt() & 127) == 0;
+    }
+}
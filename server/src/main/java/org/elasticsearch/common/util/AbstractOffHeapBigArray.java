@@ -0,0 +1,104 @@
+/*
+ * Licensed to Elasticsearch under one or more contributor
+ * license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright
+ * ownership. Elasticsearch licenses this file to you under
+ * the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.elasticsearch.common.util;
+
+import org.apache.lucene.util.ArrayUtil;
+import org.apache.lucene.util.RamUsageEstimator;
+
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+
+/**
+ * Common implementation for big arrays of primitives that store their values off-heap, in pages of
+ * {@link PageCacheRecycler#PAGE_SIZE_IN_BYTES} bytes that are obtained from the {@link PageCacheRecycler}.
+ */
+abstract class AbstractOffHeapBigArray extends AbstractBigArray {
+
+    private final int elementShift;
+    private ByteBuffer[] pages;
+
+    AbstractOffHeapBigArray(int pageSize, long size, BigArrays bigArrays, boolean clearOnResize) {
+        super(pageSize, bigArrays, clearOnResize);
+        assert pageSize * numBytesPerElement() == PageCacheRecycler.PAGE_SIZE_IN_BYTES;
+        this.elementShift = Integer.numberOfTrailingZeros(numBytesPerElement());
+        this.size = size;
+        pages = new ByteBuffer[numPages(size)];
+        boolean success = false;
+        try {
+            for (int i = 0; i < pages.length; ++i) {
+                pages[i] = newDirectPage(i);
+            }
+            success = true;
+        } finally {
+            if (success == false) {
+                // the array is never returned so its pages must be released here, eg. when the off-heap limit is reached
+                doClose();
+            }
+        }
+    }
+
+    /** Returns the page that holds the value at the given index. */
+    final ByteBuffer page(long index) {
+        return pages[pageIndex(index)];
+    }
+
+    /** Returns the offset in bytes of the value at the given index within its page. */
+    final int offsetInPage(long index) {
+        return indexInPage(index) << elementShift;
+    }
+
+    /** Change the size of this array. Content between indexes <code>0</code> and <code>min(size(), newSize)</code> will be preserved. */
+    @Override
+    public final void resize(long newSize) {
+        final int numPages = numPages(newSize);
+        if (numPages > pages.length) {
+            pages = Arrays.copyOf(pages, ArrayUtil.oversize(numPages, RamUsageEstimator.NUM_BYTES_OBJECT_REF));
+        }
+        boolean success = false;
+        try {
+            for (int i = numPages - 1; i >= 0 && pages[i] == null; --i) {
+                pages[i] = newDirectPage(i);
+            }
+            success = true;
+        } finally {
+            if (success == false) {
+                // release the pages of this resize so that only the pages of the current size are allocated
+                for (int i = numPages(size); i < numPages; ++i) {
+                    if (pages[i] != null) {
+                        pages[i] = null;
+                        releasePage(i);
+                    }
+                }
+            }
+        }
+        for (int i = numPages; i < pages.length && pages[i] != null; ++i) {
+            pages[i] = null;
+            releasePage(i);
+        }
+        this.size = newSize;
+    }
+
+    final void checkFillRange(long fromIndex, long toIndex) {
+        if (fromIndex > toIndex) {
+            throw new IllegalArgumentException();
+        }
+    }
+
+}
@@ -31,6 +31,7 @@ import org.elasticsearch.common.recycler.Recycler;
 import org.elasticsearch.indices.breaker.CircuitBreakerService;
 
 import java.util.Arrays;
+import java.util.function.Supplier;
 
 /** Utility class to work with arrays. */
 public class BigArrays {
@@ -361,6 +362,7 @@ public class BigArrays {
     private final boolean checkBreaker;
     private final BigArrays circuitBreakingInstance;
     private final String breakerName;
+    private final boolean offHeap;
 
     public BigArrays(PageCacheRecycler recycler, @Nullable final CircuitBreakerService breakerService, String breakerName) {
         // Checking the breaker is disabled if not specified
@@ -373,6 +375,7 @@ public class BigArrays {
         this.recycler = recycler;
         this.breakerService = breakerService;
         this.breakerName = breakerName;
+        this.offHeap = recycler != null && recycler.isOffHeap();
         if (checkBreaker) {
             this.circuitBreakingInstance = this;
         } else {
@@ -437,10 +440,40 @@ public class BigArrays {
             oldMemSize + ", ramBytesEstimated=" + array.ramBytesEstimated(oldSize);
         final long estimatedIncreaseInBytes = array.ramBytesEstimated(newSize) - oldMemSize;
         adjustBreaker(estimatedIncreaseInBytes, false);
-        array.resize(newSize);
+        if (array instanceof AbstractOffHeapBigArray) {
+            // off-heap pages may fail to allocate with a CircuitBreakingException once their own limit is reached
+            boolean success = false;
+            try {
+                array.resize(newSize);
+                success = true;
+            } finally {
+                if (success == false) {
+                    adjustBreaker(-estimatedIncreaseInBytes, true);
+                }
+            }
+        } else {
+            array.resize(newSize);
+        }
         return array;
     }
 
+    /**
+     * Allocates an off-heap array whose memory was already added to the breaker, and removes it from the breaker
+     * again if its pages can't be allocated.
+     */
+    private <T extends AbstractOffHeapBigArray> T newOffHeapArray(long estimatedBytes, Supplier<T> allocator) {
+        boolean success = false;
+        try {
+            final T array = allocator.get();
+            success = true;
+            return array;
+        } finally {
+            if (success == false) {
+                adjustBreaker(-estimatedBytes, true);
+            }
+        }
+    }
+
     private <T extends BigArray> T validate(T array) {
         boolean success = false;
         try {
@@ -548,6 +581,9 @@ public class BigArrays {
             // when allocating big arrays, we want to first ensure we have the capacity by
             // checking with the circuit breaker before attempting to allocate
             adjustBreaker(BigIntArray.estimateRamBytes(size), false);
+            if (offHeap) {
+                return newOffHeapArray(BigIntArray.estimateRamBytes(size), () -> new OffHeapIntArray(size, this, clearOnResize));
+            }
             return new BigIntArray(size, this, clearOnResize);
         } else if (size >= PageCacheRecycler.INT_PAGE_SIZE / 2 && recycler != null) {
             final Recycler.V<int[]> page = recycler.intPage(clearOnResize);
@@ -569,6 +605,8 @@ public class BigArrays {
     public IntArray resize(IntArray array, long size) {
         if (array instanceof BigIntArray) {
             return resizeInPlace((BigIntArray) array, size);
+        } else if (array instanceof OffHeapIntArray) {
+            return resizeInPlace((OffHeapIntArray) array, size);
         } else {
             AbstractArray arr = (AbstractArray) array;
             final IntArray newArray = newIntArray(size, arr.clearOnResize);
@@ -600,6 +638,9 @@ public class BigArrays {
             // when allocating big arrays, we want to first ensure we have the capacity by
             // checking with the circuit breaker before attempting to allocate
             adjustBreaker(BigLongArray.estimateRamBytes(size), false);
+            if (offHeap) {
+                return newOffHeapArray(BigLongArray.estimateRamBytes(size), () -> new OffHeapLongArray(size, this, clearOnResize));
+            }
             return new BigLongArray(size, this, clearOnResize);
         } else if (size >= PageCacheRecycler.LONG_PAGE_SIZE / 2 && recycler != null) {
             final Recycler.V<long[]> page = recycler.longPage(clearOnResize);
@@ -621,6 +662,8 @@ public class BigArrays {
     public LongArray resize(LongArray array, long size) {
         if (array instanceof BigLongArray) {
             return resizeInPlace((BigLongArray) array, size);
+        } else if (array instanceof OffHeapLongArray) {
+            return resizeInPlace((OffHeapLongArray) array, size);
         } else {
             AbstractArray arr = (AbstractArray) array;
             final LongArray newArray = newLongArray(size, arr.clearOnResize);
@@ -652,6 +695,9 @@ public class BigArrays {
             // when allocating big arrays, we want to first ensure we have the capacity by
             // checking with the circuit breaker before attempting to allocate
             adjustBreaker(BigDoubleArray.estimateRamBytes(size), false);
+            if (offHeap) {
+                return newOffHeapArray(BigDoubleArray.estimateRamBytes(size), () -> new OffHeapDoubleArray(size, this, clearOnResize));
+            }
             return new BigDoubleArray(size, this, clearOnResize);
         } else if (size >= PageCacheRecycler.LONG_PAGE_SIZE / 2 && recycler != null) {
             final Recycler.V<long[]> page = recycler.longPage(clearOnResize);
@@ -670,6 +716,8 @@ public class BigArrays {
     public DoubleArray resize(DoubleArray array, long size) {
         if (array instanceof BigDoubleArray) {
             return resizeInPlace((BigDoubleArray) array, size);
+        } else if (array instanceof OffHeapDoubleArray) {
+            return resizeInPlace((OffHeapDoubleArray) array, size);
         } else {
             AbstractArray arr = (AbstractArray) array;
             final DoubleArray newArray = newDoubleArray(size, arr.clearOnResize);
@@ -701,6 +749,9 @@ public class BigArrays {
             // when allocating big arrays, we want to first ensure we have the capacity by
             // checking with the circuit breaker before attempting to allocate
             adjustBreaker(BigFloatArray.estimateRamBytes(size), false);
+            if (offHeap) {
+                return newOffHeapArray(BigFloatArray.estimateRamBytes(size), () -> new OffHeapFloatArray(size, this, clearOnResize));
+            }
             return new BigFloatArray(size, this, clearOnResize);
         } else if (size >= PageCacheRecycler.INT_PAGE_SIZE / 2 && recycler != null) {
             final Recycler.V<int[]> page = recycler.intPage(clearOnResize);
@@ -719,6 +770,8 @@ public class BigArrays {
     public FloatArray resize(FloatArray array, long size) {
         if (array instanceof BigFloatArray) {
             return resizeInPlace((BigFloatArray) array, size);
+        } else if (array instanceof OffHeapFloatArray) {
+            return resizeInPlace((OffHeapFloatArray) array, size);
         } else {
             AbstractArray arr = (AbstractArray) array;
             final FloatArray newArray = newFloatArray(size, arr.clearOnResize);
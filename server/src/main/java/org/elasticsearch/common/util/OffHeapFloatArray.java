@@ -0,0 +1,73 @@
+/*
+ * Licensed to Elasticsearch under one or more contributor
+ * license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright
+ * ownership. Elasticsearch licenses this file to you under
+ * the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.elasticsearch.common.util;
+
+import java.nio.ByteBuffer;
+
+import static org.elasticsearch.common.util.PageCacheRecycler.INT_PAGE_SIZE;
+
+/**
+ * Float array abstraction able to support more than 2B values. This implementation stores its values off-heap, in
+ * direct pages obtained from the {@link PageCacheRecycler}.
+ */
+final class OffHeapFloatArray extends AbstractOffHeapBigArray implements FloatArray {
+
+    /** Constructor. */
+    OffHeapFloatArray(long size, BigArrays bigArrays, boolean clearOnResize) {
+        super(INT_PAGE_SIZE, size, bigArrays, clearOnResize);
+    }
+
+    @Override
+    public float get(long index) {
+        return page(index).getFloat(offsetInPage(index));
+    }
+
+    @Override
+    public float set(long index, float value) {
+        final ByteBuffer page = page(index);
+        final int offset = offsetInPage(index);
+        final float ret = page.getFloat(offset);
+        page.putFloat(offset, value);
+        return ret;
+    }
+
+    @Override
+    public float increment(long index, float inc) {
+        final ByteBuffer page = page(index);
+        final int offset = offsetInPage(index);
+        final float value = page.getFloat(offset) + inc;
+        page.putFloat(offset, value);
+        return value;
+    }
+
+    @Override
+    protected int numBytesPerElement() {
+        return Float.BYTES;
+    }
+
+    @Override
+    public void fill(long fromIndex, long toIndex, float value) {
+        checkFillRange(fromIndex, toIndex);
+        for (long i = fromIndex; i < toIndex; ++i) {
+            page(i).putFloat(offsetInPage(i), value);
+        }
+    }
+
+}
@@ -20,6 +20,8 @@
 package org.elasticsearch.common.util;
 
 import org.apache.lucene.util.RamUsageEstimator;
+import org.elasticsearch.common.breaker.CircuitBreaker;
+import org.elasticsearch.common.breaker.CircuitBreakingException;
 import org.elasticsearch.common.recycler.AbstractRecyclerC;
 import org.elasticsearch.common.recycler.Recycler;
 import org.elasticsearch.common.settings.Setting;
@@ -27,9 +29,13 @@ import org.elasticsearch.common.settings.Setting.Property;
 import org.elasticsearch.common.settings.Settings;
 import org.elasticsearch.common.unit.ByteSizeValue;
 import org.elasticsearch.common.util.concurrent.EsExecutors;
+import org.elasticsearch.monitor.jvm.JvmInfo;
 
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
 import java.util.Arrays;
 import java.util.Locale;
+import java.util.concurrent.atomic.AtomicLong;
 
 import static org.elasticsearch.common.recycler.Recyclers.concurrent;
 import static org.elasticsearch.common.recycler.Recyclers.concurrentDeque;
@@ -52,6 +58,25 @@ public class PageCacheRecycler {
     // object pages are less useful to us so we give them a lower weight by default
     public static final Setting<Double> WEIGHT_OBJECTS_SETTING  =
         Setting.doubleSetting("cache.recycler.page.weight.objects", 0.1d, 0d, Property.NodeScope);
+    /**
+     * Whether big arrays of primitives should store their pages off-heap, in direct {@link ByteBuffer}s. They are
+     * still accounted for in the circuit breakers but large aggregations no longer fill the old generation.
+     */
+    public static final Setting<Boolean> OFF_HEAP_SETTING =
+        Setting.boolSetting("cache.recycler.page.off_heap", false, Property.NodeScope);
+    /**
+     * The amount of off-heap pages to keep around for reuse. Pages that don't fit are dropped when they are released and their
+     * memory is freed once they are garbage collected.
+     */
+    public static final Setting<ByteSizeValue> LIMIT_OFF_HEAP_SETTING =
+        Setting.memorySizeSetting("cache.recycler.page.limit.off_heap", "5%", Property.NodeScope);
+    /**
+     * The maximum amount of off-heap pages, including those that are kept around for reuse. Direct memory is shared with
+     * the network layer so this defaults to half of the JVM's direct memory limit, and allocating pages beyond it fails
+     * with a {@link CircuitBreakingException} rather than with an {@link OutOfMemoryError}.
+     */
+    public static final Setting<ByteSizeValue> MAX_OFF_HEAP_SETTING =
+        Setting.byteSizeSetting("cache.recycler.page.max.off_heap", settings -> defaultMaxOffHeap() + "b", Property.NodeScope);
 
     /** Page size in bytes: 16KB */
     public static final int PAGE_SIZE_IN_BYTES = 1 << 14;
@@ -64,6 +89,10 @@ public class PageCacheRecycler {
     private final Recycler<int[]> intPage;
     private final Recycler<long[]> longPage;
     private final Recycler<Object[]> objectPage;
+    private final Recycler<ByteBuffer> directPage;
+    private final boolean offHeap;
+    private final long maxDirectBytes;
+    private final AtomicLong directBytes = new AtomicLong();
 
     public static final PageCacheRecycler NON_RECYCLING_INSTANCE;
 
@@ -146,6 +175,74 @@ public class PageCacheRecycler {
         });
 
         assert PAGE_SIZE_IN_BYTES * (maxBytePageCount + maxIntPageCount + maxLongPageCount + maxObjectPageCount) <= limit;
+
+        // direct pages don't live on the heap so they have their own limits
+        offHeap = OFF_HEAP_SETTING.get(settings);
+        maxDirectBytes = offHeap ? MAX_OFF_HEAP_SETTING.get(settings).getBytes() : 0;
+        final int maxDirectPageCount = (int) Math.min(Integer.MAX_VALUE, maxDirectBytes / PAGE_SIZE_IN_BYTES);
+        final int retainedDirectPageCount;
+        if (type == Type.NONE) {
+            retainedDirectPageCount = 0;
+        } else {
+            final long limitOffHeap = LIMIT_OFF_HEAP_SETTING.get(settings).getBytes();
+            retainedDirectPageCount = (int) Math.min(maxDirectPageCount, limitOffHeap / PAGE_SIZE_IN_BYTES);
+        }
+        // pages that aren't retained must be destroyed to stop counting them, which none() doesn't do, and the global limit
+        // of a single deque keeps the retained pages below the maximum
+        directPage = concurrentDeque(new AbstractRecyclerC<ByteBuffer>() {
+            @Override
+            public ByteBuffer newInstance() {
+                reserveDirectPage();
+                try {
+                    return ByteBuffer.allocateDirect(PAGE_SIZE_IN_BYTES).order(ByteOrder.nativeOrder());
+                } catch (OutOfMemoryError e) {
+                    directBytes.addAndGet(-PAGE_SIZE_IN_BYTES);
+                    throw e;
+                }
+            }
+            @Override
+            public void recycle(ByteBuffer value) {
+                // nothing to do
+            }
+            @Override
+            public void destroy(ByteBuffer value) {
+                // the page is freed once it is garbage collected, and the JVM collects garbage before it fails to allocate
+                // direct memory, so it doesn't count towards the maximum anymore
+                directBytes.addAndGet(-PAGE_SIZE_IN_BYTES);
+            }
+        }, retainedDirectPageCount);
+    }
+
+    private void reserveDirectPage() {
+        final long newDirectBytes = directBytes.addAndGet(PAGE_SIZE_IN_BYTES);
+        if (newDirectBytes > maxDirectBytes) {
+            directBytes.addAndGet(-PAGE_SIZE_IN_BYTES);
+            throw new CircuitBreakingException("[" + MAX_OFF_HEAP_SETTING.getKey() + "] Data too large, off-heap pages would be ["
+                + newDirectBytes + "/" + new ByteSizeValue(newDirectBytes) + "], which is larger than the limit of ["
+                + maxDirectBytes + "/" + new ByteSizeValue(maxDirectBytes) + "]",
+                PAGE_SIZE_IN_BYTES, maxDirectBytes, CircuitBreaker.Durability.TRANSIENT);
+        }
+    }
+
+    private static long defaultMaxOffHeap() {
+        final JvmInfo.Mem mem = JvmInfo.jvmInfo().getMem();
+        final long directMemoryMax = mem.getDirectMemoryMax().getBytes();
+        // the JVM allows as much direct memory as heap unless configured otherwise
+        return (directMemoryMax > 0 ? directMemoryMax : mem.getHeapMax().getBytes()) / 2;
+    }
+
+    /**
+     * Returns the number of bytes of the off-heap pages that are currently allocated, either in use or kept around for reuse.
+     */
+    public long directBytesAllocated() {
+        return directBytes.get();
+    }
+
+    /**
+     * Whether big arrays of primitives should use {@link #directPage(boolean) direct pages}.
+     */
+    public boolean isOffHeap() {
+        return offHeap;
     }
 
     public Recycler.V<byte[]> bytePage(boolean clear) {
@@ -177,6 +274,20 @@ public class PageCacheRecycler {
         return objectPage.obtain();
     }
 
+    /**
+     * Returns a page of {@link #PAGE_SIZE_IN_BYTES} bytes that is allocated off-heap and uses the native byte order.
+     */
+    public Recycler.V<ByteBuffer> directPage(boolean clear) {
+        final Recycler.V<ByteBuffer> v = directPage.obtain();
+        if (v.isRecycled() && clear) {
+            final ByteBuffer page = v.v();
+            for (int i = 0; i < PAGE_SIZE_IN_BYTES; i += Long.BYTES) {
+                page.putLong(i, 0L);
+            }
+        }
+        return v;
+    }
+
     private static <T> Recycler<T> build(Type type, int limit, int availableProcessors, Recycler.C<T> c) {
         final Recycler<T> recycler;
         if (limit == 0) {
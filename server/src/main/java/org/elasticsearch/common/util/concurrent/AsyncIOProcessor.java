@@ -26,6 +26,7 @@ import java.util.ArrayList;
 import java.util.List;
 import java.util.Objects;
 import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.Executor;
 import java.util.concurrent.Semaphore;
 import java.util.function.Consumer;
 import java.util.function.Supplier;
@@ -35,7 +36,8 @@ import java.util.function.Supplier;
  * This can be used to ensure that threads can continue with other work while the actual IO operation is still processed
  * by a single worker. A worker in this context can be any caller of the {@link #put(Object, Consumer)} method since it will
  * hijack a worker if nobody else is currently processing queued items. If the internal queue has reached it's capacity incoming threads
- * might be blocked until other items are processed
+ * might be blocked until other items are processed. The items can also be processed on a dedicated executor, see
+ * {@link #getExecutor()}.
  */
 public abstract class AsyncIOProcessor<Item> {
     private final Logger logger;
@@ -74,21 +76,36 @@ public abstract class AsyncIOProcessor<Item> {
         // here we have to try to make the promise again otherwise there is a race when a thread puts an entry without making the promise
         // while we are draining that mean we might exit below too early in the while loop if the drainAndSync call is fast.
         if (promised || promiseSemaphore.tryAcquire()) {
+            final Executor executor = getExecutor();
+            final boolean forked = executor != EsExecutors.newDirectExecutorService();
             final List<Tuple<Item, Consumer<Exception>>> candidates = new ArrayList<>();
             if (promised) {
                 // we are responsible for processing we don't need to add the tuple to the queue we can just add it to the candidates
-                // no need to preserve context for listener since it runs in current thread.
-                candidates.add(new Tuple<>(item, listener));
+                // no need to preserve context for listener unless it runs on another thread.
+                candidates.add(new Tuple<>(item, forked ? preserveContext(listener) : listener));
             }
-            // since we made the promise to process we gotta do it here at least once
-            drainAndProcessAndRelease(candidates);
-            while (queue.isEmpty() == false && promiseSemaphore.tryAcquire()) {
-                // yet if the queue is not empty AND nobody else has yet made the promise to take over we continue processing
-                drainAndProcessAndRelease(candidates);
+            if (forked) {
+                try {
+                    executor.execute(() -> processUntilEmpty(candidates));
+                } catch (EsRejectedExecutionException e) {
+                    // the executor is shutting down, we made the promise so we process here
+                    processUntilEmpty(candidates);
+                }
+            } else {
+                processUntilEmpty(candidates);
             }
         }
     }
 
+    private void processUntilEmpty(List<Tuple<Item, Consumer<Exception>>> candidates) {
+        // since we made the promise to process we gotta do it here at least once
+        drainAndProcessAndRelease(candidates);
+        while (queue.isEmpty() == false && promiseSemaphore.tryAcquire()) {
+            // yet if the queue is not empty AND nobody else has yet made the promise to take over we continue processing
+            drainAndProcessAndRelease(candidates);
+        }
+    }
+
     private void drainAndProcessAndRelease(List<Tuple<Item, Consumer<Exception>>> candidates) {
         Exception exception;
         try {
@@ -135,6 +152,16 @@ public abstract class AsyncIOProcessor<Item> {
         };
     }
 
+    /**
+     * Returns the executor that processes the queued items once a caller made the promise to process them. The default
+     * processes them on the calling thread, which is hijacked until no more items are queued. Other executors let the
+     * caller continue while the items are processed in the background, their listeners are then notified on the
+     * executor's thread.
+     */
+    protected Executor getExecutor() {
+        return EsExecutors.newDirectExecutorService();
+    }
+
     /**
      * Writes or processes the items out or to disk.
      */
@@ -50,9 +50,13 @@ import org.apache.lucene.util.SetOnce;
 import org.elasticsearch.Version;
 import org.elasticsearch.cluster.ClusterState;
 import org.elasticsearch.cluster.metadata.IndexMetadata;
+import org.elasticsearch.cluster.metadata.MappingMetadata;
 import org.elasticsearch.cluster.metadata.Metadata;
 import org.elasticsearch.common.CheckedConsumer;
 import org.elasticsearch.common.Nullable;
+import org.elasticsearch.common.bytes.BytesArray;
+import org.elasticsearch.common.compress.CompressedXContent;
+import org.elasticsearch.common.hash.MessageDigests;
 import org.elasticsearch.common.io.stream.ReleasableBytesStreamOutput;
 import org.elasticsearch.common.lease.Releasable;
 import org.elasticsearch.common.logging.Loggers;
@@ -71,6 +75,7 @@ import org.elasticsearch.core.internal.io.IOUtils;
 import org.elasticsearch.env.NodeEnvironment;
 import org.elasticsearch.env.NodeMetadata;
 import org.elasticsearch.index.Index;
+import org.elasticsearch.index.mapper.MapperService;
 
 import java.io.Closeable;
 import java.io.FilterOutputStream;
@@ -81,6 +86,7 @@ import java.nio.file.Path;
 import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.HashSet;
+import java.util.IdentityHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
@@ -94,12 +100,16 @@ import java.util.function.Supplier;
  * to record the last-accepted cluster state during publication. The metadata is written incrementally where possible, leaving alone any
  * documents that have not changed. The index has the following fields:
  *
- * +------------------------------+-----------------------------+----------------------------------------------+
- * | "type" (string field)        | "index_uuid" (string field) | "data" (stored binary field in SMILE format) |
- * +------------------------------+-----------------------------+----------------------------------------------+
- * | GLOBAL_TYPE_NAME == "global" | (omitted)                   | Global metadata                              |
- * | INDEX_TYPE_NAME  == "index"  | Index UUID                  | Index metadata                               |
- * +------------------------------+-----------------------------+----------------------------------------------+
+ * +--------------------------------+-----------------------------+-----------------------------+----------------------------------+
+ * | "type" (string field)          | "index_uuid" (string field) | "mapping_hash" (string fld) | "data" (stored binary field)     |
+ * +--------------------------------+-----------------------------+-----------------------------+----------------------------------+
+ * | GLOBAL_TYPE_NAME  == "global"  | (omitted)                   | (omitted)                   | Global metadata in SMILE format  |
+ * | INDEX_TYPE_NAME   == "index"   | Index UUID                  | (omitted)                   | Index metadata in SMILE format   |
+ * | MAPPING_TYPE_NAME == "mapping" | (omitted)                   | SHA-256 of uncompressed src | Compressed mapping source        |
+ * +--------------------------------+-----------------------------+-----------------------------+----------------------------------+
+ *
+ * Indices with a single mapping are stored without it, together with the hash of the mapping in the stored "index_mapping_hash" field, so
+ * that the mapping that many indices share is only written once. Index documents without this field contain their mappings.
  *
  * Additionally each commit has the following user data:
  *
@@ -125,6 +135,9 @@ public class PersistedClusterStateService {
     private static final String GLOBAL_TYPE_NAME = "global";
     private static final String INDEX_TYPE_NAME = "index";
     private static final String INDEX_UUID_FIELD_NAME = "index_uuid";
+    private static final String MAPPING_TYPE_NAME = "mapping";
+    private static final String MAPPING_HASH_FIELD_NAME = "mapping_hash";
+    private static final String INDEX_MAPPING_HASH_FIELD_NAME = "index_mapping_hash";
     private static final int COMMIT_DATA_SIZE = 4;
 
     public static final String METADATA_DIRECTORY_NAME = MetadataStateFormat.STATE_DIR_NAME;
@@ -377,8 +390,9 @@ public class PersistedClusterStateService {
         searcher.setQueryCache(null);
 
         final SetOnce<Metadata.Builder> builderReference = new SetOnce<>();
-        consumeFromType(searcher, GLOBAL_TYPE_NAME, bytes ->
+        consumeFromType(searcher, GLOBAL_TYPE_NAME, document ->
         {
+            final BytesRef bytes = document.getBinaryValue(DATA_FIELD_NAME);
             final Metadata metadata = Metadata.Builder.fromXContent(XContentFactory.xContent(XContentType.SMILE)
                 .createParser(namedXContentRegistry, LoggingDeprecationHandler.INSTANCE, bytes.bytes, bytes.offset, bytes.length));
             logger.trace("found global metadata with last-accepted term [{}]", metadata.coordinationMetadata().term());
@@ -393,14 +407,38 @@ public class PersistedClusterStateService {
             throw new IllegalStateException("no global metadata found in [" + dataPath + "]");
         }
 
-        logger.trace("got global metadata, now reading index metadata");
+        logger.trace("got global metadata, now reading mappings");
+
+        final Map<String, MappingMetadata> mappingsByHash = new HashMap<>();
+        consumeFromType(searcher, MAPPING_TYPE_NAME, document ->
+        {
+            final String mappingHash = document.get(MAPPING_HASH_FIELD_NAME);
+            final BytesRef bytes = document.getBinaryValue(DATA_FIELD_NAME);
+            final MappingMetadata mapping = new MappingMetadata(new CompressedXContent(new BytesArray(BytesRef.deepCopyOf(bytes))));
+            logger.trace("found mapping with hash [{}]", mappingHash);
+            if (mappingsByHash.put(mappingHash, mapping) != null) {
+                throw new IllegalStateException("duplicate mapping with hash [" + mappingHash + "] found in [" + dataPath + "]");
+            }
+        });
+
+        logger.trace("got mappings, now reading index metadata");
 
         final Set<String> indexUUIDs = new HashSet<>();
-        consumeFromType(searcher, INDEX_TYPE_NAME, bytes ->
+        consumeFromType(searcher, INDEX_TYPE_NAME, document ->
         {
-            final IndexMetadata indexMetadata = IndexMetadata.fromXContent(XContentFactory.xContent(XContentType.SMILE)
+            final BytesRef bytes = document.getBinaryValue(DATA_FIELD_NAME);
+            IndexMetadata indexMetadata = IndexMetadata.fromXContent(XContentFactory.xContent(XContentType.SMILE)
                 .createParser(namedXContentRegistry, LoggingDeprecationHandler.INSTANCE, bytes.bytes, bytes.offset, bytes.length));
             logger.trace("found index metadata for {}", indexMetadata.getIndex());
+            final String mappingHash = document.get(INDEX_MAPPING_HASH_FIELD_NAME);
+            if (mappingHash != null) {
+                final MappingMetadata mapping = mappingsByHash.get(mappingHash);
+                if (mapping == null) {
+                    throw new IllegalStateException("no mapping with hash [" + mappingHash + "] found for " + indexMetadata.getIndex()
+                        + " in [" + dataPath + "]");
+                }
+                indexMetadata = IndexMetadata.builder(indexMetadata).putMapping(mapping).build();
+            }
             if (indexUUIDs.add(indexMetadata.getIndexUUID()) == false) {
                 throw new IllegalStateException("duplicate metadata found for " + indexMetadata.getIndex() + " in [" + dataPath + "]");
             }
@@ -419,7 +457,7 @@ public class PersistedClusterStateService {
     }
 
     private static void consumeFromType(IndexSearcher indexSearcher, String type,
-                                        CheckedConsumer<BytesRef, IOException> bytesRefConsumer) throws IOException {
+                                        CheckedConsumer<Document, IOException> documentConsumer) throws IOException {
 
         final Query query = new TermQuery(new Term(TYPE_FIELD_NAME, type));
         final Weight weight = indexSearcher.createWeight(query, ScoreMode.COMPLETE_NO_SCORES, 0.0f);
@@ -435,14 +473,21 @@ public class PersistedClusterStateService {
                 while (docIdSetIterator.nextDoc() != DocIdSetIterator.NO_MORE_DOCS) {
                     if (isLiveDoc.test(docIdSetIterator.docID())) {
                         logger.trace("processing doc {}", docIdSetIterator.docID());
-                        bytesRefConsumer.accept(
-                            leafReaderContext.reader().document(docIdSetIterator.docID()).getBinaryValue(DATA_FIELD_NAME));
+                        documentConsumer.accept(leafReaderContext.reader().document(docIdSetIterator.docID()));
                     }
                 }
             }
         }
     }
 
+    /**
+     * Returns the mapping of an index that is stored in a document of its own, or {@code null} if the index is stored with its mappings.
+     */
+    @Nullable
+    private static MappingMetadata sharedMapping(IndexMetadata indexMetadata) {
+        return indexMetadata.getMappings().size() == 1 ? indexMetadata.getMappings().get(MapperService.SINGLE_MAPPING_NAME) : null;
+    }
+
     private static final ToXContent.Params FORMAT_PARAMS;
 
     static {
@@ -511,6 +556,16 @@ public class PersistedClusterStateService {
             indexWriter.deleteDocuments(new Term(INDEX_UUID_FIELD_NAME, indexUUID));
         }
 
+        void updateMappingDocument(Document mappingDocument, String mappingHash) throws IOException {
+            this.logger.trace("updating mapping with hash [{}]", mappingHash);
+            indexWriter.updateDocument(new Term(MAPPING_HASH_FIELD_NAME, mappingHash), mappingDocument);
+        }
+
+        void deleteMapping(String mappingHash) throws IOException {
+            this.logger.trace("removing mapping with hash [{}]", mappingHash);
+            indexWriter.deleteDocuments(new Term(MAPPING_HASH_FIELD_NAME, mappingHash));
+        }
+
         void flush() throws IOException {
             this.logger.trace("flushing");
             this.indexWriter.flush();
@@ -547,6 +602,19 @@ public class PersistedClusterStateService {
         boolean fullStateWritten = false;
         private final AtomicBoolean closed = new AtomicBoolean();
 
+        /**
+         * The hashes of the mappings that are stored in their own documents, by the instances of the last written metadata. Mappings are
+         * immutable and indices with equal mappings share the same instance, so this saves hashing every mapping on every write.
+         */
+        private Map<MappingMetadata, String> writtenMappingHashes = new IdentityHashMap<>();
+
+        /**
+         * The hash of the mapping that the stored document of each index refers to, by index UUID. Index documents are only rewritten
+         * when the version of their index changes, so the mapping documents to keep are the ones that these hashes refer to rather than
+         * the ones of the mappings of the last written metadata.
+         */
+        private Map<String, String> writtenIndexMappingHashes = new HashMap<>();
+
         private Writer(List<MetadataIndexWriter> metadataIndexWriters, String nodeId, BigArrays bigArrays,
                        LongSupplier relativeTimeMillisSupplier, Supplier<TimeValue> slowWriteLoggingThresholdSupplier) {
             this.metadataIndexWriters = metadataIndexWriters;
@@ -649,6 +717,10 @@ public class PersistedClusterStateService {
                 }
             }
 
+            final Map<MappingMetadata, String> mappingHashes = mappingHashes(metadata);
+            final Map<String, String> indexMappingHashes = new HashMap<>(writtenIndexMappingHashes);
+            final Set<String> storedMappingHashes = new HashSet<>(writtenIndexMappingHashes.values());
+
             final Map<String, Long> indexMetadataVersionByUUID = new HashMap<>(previouslyWrittenMetadata.indices().size());
             for (ObjectCursor<IndexMetadata> cursor : previouslyWrittenMetadata.indices().values()) {
                 final IndexMetadata indexMetadata = cursor.value;
@@ -665,11 +737,7 @@ public class PersistedClusterStateService {
                     logger.trace("updating metadata for [{}], changing version from [{}] to [{}]",
                         indexMetadata.getIndex(), previousVersion, indexMetadata.getVersion());
                     numIndicesUpdated++;
-                    try (ReleasableDocument indexMetadataDocument = makeIndexMetadataDocument(indexMetadata)) {
-                        for (MetadataIndexWriter metadataIndexWriter : metadataIndexWriters) {
-                            metadataIndexWriter.updateIndexMetadataDocument(indexMetadataDocument.getDocument(), indexMetadata.getIndex());
-                        }
-                    }
+                    addIndexMetadata(indexMetadata, mappingHashes, indexMappingHashes, storedMappingHashes);
                 } else {
                     numIndicesUnchanged++;
                     logger.trace("no action required for [{}]", indexMetadata.getIndex());
@@ -681,6 +749,14 @@ public class PersistedClusterStateService {
                 for (MetadataIndexWriter metadataIndexWriter : metadataIndexWriters) {
                     metadataIndexWriter.deleteIndexMetadata(removedIndexUUID);
                 }
+                indexMappingHashes.remove(removedIndexUUID);
+            }
+
+            storedMappingHashes.removeAll(indexMappingHashes.values());
+            for (String removedMappingHash : storedMappingHashes) {
+                for (MetadataIndexWriter metadataIndexWriter : metadataIndexWriters) {
+                    metadataIndexWriter.deleteMapping(removedMappingHash);
+                }
             }
 
             // Flush, to try and expose a failure (e.g. out of disk space) before committing, because we can handle a failure here more
@@ -689,6 +765,8 @@ public class PersistedClusterStateService {
                 metadataIndexWriter.flush();
             }
 
+            writtenMappingHashes = mappingHashes;
+            writtenIndexMappingHashes = indexMappingHashes;
             return new WriterStats(updateGlobalMeta, numIndicesUpdated, numIndicesUnchanged);
         }
 
@@ -699,6 +777,8 @@ public class PersistedClusterStateService {
             for (MetadataIndexWriter metadataIndexWriter : metadataIndexWriters) {
                 metadataIndexWriter.deleteAll();
             }
+            writtenMappingHashes = new IdentityHashMap<>();
+            writtenIndexMappingHashes = new HashMap<>();
             return addMetadata(metadata);
         }
 
@@ -712,13 +792,11 @@ public class PersistedClusterStateService {
                 }
             }
 
+            final Map<MappingMetadata, String> mappingHashes = mappingHashes(metadata);
+            final Map<String, String> indexMappingHashes = new HashMap<>(metadata.indices().size());
+            final Set<String> storedMappingHashes = new HashSet<>();
             for (ObjectCursor<IndexMetadata> cursor : metadata.indices().values()) {
-                final IndexMetadata indexMetadata = cursor.value;
-                try (ReleasableDocument indexMetadataDocument = makeIndexMetadataDocument(indexMetadata)) {
-                    for (MetadataIndexWriter metadataIndexWriter : metadataIndexWriters) {
-                        metadataIndexWriter.updateIndexMetadataDocument(indexMetadataDocument.getDocument(), indexMetadata.getIndex());
-                    }
-                }
+                addIndexMetadata(cursor.value, mappingHashes, indexMappingHashes, storedMappingHashes);
             }
 
             // Flush, to try and expose a failure (e.g. out of disk space) before committing, because we can handle a failure here more
@@ -727,9 +805,56 @@ public class PersistedClusterStateService {
                 metadataIndexWriter.flush();
             }
 
+            writtenMappingHashes = mappingHashes;
+            writtenIndexMappingHashes = indexMappingHashes;
             return new WriterStats(true, metadata.indices().size(), 0);
         }
 
+        /**
+         * Returns the hashes of the mappings of the given metadata that are stored in their own documents, reusing the hashes of the
+         * instances that were already written. Mappings are hashed by their uncompressed source, like {@link CompressedXContent#equals}
+         * compares them, so that equal mappings whose compressed bytes differ, for instance because another node compressed them, have
+         * the same hash.
+         */
+        private Map<MappingMetadata, String> mappingHashes(Metadata metadata) {
+            final Map<MappingMetadata, String> mappingHashes = new IdentityHashMap<>();
+            for (ObjectCursor<IndexMetadata> cursor : metadata.indices().values()) {
+                final MappingMetadata mapping = sharedMapping(cursor.value);
+                if (mapping != null && mappingHashes.containsKey(mapping) == false) {
+                    final String writtenHash = writtenMappingHashes.get(mapping);
+                    mappingHashes.put(mapping, writtenHash != null ? writtenHash
+                        : MessageDigests.toHexString(MessageDigests.sha256().digest(mapping.source().uncompressed())));
+                }
+            }
+            return mappingHashes;
+        }
+
+        /**
+         * Adds the document of the given index, together with the document of its mapping if that isn't stored yet, and records the hash
+         * of the mapping that the document refers to.
+         */
+        private void addIndexMetadata(IndexMetadata indexMetadata, Map<MappingMetadata, String> mappingHashes,
+                                      Map<String, String> indexMappingHashes, Set<String> storedMappingHashes) throws IOException {
+            final MappingMetadata mapping = sharedMapping(indexMetadata);
+            if (mapping == null) {
+                indexMappingHashes.remove(indexMetadata.getIndexUUID());
+            } else {
+                final String mappingHash = mappingHashes.get(mapping);
+                if (storedMappingHashes.add(mappingHash)) {
+                    final Document mappingDocument = makeMappingDocument(mapping, mappingHash);
+                    for (MetadataIndexWriter metadataIndexWriter : metadataIndexWriters) {
+                        metadataIndexWriter.updateMappingDocument(mappingDocument, mappingHash);
+                    }
+                }
+                indexMappingHashes.put(indexMetadata.getIndexUUID(), mappingHash);
+            }
+            try (ReleasableDocument indexMetadataDocument = makeIndexMetadataDocument(indexMetadata, mappingHashes)) {
+                for (MetadataIndexWriter metadataIndexWriter : metadataIndexWriters) {
+                    metadataIndexWriter.updateIndexMetadataDocument(indexMetadataDocument.getDocument(), indexMetadata.getIndex());
+                }
+            }
+        }
+
         public void commit(long currentTerm, long lastAcceptedVersion) throws IOException {
             ensureOpen();
             try {
@@ -786,13 +911,21 @@ public class PersistedClusterStateService {
             }
         }
 
-        private ReleasableDocument makeIndexMetadataDocument(IndexMetadata indexMetadata) throws IOException {
-            final ReleasableDocument indexMetadataDocument = makeDocument(INDEX_TYPE_NAME, indexMetadata);
+        private ReleasableDocument makeIndexMetadataDocument(IndexMetadata indexMetadata,
+                                                             Map<MappingMetadata, String> mappingHashes) throws IOException {
+            final MappingMetadata mapping = sharedMapping(indexMetadata);
+            final String mappingHash = mapping == null ? null : mappingHashes.get(mapping);
+            assert mapping == null || mappingHash != null : "no hash for the mapping of " + indexMetadata.getIndex();
+            final ReleasableDocument indexMetadataDocument = makeDocument(INDEX_TYPE_NAME,
+                mappingHash == null ? indexMetadata : IndexMetadata.builder(indexMetadata).putMapping((MappingMetadata) null).build());
             boolean success = false;
             try {
                 final String indexUUID = indexMetadata.getIndexUUID();
                 assert indexUUID.equals(IndexMetadata.INDEX_UUID_NA_VALUE) == false;
                 indexMetadataDocument.getDocument().add(new StringField(INDEX_UUID_FIELD_NAME, indexUUID, Field.Store.NO));
+                if (mappingHash != null) {
+                    indexMetadataDocument.getDocument().add(new StoredField(INDEX_MAPPING_HASH_FIELD_NAME, mappingHash));
+                }
                 success = true;
                 return indexMetadataDocument;
             } finally {
@@ -806,6 +939,14 @@ public class PersistedClusterStateService {
             return makeDocument(GLOBAL_TYPE_NAME, metadata);
         }
 
+        private static Document makeMappingDocument(MappingMetadata mapping, String mappingHash) {
+            final Document document = new Document();
+            document.add(new StringField(TYPE_FIELD_NAME, MAPPING_TYPE_NAME, Field.Store.NO));
+            document.add(new StringField(MAPPING_HASH_FIELD_NAME, mappingHash, Field.Store.YES));
+            document.add(new StoredField(DATA_FIELD_NAME, mapping.source().compressed()));
+            return document;
+        }
+
         private ReleasableDocument makeDocument(String typeName, ToXContent metadata) throws IOException {
             final Document document = new Document();
             document.add(new StringField(TYPE_FIELD_NAME, typeName, Field.Store.NO));
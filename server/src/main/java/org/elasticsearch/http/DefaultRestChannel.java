@@ -31,6 +31,7 @@ import org.elasticsearch.common.network.CloseableChannel;
 import org.elasticsearch.common.util.BigArrays;
 import org.elasticsearch.common.util.concurrent.ThreadContext;
 import org.elasticsearch.rest.AbstractRestChannel;
+import org.elasticsearch.rest.ChunkedRestResponse;
 import org.elasticsearch.rest.RestChannel;
 import org.elasticsearch.rest.RestRequest;
 import org.elasticsearch.rest.RestResponse;
@@ -91,6 +92,11 @@ public class DefaultRestChannel extends AbstractRestChannel implements RestChann
             toClose.add(() -> CloseableChannel.closeChannel(httpChannel));
         }
 
+        if (restResponse instanceof ChunkedRestResponse) {
+            sendChunkedResponse((ChunkedRestResponse) restResponse, toClose);
+            return;
+        }
+
         boolean success = false;
         String opaque = null;
         String contentLength = null;
@@ -150,6 +156,69 @@ public class DefaultRestChannel extends AbstractRestChannel implements RestChann
         }
     }
 
+    private void sendChunkedResponse(ChunkedRestResponse restResponse, List<Releasable> toClose) {
+        boolean success = false;
+        String opaque = null;
+        try {
+            final HttpResponse httpResponse = httpRequest.createChunkedResponse(restResponse.status());
+
+            opaque = request.header(X_OPAQUE_ID);
+            if (opaque != null) {
+                setHeaderField(httpResponse, X_OPAQUE_ID, opaque);
+            }
+
+            addCustomHeaders(httpResponse, restResponse.getHeaders());
+            addCustomHeaders(httpResponse, threadContext.getResponseHeaders());
+            setHeaderField(httpResponse, CONTENT_TYPE, restResponse.contentType(), false);
+            addCookies(httpResponse);
+
+            BytesStreamOutput bytesStreamOutput = bytesOutputOrNull();
+            if (bytesStreamOutput instanceof ReleasableBytesStreamOutput) {
+                toClose.add((Releasable) bytesStreamOutput);
+            }
+
+            // the body is only produced once the headers are out, the chunk writer releases the resources at its end
+            ActionListener<Void> listener = ActionListener.wrap(
+                v -> restResponse.writeBody(new ChannelChunkWriter(toClose)),
+                e -> Releasables.close(toClose));
+            httpChannel.sendResponse(httpResponse, listener);
+            success = true;
+        } finally {
+            if (success == false) {
+                Releasables.close(toClose);
+            }
+            if (tracerLog != null) {
+                tracerLog.traceResponse(restResponse, httpChannel, null, opaque, request.getRequestId(), success);
+            }
+        }
+    }
+
+    private class ChannelChunkWriter implements ChunkedRestResponse.ChunkWriter {
+
+        private final List<Releasable> toClose;
+
+        private ChannelChunkWriter(List<Releasable> toClose) {
+            this.toClose = toClose;
+        }
+
+        @Override
+        public void writeChunk(BytesReference chunk, ActionListener<Void> listener) {
+            httpChannel.sendChunk(chunk, false, listener);
+        }
+
+        @Override
+        public void finish() {
+            httpChannel.sendChunk(BytesArray.EMPTY, true, ActionListener.wrap(() -> Releasables.close(toClose)));
+        }
+
+        @Override
+        public void fail(Exception e) {
+            // the status was sent already, closing the connection is the only way to tell the client that the body is incomplete
+            Releasables.close(toClose);
+            CloseableChannel.closeChannel(httpChannel);
+        }
+    }
+
     private void setHeaderField(HttpResponse response, String headerField, String value) {
         setHeaderField(response, headerField, value, true);
     }
@@ -20,6 +20,7 @@
 package org.elasticsearch.http;
 
 import org.elasticsearch.action.ActionListener;
+import org.elasticsearch.common.bytes.BytesReference;
 import org.elasticsearch.common.network.CloseableChannel;
 
 import java.net.InetSocketAddress;
@@ -35,6 +36,19 @@ public interface HttpChannel extends CloseableChannel {
      */
     void sendResponse(HttpResponse response, ActionListener<Void> listener);
 
+    /**
+     * Sends a chunk of the body of a response that was created by {@link HttpRequest#createChunkedResponse} and was already
+     * sent to this channel. The listener will be executed once the chunk was sent.
+     *
+     * @param chunk    the content of the chunk
+     * @param last     whether this is the last chunk of the response
+     * @param listener to execute upon send completion
+     */
+    default void sendChunk(BytesReference chunk, boolean last, ActionListener<Void> listener) {
+        listener.onFailure(
+            new UnsupportedOperationException("chunked responses are not supported by [" + getClass().getSimpleName() + "]"));
+    }
+
     /**
      * Returns the local address for this channel.
      *
@@ -76,6 +76,11 @@ public class HttpPipelinedRequest implements HttpRequest, HttpPipelinedMessage {
         return new HttpPipelinedResponse(sequence, delegate.createResponse(status, content));
     }
 
+    @Override
+    public HttpPipelinedResponse createChunkedResponse(RestStatus status) {
+        return new HttpPipelinedResponse(sequence, delegate.createChunkedResponse(status));
+    }
+
     @Override
     public void release() {
         delegate.release();
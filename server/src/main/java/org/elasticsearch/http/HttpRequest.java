@@ -19,6 +19,7 @@
 
 package org.elasticsearch.http;
 
+import org.elasticsearch.action.ActionListener;
 import org.elasticsearch.common.Nullable;
 import org.elasticsearch.common.bytes.BytesReference;
 import org.elasticsearch.rest.RestRequest;
@@ -69,6 +70,14 @@ public interface HttpRequest {
      */
     HttpResponse createResponse(RestStatus status, BytesReference content);
 
+    /**
+     * Create an http response from this request whose body is sent in chunks of unknown total length, see
+     * {@link HttpChannel#sendChunk(BytesReference, boolean, ActionListener)}.
+     */
+    default HttpResponse createChunkedResponse(RestStatus status) {
+        throw new UnsupportedOperationException("chunked responses are not supported by [" + getClass().getSimpleName() + "]");
+    }
+
     @Nullable
     Exception getInboundException();
 
@@ -60,6 +60,7 @@ import org.elasticsearch.index.engine.EngineFactory;
 import org.elasticsearch.index.fielddata.IndexFieldDataCache;
 import org.elasticsearch.index.fielddata.IndexFieldDataService;
 import org.elasticsearch.index.mapper.MapperService;
+import org.elasticsearch.index.mapper.SharedMappings;
 import org.elasticsearch.index.query.QueryShardContext;
 import org.elasticsearch.index.query.SearchIndexNameMatcher;
 import org.elasticsearch.index.seqno.RetentionLeaseSyncer;
@@ -167,6 +168,7 @@ public class IndexService extends AbstractIndexComponent implements IndicesClust
             IndexEventListener eventListener,
             Function<IndexService, CheckedFunction<DirectoryReader, DirectoryReader, IOException>> wrapperFactory,
             MapperRegistry mapperRegistry,
+            SharedMappings sharedMappings,
             IndicesFieldDataCache indicesFieldDataCache,
             List<SearchOperationListener> searchOperationListeners,
             List<IndexingOperationListener> indexingOperationListeners,
@@ -188,7 +190,9 @@ public class IndexService extends AbstractIndexComponent implements IndicesClust
             assert indexAnalyzers != null;
             this.mapperService = new MapperService(indexSettings, indexAnalyzers, xContentRegistry, similarityService, mapperRegistry,
                 // we parse all percolator queries as they would be parsed on shard 0
-                () -> newQueryShardContext(0, null, System::currentTimeMillis, null), idFieldDataEnabled);
+                () -> newQueryShardContext(0, null, System::currentTimeMillis, null), idFieldDataEnabled,
+                // temporary indices and indices that are only created to verify metadata on recovery don't share mappings
+                indexCreationContext == IndexCreationContext.CREATE_INDEX ? sharedMappings : null);
             this.indexFieldData = new IndexFieldDataService(indexSettings, indicesFieldDataCache, circuitBreakerService, mapperService);
             if (indexSettings.getIndexSortConfig().hasIndexSort()) {
                 // we delay the actual creation of the sort order for this index because the mapping has not been merged yet.
@@ -238,11 +242,15 @@ public class IndexService extends AbstractIndexComponent implements IndicesClust
 
     static boolean needsMapperService(IndexSettings indexSettings, IndexCreationContext indexCreationContext) {
         return false == (indexSettings.getIndexMetadata().getState() == IndexMetadata.State.CLOSE &&
-            indexCreationContext == IndexCreationContext.CREATE_INDEX); // metadata verification needs a mapper service
+            indexCreationContext != IndexCreationContext.METADATA_VERIFICATION); // metadata verification needs a mapper service
     }
 
     public enum IndexCreationContext {
         CREATE_INDEX,
+        /**
+         * An index that is created to validate or apply a change, typically on the master, and is removed right after
+         */
+        CREATE_TEMPORARY_INDEX,
         METADATA_VERIFICATION
     }
 
@@ -138,6 +138,15 @@ public final class IndexSettings {
             Property.Dynamic, Property.IndexScope);
 
 
+    /**
+     * The number of hits per chunk when the hits of a shard are fetched concurrently. When the fetch phase of a shard loads
+     * more hits than this, they are split into chunks of consecutive doc ids that are fetched in parallel on the
+     * {@link org.elasticsearch.threadpool.ThreadPool.Names#SEARCH_WORKER} thread-pool. {@code 0} fetches all hits on the
+     * search thread.
+     */
+    public static final Setting<Integer> PARALLEL_FETCH_CHUNK_SIZE_SETTING =
+        Setting.intSetting("index.search.parallel_fetch.chunk_size", 0, 0, Property.Dynamic, Property.IndexScope);
+
     /**
      * Index setting describing the maximum number of terms that can be used in Terms Query.
      * The default maximum of 65536 terms is defensive, as extra processing and memory is involved
@@ -315,6 +324,29 @@ public final class IndexSettings {
     public static final Setting<Boolean> INDEX_SEARCH_THROTTLED = Setting.boolSetting("index.search.throttled", false,
         Property.IndexScope, Property.PrivateIndex, Property.Dynamic);
 
+    /**
+     * Enables searching the segments of a shard concurrently. When enabled, the leaves of a shard are partitioned into slices that are
+     * searched in parallel on the {@link org.elasticsearch.threadpool.ThreadPool.Names#SEARCH_WORKER} thread-pool.
+     */
+    public static final Setting<Boolean> INDEX_CONCURRENT_SEGMENT_SEARCH_SETTING =
+        Setting.boolSetting("index.search.concurrent_segment_search.enabled", false, Property.IndexScope, Property.Dynamic);
+
+    /**
+     * The number of threads that replay the operations of the translog when a shard is recovered from its local store. Operations
+     * are read in batches and partitioned by the hash of their id, so that the operations on a document are always replayed in
+     * order by the same thread. The default of {@code 1} replays all operations sequentially on the recovery thread.
+     */
+    public static final Setting<Integer> INDEX_TRANSLOG_RECOVERY_CONCURRENCY_SETTING =
+        Setting.intSetting("index.translog.recovery.concurrency", 1, 1, 32, Property.IndexScope, Property.Dynamic);
+
+    /**
+     * Whether the translog of a shard is fsynced for the requests that need it to be durable on the
+     * {@link org.elasticsearch.threadpool.ThreadPool.Names#TRANSLOG_SYNC} thread-pool rather than on one of the write threads. The
+     * requests that ask for a sync while an fsync is in flight are grouped into the next fsync either way.
+     */
+    public static final Setting<Boolean> INDEX_TRANSLOG_DEDICATED_SYNC_SETTING =
+        Setting.boolSetting("index.translog.dedicated_sync", false, Property.IndexScope, Property.Dynamic);
+
     /**
      * Determines a balance between file-based and operations-based peer recoveries. The number of operations that will be used in an
      * operations-based peer recovery is limited to this proportion of the total number of documents in the shard (including deleted
@@ -382,10 +414,14 @@ public final class IndexSettings {
     private volatile int maxShingleDiff;
     private volatile TimeValue searchIdleAfter;
     private volatile int maxAnalyzedOffset;
+    private volatile int parallelFetchChunkSize;
     private volatile int maxTermsCount;
     private volatile String defaultPipeline;
     private volatile String requiredPipeline;
     private volatile boolean searchThrottled;
+    private volatile boolean concurrentSegmentSearch;
+    private volatile int translogRecoveryConcurrency;
+    private volatile boolean translogDedicatedSync;
     private volatile long mappingNestedFieldsLimit;
     private volatile long mappingNestedDocsLimit;
     private volatile long mappingTotalFieldsLimit;
@@ -475,6 +511,9 @@ public final class IndexSettings {
         numberOfShards = settings.getAsInt(IndexMetadata.SETTING_NUMBER_OF_SHARDS, null);
 
         this.searchThrottled = INDEX_SEARCH_THROTTLED.get(settings);
+        this.concurrentSegmentSearch = scopedSettings.get(INDEX_CONCURRENT_SEGMENT_SEARCH_SETTING);
+        this.translogRecoveryConcurrency = scopedSettings.get(INDEX_TRANSLOG_RECOVERY_CONCURRENCY_SETTING);
+        this.translogDedicatedSync = scopedSettings.get(INDEX_TRANSLOG_DEDICATED_SYNC_SETTING);
         this.queryStringLenient = QUERY_STRING_LENIENT_SETTING.get(settings);
         this.queryStringAnalyzeWildcard = QUERY_STRING_ANALYZE_WILDCARD.get(nodeSettings);
         this.queryStringAllowLeadingWildcard = QUERY_STRING_ALLOW_LEADING_WILDCARD.get(nodeSettings);
@@ -504,6 +543,7 @@ public final class IndexSettings {
         maxRefreshListeners = scopedSettings.get(MAX_REFRESH_LISTENERS_PER_SHARD);
         maxSlicesPerScroll = scopedSettings.get(MAX_SLICES_PER_SCROLL);
         maxAnalyzedOffset = scopedSettings.get(MAX_ANALYZED_OFFSET_SETTING);
+        parallelFetchChunkSize = scopedSettings.get(PARALLEL_FETCH_CHUNK_SIZE_SETTING);
         maxTermsCount = scopedSettings.get(MAX_TERMS_COUNT_SETTING);
         maxRegexLength = scopedSettings.get(MAX_REGEX_LENGTH_SETTING);
         this.mergePolicyConfig = new MergePolicyConfig(logger, this);
@@ -555,6 +595,7 @@ public final class IndexSettings {
         scopedSettings.addSettingsUpdateConsumer(INDEX_REFRESH_INTERVAL_SETTING, this::setRefreshInterval);
         scopedSettings.addSettingsUpdateConsumer(MAX_REFRESH_LISTENERS_PER_SHARD, this::setMaxRefreshListeners);
         scopedSettings.addSettingsUpdateConsumer(MAX_ANALYZED_OFFSET_SETTING, this::setHighlightMaxAnalyzedOffset);
+        scopedSettings.addSettingsUpdateConsumer(PARALLEL_FETCH_CHUNK_SIZE_SETTING, this::setParallelFetchChunkSize);
         scopedSettings.addSettingsUpdateConsumer(MAX_TERMS_COUNT_SETTING, this::setMaxTermsCount);
         scopedSettings.addSettingsUpdateConsumer(MAX_SLICES_PER_SCROLL, this::setMaxSlicesPerScroll);
         scopedSettings.addSettingsUpdateConsumer(DEFAULT_FIELD_SETTING, this::setDefaultFields);
@@ -564,6 +605,9 @@ public final class IndexSettings {
         scopedSettings.addSettingsUpdateConsumer(FINAL_PIPELINE, this::setRequiredPipeline);
         scopedSettings.addSettingsUpdateConsumer(INDEX_SOFT_DELETES_RETENTION_OPERATIONS_SETTING, this::setSoftDeleteRetentionOperations);
         scopedSettings.addSettingsUpdateConsumer(INDEX_SEARCH_THROTTLED, this::setSearchThrottled);
+        scopedSettings.addSettingsUpdateConsumer(INDEX_CONCURRENT_SEGMENT_SEARCH_SETTING, this::setConcurrentSegmentSearch);
+        scopedSettings.addSettingsUpdateConsumer(INDEX_TRANSLOG_RECOVERY_CONCURRENCY_SETTING, this::setTranslogRecoveryConcurrency);
+        scopedSettings.addSettingsUpdateConsumer(INDEX_TRANSLOG_DEDICATED_SYNC_SETTING, this::setTranslogDedicatedSync);
         scopedSettings.addSettingsUpdateConsumer(INDEX_SOFT_DELETES_RETENTION_LEASE_PERIOD_SETTING, this::setRetentionLeaseMillis);
         scopedSettings.addSettingsUpdateConsumer(INDEX_MAPPING_NESTED_FIELDS_LIMIT_SETTING, this::setMappingNestedFieldsLimit);
         scopedSettings.addSettingsUpdateConsumer(INDEX_MAPPING_NESTED_DOCS_LIMIT_SETTING, this::setMappingNestedDocsLimit);
@@ -858,6 +902,18 @@ public final class IndexSettings {
 
     private void setHighlightMaxAnalyzedOffset(int maxAnalyzedOffset) { this.maxAnalyzedOffset = maxAnalyzedOffset; }
 
+    /**
+     * Returns the number of hits per chunk when the hits of a shard are fetched concurrently, {@code 0} if they are fetched
+     * sequentially.
+     */
+    public int getParallelFetchChunkSize() {
+        return parallelFetchChunkSize;
+    }
+
+    private void setParallelFetchChunkSize(int parallelFetchChunkSize) {
+        this.parallelFetchChunkSize = parallelFetchChunkSize;
+    }
+
     /**
      *  Returns the maximum number of terms that can be used in a Terms Query request
      */
@@ -994,6 +1050,40 @@ public final class IndexSettings {
         this.searchThrottled = searchThrottled;
     }
 
+    /**
+     * Returns true if the segments of this index should be searched concurrently using the
+     * {@link org.elasticsearch.threadpool.ThreadPool.Names#SEARCH_WORKER} thread-pool
+     */
+    public boolean isConcurrentSegmentSearch() {
+        return concurrentSegmentSearch;
+    }
+
+    private void setConcurrentSegmentSearch(boolean concurrentSegmentSearch) {
+        this.concurrentSegmentSearch = concurrentSegmentSearch;
+    }
+
+    /**
+     * Returns the number of threads that replay the translog when a shard is recovered from its local store.
+     */
+    public int getTranslogRecoveryConcurrency() {
+        return translogRecoveryConcurrency;
+    }
+
+    private void setTranslogRecoveryConcurrency(int translogRecoveryConcurrency) {
+        this.translogRecoveryConcurrency = translogRecoveryConcurrency;
+    }
+
+    /**
+     * Returns <code>true</code> if the translog is fsynced on the dedicated translog sync thread-pool.
+     */
+    public boolean isTranslogDedicatedSync() {
+        return translogDedicatedSync;
+    }
+
+    private void setTranslogDedicatedSync(boolean translogDedicatedSync) {
+        this.translogDedicatedSync = translogDedicatedSync;
+    }
+
     public long getMappingNestedFieldsLimit() {
         return mappingNestedFieldsLimit;
     }
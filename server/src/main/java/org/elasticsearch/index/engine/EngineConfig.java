@@ -61,6 +61,7 @@ public final class EngineConfig {
     private volatile boolean enableGcDeletes = true;
     private final TimeValue flushMergesAfter;
     private final String codecName;
+    private final boolean packedVersionMap;
     private final ThreadPool threadPool;
     private final Engine.Warmer warmer;
     private final Store store;
@@ -116,6 +117,15 @@ public final class EngineConfig {
         }
     }, Property.IndexScope, Property.NodeScope);
 
+    /**
+     * Index setting to keep the ids and versions of the documents that were indexed since the last refresh in packed primitive arrays
+     * rather than in a hash map of objects. This reduces the garbage collection pressure of update heavy indices with long refresh
+     * intervals at the expense of slightly slower lookups.
+     * This setting is <b>not</b> realtime updateable.
+     */
+    public static final Setting<Boolean> INDEX_PACKED_VERSION_MAP_SETTING =
+        Setting.boolSetting("index.engine.packed_version_map", false, Property.IndexScope);
+
     private final TranslogConfig translogConfig;
 
     /**
@@ -145,6 +155,7 @@ public final class EngineConfig {
         this.codecService = codecService;
         this.eventListener = eventListener;
         codecName = indexSettings.getValue(INDEX_CODEC_SETTING);
+        packedVersionMap = indexSettings.getValue(INDEX_PACKED_VERSION_MAP_SETTING);
         // We need to make the indexing buffer for this shard at least as large
         // as the amount of memory that is available for all engines on the
         // local node so that decisions to flush segments to disk are made by
@@ -214,6 +225,16 @@ public final class EngineConfig {
         return codecService.codec(codecName);
     }
 
+    /**
+     * Returns <code>true</code> iff the version map of the engine should be packed in primitive arrays.
+     * <p>
+     *     Note: this settings is only read on startup.
+     * </p>
+     */
+    public boolean isPackedVersionMap() {
+        return packedVersionMap;
+    }
+
     /**
      * Returns a thread-pool mainly used to get estimated time stamps from
      * {@link org.elasticsearch.threadpool.ThreadPool#relativeTimeInMillis()} and to schedule
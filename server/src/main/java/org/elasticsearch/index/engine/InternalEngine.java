@@ -138,7 +138,7 @@ public class InternalEngine extends Engine {
 
     // A uid (in the form of BytesRef) to the version map
     // we use the hashed variant since we iterate over it and check removal and additions on existing keys
-    private final LiveVersionMap versionMap = new LiveVersionMap();
+    private final LiveVersionMap versionMap;
 
     private volatile SegmentInfos lastCommittedSegmentInfos;
 
@@ -192,6 +192,7 @@ public class InternalEngine extends Engine {
             final EngineConfig engineConfig,
             final BiFunction<Long, Long, LocalCheckpointTracker> localCheckpointTrackerSupplier) {
         super(engineConfig);
+        versionMap = new LiveVersionMap(engineConfig.isPackedVersionMap());
         final TranslogDeletionPolicy translogDeletionPolicy = new TranslogDeletionPolicy();
         store.incRef();
         IndexWriter writer = null;
@@ -827,11 +828,26 @@ public class InternalEngine extends Engine {
         return localCheckpointTracker.generateSeqNo();
     }
 
+    /**
+     * Acquires the read lock to execute an operation. Operations that are replayed from the local translog may be executed by other
+     * threads than the one that holds the read lock for the whole recovery, see {@link #recoverFromTranslog}. These operations barge
+     * past threads that wait for the write lock, since such threads can only get it once the recovery completes.
+     */
+    private ReleasableLock acquireReadLock(Operation.Origin origin) {
+        if (origin == Operation.Origin.LOCAL_TRANSLOG_RECOVERY) {
+            final ReleasableLock lock = readLock.tryAcquire();
+            if (lock != null) {
+                return lock;
+            }
+        }
+        return readLock.acquire();
+    }
+
     @Override
     public IndexResult index(Index index) throws IOException {
         assert Objects.equals(index.uid().field(), IdFieldMapper.NAME) : index.uid().field();
         final boolean doThrottle = index.origin().isRecovery() == false;
-        try (ReleasableLock releasableLock = readLock.acquire()) {
+        try (ReleasableLock releasableLock = acquireReadLock(index.origin())) {
             ensureOpen();
             assert assertIncomingSequenceNumber(index.origin(), index.seqNo());
             try (Releasable ignored = versionMap.acquireLock(index.uid().bytes());
@@ -1221,7 +1237,8 @@ public class InternalEngine extends Engine {
         assert assertIncomingSequenceNumber(delete.origin(), delete.seqNo());
         final DeleteResult deleteResult;
         // NOTE: we don't throttle this when merges fall behind because delete-by-id does not create new segments:
-        try (ReleasableLock ignored = readLock.acquire(); Releasable ignored2 = versionMap.acquireLock(delete.uid().bytes())) {
+        try (ReleasableLock ignored = acquireReadLock(delete.origin());
+             Releasable ignored2 = versionMap.acquireLock(delete.uid().bytes())) {
             ensureOpen();
             lastWriteNanos = delete.startTime();
             final DeletionStrategy plan = deletionStrategyForOperation(delete);
@@ -1442,7 +1459,7 @@ public class InternalEngine extends Engine {
     @Override
     public NoOpResult noOp(final NoOp noOp) throws IOException {
         final NoOpResult noOpResult;
-        try (ReleasableLock ignored = readLock.acquire()) {
+        try (ReleasableLock ignored = acquireReadLock(noOp.origin())) {
             ensureOpen();
             noOpResult = innerNoOp(noOp);
         } catch (final Exception e) {
@@ -0,0 +1,347 @@
+/*
+ * Licensed to Elasticsearch under one or more contributor
+ * license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright
+ * ownership. Elasticsearch licenses this file to you under
+ * the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.elasticsearch.index.engine;
+
+import org.apache.lucene.util.Accountable;
+import org.apache.lucene.util.ArrayUtil;
+import org.apache.lucene.util.BitUtil;
+import org.apache.lucene.util.BytesRef;
+import org.apache.lucene.util.FutureArrays;
+import org.apache.lucene.util.RamUsageEstimator;
+import org.elasticsearch.index.translog.Translog;
+
+import java.util.AbstractMap;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * A map from _uid to {@link IndexVersionValue} that packs its keys and values in primitive arrays. A hash map of objects needs a map
+ * entry, a {@link BytesRef}, a byte array, a version value and a translog location for every document that was indexed since the last
+ * refresh, which become garbage once the map is dropped on refresh. This map only allocates a few arrays per stripe instead, and
+ * materializes the version values on lookup.
+ *
+ * The map is split into a fixed number of stripes which are locked independently. Each stripe is an open addressing hash table with
+ * linear probing whose slots point to entries that are appended to parallel arrays. Entries that are removed are only reclaimed when
+ * their stripe is rehashed, which is fine since the version map only receives deletes for documents that were indexed before and is
+ * replaced on every refresh.
+ */
+final class PackedVersionMap extends AbstractMap<BytesRef, VersionValue> implements Accountable {
+
+    private static final int NUM_STRIPES = 32;
+    private static final int STRIPE_SHIFT = Integer.SIZE - Integer.numberOfTrailingZeros(NUM_STRIPES);
+    private static final int MIN_CAPACITY = 16;
+    private static final long STRIPE_SHALLOW_SIZE = RamUsageEstimator.shallowSizeOfInstance(Stripe.class);
+
+    // version, seqNo, term and the generation, position and size of the translog location
+    private static final int VALUES_PER_ENTRY = 6;
+    private static final long NO_LOCATION = -1L;
+
+    private final Stripe[] stripes = new Stripe[NUM_STRIPES];
+    private final AtomicLong ramBytesUsed = new AtomicLong();
+
+    PackedVersionMap() {
+        this(0);
+    }
+
+    /**
+     * @param expectedSize the number of entries that the map is expected to hold, arrays are sized accordingly on the first put
+     */
+    PackedVersionMap(int expectedSize) {
+        for (int i = 0; i < NUM_STRIPES; i++) {
+            stripes[i] = new Stripe(expectedSize / NUM_STRIPES);
+        }
+        ramBytesUsed.set(RamUsageEstimator.shallowSizeOf(stripes) + NUM_STRIPES * STRIPE_SHALLOW_SIZE);
+    }
+
+    private Stripe stripe(int hash) {
+        // the low bits of the hash are used to find the slot in the stripe
+        return stripes[hash >>> STRIPE_SHIFT];
+    }
+
+    @Override
+    public VersionValue get(Object key) {
+        if (key instanceof BytesRef == false) {
+            return null;
+        }
+        final BytesRef uid = (BytesRef) key;
+        final int hash = uid.hashCode();
+        return stripe(hash).get(uid, hash);
+    }
+
+    @Override
+    public boolean containsKey(Object key) {
+        return get(key) != null;
+    }
+
+    @Override
+    public VersionValue put(BytesRef uid, VersionValue value) {
+        if (value instanceof IndexVersionValue == false) {
+            throw new IllegalArgumentException("only index versions can be packed, got " + value);
+        }
+        final int hash = uid.hashCode();
+        return stripe(hash).put(uid, hash, value);
+    }
+
+    @Override
+    public VersionValue remove(Object key) {
+        if (key instanceof BytesRef == false) {
+            return null;
+        }
+        final BytesRef uid = (BytesRef) key;
+        final int hash = uid.hashCode();
+        return stripe(hash).remove(uid, hash);
+    }
+
+    @Override
+    public int size() {
+        int size = 0;
+        for (Stripe stripe : stripes) {
+            size += stripe.size;
+        }
+        return size;
+    }
+
+    @Override
+    public boolean isEmpty() {
+        for (Stripe stripe : stripes) {
+            if (stripe.size > 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Returns a point in time snapshot of the entries of this map. Modifications of the map are not reflected in the snapshot.
+     */
+    @Override
+    public Set<Entry<BytesRef, VersionValue>> entrySet() {
+        final Map<BytesRef, VersionValue> snapshot = new HashMap<>();
+        for (Stripe stripe : stripes) {
+            stripe.copyTo(snapshot);
+        }
+        return Collections.unmodifiableMap(snapshot).entrySet();
+    }
+
+    @Override
+    public long ramBytesUsed() {
+        return ramBytesUsed.get();
+    }
+
+    private final class Stripe {
+
+        private final int expectedSize;
+        // entry + 1 for every slot of the hash table, 0 if the slot is empty
+        private int[] slots;
+        private int[] hashes;
+        private int[] keyOffsets;
+        // -1 if the entry was removed
+        private int[] keyLengths;
+        private long[] values;
+        private byte[] keyBytes;
+        private int keyBytesUsed;
+        private int numEntries;
+        private long arraysBytes;
+        // the number of live entries, written under lock
+        private volatile int size;
+
+        Stripe(int expectedSize) {
+            this.expectedSize = expectedSize;
+        }
+
+        synchronized VersionValue get(BytesRef uid, int hash) {
+            if (slots == null) {
+                return null;
+            }
+            final int entry = slots[findSlot(uid, hash)] - 1;
+            return entry == -1 ? null : read(entry);
+        }
+
+        synchronized VersionValue put(BytesRef uid, int hash, VersionValue value) {
+            if (slots == null) {
+                resize(Math.max(MIN_CAPACITY, BitUtil.nextHighestPowerOfTwo(expectedSize * 2)));
+            }
+            int slot = findSlot(uid, hash);
+            int entry = slots[slot] - 1;
+            if (entry >= 0) {
+                final VersionValue previous = read(entry);
+                write(entry, value);
+                return previous;
+            }
+            if (numEntries == hashes.length) {
+                // the table is half full, double it if all entries are live or reclaim the removed entries otherwise
+                resize(Math.max(MIN_CAPACITY, BitUtil.nextHighestPowerOfTwo((size + 1) * 3)));
+                slot = findSlot(uid, hash);
+            }
+            entry = numEntries++;
+            if (keyBytesUsed + uid.length > keyBytes.length) {
+                keyBytes = ArrayUtil.grow(keyBytes, keyBytesUsed + uid.length);
+                updateRamBytesUsed();
+            }
+            System.arraycopy(uid.bytes, uid.offset, keyBytes, keyBytesUsed, uid.length);
+            hashes[entry] = hash;
+            keyOffsets[entry] = keyBytesUsed;
+            keyLengths[entry] = uid.length;
+            keyBytesUsed += uid.length;
+            write(entry, value);
+            slots[slot] = entry + 1;
+            size++;
+            return null;
+        }
+
+        synchronized VersionValue remove(BytesRef uid, int hash) {
+            if (slots == null) {
+                return null;
+            }
+            final int slot = findSlot(uid, hash);
+            final int entry = slots[slot] - 1;
+            if (entry == -1) {
+                return null;
+            }
+            final VersionValue previous = read(entry);
+            keyLengths[entry] = -1;
+            size--;
+            // shift back the following slots of the cluster so that lookups don't stop at the hole
+            final int mask = slots.length - 1;
+            int hole = slot;
+            for (int next = (hole + 1) & mask; slots[next] != 0; next = (next + 1) & mask) {
+                final int ideal = hashes[slots[next] - 1] & mask;
+                if (((next - ideal) & mask) >= ((next - hole) & mask)) {
+                    slots[hole] = slots[next];
+                    hole = next;
+                }
+            }
+            slots[hole] = 0;
+            return previous;
+        }
+
+        synchronized void copyTo(Map<BytesRef, VersionValue> map) {
+            for (int entry = 0; entry < numEntries; entry++) {
+                if (keyLengths[entry] >= 0) {
+                    final int offset = keyOffsets[entry];
+                    map.put(new BytesRef(Arrays.copyOfRange(keyBytes, offset, offset + keyLengths[entry])), read(entry));
+                }
+            }
+        }
+
+        private int findSlot(BytesRef uid, int hash) {
+            // the load factor is at most 0.5 so there is always an empty slot
+            final int mask = slots.length - 1;
+            for (int slot = hash & mask; ; slot = (slot + 1) & mask) {
+                final int entry = slots[slot] - 1;
+                if (entry == -1 || (hashes[entry] == hash && keyEquals(entry, uid))) {
+                    return slot;
+                }
+            }
+        }
+
+        private boolean keyEquals(int entry, BytesRef uid) {
+            final int offset = keyOffsets[entry];
+            return keyLengths[entry] == uid.length
+                && FutureArrays.equals(keyBytes, offset, offset + uid.length, uid.bytes, uid.offset, uid.offset + uid.length);
+        }
+
+        private VersionValue read(int entry) {
+            final int base = entry * VALUES_PER_ENTRY;
+            final long generation = values[base + 3];
+            final Translog.Location location = generation == NO_LOCATION ? null
+                : new Translog.Location(generation, values[base + 4], (int) values[base + 5]);
+            return new IndexVersionValue(location, values[base], values[base + 1], values[base + 2]);
+        }
+
+        private void write(int entry, VersionValue value) {
+            final int base = entry * VALUES_PER_ENTRY;
+            values[base] = value.version;
+            values[base + 1] = value.seqNo;
+            values[base + 2] = value.term;
+            final Translog.Location location = value.getLocation();
+            if (location == null) {
+                values[base + 3] = NO_LOCATION;
+            } else {
+                assert location.generation != NO_LOCATION;
+                values[base + 3] = location.generation;
+                values[base + 4] = location.translogLocation;
+                values[base + 5] = location.size;
+            }
+        }
+
+        /**
+         * Rebuilds the hash table with the provided number of slots, compacting the live entries.
+         */
+        private void resize(int capacity) {
+            assert capacity > size * 2 && BitUtil.isZeroOrPowerOfTwo(capacity) : "capacity=" + capacity + ", size=" + size;
+            final int maxEntries = capacity / 2;
+            final int[] newSlots = new int[capacity];
+            final int[] newHashes = new int[maxEntries];
+            final int[] newKeyOffsets = new int[maxEntries];
+            final int[] newKeyLengths = new int[maxEntries];
+            final long[] newValues = new long[maxEntries * VALUES_PER_ENTRY];
+            int newKeyBytesUsed = 0;
+            for (int entry = 0; entry < numEntries; entry++) {
+                if (keyLengths[entry] >= 0) {
+                    newKeyBytesUsed += keyLengths[entry];
+                }
+            }
+            final byte[] newKeyBytes = new byte[Math.max(newKeyBytesUsed, maxEntries * 16)];
+            final int mask = capacity - 1;
+            int newNumEntries = 0;
+            newKeyBytesUsed = 0;
+            for (int entry = 0; entry < numEntries; entry++) {
+                if (keyLengths[entry] < 0) {
+                    continue;
+                }
+                final int newEntry = newNumEntries++;
+                newHashes[newEntry] = hashes[entry];
+                newKeyOffsets[newEntry] = newKeyBytesUsed;
+                newKeyLengths[newEntry] = keyLengths[entry];
+                System.arraycopy(keyBytes, keyOffsets[entry], newKeyBytes, newKeyBytesUsed, keyLengths[entry]);
+                newKeyBytesUsed += keyLengths[entry];
+                System.arraycopy(values, entry * VALUES_PER_ENTRY, newValues, newEntry * VALUES_PER_ENTRY, VALUES_PER_ENTRY);
+                int slot = hashes[entry] & mask;
+                while (newSlots[slot] != 0) {
+                    slot = (slot + 1) & mask;
+                }
+                newSlots[slot] = newEntry + 1;
+            }
+            assert newNumEntries == size;
+            slots = newSlots;
+            hashes = newHashes;
+            keyOffsets = newKeyOffsets;
+            keyLengths = newKeyLengths;
+            values = newValues;
+            keyBytes = newKeyBytes;
+            keyBytesUsed = newKeyBytesUsed;
+            numEntries = newNumEntries;
+            updateRamBytesUsed();
+        }
+
+        private void updateRamBytesUsed() {
+            final long newArraysBytes = RamUsageEstimator.sizeOf(slots) + RamUsageEstimator.sizeOf(hashes)
+                + RamUsageEstimator.sizeOf(keyOffsets) + RamUsageEstimator.sizeOf(keyLengths)
+                + RamUsageEstimator.sizeOf(values) + RamUsageEstimator.sizeOf(keyBytes);
+            ramBytesUsed.addAndGet(newArraysBytes - arraysBytes);
+            arraysBytes = newArraysBytes;
+        }
+    }
+}
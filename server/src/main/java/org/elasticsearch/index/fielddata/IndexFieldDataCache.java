@@ -55,6 +55,11 @@ public interface IndexFieldDataCache {
          * Called after the fielddata is unloaded
          */
         default void onRemoval(ShardId shardId, String fieldName, boolean wasEvicted, long sizeInBytes){}
+
+        /**
+         * Called after global ordinals are unloaded, in addition to {@link #onRemoval}
+         */
+        default void onGlobalOrdinalsRemoval(ShardId shardId, String fieldName, long sizeInBytes){}
     }
 
     class None implements IndexFieldDataCache {
@@ -22,6 +22,8 @@ package org.elasticsearch.index.fielddata;
 import org.apache.lucene.index.DirectoryReader;
 import org.apache.lucene.index.IndexReader;
 import org.apache.lucene.index.OrdinalMap;
+import org.elasticsearch.common.Nullable;
+import org.elasticsearch.index.fielddata.ordinals.ReusableOrdinalMap;
 
 
 /**
@@ -42,6 +44,15 @@ public interface IndexOrdinalsFieldData extends IndexFieldData.Global<LeafOrdina
     @Override
     IndexOrdinalsFieldData localGlobalDirect(DirectoryReader indexReader) throws Exception;
 
+    /**
+     * Load a global view of the ordinals for the given {@link IndexReader}, reusing the provided ordinal map of a
+     * previous reader of the same shard if it was built for the same segments.
+     */
+    default IndexOrdinalsFieldData localGlobalDirect(DirectoryReader indexReader, @Nullable ReusableOrdinalMap previous)
+            throws Exception {
+        return localGlobalDirect(indexReader);
+    }
+
     /**
      * Returns the underlying {@link OrdinalMap} for this fielddata
      * or null if global ordinals are not needed (constant value or single segment).
@@ -60,7 +60,10 @@ public final class GlobalOrdinalsIndexFieldData extends AbstractIndexComponent i
     private final String fieldName;
     private final ValuesSourceType valuesSourceType;
     private final long memorySizeInBytes;
+    private final long buildTimeInNanos;
+    private final boolean reused;
 
+    private final ReusableOrdinalMap reusableOrdinalMap;
     private final OrdinalMap ordinalMap;
     private final LeafOrdinalsFieldData[] segmentAfd;
     private final Function<SortedSetDocValues, ScriptDocValues<?>> scriptFunction;
@@ -69,18 +72,44 @@ public final class GlobalOrdinalsIndexFieldData extends AbstractIndexComponent i
                                            String fieldName,
                                            ValuesSourceType valuesSourceType,
                                            LeafOrdinalsFieldData[] segmentAfd,
-                                           OrdinalMap ordinalMap,
+                                           ReusableOrdinalMap ordinalMap,
                                            long memorySizeInBytes,
+                                           long buildTimeInNanos,
+                                           boolean reused,
                                            Function<SortedSetDocValues, ScriptDocValues<?>> scriptFunction) {
         super(indexSettings);
         this.fieldName = fieldName;
         this.valuesSourceType = valuesSourceType;
         this.memorySizeInBytes = memorySizeInBytes;
-        this.ordinalMap = ordinalMap;
+        this.buildTimeInNanos = buildTimeInNanos;
+        this.reused = reused;
+        this.reusableOrdinalMap = ordinalMap;
+        this.ordinalMap = ordinalMap.getOrdinalMap();
         this.segmentAfd = segmentAfd;
         this.scriptFunction = scriptFunction;
     }
 
+    /**
+     * The ordinal map of these global ordinals, which the global ordinals of a later reader over the same segments can reuse.
+     */
+    public ReusableOrdinalMap getReusableOrdinalMap() {
+        return reusableOrdinalMap;
+    }
+
+    /**
+     * Time it took to build these global ordinals, in nanoseconds.
+     */
+    public long getBuildTimeInNanos() {
+        return buildTimeInNanos;
+    }
+
+    /**
+     * Whether these global ordinals reuse the ordinal map of global ordinals that were built for a previous reader.
+     */
+    public boolean isReused() {
+        return reused;
+    }
+
     public IndexOrdinalsFieldData newConsumer(DirectoryReader source) {
         return new Consumer(source, indexSettings);
     }
@@ -0,0 +1,120 @@
+/*
+ * Licensed to Elasticsearch under one or more contributor
+ * license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright
+ * ownership. Elasticsearch licenses this file to you under
+ * the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.elasticsearch.index.fielddata.ordinals;
+
+import org.apache.lucene.index.IndexReader;
+import org.apache.lucene.index.OrdinalMap;
+import org.elasticsearch.common.Nullable;
+
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * An {@link OrdinalMap} together with the core cache keys of the segments that it was built for. Global ordinals only
+ * depend on the terms dictionaries of the segments, so a later reader over the same segments, for instance one that was
+ * reopened after documents got deleted, can reuse the map instead of merging all terms dictionaries again.
+ * <p>
+ * A reader that adds or merges segments, which is what most refreshes do, still builds a new map over all of its segments.
+ * Global ordinals are the dense ranks of the terms of all segments, so a new term shifts the global ordinal of every
+ * greater term and the mapping of every existing segment has to be rewritten anyway: merging only the new segments into
+ * the previous map would save the comparisons of the merge but not its linear cost. It would also need a replacement for
+ * Lucene's {@link OrdinalMap}, which can't be extended with new segments and which {@link
+ * org.elasticsearch.index.fielddata.IndexOrdinalsFieldData#getOrdinalMap()} exposes to aggregations and queries. Fields
+ * that are aggregated right after refreshes should rather use {@code eager_global_ordinals}, which moves the build from
+ * the search to the refresh.
+ * <p>
+ * The map is shared by the global ordinals that use it: it is charged to the fielddata circuit breaker once, by the
+ * global ordinals that built it, and released by the last global ordinals that stop using it.
+ */
+public final class ReusableOrdinalMap {
+
+    private final IndexReader.CacheKey[] coreKeys;
+    private final OrdinalMap ordinalMap;
+    private final long memorySizeInBytes;
+    // the builder holds the first reference
+    private final AtomicInteger refCount = new AtomicInteger(1);
+
+    ReusableOrdinalMap(IndexReader.CacheKey[] coreKeys, OrdinalMap ordinalMap, long memorySizeInBytes) {
+        this.coreKeys = coreKeys;
+        this.ordinalMap = ordinalMap;
+        this.memorySizeInBytes = memorySizeInBytes;
+    }
+
+    OrdinalMap getOrdinalMap() {
+        return ordinalMap;
+    }
+
+    /**
+     * The memory used by the ordinal map, which is accounted for once however many global ordinals use it.
+     */
+    public long getMemorySizeInBytes() {
+        return memorySizeInBytes;
+    }
+
+    /**
+     * Adds a reference to the ordinal map for global ordinals that reuse it, unless all of its references have already
+     * been released.
+     */
+    boolean tryAcquire() {
+        int count;
+        do {
+            count = refCount.get();
+            if (count == 0) {
+                return false;
+            }
+        } while (refCount.compareAndSet(count, count + 1) == false);
+        return true;
+    }
+
+    /**
+     * Releases a reference to the ordinal map once global ordinals that use it are removed from the cache, and returns
+     * whether it was the last one, in which case the memory of the map must be released from the circuit breaker.
+     */
+    public boolean release() {
+        final int count = refCount.decrementAndGet();
+        assert count >= 0 : "ordinal map released too many times";
+        return count == 0;
+    }
+
+    /**
+     * Returns whether the ordinal map can be used for the provided reader, which requires the reader to have exactly the
+     * same segments in the same order.
+     */
+    boolean canReuseFor(IndexReader reader) {
+        return coreKeys != null && Arrays.equals(coreKeys, coreKeys(reader));
+    }
+
+    /**
+     * Returns the core cache keys of the segments of the provided reader or {@code null} if one of them doesn't support
+     * caching.
+     */
+    @Nullable
+    static IndexReader.CacheKey[] coreKeys(IndexReader reader) {
+        final IndexReader.CacheKey[] keys = new IndexReader.CacheKey[reader.leaves().size()];
+        for (int i = 0; i < keys.length; i++) {
+            final IndexReader.CacheHelper cacheHelper = reader.leaves().get(i).reader().getCoreCacheHelper();
+            if (cacheHelper == null) {
+                return null;
+            }
+            keys[i] = cacheHelper.getKey();
+        }
+        return keys;
+    }
+}
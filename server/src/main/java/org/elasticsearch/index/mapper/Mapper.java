@@ -172,4 +172,13 @@ public abstract class Mapper implements ToXContentFragment, Iterable<Mapper> {
      *  Both {@code this} and {@code mergeWith} will be left unmodified. */
     public abstract Mapper merge(Mapper mergeWith);
 
+    /**
+     * Whether this mapper only depends on the mapping and the settings of the index that it was parsed for, so that indices with the
+     * same mapping and settings can share it, see {@link SharedMappings}. Mappers that hold on to services of their index, like its
+     * query shard context, must not be shared.
+     */
+    public boolean isShareable() {
+        return true;
+    }
+
 }
@@ -26,12 +26,16 @@ import org.elasticsearch.Assertions;
 import org.elasticsearch.Version;
 import org.elasticsearch.cluster.metadata.IndexMetadata;
 import org.elasticsearch.cluster.metadata.MappingMetadata;
+import org.elasticsearch.common.Nullable;
 import org.elasticsearch.common.Strings;
 import org.elasticsearch.common.compress.CompressedXContent;
+import org.elasticsearch.common.lease.Releasables;
 import org.elasticsearch.common.regex.Regex;
 import org.elasticsearch.common.settings.Setting;
 import org.elasticsearch.common.settings.Setting.Property;
 import org.elasticsearch.common.settings.Settings;
+import org.elasticsearch.common.util.concurrent.AbstractRefCounted;
+import org.elasticsearch.common.util.concurrent.RefCounted;
 import org.elasticsearch.common.xcontent.LoggingDeprecationHandler;
 import org.elasticsearch.common.xcontent.NamedXContentRegistry;
 import org.elasticsearch.common.xcontent.XContentFactory;
@@ -57,6 +61,7 @@ import org.elasticsearch.search.suggest.completion.context.ContextMapping;
 
 import java.io.Closeable;
 import java.io.IOException;
+import java.io.UncheckedIOException;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Collections;
@@ -64,6 +69,7 @@ import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.function.BooleanSupplier;
 import java.util.function.Function;
 import java.util.function.Supplier;
@@ -128,9 +134,38 @@ public class MapperService extends AbstractIndexComponent implements Closeable {
 
     private final BooleanSupplier idFieldDataEnabled;
 
+    @Nullable
+    private final SharedMappings sharedMappings;
+    private SharedMappings.Lease sharedMappingLease;
+    private final boolean hasReloadableAnalyzers;
+    private final AtomicBoolean closed = new AtomicBoolean();
+
+    /**
+     * The analyzers of this index are closed once this mapper service is closed and no index uses a shared mapping that this index
+     * parsed, since its mappers refer to these analyzers.
+     */
+    private final AbstractRefCounted analyzersRefCount = new AbstractRefCounted("index_analyzers") {
+        @Override
+        protected void closeInternal() {
+            try {
+                indexAnalyzers.close();
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+    };
+
     public MapperService(IndexSettings indexSettings, IndexAnalyzers indexAnalyzers, NamedXContentRegistry xContentRegistry,
                          SimilarityService similarityService, MapperRegistry mapperRegistry,
                          Supplier<QueryShardContext> queryShardContextSupplier, BooleanSupplier idFieldDataEnabled) {
+        this(indexSettings, indexAnalyzers, xContentRegistry, similarityService, mapperRegistry, queryShardContextSupplier,
+            idFieldDataEnabled, null);
+    }
+
+    public MapperService(IndexSettings indexSettings, IndexAnalyzers indexAnalyzers, NamedXContentRegistry xContentRegistry,
+                         SimilarityService similarityService, MapperRegistry mapperRegistry,
+                         Supplier<QueryShardContext> queryShardContextSupplier, BooleanSupplier idFieldDataEnabled,
+                         @Nullable SharedMappings sharedMappings) {
         super(indexSettings);
         this.indexVersionCreated = indexSettings.getIndexVersionCreated();
         this.indexAnalyzers = indexAnalyzers;
@@ -142,6 +177,9 @@ public class MapperService extends AbstractIndexComponent implements Closeable {
         this.searchQuoteAnalyzer = new MapperAnalyzerWrapper(indexAnalyzers.getDefaultSearchQuoteAnalyzer(), p -> p.searchQuoteAnalyzer());
         this.mapperRegistry = mapperRegistry;
         this.idFieldDataEnabled = idFieldDataEnabled;
+        this.sharedMappings = sharedMappings;
+        this.hasReloadableAnalyzers = indexAnalyzers.getAnalyzers().values().stream()
+            .anyMatch(analyzer -> analyzer.analyzer() instanceof ReloadableCustomAnalyzer);
     }
 
     public boolean hasNested() {
@@ -338,10 +376,42 @@ public class MapperService extends AbstractIndexComponent implements Closeable {
         DocumentMapper newMapper;
         if (oldMapper != null) {
             newMapper = oldMapper.merge(mapper.mapping());
+            if (reason != MergeReason.MAPPING_UPDATE_PREFLIGHT
+                && sharedMappingLease != null && sharedMappingLease.isOwnedBy(this) == false) {
+                // the merged mapping reuses mappers that another index parsed, parse it again so that this index only refers to its own
+                newMapper = parse(newMapper.type(), newMapper.mappingSource());
+            }
         } else {
             newMapper = mapper;
         }
 
+        final SharedMappings.Lease newSharedMappingLease;
+        if (sharedMappings != null && reason != MergeReason.MAPPING_UPDATE_PREFLIGHT) {
+            newSharedMappingLease = sharedMappings.acquire(this, newMapper);
+            if (newSharedMappingLease != null && newSharedMappingLease.mapping() != newMapper.mapping()) {
+                newMapper = new DocumentMapper(this, newSharedMappingLease.mapping());
+            }
+        } else {
+            newSharedMappingLease = null;
+        }
+        boolean success = false;
+        try {
+            newMapper = applyMerge(newMapper, reason, hasNested, fullPathObjectMappers, fieldTypes);
+            if (reason != MergeReason.MAPPING_UPDATE_PREFLIGHT) {
+                Releasables.close(sharedMappingLease);
+                sharedMappingLease = newSharedMappingLease;
+            }
+            success = true;
+            return newMapper;
+        } finally {
+            if (success == false) {
+                Releasables.close(newSharedMappingLease);
+            }
+        }
+    }
+
+    private DocumentMapper applyMerge(DocumentMapper newMapper, MergeReason reason, boolean hasNested,
+                                      Map<String, ObjectMapper> fullPathObjectMappers, FieldTypeLookup fieldTypes) {
         // check basic sanity of the new mapping
         List<ObjectMapper> objectMappers = new ArrayList<>();
         List<FieldMapper> fieldMappers = new ArrayList<>();
@@ -629,8 +699,26 @@ public class MapperService extends AbstractIndexComponent implements Closeable {
     }
 
     @Override
-    public void close() throws IOException {
-        indexAnalyzers.close();
+    public synchronized void close() throws IOException {
+        if (closed.compareAndSet(false, true)) {
+            try {
+                Releasables.close(sharedMappingLease);
+                sharedMappingLease = null;
+            } finally {
+                analyzersRefCount.decRef();
+            }
+        }
+    }
+
+    /**
+     * Whether this index has analyzers that can be reloaded, the mappers of such an index must refer to its own analyzers.
+     */
+    boolean hasReloadableAnalyzers() {
+        return hasReloadableAnalyzers;
+    }
+
+    RefCounted analyzersRefCount() {
+        return analyzersRefCount;
     }
 
     /**
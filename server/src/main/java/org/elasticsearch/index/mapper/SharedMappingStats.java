@@ -0,0 +1,95 @@
+/*
+ * Licensed to Elasticsearch under one or more contributor
+ * license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright
+ * ownership. Elasticsearch licenses this file to you under
+ * the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.elasticsearch.index.mapper;
+
+import org.elasticsearch.common.io.stream.StreamInput;
+import org.elasticsearch.common.io.stream.StreamOutput;
+import org.elasticsearch.common.io.stream.Writeable;
+import org.elasticsearch.common.xcontent.ToXContentFragment;
+import org.elasticsearch.common.xcontent.XContentBuilder;
+
+import java.io.IOException;
+
+/**
+ * Statistics about the parsed mappings that the indices of a node share, see {@link SharedMappings}.
+ */
+public class SharedMappingStats implements Writeable, ToXContentFragment {
+
+    private final long mappings;
+    private final long indices;
+    private final long sharedMappers;
+
+    public SharedMappingStats(long mappings, long indices, long sharedMappers) {
+        this.mappings = mappings;
+        this.indices = indices;
+        this.sharedMappers = sharedMappers;
+    }
+
+    public SharedMappingStats(StreamInput in) throws IOException {
+        mappings = in.readVLong();
+        indices = in.readVLong();
+        sharedMappers = in.readVLong();
+    }
+
+    @Override
+    public void writeTo(StreamOutput out) throws IOException {
+        out.writeVLong(mappings);
+        out.writeVLong(indices);
+        out.writeVLong(sharedMappers);
+    }
+
+    /**
+     * The number of distinct parsed mappings that are shared.
+     */
+    public long getMappings() {
+        return mappings;
+    }
+
+    /**
+     * The number of indices that use a shared mapping.
+     */
+    public long getIndices() {
+        return indices;
+    }
+
+    /**
+     * The number of mappers that indices would have held on to if they didn't share their mappings.
+     */
+    public long getSharedMappers() {
+        return sharedMappers;
+    }
+
+    @Override
+    public XContentBuilder toXContent(XContentBuilder builder, Params params) throws IOException {
+        builder.startObject(Fields.SHARED_MAPPINGS);
+        builder.field(Fields.MAPPINGS, mappings);
+        builder.field(Fields.INDICES, indices);
+        builder.field(Fields.SHARED_MAPPERS, sharedMappers);
+        builder.endObject();
+        return builder;
+    }
+
+    static final class Fields {
+        static final String SHARED_MAPPINGS = "shared_mappings";
+        static final String MAPPINGS = "mappings";
+        static final String INDICES = "indices";
+        static final String SHARED_MAPPERS = "shared_mappers";
+    }
+}
@@ -0,0 +1,232 @@
+/*
+ * Licensed to Elasticsearch under one or more contributor
+ * license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright
+ * ownership. Elasticsearch licenses this file to you under
+ * the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.elasticsearch.index.mapper;
+
+import org.elasticsearch.cluster.metadata.IndexMetadata;
+import org.elasticsearch.common.Nullable;
+import org.elasticsearch.common.compress.CompressedXContent;
+import org.elasticsearch.common.lease.Releasable;
+import org.elasticsearch.common.settings.Setting;
+import org.elasticsearch.common.settings.Setting.Property;
+import org.elasticsearch.common.settings.Settings;
+import org.elasticsearch.common.util.concurrent.RefCounted;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Shares the parsed mappings of the indices of a node. Indices that are created from the same template usually have identical
+ * mappings, and parsing identical mappings with the same settings gives identical mappers, so indices whose mapping source and
+ * mapping related settings are equal share a single {@link Mapping}. Mappers are immutable and merging a mapping update builds new
+ * mappers, so an index whose mapping changes moves to another shared mapping without affecting the indices that it shared with.
+ * <p>
+ * The mappers of a shared mapping hold on to the analyzers of the index that parsed it first, so the analyzers of that index are only
+ * closed once no index uses the mapping any more, see {@link MapperService#close()}. Indices whose analyzers can be reloaded or read
+ * files don't share their mappings, so that they always use analyzers of their own.
+ */
+public final class SharedMappings {
+
+    public static final Setting<Boolean> SHARE_PARSED_MAPPINGS_SETTING =
+        Setting.boolSetting("indices.mapping.share_parsed_mappings", true, Property.NodeScope);
+
+    private final boolean enabled;
+    private final Map<Key, Entry> entries = new HashMap<>();
+
+    public SharedMappings(Settings settings) {
+        this.enabled = SHARE_PARSED_MAPPINGS_SETTING.get(settings);
+    }
+
+    /**
+     * Returns a lease on the shared mapping that is equal to the mapping of the given mapper, registering the mapping of the mapper as
+     * the shared one if there is none yet. Returns {@code null} if the mapping can't be shared.
+     */
+    @Nullable
+    synchronized Lease acquire(MapperService mapperService, DocumentMapper mapper) {
+        if (enabled == false
+            || mapperService.hasReloadableAnalyzers()
+            || readsAnalysisFiles(mapperService.getIndexSettings().getSettings())) {
+            return null;
+        }
+        final Key key = new Key(mapper.mappingSource(), mappingSettings(mapperService.getIndexSettings().getSettings()));
+        Entry entry = entries.get(key);
+        if (entry == null) {
+            final int numMappers = countShareableMappers(mapper.mapping());
+            if (numMappers < 0 || mapperService.analyzersRefCount().tryIncRef() == false) {
+                return null;
+            }
+            entry = new Entry(key, mapper.mapping(), mapperService.analyzersRefCount(), numMappers);
+            entries.put(key, entry);
+        }
+        entry.users++;
+        return new Lease(entry);
+    }
+
+    private synchronized void release(Entry entry) {
+        assert entry.users > 0 : "shared mapping released more often than acquired";
+        if (--entry.users == 0) {
+            final Entry removed = entries.remove(entry.key);
+            assert removed == entry;
+            entry.analyzers.decRef();
+        }
+    }
+
+    public synchronized SharedMappingStats stats() {
+        long indices = 0;
+        long sharedMappers = 0;
+        for (Entry entry : entries.values()) {
+            indices += entry.users;
+            sharedMappers += (entry.users - 1L) * entry.numMappers;
+        }
+        return new SharedMappingStats(entries.size(), indices, sharedMappers);
+    }
+
+    /**
+     * The index settings that the mappers of an index are built with. Other settings, like the number of replicas or allocation
+     * filters, often differ between indices with the same mapping and are ignored.
+     */
+    static Settings mappingSettings(Settings indexSettings) {
+        return indexSettings.filter(key -> key.equals(IndexMetadata.SETTING_VERSION_CREATED)
+            || key.startsWith("index.analysis.")
+            || key.startsWith("index.similarity.")
+            || key.startsWith("index.mapping."));
+    }
+
+    /**
+     * Whether the analysis chain of an index reads files of the config directory, like synonyms, stop words or hunspell dictionaries.
+     * Analyzers read these files when their index is created or opened, so the indices that use them don't share the analyzers of
+     * another index, which may have read an older version of the files.
+     */
+    static boolean readsAnalysisFiles(Settings indexSettings) {
+        final Settings analysisSettings = indexSettings.getByPrefix("index.analysis.");
+        for (String key : analysisSettings.keySet()) {
+            if (key.endsWith("_path") // synonyms_path, stopwords_path, keywords_path, rules_path, mappings_path and the like
+                || key.endsWith(".user_dictionary")
+                || key.endsWith(".rule_files")
+                || (key.endsWith(".type") && "hunspell".equals(analysisSettings.get(key)))) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Returns the number of mappers of the given mapping, or {@code -1} if one of them can't be shared.
+     */
+    private static int countShareableMappers(Mapping mapping) {
+        int count = 0;
+        for (MetadataFieldMapper metadataMapper : mapping.metadataMappers) {
+            if (metadataMapper.isShareable() == false) {
+                return -1;
+            }
+            count++;
+        }
+        final int rootMappers = countShareableMappers(mapping.root());
+        return rootMappers < 0 ? -1 : count + rootMappers;
+    }
+
+    private static int countShareableMappers(Mapper mapper) {
+        if (mapper.isShareable() == false) {
+            return -1;
+        }
+        int count = 1;
+        for (Mapper child : mapper) {
+            final int childMappers = countShareableMappers(child);
+            if (childMappers < 0) {
+                return -1;
+            }
+            count += childMappers;
+        }
+        return count;
+    }
+
+    /**
+     * A reference to a shared mapping that an index holds for as long as it uses the mapping.
+     */
+    final class Lease implements Releasable {
+        private final Entry entry;
+        private final AtomicBoolean closed = new AtomicBoolean();
+
+        private Lease(Entry entry) {
+            this.entry = entry;
+        }
+
+        Mapping mapping() {
+            return entry.mapping;
+        }
+
+        /**
+         * Whether the shared mapping was parsed by the given mapper service, and so only refers to its analyzers.
+         */
+        boolean isOwnedBy(MapperService mapperService) {
+            return entry.analyzers == mapperService.analyzersRefCount();
+        }
+
+        @Override
+        public void close() {
+            if (closed.compareAndSet(false, true)) {
+                release(entry);
+            }
+        }
+    }
+
+    private static final class Entry {
+        private final Key key;
+        private final Mapping mapping;
+        private final RefCounted analyzers;
+        private final int numMappers;
+        private int users;
+
+        private Entry(Key key, Mapping mapping, RefCounted analyzers, int numMappers) {
+            this.key = key;
+            this.mapping = mapping;
+            this.analyzers = analyzers;
+            this.numMappers = numMappers;
+        }
+    }
+
+    private static final class Key {
+        private final CompressedXContent source;
+        private final Settings settings;
+
+        private Key(CompressedXContent source, Settings settings) {
+            this.source = source;
+            this.settings = settings;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) {
+                return true;
+            }
+            if (o == null || getClass() != o.getClass()) {
+                return false;
+            }
+            final Key key = (Key) o;
+            return source.equals(key.source) && settings.equals(key.settings);
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(source, settings);
+        }
+    }
+}
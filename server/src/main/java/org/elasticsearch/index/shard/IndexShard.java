@@ -54,6 +54,7 @@ import org.elasticsearch.action.support.replication.ReplicationResponse;
 import org.elasticsearch.cluster.metadata.IndexMetadata;
 import org.elasticsearch.cluster.metadata.MappingMetadata;
 import org.elasticsearch.cluster.routing.IndexShardRoutingTable;
+import org.elasticsearch.cluster.routing.Murmur3HashFunction;
 import org.elasticsearch.cluster.routing.RecoverySource;
 import org.elasticsearch.cluster.routing.RecoverySource.SnapshotRecoverySource;
 import org.elasticsearch.cluster.routing.ShardRouting;
@@ -75,6 +76,8 @@ import org.elasticsearch.common.unit.TimeValue;
 import org.elasticsearch.common.util.BigArrays;
 import org.elasticsearch.common.util.concurrent.AbstractRunnable;
 import org.elasticsearch.common.util.concurrent.AsyncIOProcessor;
+import org.elasticsearch.common.util.concurrent.EsExecutors;
+import org.elasticsearch.common.util.concurrent.FutureUtils;
 import org.elasticsearch.common.util.concurrent.RunOnce;
 import org.elasticsearch.common.util.concurrent.ThreadContext;
 import org.elasticsearch.common.xcontent.XContentHelper;
@@ -169,6 +172,8 @@ import java.util.Optional;
 import java.util.Set;
 import java.util.concurrent.CopyOnWriteArrayList;
 import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Future;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.TimeoutException;
 import java.util.concurrent.atomic.AtomicBoolean;
@@ -310,7 +315,9 @@ public class IndexShard extends AbstractIndexShardComponent implements IndicesCl
         this.indexSortSupplier = indexSortSupplier;
         this.indexEventListener = indexEventListener;
         this.threadPool = threadPool;
-        this.translogSyncProcessor = createTranslogSyncProcessor(logger, threadPool.getThreadContext(), this::getEngine);
+        this.translogSyncProcessor = createTranslogSyncProcessor(logger, threadPool.getThreadContext(), this::getEngine,
+            () -> this.indexSettings.isTranslogDedicatedSync()
+                ? threadPool.executor(ThreadPool.Names.TRANSLOG_SYNC) : EsExecutors.newDirectExecutorService());
         this.mapperService = mapperService;
         this.indexCache = indexCache;
         this.internalIndexingStats = new InternalIndexingStats();
@@ -1419,8 +1426,7 @@ public class IndexShard extends AbstractIndexShardComponent implements IndicesCl
             try {
                 final Engine.TranslogRecoveryRunner translogRecoveryRunner = (engine, snapshot) -> {
                     recoveryState.getTranslog().totalLocal(snapshot.totalOperations());
-                    final int recoveredOps = runTranslogRecovery(engine, snapshot, Engine.Operation.Origin.LOCAL_TRANSLOG_RECOVERY,
-                        recoveryState.getTranslog()::incrementRecoveredOperations);
+                    final int recoveredOps = replayLocalTranslog(engine, snapshot);
                     recoveryState.getTranslog().totalLocal(recoveredOps); // adjust the total local to reflect the actual count
                     return recoveredOps;
                 };
@@ -1509,6 +1515,25 @@ public class IndexShard extends AbstractIndexShardComponent implements IndicesCl
         return result;
     }
 
+    /**
+     * The number of translog operations that each thread replays per batch when the local translog is replayed concurrently.
+     */
+    static final int TRANSLOG_RECOVERY_BATCH_SIZE = 1024;
+
+    /**
+     * Replays the operations of the local translog with the {@link IndexSettings#getTranslogRecoveryConcurrency() configured number of
+     * threads} and records the throughput of the replay in the {@link RecoveryState.Translog translog recovery state}.
+     */
+    private int replayLocalTranslog(Engine engine, Translog.Snapshot snapshot) throws IOException {
+        final RecoveryState.Translog translogRecoveryStats = recoveryState.getTranslog();
+        final int concurrency = indexSettings.getTranslogRecoveryConcurrency();
+        final long startTimeInNanos = System.nanoTime();
+        final int recoveredOps = runTranslogRecovery(engine, snapshot, Engine.Operation.Origin.LOCAL_TRANSLOG_RECOVERY,
+            translogRecoveryStats::incrementRecoveredOperations, concurrency);
+        translogRecoveryStats.addReplay(concurrency, recoveredOps, System.nanoTime() - startTimeInNanos);
+        return recoveredOps;
+    }
+
     /**
      * Replays translog operations from the provided translog {@code snapshot} to the current engine using the given {@code origin}.
      * The callback {@code onOperationRecovered} is notified after each translog operation is replayed successfully.
@@ -1518,35 +1543,133 @@ public class IndexShard extends AbstractIndexShardComponent implements IndicesCl
         int opsRecovered = 0;
         Translog.Operation operation;
         while ((operation = snapshot.next()) != null) {
-            try {
-                logger.trace("[translog] recover op {}", operation);
-                Engine.Result result = applyTranslogOperation(engine, operation, origin);
-                switch (result.getResultType()) {
-                    case FAILURE:
-                        throw result.getFailure();
-                    case MAPPING_UPDATE_REQUIRED:
-                        throw new IllegalArgumentException("unexpected mapping update: " + result.getRequiredMappingUpdate());
-                    case SUCCESS:
-                        break;
-                    default:
-                        throw new AssertionError("Unknown result type [" + result.getResultType() + "]");
-                }
-
+            if (recoverTranslogOperation(engine, operation, origin)) {
                 opsRecovered++;
                 onOperationRecovered.run();
-            } catch (Exception e) {
-                // TODO: Don't enable this leniency unless users explicitly opt-in
-                if (origin == Engine.Operation.Origin.LOCAL_TRANSLOG_RECOVERY && ExceptionsHelper.status(e) == RestStatus.BAD_REQUEST) {
-                    // mainly for MapperParsingException and Failure to detect xcontent
-                    logger.info("ignoring recovery of a corrupt translog entry", e);
-                } else {
-                    throw ExceptionsHelper.convertToRuntime(e);
+            }
+        }
+        return opsRecovered;
+    }
+
+    /**
+     * Replays translog operations from the provided translog {@code snapshot} to the current engine using the given {@code origin}
+     * and up to {@code concurrency} threads of the generic thread pool. The operations are read in batches that are partitioned by
+     * the hash of their id, so that all operations on a document are replayed in order by the same thread, and the next batch is
+     * only read once all the operations of the current batch are replayed. The callback {@code onOperationRecovered} is notified
+     * after each translog operation is replayed successfully, possibly concurrently.
+     */
+    int runTranslogRecovery(Engine engine, Translog.Snapshot snapshot, Engine.Operation.Origin origin,
+                            Runnable onOperationRecovered, int concurrency) throws IOException {
+        assert concurrency >= 1 : concurrency;
+        if (concurrency == 1) {
+            return runTranslogRecovery(engine, snapshot, origin, onOperationRecovered);
+        }
+        final List<List<Translog.Operation>> partitions = new ArrayList<>(concurrency);
+        for (int i = 0; i < concurrency; i++) {
+            partitions.add(new ArrayList<>(TRANSLOG_RECOVERY_BATCH_SIZE));
+        }
+        int opsRecovered = 0;
+        boolean exhausted = false;
+        while (exhausted == false) {
+            int batchSize = 0;
+            Translog.Operation operation = null;
+            while (batchSize < TRANSLOG_RECOVERY_BATCH_SIZE * concurrency && (operation = snapshot.next()) != null) {
+                partitions.get(translogRecoveryPartition(operation, concurrency)).add(operation);
+                batchSize++;
+            }
+            exhausted = operation == null;
+            if (batchSize > 0) {
+                opsRecovered += replayTranslogOperations(engine, partitions, origin, onOperationRecovered);
+                for (List<Translog.Operation> partition : partitions) {
+                    partition.clear();
                 }
             }
         }
         return opsRecovered;
     }
 
+    private static int translogRecoveryPartition(Translog.Operation operation, int concurrency) {
+        final int hash;
+        switch (operation.opType()) {
+            case INDEX:
+                hash = Murmur3HashFunction.hash(((Translog.Index) operation).id());
+                break;
+            case DELETE:
+                hash = Murmur3HashFunction.hash(((Translog.Delete) operation).id());
+                break;
+            case NO_OP:
+                // no-ops don't touch any document
+                hash = Long.hashCode(operation.seqNo());
+                break;
+            default:
+                throw new IllegalStateException("No operation defined for [" + operation + "]");
+        }
+        return Math.floorMod(hash, concurrency);
+    }
+
+    private int replayTranslogOperations(Engine engine, List<List<Translog.Operation>> partitions, Engine.Operation.Origin origin,
+                                         Runnable onOperationRecovered) {
+        final List<Future<Integer>> futures = new ArrayList<>(partitions.size());
+        for (List<Translog.Operation> partition : partitions) {
+            if (partition.isEmpty() == false) {
+                futures.add(threadPool.generic().submit(() -> {
+                    int opsRecovered = 0;
+                    for (Translog.Operation operation : partition) {
+                        if (recoverTranslogOperation(engine, operation, origin)) {
+                            opsRecovered++;
+                            onOperationRecovered.run();
+                        }
+                    }
+                    return opsRecovered;
+                }));
+            }
+        }
+        // wait for all partitions, even if one of them failed, so that no operation is replayed after we return
+        int opsRecovered = 0;
+        Exception failure = null;
+        for (Future<Integer> future : futures) {
+            try {
+                opsRecovered += FutureUtils.get(future);
+            } catch (Exception e) {
+                failure = ExceptionsHelper.useOrSuppress(failure, e);
+            }
+        }
+        if (failure != null) {
+            throw ExceptionsHelper.convertToRuntime(failure);
+        }
+        return opsRecovered;
+    }
+
+    /**
+     * Replays a single translog operation, returns {@code false} if a corrupt operation was ignored.
+     */
+    private boolean recoverTranslogOperation(Engine engine, Translog.Operation operation, Engine.Operation.Origin origin) {
+        try {
+            logger.trace("[translog] recover op {}", operation);
+            Engine.Result result = applyTranslogOperation(engine, operation, origin);
+            switch (result.getResultType()) {
+                case FAILURE:
+                    throw result.getFailure();
+                case MAPPING_UPDATE_REQUIRED:
+                    throw new IllegalArgumentException("unexpected mapping update: " + result.getRequiredMappingUpdate());
+                case SUCCESS:
+                    break;
+                default:
+                    throw new AssertionError("Unknown result type [" + result.getResultType() + "]");
+            }
+            return true;
+        } catch (Exception e) {
+            // TODO: Don't enable this leniency unless users explicitly opt-in
+            if (origin == Engine.Operation.Origin.LOCAL_TRANSLOG_RECOVERY && ExceptionsHelper.status(e) == RestStatus.BAD_REQUEST) {
+                // mainly for MapperParsingException and Failure to detect xcontent
+                logger.info("ignoring recovery of a corrupt translog entry", e);
+                return false;
+            } else {
+                throw ExceptionsHelper.convertToRuntime(e);
+            }
+        }
+    }
+
     private void loadGlobalCheckpointToReplicationTracker() throws IOException {
         // we have to set it before we open an engine and recover from the translog because
         // acquiring a snapshot from the translog causes a sync which causes the global checkpoint to be pulled in,
@@ -1568,8 +1691,7 @@ public class IndexShard extends AbstractIndexShardComponent implements IndicesCl
         final Engine.TranslogRecoveryRunner translogRecoveryRunner = (engine, snapshot) -> {
             translogRecoveryStats.totalOperations(snapshot.totalOperations());
             translogRecoveryStats.totalOperationsOnStart(snapshot.totalOperations());
-            return runTranslogRecovery(engine, snapshot, Engine.Operation.Origin.LOCAL_TRANSLOG_RECOVERY,
-                translogRecoveryStats::incrementRecoveredOperations);
+            return replayLocalTranslog(engine, snapshot);
         };
         loadGlobalCheckpointToReplicationTracker();
         innerOpenEngineAndTranslog(replicationTracker);
@@ -3014,8 +3136,14 @@ public class IndexShard extends AbstractIndexShardComponent implements IndicesCl
     private final AsyncIOProcessor<Translog.Location> translogSyncProcessor;
 
     private static AsyncIOProcessor<Translog.Location> createTranslogSyncProcessor(Logger logger, ThreadContext threadContext,
-                                                                                   Supplier<Engine> engineSupplier) {
+                                                                                   Supplier<Engine> engineSupplier,
+                                                                                   Supplier<Executor> executorSupplier) {
         return new AsyncIOProcessor<>(logger, 1024, threadContext) {
+            @Override
+            protected Executor getExecutor() {
+                return executorSupplier.get();
+            }
+
             @Override
             protected void write(List<Tuple<Translog.Location, Consumer<Exception>>> candidates) throws IOException {
                 try {
@@ -3034,7 +3162,9 @@ public class IndexShard extends AbstractIndexShardComponent implements IndicesCl
     /**
      * Syncs the given location with the underlying storage unless already synced. This method might return immediately without
      * actually fsyncing the location until the sync listener is called. Yet, unless there is already another thread fsyncing
-     * the transaction log the caller thread will be hijacked to run the fsync for all pending fsync operations.
+     * the transaction log the caller thread will be hijacked to run the fsync for all pending fsync operations, or the fsync
+     * is forked to the {@link ThreadPool.Names#TRANSLOG_SYNC} thread-pool if {@link IndexSettings#INDEX_TRANSLOG_DEDICATED_SYNC_SETTING}
+     * is set, in which case the listener is notified on that thread-pool.
      * This method allows indexing threads to continue indexing without blocking on fsync calls. We ensure that there is only
      * one thread blocking on the sync an all others can continue indexing.
      * NOTE: if the syncListener throws an exception when it's processed the exception will only be logged. Users should make sure that the
@@ -34,6 +34,13 @@ abstract class AbstractIndexShardCacheEntity implements IndicesRequestCache.Cach
      */
     protected abstract ShardRequestCache stats();
 
+    /**
+     * Returns <code>true</code> iff the entries of this entity hold the result of a single segment.
+     */
+    protected boolean isSegmentLevel() {
+        return false;
+    }
+
     @Override
     public final void onCached(IndicesRequestCache.Key key, BytesReference value) {
         stats().onCached(key, value);
@@ -41,12 +48,20 @@ abstract class AbstractIndexShardCacheEntity implements IndicesRequestCache.Cach
 
     @Override
     public final void onHit() {
-        stats().onHit();
+        if (isSegmentLevel()) {
+            stats().onSegmentHit();
+        } else {
+            stats().onHit();
+        }
     }
 
     @Override
     public final void onMiss() {
-        stats().onMiss();
+        if (isSegmentLevel()) {
+            stats().onSegmentMiss();
+        } else {
+            stats().onMiss();
+        }
     }
 
     @Override
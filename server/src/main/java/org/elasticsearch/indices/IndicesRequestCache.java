@@ -26,13 +26,14 @@ import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 import org.apache.lucene.index.DirectoryReader;
 import org.apache.lucene.index.IndexReader;
+import org.apache.lucene.index.LeafReader;
 import org.apache.lucene.util.Accountable;
 import org.apache.lucene.util.RamUsageEstimator;
 import org.elasticsearch.common.CheckedSupplier;
 import org.elasticsearch.common.bytes.BytesReference;
-import org.elasticsearch.common.cache.Cache;
 import org.elasticsearch.common.cache.CacheBuilder;
 import org.elasticsearch.common.cache.CacheLoader;
+import org.elasticsearch.common.cache.ConcurrentCache;
 import org.elasticsearch.common.cache.RemovalListener;
 import org.elasticsearch.common.cache.RemovalNotification;
 import org.elasticsearch.common.lucene.index.ElasticsearchDirectoryReader;
@@ -51,6 +52,7 @@ import java.util.Iterator;
 import java.util.Objects;
 import java.util.Set;
 import java.util.concurrent.ConcurrentMap;
+import java.util.function.Consumer;
 import java.util.function.Supplier;
 
 /**
@@ -76,16 +78,36 @@ public final class IndicesRequestCache implements RemovalListener<IndicesRequest
      */
     public static final Setting<Boolean> INDEX_CACHE_REQUEST_ENABLED_SETTING =
         Setting.boolSetting("index.requests.cache.enable", true, Property.Dynamic, Property.IndexScope);
+    /**
+     * A setting to cache the results of eligible aggregation requests per segment rather than per shard, so that a refresh
+     * only invalidates the results of the segments that changed.
+     */
+    public static final Setting<Boolean> INDEX_CACHE_REQUEST_PER_SEGMENT_SETTING =
+        Setting.boolSetting("index.requests.cache.per_segment", false, Property.Dynamic, Property.IndexScope);
     public static final Setting<ByteSizeValue> INDICES_CACHE_QUERY_SIZE =
         Setting.memorySizeSetting("indices.requests.cache.size", "1%", Property.NodeScope);
     public static final Setting<TimeValue> INDICES_CACHE_QUERY_EXPIRE =
         Setting.positiveTimeSetting("indices.requests.cache.expire", new TimeValue(0), Property.NodeScope);
+    /**
+     * The eviction policy of the cache: {@code lru} evicts the least recently used entries, while {@code tiny_lfu} uses a
+     * {@link CacheBuilder#buildTinyLfu() cache} that doesn't lock on reads and that keeps frequently used entries when it
+     * is flooded with entries that are only used once.
+     */
+    public static final Setting<String> INDICES_CACHE_QUERY_POLICY = new Setting<>("indices.requests.cache.policy", "lru", (s) -> {
+        switch (s) {
+            case "lru":
+            case "tiny_lfu":
+                return s;
+            default:
+                throw new IllegalArgumentException("indices.requests.cache.policy must be one of [lru, tiny_lfu] but was: " + s);
+        }
+    }, Property.NodeScope);
 
     private final ConcurrentMap<CleanupKey, Boolean> registeredClosedListeners = ConcurrentCollections.newConcurrentMap();
     private final Set<CleanupKey> keysToClean = ConcurrentCollections.newConcurrentSet();
     private final ByteSizeValue size;
     private final TimeValue expire;
-    private final Cache<Key, BytesReference> cache;
+    private final ConcurrentCache<Key, BytesReference> cache;
 
     IndicesRequestCache(Settings settings) {
         this.size = INDICES_CACHE_QUERY_SIZE.get(settings);
@@ -96,7 +118,7 @@ public final class IndicesRequestCache implements RemovalListener<IndicesRequest
         if (expire != null) {
             cacheBuilder.setExpireAfterAccess(expire);
         }
-        cache = cacheBuilder.build();
+        cache = "tiny_lfu".equals(INDICES_CACHE_QUERY_POLICY.get(settings)) ? cacheBuilder.buildTinyLfu() : cacheBuilder.build();
     }
 
     @Override
@@ -129,14 +151,8 @@ public final class IndicesRequestCache implements RemovalListener<IndicesRequest
                 logger.trace("Cache miss for reader version [{}], max_doc[{}] and request:\n {}",
                     reader.getVersion(), reader.maxDoc(), cacheKeyRenderer.get());
             }
-            // see if its the first time we see this reader, and make sure to register a cleanup key
-            CleanupKey cleanupKey = new CleanupKey(cacheEntity, reader.getReaderCacheHelper().getKey());
-            if (!registeredClosedListeners.containsKey(cleanupKey)) {
-                Boolean previous = registeredClosedListeners.putIfAbsent(cleanupKey, Boolean.TRUE);
-                if (previous == null) {
-                    ElasticsearchDirectoryReader.addReaderCloseListener(reader, cleanupKey);
-                }
-            }
+            registerClosedListener(cacheEntity, reader.getReaderCacheHelper().getKey(),
+                cleanupKey -> ElasticsearchDirectoryReader.addReaderCloseListener(reader, cleanupKey));
         } else {
             key.entity.onHit();
             if (logger.isTraceEnabled()) {
@@ -147,6 +163,47 @@ public final class IndicesRequestCache implements RemovalListener<IndicesRequest
         return value;
     }
 
+    /**
+     * Same as {@link #getOrCompute(CacheEntity, CheckedSupplier, DirectoryReader, BytesReference, Supplier)} but for the
+     * result of a single segment. The entry is keyed on the segment's reader, so it survives refreshes until the segment
+     * is merged away or its deletes change.
+     */
+    BytesReference getOrCompute(CacheEntity cacheEntity, CheckedSupplier<BytesReference, IOException> loader,
+                                LeafReader reader, BytesReference cacheKey, Supplier<String> cacheKeyRenderer) throws Exception {
+        final IndexReader.CacheHelper cacheHelper = reader.getReaderCacheHelper();
+        assert cacheHelper != null;
+        final Key key =  new Key(cacheEntity, cacheHelper.getKey(), cacheKey);
+        Loader cacheLoader = new Loader(cacheEntity, loader);
+        BytesReference value = cache.computeIfAbsent(key, cacheLoader);
+        if (cacheLoader.isLoaded()) {
+            key.entity.onMiss();
+            if (logger.isTraceEnabled()) {
+                logger.trace("Cache miss for segment [{}], max_doc[{}] and request:\n {}",
+                    reader, reader.maxDoc(), cacheKeyRenderer.get());
+            }
+            registerClosedListener(cacheEntity, cacheHelper.getKey(), cacheHelper::addClosedListener);
+        } else {
+            key.entity.onHit();
+            if (logger.isTraceEnabled()) {
+                logger.trace("Cache hit for segment [{}], max_doc[{}] and request:\n {}",
+                    reader, reader.maxDoc(), cacheKeyRenderer.get());
+            }
+        }
+        return value;
+    }
+
+    private void registerClosedListener(CacheEntity cacheEntity, IndexReader.CacheKey readerCacheKey,
+                                        Consumer<CleanupKey> addClosedListener) {
+        // see if its the first time we see this reader, and make sure to register a cleanup key
+        CleanupKey cleanupKey = new CleanupKey(cacheEntity, readerCacheKey);
+        if (!registeredClosedListeners.containsKey(cleanupKey)) {
+            Boolean previous = registeredClosedListeners.putIfAbsent(cleanupKey, Boolean.TRUE);
+            if (previous == null) {
+                addClosedListener.accept(cleanupKey);
+            }
+        }
+    }
+
     /**
      * Invalidates the given the cache entry for the given key and it's context
      * @param cacheEntity the cache entity to invalidate for
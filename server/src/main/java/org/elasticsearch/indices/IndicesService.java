@@ -24,6 +24,7 @@ import org.apache.logging.log4j.Logger;
 import org.apache.logging.log4j.message.ParameterizedMessage;
 import org.apache.lucene.index.DirectoryReader;
 import org.apache.lucene.index.IndexReader.CacheHelper;
+import org.apache.lucene.index.LeafReaderContext;
 import org.apache.lucene.store.AlreadyClosedException;
 import org.apache.lucene.util.CollectionUtil;
 import org.apache.lucene.util.RamUsageEstimator;
@@ -46,7 +47,6 @@ import org.elasticsearch.cluster.routing.ShardRouting;
 import org.elasticsearch.cluster.service.ClusterService;
 import org.elasticsearch.common.CheckedConsumer;
 import org.elasticsearch.common.CheckedFunction;
-import org.elasticsearch.common.CheckedSupplier;
 import org.elasticsearch.common.Nullable;
 import org.elasticsearch.common.breaker.CircuitBreaker;
 import org.elasticsearch.common.bytes.BytesReference;
@@ -101,6 +101,8 @@ import org.elasticsearch.index.flush.FlushStats;
 import org.elasticsearch.index.get.GetStats;
 import org.elasticsearch.index.mapper.IdFieldMapper;
 import org.elasticsearch.index.mapper.MapperService;
+import org.elasticsearch.index.mapper.SharedMappingStats;
+import org.elasticsearch.index.mapper.SharedMappings;
 import org.elasticsearch.index.merge.MergeStats;
 import org.elasticsearch.index.query.QueryBuilder;
 import org.elasticsearch.index.query.QueryRewriteContext;
@@ -128,10 +130,12 @@ import org.elasticsearch.plugins.IndexStorePlugin;
 import org.elasticsearch.plugins.PluginsService;
 import org.elasticsearch.repositories.RepositoriesService;
 import org.elasticsearch.script.ScriptService;
+import org.elasticsearch.search.aggregations.InternalAggregation;
 import org.elasticsearch.search.aggregations.support.ValuesSourceRegistry;
 import org.elasticsearch.search.internal.AliasFilter;
 import org.elasticsearch.search.internal.SearchContext;
 import org.elasticsearch.search.internal.ShardSearchRequest;
+import org.elasticsearch.search.query.PerSegmentQueryPhase;
 import org.elasticsearch.search.query.QueryPhase;
 import org.elasticsearch.search.query.QuerySearchResult;
 import org.elasticsearch.threadpool.ThreadPool;
@@ -169,6 +173,7 @@ import static java.util.Collections.unmodifiableMap;
 import static org.elasticsearch.common.util.CollectionUtils.arrayAsArrayList;
 import static org.elasticsearch.common.util.concurrent.EsExecutors.daemonThreadFactory;
 import static org.elasticsearch.index.IndexService.IndexCreationContext.CREATE_INDEX;
+import static org.elasticsearch.index.IndexService.IndexCreationContext.CREATE_TEMPORARY_INDEX;
 import static org.elasticsearch.index.IndexService.IndexCreationContext.METADATA_VERIFICATION;
 import static org.elasticsearch.index.query.AbstractQueryBuilder.parseInnerQueryBuilder;
 import static org.elasticsearch.search.SearchService.ALLOW_EXPENSIVE_QUERIES;
@@ -213,6 +218,7 @@ public class IndicesService extends AbstractLifecycleComponent
     private final AtomicInteger numUncompletedDeletes = new AtomicInteger();
     private final OldShardsStats oldShardsStats = new OldShardsStats();
     private final MapperRegistry mapperRegistry;
+    private final SharedMappings sharedMappings;
     private final NamedWriteableRegistry namedWriteableRegistry;
     private final IndexingMemoryController indexingMemoryController;
     private final TimeValue cleanInterval;
@@ -258,6 +264,7 @@ public class IndicesService extends AbstractLifecycleComponent
         this.indicesRequestCache = new IndicesRequestCache(settings);
         this.indicesQueryCache = new IndicesQueryCache(settings);
         this.mapperRegistry = mapperRegistry;
+        this.sharedMappings = new SharedMappings(settings);
         this.namedWriteableRegistry = namedWriteableRegistry;
         indexingMemoryController = new IndexingMemoryController(settings, threadPool,
                                                                 // ensure we pull an iter with new shards - flatten makes a copy
@@ -529,6 +536,23 @@ public class IndicesService extends AbstractLifecycleComponent
     public synchronized IndexService createIndex(
             final IndexMetadata indexMetadata, final List<IndexEventListener> builtInListeners,
             final boolean writeDanglingIndices) throws IOException {
+        return createIndex(CREATE_INDEX, indexMetadata, builtInListeners, writeDanglingIndices);
+    }
+
+    /**
+     * Creates a new {@link IndexService} for the given metadata that is only used to validate or apply a change, like a mapping or
+     * alias update on the master, and that the caller removes right after. Unlike the indices created with
+     * {@link #createIndex(IndexMetadata, List, boolean)}, temporary indices don't share their mappings with other indices.
+     *
+     * @throws ResourceAlreadyExistsException if the index already exists.
+     */
+    public synchronized IndexService createTemporaryIndex(final IndexMetadata indexMetadata) throws IOException {
+        return createIndex(CREATE_TEMPORARY_INDEX, indexMetadata, emptyList(), false);
+    }
+
+    private synchronized IndexService createIndex(
+            final IndexService.IndexCreationContext indexCreationContext, final IndexMetadata indexMetadata,
+            final List<IndexEventListener> builtInListeners, final boolean writeDanglingIndices) throws IOException {
         ensureChangesAllowed();
         if (indexMetadata.getIndexUUID().equals(IndexMetadata.INDEX_UUID_NA_VALUE)) {
             throw new IllegalArgumentException("index must have a real UUID found value: [" + indexMetadata.getIndexUUID() + "]");
@@ -556,7 +580,7 @@ public class IndicesService extends AbstractLifecycleComponent
         finalListeners.add(oldShardsStats);
         final IndexService indexService =
                 createIndexService(
-                        CREATE_INDEX,
+                        indexCreationContext,
                         indexMetadata,
                         indicesQueryCache,
                         indicesFieldDataCache,
@@ -609,7 +633,7 @@ public class IndicesService extends AbstractLifecycleComponent
         );
         final IndexService indexService =
             createIndexService(
-                CREATE_INDEX,
+                CREATE_TEMPORARY_INDEX,
                 indexMetadata,
                 indicesQueryCache,
                 indicesFieldDataCache,
@@ -660,6 +684,7 @@ public class IndicesService extends AbstractLifecycleComponent
                 client,
                 indicesQueryCache,
                 mapperRegistry,
+                sharedMappings,
                 indicesFieldDataCache,
                 namedWriteableRegistry,
                 this::isIdFieldDataEnabled,
@@ -807,6 +832,13 @@ public class IndicesService extends AbstractLifecycleComponent
         return indicesFieldDataCache;
     }
 
+    /**
+     * Returns statistics about the parsed mappings that the indices of this node share.
+     */
+    public SharedMappingStats getSharedMappingStats() {
+        return sharedMappings.stats();
+    }
+
     public CircuitBreakerService getCircuitBreakerService() {
         return circuitBreakerService;
     }
@@ -1376,6 +1408,10 @@ public class IndicesService extends AbstractLifecycleComponent
      */
     public void loadIntoContext(ShardSearchRequest request, SearchContext context, QueryPhase queryPhase) throws Exception {
         assert canCache(request, context);
+        if (canCachePerSegment(context)) {
+            loadSegmentsIntoContext(request, context);
+            return;
+        }
         final DirectoryReader directoryReader = context.searcher().getDirectoryReader();
 
         boolean[] loadedFromCache = new boolean[] { true };
@@ -1409,6 +1445,48 @@ public class IndicesService extends AbstractLifecycleComponent
         }
     }
 
+    /**
+     * Can the shard request be cached one segment at a time? This is only the case if enabled on the index, if every segment
+     * exposes a reader cache key and if the request can be executed by the {@link PerSegmentQueryPhase}.
+     */
+    private boolean canCachePerSegment(SearchContext context) {
+        IndexSettings settings = context.indexShard().indexSettings();
+        if (settings.getValue(IndicesRequestCache.INDEX_CACHE_REQUEST_PER_SEGMENT_SETTING) == false) {
+            return false;
+        }
+        final List<LeafReaderContext> leaves = context.searcher().getIndexReader().leaves();
+        if (leaves.isEmpty()) {
+            return false;
+        }
+        for (LeafReaderContext leaf : leaves) {
+            if (leaf.reader().getReaderCacheHelper() == null) {
+                return false;
+            }
+        }
+        return PerSegmentQueryPhase.canExecute(context);
+    }
+
+    /**
+     * Loads the result of each segment from the cache, computing the missing ones, and reduces them into the
+     * {@link SearchContext#queryResult() context's query result}.
+     */
+    private void loadSegmentsIntoContext(ShardSearchRequest request, SearchContext context) throws Exception {
+        final IndexShardCacheEntity cacheEntity = new IndexShardCacheEntity(context.indexShard(), true);
+        final BytesReference cacheKey = request.cacheKey();
+        final List<LeafReaderContext> leaves = context.searcher().getIndexReader().leaves();
+        final List<PerSegmentQueryPhase.SegmentResult> results = new ArrayList<>(leaves.size());
+        for (LeafReaderContext leaf : leaves) {
+            BytesReference bytesReference = indicesRequestCache.getOrCompute(cacheEntity,
+                () -> serialize(out -> PerSegmentQueryPhase.execute(context, leaf).writeTo(out)),
+                leaf.reader(), cacheKey, () -> "Shard: " + request.shardId() + "\nSource:\n" + request.source());
+            try (StreamInput in = new NamedWriteableAwareStreamInput(bytesReference.streamInput(), namedWriteableRegistry)) {
+                results.add(new PerSegmentQueryPhase.SegmentResult(in));
+            }
+        }
+        PerSegmentQueryPhase.reduce(context, results, InternalAggregation.ReduceContext.forPartialReduction(bigArrays, scriptService,
+            () -> request.source().aggregations().buildPipelineTree()));
+    }
+
     public ByteSizeValue getTotalIndexingBufferBytes() {
         return indexingMemoryController.indexingBufferSize();
     }
@@ -1424,31 +1502,43 @@ public class IndicesService extends AbstractLifecycleComponent
     private BytesReference cacheShardLevelResult(IndexShard shard, DirectoryReader reader, BytesReference cacheKey,
             Supplier<String> cacheKeyRenderer, CheckedConsumer<StreamOutput, IOException> loader) throws Exception {
         IndexShardCacheEntity cacheEntity = new IndexShardCacheEntity(shard);
-        CheckedSupplier<BytesReference, IOException> supplier = () -> {
-            /* BytesStreamOutput allows to pass the expected size but by default uses
-             * BigArrays.PAGE_SIZE_IN_BYTES which is 16k. A common cached result ie.
-             * a date histogram with 3 buckets is ~100byte so 16k might be very wasteful
-             * since we don't shrink to the actual size once we are done serializing.
-             * By passing 512 as the expected size we will resize the byte array in the stream
-             * slowly until we hit the page size and don't waste too much memory for small query
-             * results.*/
-            final int expectedSizeInBytes = 512;
-            try (BytesStreamOutput out = new BytesStreamOutput(expectedSizeInBytes)) {
-                loader.accept(out);
-                // for now, keep the paged data structure, which might have unused bytes to fill a page, but better to keep
-                // the memory properly paged instead of having varied sized bytes
-                return out.bytes();
-            }
-        };
-        return indicesRequestCache.getOrCompute(cacheEntity, supplier, reader, cacheKey, cacheKeyRenderer);
+        return indicesRequestCache.getOrCompute(cacheEntity, () -> serialize(loader), reader, cacheKey, cacheKeyRenderer);
+    }
+
+    private static BytesReference serialize(CheckedConsumer<StreamOutput, IOException> loader) throws IOException {
+        /* BytesStreamOutput allows to pass the expected size but by default uses
+         * BigArrays.PAGE_SIZE_IN_BYTES which is 16k. A common cached result ie.
+         * a date histogram with 3 buckets is ~100byte so 16k might be very wasteful
+         * since we don't shrink to the actual size once we are done serializing.
+         * By passing 512 as the expected size we will resize the byte array in the stream
+         * slowly until we hit the page size and don't waste too much memory for small query
+         * results.*/
+        final int expectedSizeInBytes = 512;
+        try (BytesStreamOutput out = new BytesStreamOutput(expectedSizeInBytes)) {
+            loader.accept(out);
+            // for now, keep the paged data structure, which might have unused bytes to fill a page, but better to keep
+            // the memory properly paged instead of having varied sized bytes
+            return out.bytes();
+        }
     }
 
     static final class IndexShardCacheEntity extends AbstractIndexShardCacheEntity {
         private static final long BASE_RAM_BYTES_USED = RamUsageEstimator.shallowSizeOfInstance(IndexShardCacheEntity.class);
         private final IndexShard indexShard;
+        private final boolean segmentLevel;
 
         protected IndexShardCacheEntity(IndexShard indexShard) {
+            this(indexShard, false);
+        }
+
+        protected IndexShardCacheEntity(IndexShard indexShard, boolean segmentLevel) {
             this.indexShard = indexShard;
+            this.segmentLevel = segmentLevel;
+        }
+
+        @Override
+        protected boolean isSegmentLevel() {
+            return segmentLevel;
         }
 
         @Override
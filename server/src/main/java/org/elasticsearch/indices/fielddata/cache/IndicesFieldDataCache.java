@@ -37,16 +37,21 @@ import org.elasticsearch.common.settings.Setting;
 import org.elasticsearch.common.settings.Setting.Property;
 import org.elasticsearch.common.settings.Settings;
 import org.elasticsearch.common.unit.ByteSizeValue;
+import org.elasticsearch.common.util.concurrent.ConcurrentCollections;
 import org.elasticsearch.index.Index;
 import org.elasticsearch.index.fielddata.LeafFieldData;
 import org.elasticsearch.index.fielddata.IndexFieldData;
 import org.elasticsearch.index.fielddata.IndexFieldDataCache;
+import org.elasticsearch.index.fielddata.IndexOrdinalsFieldData;
+import org.elasticsearch.index.fielddata.ordinals.GlobalOrdinalsIndexFieldData;
+import org.elasticsearch.index.fielddata.ordinals.ReusableOrdinalMap;
 import org.elasticsearch.index.shard.ShardId;
 import org.elasticsearch.index.shard.ShardUtils;
 
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.List;
+import java.util.concurrent.ConcurrentMap;
 import java.util.function.ToLongBiFunction;
 
 public class IndicesFieldDataCache implements RemovalListener<IndicesFieldDataCache.Key, Accountable>, Releasable{
@@ -88,12 +93,26 @@ public class IndicesFieldDataCache implements RemovalListener<IndicesFieldDataCa
         assert key != null && key.listeners != null;
         IndexFieldCache indexCache = key.indexCache;
         final Accountable value = notification.getValue();
+        final boolean wasEvicted = notification.getRemovalReason() == RemovalNotification.RemovalReason.EVICTED;
+        final long sizeInBytes;
+        if (value instanceof GlobalOrdinalsIndexFieldData) {
+            // the ordinal map may still be used by the global ordinals of a newer reader, which then account for it
+            final ReusableOrdinalMap ordinalMap = ((GlobalOrdinalsIndexFieldData) value).getReusableOrdinalMap();
+            if (ordinalMap.release()) {
+                indexCache.forgetOrdinalMap(key.shardId, ordinalMap);
+                sizeInBytes = ordinalMap.getMemorySizeInBytes();
+            } else {
+                sizeInBytes = 0;
+            }
+        } else {
+            sizeInBytes = value.ramBytesUsed();
+        }
         for (IndexFieldDataCache.Listener listener : key.listeners) {
             try {
-                listener.onRemoval(
-                    key.shardId, indexCache.fieldName,
-                    notification.getRemovalReason() == RemovalNotification.RemovalReason.EVICTED, value.ramBytesUsed()
-                );
+                listener.onRemoval(key.shardId, indexCache.fieldName, wasEvicted, sizeInBytes);
+                if (value instanceof GlobalOrdinalsIndexFieldData) {
+                    listener.onGlobalOrdinalsRemoval(key.shardId, indexCache.fieldName, sizeInBytes);
+                }
             } catch (Exception e) {
                 // load anyway since listeners should not throw exceptions
                 logger.error("Failed to call listener on field data cache unloading", e);
@@ -118,6 +137,12 @@ public class IndicesFieldDataCache implements RemovalListener<IndicesFieldDataCa
         final String fieldName;
         private final Cache<Key, Accountable> cache;
         private final Listener[] listeners;
+        /**
+         * The ordinal map of the global ordinals that were last built for each shard, so that the next reader of the shard
+         * can reuse it if it has the same segments. It is only kept while global ordinals that use it are cached, so it is
+         * always accounted for and forgotten at the latest when the readers of the shard are closed.
+         */
+        private final ConcurrentMap<ShardId, ReusableOrdinalMap> lastOrdinalMaps = ConcurrentCollections.newConcurrentMap();
 
         IndexFieldCache(Logger logger,final Cache<Key, Accountable> cache, Index index, String fieldName, Listener... listeners) {
             this.logger = logger;
@@ -167,7 +192,16 @@ public class IndicesFieldDataCache implements RemovalListener<IndicesFieldDataCa
             final Accountable accountable = cache.computeIfAbsent(key, k -> {
                 ElasticsearchDirectoryReader.addReaderCloseListener(indexReader, IndexFieldCache.this);
                 Collections.addAll(k.listeners, this.listeners);
-                final Accountable ifd = (Accountable) indexFieldData.localGlobalDirect(indexReader);
+                final Accountable ifd;
+                if (indexFieldData instanceof IndexOrdinalsFieldData && shardId != null) {
+                    final ReusableOrdinalMap previous = lastOrdinalMaps.get(shardId);
+                    ifd = (Accountable) ((IndexOrdinalsFieldData) indexFieldData).localGlobalDirect(indexReader, previous);
+                    if (ifd instanceof GlobalOrdinalsIndexFieldData) {
+                        lastOrdinalMaps.put(shardId, ((GlobalOrdinalsIndexFieldData) ifd).getReusableOrdinalMap());
+                    }
+                } else {
+                    ifd = (Accountable) indexFieldData.localGlobalDirect(indexReader);
+                }
                 for (Listener listener : k.listeners) {
                     try {
                         listener.onCache(shardId, fieldName, ifd);
@@ -181,6 +215,12 @@ public class IndicesFieldDataCache implements RemovalListener<IndicesFieldDataCa
             return (IFD) accountable;
         }
 
+        void forgetOrdinalMap(ShardId shardId, ReusableOrdinalMap ordinalMap) {
+            if (shardId != null) {
+                lastOrdinalMaps.remove(shardId, ordinalMap);
+            }
+        }
+
         @Override
         public void onClose(CacheKey key) {
             cache.invalidate(new Key(this, key, null));
@@ -189,6 +229,7 @@ public class IndicesFieldDataCache implements RemovalListener<IndicesFieldDataCa
 
         @Override
         public void clear() {
+            lastOrdinalMaps.clear();
             for (Key key : cache.keys()) {
                 if (key.indexCache.index.equals(index)) {
                     cache.invalidate(key);
@@ -200,6 +241,9 @@ public class IndicesFieldDataCache implements RemovalListener<IndicesFieldDataCa
 
         @Override
         public void clear(String fieldName) {
+            if (fieldName.equals(this.fieldName)) {
+                lastOrdinalMaps.clear();
+            }
             for (Key key : cache.keys()) {
                 if (key.indexCache.index.equals(index)) {
                     if (key.indexCache.fieldName.equals(fieldName)) {
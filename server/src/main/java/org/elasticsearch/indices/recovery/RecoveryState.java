@@ -42,6 +42,7 @@ import java.util.HashMap;
 import java.util.List;
 import java.util.Locale;
 import java.util.Map;
+import java.util.concurrent.TimeUnit;
 
 /**
  * Keeps track of state related to shard recovery.
@@ -343,6 +344,10 @@ public class RecoveryState implements ToXContentFragment, Writeable {
         static final String SOURCE_THROTTLE_TIME_IN_MILLIS = "source_throttle_time_in_millis";
         static final String TARGET_THROTTLE_TIME = "target_throttle_time";
         static final String TARGET_THROTTLE_TIME_IN_MILLIS = "target_throttle_time_in_millis";
+        static final String REPLAY_THREADS = "replay_threads";
+        static final String REPLAY_TIME = "replay_time";
+        static final String REPLAY_TIME_IN_MILLIS = "replay_time_in_millis";
+        static final String OPERATIONS_PER_SECOND = "operations_per_second";
     }
 
     public static class Timer implements Writeable {
@@ -462,6 +467,9 @@ public class RecoveryState implements ToXContentFragment, Writeable {
         private int total = UNKNOWN;
         private int totalOnStart = UNKNOWN;
         private int totalLocal = UNKNOWN;
+        private int replayThreads;
+        private int replayedOperations;
+        private long replayTimeInNanos;
 
         public Translog() {
         }
@@ -474,6 +482,11 @@ public class RecoveryState implements ToXContentFragment, Writeable {
             if (in.getVersion().onOrAfter(Version.V_7_4_0)) {
                 totalLocal = in.readVInt();
             }
+            if (in.getVersion().onOrAfter(Version.V_8_0_0)) {
+                replayThreads = in.readVInt();
+                replayedOperations = in.readVInt();
+                replayTimeInNanos = in.readVLong();
+            }
         }
 
         @Override
@@ -485,6 +498,11 @@ public class RecoveryState implements ToXContentFragment, Writeable {
             if (out.getVersion().onOrAfter(Version.V_7_4_0)) {
                 out.writeVInt(totalLocal);
             }
+            if (out.getVersion().onOrAfter(Version.V_8_0_0)) {
+                out.writeVInt(replayThreads);
+                out.writeVInt(replayedOperations);
+                out.writeVLong(replayTimeInNanos);
+            }
         }
 
         public synchronized void reset() {
@@ -493,6 +511,9 @@ public class RecoveryState implements ToXContentFragment, Writeable {
             total = UNKNOWN;
             totalOnStart = UNKNOWN;
             totalLocal = UNKNOWN;
+            replayThreads = 0;
+            replayedOperations = 0;
+            replayTimeInNanos = 0;
         }
 
         public synchronized void incrementRecoveredOperations() {
@@ -566,6 +587,51 @@ public class RecoveryState implements ToXContentFragment, Writeable {
             return totalLocal;
         }
 
+        /**
+         * Records that {@code operations} operations of the local translog were replayed by {@code threads} threads in
+         * {@code timeInNanos} nanoseconds.
+         * @see IndexShard#recoverLocallyUpToGlobalCheckpoint()
+         * @see IndexShard#openEngineAndRecoverFromTranslog()
+         */
+        public synchronized void addReplay(int threads, int operations, long timeInNanos) {
+            assert threads > 0 : "replayed with [" + threads + "] threads";
+            assert operations >= 0 && timeInNanos >= 0 : "replayed [" + operations + "] operations in [" + timeInNanos + "] nanos";
+            replayThreads = threads;
+            replayedOperations += operations;
+            replayTimeInNanos += timeInNanos;
+        }
+
+        /**
+         * returns the number of threads that replayed the local translog, or 0 if the local translog wasn't replayed
+         */
+        public synchronized int replayThreads() {
+            return replayThreads;
+        }
+
+        /**
+         * returns the number of operations that were replayed from the local translog
+         */
+        public synchronized int replayedOperations() {
+            return replayedOperations;
+        }
+
+        /**
+         * returns the time spent replaying operations from the local translog, in milliseconds
+         */
+        public synchronized long replayTime() {
+            return TimeValue.nsecToMSec(replayTimeInNanos);
+        }
+
+        /**
+         * returns the throughput of the replay of the local translog, in operations per second
+         */
+        public synchronized double replayedOperationsPerSecond() {
+            if (replayTimeInNanos == 0) {
+                return 0;
+            }
+            return replayedOperations * (double) TimeUnit.SECONDS.toNanos(1) / replayTimeInNanos;
+        }
+
         public synchronized float recoveredPercent() {
             if (total == UNKNOWN) {
                 return -1.f;
@@ -583,6 +649,11 @@ public class RecoveryState implements ToXContentFragment, Writeable {
             builder.field(Fields.PERCENT, String.format(Locale.ROOT, "%1.1f%%", recoveredPercent()));
             builder.field(Fields.TOTAL_ON_START, totalOnStart);
             builder.humanReadableField(Fields.TOTAL_TIME_IN_MILLIS, Fields.TOTAL_TIME, new TimeValue(time()));
+            if (replayThreads > 0) {
+                builder.field(Fields.REPLAY_THREADS, replayThreads);
+                builder.humanReadableField(Fields.REPLAY_TIME_IN_MILLIS, Fields.REPLAY_TIME, new TimeValue(replayTime()));
+                builder.field(Fields.OPERATIONS_PER_SECOND, replayedOperationsPerSecond());
+            }
             return builder;
         }
     }
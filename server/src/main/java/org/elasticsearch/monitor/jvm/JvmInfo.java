@@ -64,7 +64,6 @@ public class JvmInfo implements ReportingService.Info {
             // ignore
         }
         String[] inputArguments = runtimeMXBean.getInputArguments().toArray(new String[runtimeMXBean.getInputArguments().size()]);
-        Mem mem = new Mem(heapInit, heapMax, nonHeapInit, nonHeapMax, directMemoryMax);
 
         String bootClassPath;
         try {
@@ -151,9 +150,20 @@ public class JvmInfo implements ReportingService.Info {
             } catch (Exception ignored) {
             }
 
+            if (directMemoryMax == 0) {
+                // sun.misc.VM is gone since java 9, the limit is either configured or defaults to the max heap size
+                try {
+                    Object maxDirectMemorySizeVmOptionObject = vmOptionMethod.invoke(hotSpotDiagnosticMXBean, "MaxDirectMemorySize");
+                    long maxDirectMemorySize = Long.parseLong((String) valueMethod.invoke(maxDirectMemorySizeVmOptionObject));
+                    directMemoryMax = maxDirectMemorySize > 0 ? maxDirectMemorySize : heapMax;
+                } catch (Exception ignored) {
+                }
+            }
+
         } catch (Exception ignored) {
 
         }
+        Mem mem = new Mem(heapInit, heapMax, nonHeapInit, nonHeapMax, directMemoryMax);
 
         final boolean bundledJdk = Booleans.parseBoolean(System.getProperty("es.bundled_jdk", Boolean.FALSE.toString()));
         final Boolean usingBundledJdk = bundledJdk ? usingBundledJdk() : null;
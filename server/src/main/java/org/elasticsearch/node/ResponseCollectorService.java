@@ -27,25 +27,48 @@ import org.elasticsearch.common.ExponentiallyWeightedMovingAverage;
 import org.elasticsearch.common.io.stream.StreamInput;
 import org.elasticsearch.common.io.stream.StreamOutput;
 import org.elasticsearch.common.io.stream.Writeable;
+import org.elasticsearch.common.metrics.CounterMetric;
 import org.elasticsearch.common.util.concurrent.ConcurrentCollections;
 
 import java.io.IOException;
+import java.util.Arrays;
 import java.util.HashMap;
 import java.util.Locale;
 import java.util.Map;
 import java.util.Optional;
 import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
 
 /**
  * Collects statistics about queue size, response time, and service time of
  * tasks executed on each node, making the EWMA of the values available to the
- * coordinating node.
+ * coordinating node. It also keeps the most recent response times of each
+ * node, from which the delay before a search request to that node is hedged
+ * is derived, and the number of hedged search requests that are in flight.
  */
 public final class ResponseCollectorService implements ClusterStateListener {
 
     private static final double ALPHA = 0.3;
 
+    /**
+     * The number of most recent response times of a node that percentiles are computed from.
+     */
+    static final int RESPONSE_TIME_WINDOW = 256;
+    /**
+     * The number of response times of a node that must have been collected before percentiles are available.
+     */
+    public static final int MIN_RESPONSE_TIMES = 64;
+    /**
+     * The number of response times after which a computed percentile is considered stale.
+     */
+    private static final int PERCENTILE_REFRESH_INTERVAL = 32;
+
     private final ConcurrentMap<String, NodeStatistics> nodeIdToStats = ConcurrentCollections.newConcurrentMap();
+    private final ConcurrentMap<String, RecentResponseTimes> nodeIdToResponseTimes = ConcurrentCollections.newConcurrentMap();
+    private final AtomicLong hedgedRequestsInFlight = new AtomicLong();
+    private final CounterMetric hedgedRequests = new CounterMetric();
+    private final CounterMetric hedgedRequestsWon = new CounterMetric();
 
     public ResponseCollectorService(ClusterService clusterService) {
         clusterService.addListener(this);
@@ -62,9 +85,11 @@ public final class ResponseCollectorService implements ClusterStateListener {
 
     void removeNode(String nodeId) {
         nodeIdToStats.remove(nodeId);
+        nodeIdToResponseTimes.remove(nodeId);
     }
 
     public void addNodeStatistics(String nodeId, int queueSize, long responseTimeNanos, long avgServiceTimeNanos) {
+        nodeIdToResponseTimes.computeIfAbsent(nodeId, id -> new RecentResponseTimes()).add(responseTimeNanos);
         nodeIdToStats.compute(nodeId, (id, ns) -> {
             if (ns == null) {
                 ExponentiallyWeightedMovingAverage queueEWMA = new ExponentiallyWeightedMovingAverage(ALPHA, queueSize);
@@ -90,7 +115,54 @@ public final class ResponseCollectorService implements ClusterStateListener {
     }
 
     public AdaptiveSelectionStats getAdaptiveStats(Map<String, Long> clientSearchConnections) {
-        return new AdaptiveSelectionStats(clientSearchConnections, getAllNodeStatistics());
+        return new AdaptiveSelectionStats(clientSearchConnections, getAllNodeStatistics(), hedgedRequests.count(),
+            hedgedRequestsWon.count());
+    }
+
+    /**
+     * Returns the given percentile of the most recent response times of search requests sent by this node to the given node, in
+     * nanoseconds. Returns {@code -1} if not enough responses of that node were collected yet to compute a meaningful percentile.
+     */
+    public long getResponseTimePercentile(String nodeId, double percentile) {
+        final RecentResponseTimes responseTimes = nodeIdToResponseTimes.get(nodeId);
+        return responseTimes == null ? -1 : responseTimes.percentile(percentile);
+    }
+
+    /**
+     * Reserves a slot for a hedged search request unless the given number of hedged requests are in flight already. Every
+     * successful reservation must be released with {@link #releaseHedgedRequest()} once the hedged request completed.
+     */
+    public boolean tryReserveHedgedRequest(long maxInFlight) {
+        long inFlight;
+        do {
+            inFlight = hedgedRequestsInFlight.get();
+            if (inFlight >= maxInFlight) {
+                return false;
+            }
+        } while (hedgedRequestsInFlight.compareAndSet(inFlight, inFlight + 1) == false);
+        return true;
+    }
+
+    /**
+     * Releases a slot reserved with {@link #tryReserveHedgedRequest(long)}.
+     */
+    public void releaseHedgedRequest() {
+        final long inFlight = hedgedRequestsInFlight.decrementAndGet();
+        assert inFlight >= 0 : "released more hedged requests than reserved";
+    }
+
+    /**
+     * Records that a search request was hedged, sent to another copy of a shard because the first copy was slow to respond.
+     */
+    public void onHedgedRequest() {
+        hedgedRequests.inc();
+    }
+
+    /**
+     * Records that a hedged search request responded before the request that it hedged.
+     */
+    public void onHedgedRequestWon() {
+        hedgedRequestsWon.inc();
     }
 
     /**
@@ -201,6 +273,52 @@ public final class ResponseCollectorService implements ClusterStateListener {
         }
     }
 
+    /**
+     * The most recent response times of a node and the last percentile that was computed from them.
+     */
+    private static final class RecentResponseTimes {
+        private final AtomicLongArray responseTimes = new AtomicLongArray(RESPONSE_TIME_WINDOW);
+        private final AtomicLong count = new AtomicLong();
+        private volatile ResponseTimePercentile cachedPercentile;
+
+        void add(long responseTimeNanos) {
+            final long slot = count.getAndIncrement() % RESPONSE_TIME_WINDOW;
+            responseTimes.set((int) slot, responseTimeNanos);
+        }
+
+        long percentile(double percentile) {
+            final long count = this.count.get();
+            if (count < MIN_RESPONSE_TIMES) {
+                return -1;
+            }
+            final ResponseTimePercentile cached = cachedPercentile;
+            if (cached != null && cached.percentile == percentile && count - cached.count < PERCENTILE_REFRESH_INTERVAL) {
+                return cached.value;
+            }
+            final long[] sorted = new long[(int) Math.min(count, RESPONSE_TIME_WINDOW)];
+            for (int i = 0; i < sorted.length; i++) {
+                sorted[i] = responseTimes.get(i);
+            }
+            Arrays.sort(sorted);
+            final int index = (int) Math.min(sorted.length - 1, Math.ceil(percentile / 100 * sorted.length) - 1);
+            final long value = sorted[Math.max(0, index)];
+            cachedPercentile = new ResponseTimePercentile(count, percentile, value);
+            return value;
+        }
+    }
+
+    private static final class ResponseTimePercentile {
+        final long count;
+        final double percentile;
+        final long value;
+
+        ResponseTimePercentile(long count, double percentile, long value) {
+            this.count = count;
+            this.percentile = percentile;
+            this.value = value;
+        }
+    }
+
     /**
      * Class encapsulating a node's exponentially weighted queue size, response
      * time, and service time, however, this class is private and intended only
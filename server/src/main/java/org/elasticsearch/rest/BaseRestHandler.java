@@ -231,6 +231,11 @@ public abstract class BaseRestHandler implements RestHandler {
             return delegate.supportsContentStream();
         }
 
+        @Override
+        public boolean supportsNonXContentContent() {
+            return delegate.supportsNonXContentContent();
+        }
+
         @Override
         public boolean allowsUnsafeBuffers() {
             return delegate.allowsUnsafeBuffers();
@@ -0,0 +1,89 @@
+/*
+ * Licensed to Elasticsearch under one or more contributor
+ * license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright
+ * ownership. Elasticsearch licenses this file to you under
+ * the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.elasticsearch.rest;
+
+import org.elasticsearch.action.ActionListener;
+import org.elasticsearch.common.bytes.BytesArray;
+import org.elasticsearch.common.bytes.BytesReference;
+
+/**
+ * A {@link RestResponse} whose body is produced while it is sent, in chunks, using chunked transfer encoding. This allows
+ * to send bodies that are too large to be held in memory. The status and the headers are sent before the first chunk, so
+ * failures that happen while the body is produced can't be reported to the client anymore and close the connection instead.
+ */
+public abstract class ChunkedRestResponse extends RestResponse {
+
+    private final RestStatus status;
+    private final String contentType;
+
+    protected ChunkedRestResponse(RestStatus status, String contentType) {
+        this.status = status;
+        this.contentType = contentType;
+    }
+
+    /**
+     * Produces the body by writing chunks to the given writer, once the status and the headers were sent. Implementations
+     * must not write a chunk before the listener of the previous chunk was notified, which keeps slow clients from making
+     * the producer buffer, and must end the body by calling either {@link ChunkWriter#finish()} or
+     * {@link ChunkWriter#fail(Exception)}. This is called on a network thread, like the listeners of the chunks, so
+     * implementations must fork the work that produces chunks, such as serialization, to another thread pool.
+     */
+    public abstract void writeBody(ChunkWriter writer);
+
+    @Override
+    public String contentType() {
+        return contentType;
+    }
+
+    /**
+     * Chunked responses have no content upfront, see {@link #writeBody(ChunkWriter)}.
+     */
+    @Override
+    public BytesReference content() {
+        return BytesArray.EMPTY;
+    }
+
+    @Override
+    public RestStatus status() {
+        return status;
+    }
+
+    /**
+     * Writes the chunks of a {@link ChunkedRestResponse} to the channel.
+     */
+    public interface ChunkWriter {
+
+        /**
+         * Writes a chunk of the body, the listener is notified once the chunk was written to the channel.
+         */
+        void writeChunk(BytesReference chunk, ActionListener<Void> listener);
+
+        /**
+         * Ends the body successfully.
+         */
+        void finish();
+
+        /**
+         * Aborts the body because it could not be produced. This closes the connection so that the client sees that the
+         * body is incomplete.
+         */
+        void fail(Exception e);
+    }
+}
@@ -209,10 +209,11 @@ public class RestController implements HttpServerTransport.Dispatcher {
         if (contentLength > 0) {
             final XContentType xContentType = request.getXContentType();
             if (xContentType == null) {
-                sendContentTypeErrorMessage(request.getAllHeaderValues("Content-Type"), channel);
-                return;
-            }
-            if (handler.supportsContentStream() && xContentType != XContentType.JSON && xContentType != XContentType.SMILE) {
+                if (handler.supportsNonXContentContent() == false) {
+                    sendContentTypeErrorMessage(request.getAllHeaderValues("Content-Type"), channel);
+                    return;
+                }
+            } else if (handler.supportsContentStream() && xContentType != XContentType.JSON && xContentType != XContentType.SMILE) {
                 channel.sendResponse(BytesRestResponse.createSimpleErrorResponse(channel, RestStatus.NOT_ACCEPTABLE,
                     "Content-Type [" + xContentType + "] does not support stream parsing. Use JSON or SMILE instead"));
                 return;
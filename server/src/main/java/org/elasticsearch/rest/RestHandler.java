@@ -52,6 +52,15 @@ public interface RestHandler {
         return false;
     }
 
+    /**
+     * Indicates if the RestHandler supports content whose {@code Content-Type} is not an
+     * {@link org.elasticsearch.common.xcontent.XContentType}. If a handler returns
+     * true, it is responsible for rejecting the content types that it doesn't support.
+     */
+    default boolean supportsNonXContentContent() {
+        return false;
+    }
+
     /**
      * Indicates if the RestHandler supports working with pooled buffers. If the request handler will not escape the return
      * {@link RestRequest#content()} or any buffers extracted from it then there is no need to make a copies of any pooled buffers in the
@@ -19,14 +19,18 @@
 
 package org.elasticsearch.rest.action.document;
 
+import org.elasticsearch.ElasticsearchStatusException;
 import org.elasticsearch.action.bulk.BulkRequest;
 import org.elasticsearch.action.bulk.BulkShardRequest;
+import org.elasticsearch.action.bulk.ColumnarBulkRequestParser;
 import org.elasticsearch.action.support.ActiveShardCount;
 import org.elasticsearch.client.Requests;
 import org.elasticsearch.client.node.NodeClient;
+import org.elasticsearch.common.bytes.BytesReference;
 import org.elasticsearch.common.settings.Settings;
 import org.elasticsearch.rest.BaseRestHandler;
 import org.elasticsearch.rest.RestRequest;
+import org.elasticsearch.rest.RestStatus;
 import org.elasticsearch.rest.action.RestStatusToXContentListener;
 import org.elasticsearch.search.fetch.subphase.FetchSourceContext;
 
@@ -44,6 +48,8 @@ import static org.elasticsearch.rest.RestRequest.Method.PUT;
  * { "create" : { "_index" : "test", "_id" : "1" }
  * { "type1" : { "field1" : "value1" } }
  * </pre>
+ * Batches of documents in the columnar binary format of {@link ColumnarBulkRequestParser} can be indexed by sending them with the
+ * {@link ColumnarBulkRequestParser#MEDIA_TYPE} content type.
  */
 public class RestBulkAction extends BaseRestHandler {
 
@@ -80,17 +86,43 @@ public class RestBulkAction extends BaseRestHandler {
         }
         bulkRequest.timeout(request.paramAsTime("timeout", BulkShardRequest.DEFAULT_TIMEOUT));
         bulkRequest.setRefreshPolicy(request.param("refresh"));
-        bulkRequest.add(request.requiredContent(), defaultIndex, defaultRouting,
-            defaultFetchSourceContext, defaultPipeline, allowExplicitIndex, request.getXContentType());
+        if (isColumnar(request)) {
+            bulkRequest.addColumnar(request.requiredContent(), defaultIndex, defaultRouting, defaultPipeline, allowExplicitIndex);
+        } else {
+            final BytesReference content = request.requiredContent();
+            if (request.getXContentType() == null) {
+                throw new ElasticsearchStatusException("Content-Type header [" + request.header("Content-Type") + "] is not supported",
+                    RestStatus.NOT_ACCEPTABLE);
+            }
+            bulkRequest.add(content, defaultIndex, defaultRouting,
+                defaultFetchSourceContext, defaultPipeline, allowExplicitIndex, request.getXContentType());
+        }
 
         return channel -> client.bulk(bulkRequest, new RestStatusToXContentListener<>(channel));
     }
 
+    /**
+     * Is the content of the request a batch of documents in the columnar format of {@link ColumnarBulkRequestParser}?
+     */
+    private static boolean isColumnar(RestRequest request) {
+        final String contentType = request.header("Content-Type");
+        if (contentType == null) {
+            return false;
+        }
+        final String mediaType = contentType.split(";")[0].trim();
+        return ColumnarBulkRequestParser.MEDIA_TYPE.equalsIgnoreCase(mediaType);
+    }
+
     @Override
     public boolean supportsContentStream() {
         return true;
     }
 
+    @Override
+    public boolean supportsNonXContentContent() {
+        return true;
+    }
+
     @Override
     public boolean allowsUnsafeBuffers() {
         return true;
@@ -0,0 +1,224 @@
+/*
+ * Licensed to Elasticsearch under one or more contributor
+ * license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright
+ * ownership. Elasticsearch licenses this file to you under
+ * the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.elasticsearch.rest.action.search;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.apache.logging.log4j.message.ParameterizedMessage;
+import org.elasticsearch.action.ActionListener;
+import org.elasticsearch.action.search.ClearScrollRequest;
+import org.elasticsearch.action.search.SearchAction;
+import org.elasticsearch.action.search.SearchRequest;
+import org.elasticsearch.action.search.SearchResponse;
+import org.elasticsearch.action.search.SearchScrollAction;
+import org.elasticsearch.action.search.SearchScrollRequest;
+import org.elasticsearch.action.search.ShardSearchFailure;
+import org.elasticsearch.client.node.NodeClient;
+import org.elasticsearch.common.bytes.BytesReference;
+import org.elasticsearch.common.io.Streams;
+import org.elasticsearch.common.io.stream.BytesStreamOutput;
+import org.elasticsearch.common.unit.TimeValue;
+import org.elasticsearch.common.util.concurrent.AbstractRunnable;
+import org.elasticsearch.common.xcontent.ToXContent;
+import org.elasticsearch.common.xcontent.XContentBuilder;
+import org.elasticsearch.common.xcontent.XContentFactory;
+import org.elasticsearch.rest.BaseRestHandler;
+import org.elasticsearch.rest.ChunkedRestResponse;
+import org.elasticsearch.rest.RestRequest;
+import org.elasticsearch.rest.RestStatus;
+import org.elasticsearch.rest.action.RestActionListener;
+import org.elasticsearch.rest.action.RestCancellableNodeClient;
+import org.elasticsearch.search.Scroll;
+import org.elasticsearch.search.SearchHit;
+import org.elasticsearch.search.sort.FieldSortBuilder;
+import org.elasticsearch.threadpool.ThreadPool;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.function.IntConsumer;
+
+import static org.elasticsearch.rest.RestRequest.Method.GET;
+import static org.elasticsearch.rest.RestRequest.Method.POST;
+
+/**
+ * Exports all hits of a search as newline delimited JSON, one hit per line. The hits are pulled in batches through a
+ * scroll and every batch is written to the client as a chunk of the response before the next batch is requested, so the
+ * memory that an export needs on the coordinating node is bounded by the batch size, whatever the number of hits.
+ */
+public class RestExportAction extends BaseRestHandler {
+
+    private static final Logger logger = LogManager.getLogger(RestExportAction.class);
+
+    static final int DEFAULT_BATCH_SIZE = 1000;
+    static final TimeValue DEFAULT_KEEP_ALIVE = TimeValue.timeValueMinutes(1);
+    static final String NDJSON_CONTENT_TYPE = "application/x-ndjson";
+
+    @Override
+    public String getName() {
+        return "export_action";
+    }
+
+    @Override
+    public List<Route> routes() {
+        return List.of(
+            new Route(GET, "/_export"),
+            new Route(POST, "/_export"),
+            new Route(GET, "/{index}/_export"),
+            new Route(POST, "/{index}/_export"));
+    }
+
+    @Override
+    public RestChannelConsumer prepareRequest(final RestRequest request, final NodeClient client) throws IOException {
+        SearchRequest searchRequest = new SearchRequest();
+        IntConsumer setSize = size -> searchRequest.source().size(size);
+        request.withContentOrSourceParamParserOrNull(parser ->
+            RestSearchAction.parseSearchRequest(searchRequest, request, parser, setSize));
+        if (searchRequest.source().aggregations() != null || searchRequest.source().suggest() != null) {
+            throw new IllegalArgumentException("[_export] only exports hits, aggregations and suggestions are not supported");
+        }
+        if (searchRequest.source().from() > 0) {
+            throw new IllegalArgumentException("[_export] always exports all hits, [from] is not supported");
+        }
+        if (searchRequest.source().size() == -1) {
+            searchRequest.source().size(DEFAULT_BATCH_SIZE);
+        }
+        if (searchRequest.source().sorts() == null || searchRequest.source().sorts().isEmpty()) {
+            // the cheapest order to pull hits in
+            searchRequest.source().sort(FieldSortBuilder.DOC_FIELD_NAME);
+        }
+        if (searchRequest.scroll() == null) {
+            searchRequest.scroll(new Scroll(DEFAULT_KEEP_ALIVE));
+        }
+
+        return channel -> {
+            RestCancellableNodeClient cancelClient = new RestCancellableNodeClient(client, request.getHttpChannel());
+            cancelClient.execute(SearchAction.INSTANCE, searchRequest, new RestActionListener<>(channel) {
+                @Override
+                protected void processResponse(SearchResponse response) throws Exception {
+                    final ExportResponse export = new ExportResponse(cancelClient, searchRequest.scroll(), request, response);
+                    boolean success = false;
+                    try {
+                        ensureNoShardFailures(response);
+                        channel.sendResponse(export);
+                        success = true;
+                    } finally {
+                        if (success == false) {
+                            export.clearScroll();
+                        }
+                    }
+                }
+            });
+        };
+    }
+
+    private static void ensureNoShardFailures(SearchResponse response) {
+        if (response.getShardFailures().length > 0) {
+            // skipping the hits of failed shards would silently produce an incomplete export
+            final ShardSearchFailure failure = response.getShardFailures()[0];
+            throw new IllegalStateException("[_export] failed on [" + response.getFailedShards() + "] shards", failure.getCause());
+        }
+    }
+
+    static BytesReference toNdJson(SearchHit[] hits, ToXContent.Params params) throws IOException {
+        final BytesStreamOutput out = new BytesStreamOutput();
+        for (SearchHit hit : hits) {
+            try (XContentBuilder builder = XContentFactory.jsonBuilder(Streams.flushOnCloseStream(out))) {
+                hit.toXContent(builder, params);
+            }
+            out.writeByte((byte) '\n');
+        }
+        return out.bytes();
+    }
+
+    /**
+     * Writes the hits of the first response, then pulls and writes the following batches until the scroll is exhausted.
+     */
+    private static final class ExportResponse extends ChunkedRestResponse {
+
+        private final RestCancellableNodeClient client;
+        private final Scroll scroll;
+        private final ToXContent.Params params;
+        private SearchResponse firstResponse;
+        private volatile String scrollId;
+
+        private ExportResponse(RestCancellableNodeClient client, Scroll scroll, ToXContent.Params params, SearchResponse firstResponse) {
+            super(RestStatus.OK, NDJSON_CONTENT_TYPE);
+            this.client = client;
+            this.scroll = scroll;
+            this.params = params;
+            this.firstResponse = firstResponse;
+            this.scrollId = firstResponse.getScrollId();
+        }
+
+        @Override
+        public void writeBody(ChunkWriter writer) {
+            final SearchResponse response = firstResponse;
+            firstResponse = null;
+            writeBatch(response, writer);
+        }
+
+        /**
+         * Serializes the hits of the given response on the search thread pool and writes them as the next chunk. Batches
+         * must not be serialized on the thread that calls this, which is a network thread for the first batch.
+         */
+        private void writeBatch(SearchResponse response, ChunkWriter writer) {
+            client.threadPool().executor(ThreadPool.Names.SEARCH).execute(new AbstractRunnable() {
+                @Override
+                protected void doRun() throws Exception {
+                    ensureNoShardFailures(response);
+                    scrollId = response.getScrollId();
+                    final SearchHit[] hits = response.getHits().getHits();
+                    if (hits.length == 0) {
+                        clearScroll();
+                        writer.finish();
+                        return;
+                    }
+                    final BytesReference chunk = toNdJson(hits, params);
+                    writer.writeChunk(chunk, ActionListener.wrap(
+                        v -> client.execute(SearchScrollAction.INSTANCE, new SearchScrollRequest(scrollId).scroll(scroll),
+                            ActionListener.wrap(next -> writeBatch(next, writer), e -> onFailure(writer, e))),
+                        e -> onFailure(writer, e)));
+                }
+
+                @Override
+                public void onFailure(Exception e) {
+                    ExportResponse.this.onFailure(writer, e);
+                }
+            });
+        }
+
+        private void onFailure(ChunkWriter writer, Exception e) {
+            logger.debug("failed to export hits", e);
+            clearScroll();
+            writer.fail(e);
+        }
+
+        void clearScroll() {
+            final String scrollId = this.scrollId;
+            if (scrollId != null) {
+                this.scrollId = null;
+                final ClearScrollRequest clearScrollRequest = new ClearScrollRequest();
+                clearScrollRequest.addScrollId(scrollId);
+                client.clearScroll(clearScrollRequest, ActionListener.wrap(r -> {},
+                    e -> logger.debug(() -> new ParameterizedMessage("failed to clear scroll [{}] of export", scrollId), e)));
+            }
+        }
+    }
+}
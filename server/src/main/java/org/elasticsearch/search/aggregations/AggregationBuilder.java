@@ -167,6 +167,14 @@ public abstract class AggregationBuilder
      */
     public abstract BucketCardinality bucketCardinality();
 
+    /**
+     * Can the results that aggregations built by this builder compute on disjoint sets of segments of a shard be partially
+     * reduced into the result they compute on the whole shard? The request cache relies on this to cache results per segment.
+     */
+    public boolean supportsSegmentLevelResults() {
+        return false;
+    }
+
     /** Common xcontent fields shared among aggregator builders */
     public static final class CommonFields extends ParseField.CommonFields {
         public static final ParseField VALUE_TYPE = new ParseField("value_type");
@@ -46,6 +46,15 @@ import static java.util.Objects.requireNonNull;
  * An internal implementation of {@link Aggregation}. Serves as a base class for all aggregation implementations.
  */
 public abstract class InternalAggregation implements Aggregation, NamedWriteable {
+    /**
+     * The estimated heap used by an aggregation without its buckets: the object, its name, metadata and value.
+     */
+    protected static final long SHALLOW_RAM_BYTES_USED = 256;
+    /**
+     * The estimated heap used by a bucket without its sub-aggregations: the object, its key and its doc count.
+     */
+    protected static final long BUCKET_RAM_BYTES_USED = 128;
+
     /**
      * Builds {@link ReduceContext}.
      */
@@ -205,6 +214,17 @@ public abstract class InternalAggregation implements Aggregation, NamedWriteable
      */
     public void forEachBucket(Consumer<InternalAggregations> consumer) {}
 
+    /**
+     * Estimates the heap used by this aggregation, including the buckets it holds but not the sub-aggregations of these
+     * buckets, which {@link InternalAggregations#estimateRamBytesUsed()} adds. Aggregations whose state is much bigger
+     * than a handful of fields per bucket, like sketches, should override this.
+     */
+    public long estimateShallowRamBytesUsed() {
+        final long[] numBuckets = new long[1];
+        forEachBucket(bucket -> numBuckets[0]++);
+        return SHALLOW_RAM_BYTES_USED + numBuckets[0] * BUCKET_RAM_BYTES_USED;
+    }
+
     /**
      * Creates the output from all pipeline aggs that this aggregation is associated with.  Should only
      * be called after all aggregations have been fully reduced
@@ -81,6 +81,20 @@ public final class InternalAggregations extends Aggregations implements Writeabl
         return (List<InternalAggregation>) aggregations;
     }
 
+    /**
+     * Estimates the heap used by these aggregations, including the aggregations of all their buckets.
+     */
+    public long estimateRamBytesUsed() {
+        long bytes = 0;
+        for (InternalAggregation aggregation : getInternalAggregations()) {
+            bytes += aggregation.estimateShallowRamBytesUsed();
+            final long[] subAggregationBytes = new long[1];
+            aggregation.forEachBucket(bucket -> subAggregationBytes[0] += bucket.estimateRamBytesUsed());
+            bytes += subAggregationBytes[0];
+        }
+        return bytes;
+    }
+
     /**
      * Get value to use when sorting by a descendant of the aggregation containing this.
      */
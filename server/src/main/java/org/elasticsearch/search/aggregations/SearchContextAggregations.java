@@ -62,7 +62,10 @@ public class SearchContextAggregations {
         return multiBucketConsumer;
     }
 
-    void resetBucketMultiConsumer() {
+    /**
+     * Resets the number of buckets counted by the {@link #multiBucketConsumer()}, before the aggregators build their results.
+     */
+    public void resetBucketMultiConsumer() {
         multiBucketConsumer.reset();
     }
 }
@@ -0,0 +1,195 @@
+/*
+ * Licensed to Elasticsearch under one or more contributor
+ * license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright
+ * ownership. Elasticsearch licenses this file to you under
+ * the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.elasticsearch.search.aggregations.bucket;
+
+import org.apache.lucene.index.LeafReaderContext;
+import org.apache.lucene.index.NumericDocValues;
+import org.apache.lucene.index.SortedDocValues;
+import org.apache.lucene.search.DocIdSetIterator;
+import org.apache.lucene.search.MatchAllDocsQuery;
+import org.apache.lucene.search.Sort;
+import org.apache.lucene.search.SortField;
+import org.elasticsearch.common.CheckedSupplier;
+import org.elasticsearch.search.aggregations.Aggregator;
+import org.elasticsearch.search.internal.SearchContext;
+
+import java.io.IOException;
+import java.util.function.LongUnaryOperator;
+
+/**
+ * Counts the documents of a segment that is sorted on the field that an aggregation buckets on without visiting them one by one.
+ * In such a segment the documents that fall into the same bucket are contiguous, so the number of documents of a bucket is the
+ * length of a run of documents that share the same key, which is found by searching for the end of the run. This turns the
+ * collection of a segment from {@code O(docs)} into {@code O(buckets * log(docs))}.
+ * <p>
+ * This only gives the right doc counts if every document of the segment would have been collected, so it is only used for top
+ * level aggregations without sub-aggregations that run on a {@code match_all} query over segments without deletions.
+ */
+public final class IndexSortedRuns {
+
+    private IndexSortedRuns() {}
+
+    /**
+     * Returns the key of a document. Keys must be monotonic, in either direction, in doc id order.
+     */
+    @FunctionalInterface
+    public interface DocKey {
+        long key(int doc) throws IOException;
+    }
+
+    /**
+     * Consumes the number of documents that share a key.
+     */
+    @FunctionalInterface
+    public interface RunConsumer {
+        void accept(long key, int docCount) throws IOException;
+    }
+
+    /**
+     * Returns whether the documents that an aggregator would collect can be counted instead, provided that the segment is sorted
+     * on the aggregated field, see {@link #isSortedOn(LeafReaderContext, String)}, and that the values are read from the field
+     * directly rather than from a script or with a missing value.
+     */
+    public static boolean canCountRuns(SearchContext context, Aggregator parent, Aggregator[] subAggregators) {
+        if (parent != null || subAggregators.length > 0) {
+            return false;
+        }
+        if (context.query() == null || context.query().getClass() != MatchAllDocsQuery.class) {
+            return false;
+        }
+        return context.terminateAfter() == SearchContext.DEFAULT_TERMINATE_AFTER && context.minimumScore() == null;
+    }
+
+    /**
+     * Returns whether the segment has no deleted documents and is sorted on the given field first.
+     */
+    public static boolean isSortedOn(LeafReaderContext ctx, String field) {
+        if (ctx.reader().getLiveDocs() != null) {
+            return false;
+        }
+        final Sort sort = ctx.reader().getMetaData().getSort();
+        return sort != null && field.equals(sort.getSort()[0].getField());
+    }
+
+    /**
+     * Returns whether every document of a segment that is sorted on a numeric field has a value for it. Documents without a value
+     * sort as the missing value of the index sort, so they are only guaranteed to be contiguous if that missing value sorts at one
+     * end of the segment, and then it is enough to check the document at that end.
+     */
+    public static boolean hasValueForEveryDoc(LeafReaderContext ctx, NumericDocValues values) throws IOException {
+        final SortField sortField = ctx.reader().getMetaData().getSort().getSort()[0];
+        final Object missingValue = sortField.getMissingValue();
+        final boolean missingFirst;
+        if (Long.valueOf(Long.MIN_VALUE).equals(missingValue)) {
+            missingFirst = sortField.getReverse() == false;
+        } else if (Long.valueOf(Long.MAX_VALUE).equals(missingValue)) {
+            missingFirst = sortField.getReverse();
+        } else {
+            return false;
+        }
+        final int maxDoc = ctx.reader().maxDoc();
+        if (maxDoc == 0) {
+            return true;
+        }
+        return values.advanceExact(missingFirst ? 0 : maxDoc - 1) && values.longValue() != (Long) missingValue;
+    }
+
+    /**
+     * Calls the consumer once for every run of documents of the segment that share the same key, in doc id order. The end of a
+     * run is found with an exponential search followed by a binary search, so long runs only need a few key lookups.
+     */
+    public static void forEachRun(int maxDoc, DocKey docKey, RunConsumer consumer) throws IOException {
+        int start = 0;
+        while (start < maxDoc) {
+            final long key = docKey.key(start);
+            // find a document past the run, the run ends in (low, high]
+            int low = start;
+            int high = start + 1;
+            while (high < maxDoc && docKey.key(high) == key) {
+                low = high;
+                high = (int) Math.min(maxDoc, start + 2L * (high - start));
+            }
+            // invariant: key(low) == key and high is either maxDoc or a document with another key
+            while (high - low > 1) {
+                final int mid = (low + high) >>> 1;
+                if (docKey.key(mid) == key) {
+                    low = mid;
+                } else {
+                    high = mid;
+                }
+            }
+            consumer.accept(key, high - start);
+            start = high;
+        }
+    }
+
+    /**
+     * Returns the keys of numeric doc values, transformed by the given function. Every document must have a value, see
+     * {@link #hasValueForEveryDoc(LeafReaderContext, NumericDocValues)}.
+     */
+    public static DocKey numericKeys(CheckedSupplier<NumericDocValues, IOException> values, LongUnaryOperator transform) {
+        return new ReusingDocKey<NumericDocValues>(values) {
+            @Override
+            long key(NumericDocValues iterator, int doc) throws IOException {
+                if (iterator.advanceExact(doc) == false) {
+                    throw new IllegalStateException("document [" + doc + "] has no value");
+                }
+                return transform.applyAsLong(iterator.longValue());
+            }
+        };
+    }
+
+    /**
+     * Returns the ordinals of sorted doc values as keys, or {@code -1} for documents without a value. Those are contiguous since
+     * the index sort on a string field always puts documents without a value first or last.
+     */
+    public static DocKey ordinalKeys(CheckedSupplier<SortedDocValues, IOException> values) {
+        return new ReusingDocKey<SortedDocValues>(values) {
+            @Override
+            long key(SortedDocValues iterator, int doc) throws IOException {
+                return iterator.advanceExact(doc) ? iterator.ordValue() : -1;
+            }
+        };
+    }
+
+    /**
+     * Doc values can only be read forward, lookups of a document before the current one pull a new iterator.
+     */
+    private abstract static class ReusingDocKey<T extends DocIdSetIterator> implements DocKey {
+        private final CheckedSupplier<T, IOException> supplier;
+        private T iterator;
+        private int lastDoc = -1;
+
+        ReusingDocKey(CheckedSupplier<T, IOException> supplier) {
+            this.supplier = supplier;
+        }
+
+        @Override
+        public final long key(int doc) throws IOException {
+            if (iterator == null || doc <= lastDoc) {
+                iterator = supplier.get();
+            }
+            lastDoc = doc;
+            return key(iterator, doc);
+        }
+
+        abstract long key(T iterator, int doc) throws IOException;
+    }
+}
@@ -135,6 +135,11 @@ public class FilterAggregationBuilder extends AbstractAggregationBuilder<FilterA
         return NAME;
     }
 
+    @Override
+    public boolean supportsSegmentLevelResults() {
+        return true;
+    }
+
     public QueryBuilder getFilter() {
         return filter;
     }
@@ -354,4 +354,9 @@ public class FiltersAggregationBuilder extends AbstractAggregationBuilder<Filter
     public String getType() {
         return NAME;
     }
+
+    @Override
+    public boolean supportsSegmentLevelResults() {
+        return true;
+    }
 }
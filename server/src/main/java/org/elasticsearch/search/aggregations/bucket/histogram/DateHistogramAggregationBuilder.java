@@ -401,6 +401,11 @@ protected AggregationBuilder shallowCopy(AggregatorFactories.Builder factoriesBu
         return NAME;
     }
 
+    @Override
+    public boolean supportsSegmentLevelResults() {
+        return true;
+    }
+
     /**
      * Returns a {@linkplain ZoneId} that functions the same as
      * {@link #timeZone()} on the data in the shard referred to by
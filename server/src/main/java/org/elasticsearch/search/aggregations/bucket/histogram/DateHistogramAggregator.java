@@ -18,8 +18,10 @@
  */
 package org.elasticsearch.search.aggregations.bucket.histogram;
 
+import org.apache.lucene.index.DocValues;
 import org.apache.lucene.index.LeafReaderContext;
 import org.apache.lucene.index.SortedNumericDocValues;
+import org.apache.lucene.search.CollectionTerminatedException;
 import org.apache.lucene.search.ScoreMode;
 import org.apache.lucene.util.CollectionUtil;
 import org.elasticsearch.common.Nullable;
@@ -33,6 +35,7 @@ import org.elasticsearch.search.aggregations.InternalAggregation;
 import org.elasticsearch.search.aggregations.LeafBucketCollector;
 import org.elasticsearch.search.aggregations.LeafBucketCollectorBase;
 import org.elasticsearch.search.aggregations.bucket.BucketsAggregator;
+import org.elasticsearch.search.aggregations.bucket.IndexSortedRuns;
 import org.elasticsearch.search.aggregations.bucket.terms.LongKeyedBucketOrds;
 import org.elasticsearch.search.aggregations.support.ValuesSource;
 import org.elasticsearch.search.aggregations.support.ValuesSourceConfig;
@@ -65,6 +68,11 @@ class DateHistogramAggregator extends BucketsAggregator {
     private final ExtendedBounds extendedBounds;
 
     private final LongKeyedBucketOrds bucketOrds;
+    /**
+     * The field whose runs of documents are counted in segments sorted on it, or {@code null} if documents must be collected.
+     */
+    private final String countedRunsField;
+    private int segmentsWithCountedRuns = 0;
 
     DateHistogramAggregator(
         String name,
@@ -93,6 +101,12 @@ class DateHistogramAggregator extends BucketsAggregator {
         // TODO: Stop using null here
         this.valuesSource = valuesSourceConfig.hasValues() ? (ValuesSource.Numeric) valuesSourceConfig.getValuesSource() : null;
         this.formatter = valuesSourceConfig.format();
+        if (valuesSource != null && valuesSourceConfig.fieldContext() != null && valuesSourceConfig.script() == null
+                && valuesSourceConfig.missing() == null && IndexSortedRuns.canCountRuns(context, parent, subAggregators)) {
+            this.countedRunsField = valuesSourceConfig.fieldContext().field();
+        } else {
+            this.countedRunsField = null;
+        }
 
         bucketOrds = LongKeyedBucketOrds.build(context.bigArrays(), collectsFromSingleBucket);
     }
@@ -111,6 +125,18 @@ class DateHistogramAggregator extends BucketsAggregator {
             return LeafBucketCollector.NO_OP_COLLECTOR;
         }
         SortedNumericDocValues values = valuesSource.longValues(ctx);
+        if (countedRunsField != null && DocValues.unwrapSingleton(values) != null && IndexSortedRuns.isSortedOn(ctx, countedRunsField)
+                && IndexSortedRuns.hasValueForEveryDoc(ctx, DocValues.unwrapSingleton(valuesSource.longValues(ctx)))) {
+            segmentsWithCountedRuns++;
+            // the rounding is monotonic so the documents of a bucket are contiguous in a segment that is sorted on the field
+            IndexSortedRuns.forEachRun(ctx.reader().maxDoc(),
+                IndexSortedRuns.numericKeys(() -> DocValues.unwrapSingleton(valuesSource.longValues(ctx)), preparedRounding::round),
+                (rounded, docCount) -> {
+                    long bucketOrd = bucketOrds.add(0, rounded);
+                    incrementBucketDocCount(bucketOrd < 0 ? -1 - bucketOrd : bucketOrd, docCount);
+                });
+            throw new CollectionTerminatedException();
+        }
         return new LeafBucketCollectorBase(sub, values) {
             @Override
             public void collect(int doc, long owningBucketOrd) throws IOException {
@@ -175,5 +201,6 @@ class DateHistogramAggregator extends BucketsAggregator {
     @Override
     public void collectDebugInfo(BiConsumer<String, Object> add) {
         add.accept("total_buckets", bucketOrds.size());
+        add.accept("segments_with_counted_runs", segmentsWithCountedRuns);
     }
 }
@@ -302,6 +302,11 @@ public class HistogramAggregationBuilder extends ValuesSourceAggregationBuilder<
         return NAME;
     }
 
+    @Override
+    public boolean supportsSegmentLevelResults() {
+        return true;
+    }
+
     @Override
     protected ValuesSourceAggregatorFactory innerBuild(QueryShardContext queryShardContext,
                                                        ValuesSourceConfig config,
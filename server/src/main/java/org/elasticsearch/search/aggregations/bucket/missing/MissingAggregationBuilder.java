@@ -109,4 +109,9 @@ public class MissingAggregationBuilder extends ValuesSourceAggregationBuilder<Mi
     public String getType() {
         return NAME;
     }
+
+    @Override
+    public boolean supportsSegmentLevelResults() {
+        return true;
+    }
 }
@@ -28,7 +28,6 @@ import org.elasticsearch.search.aggregations.bucket.range.RangeAggregator.Range;
 import org.elasticsearch.search.aggregations.bucket.range.RangeAggregator.Unmapped;
 import org.elasticsearch.search.aggregations.support.AggregatorSupplier;
 import org.elasticsearch.search.aggregations.support.CoreValuesSourceType;
-import org.elasticsearch.search.aggregations.support.ValuesSource.Numeric;
 import org.elasticsearch.search.aggregations.support.ValuesSourceAggregatorFactory;
 import org.elasticsearch.search.aggregations.support.ValuesSourceConfig;
 import org.elasticsearch.search.aggregations.support.ValuesSourceRegistry;
@@ -91,8 +90,7 @@ public class AbstractRangeAggregatorFactory<R extends Range> extends ValuesSourc
         return ((RangeAggregatorSupplier) aggregatorSupplier).build(
             name,
             factories,
-            (Numeric) config.getValuesSource(),
-            config.format(),
+            config,
             rangeFactory,
             ranges,
             keyed,
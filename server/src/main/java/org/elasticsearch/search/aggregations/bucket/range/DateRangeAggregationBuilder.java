@@ -83,6 +83,11 @@ public class DateRangeAggregationBuilder extends AbstractRangeBuilder<DateRangeA
         return NAME;
     }
 
+    @Override
+    public boolean supportsSegmentLevelResults() {
+        return true;
+    }
+
     @Override
     protected ValuesSourceType defaultValueSourceType() {
         return CoreValuesSourceType.DATE;
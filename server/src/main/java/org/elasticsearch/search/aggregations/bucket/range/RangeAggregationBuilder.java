@@ -171,4 +171,9 @@ public class RangeAggregationBuilder extends AbstractRangeBuilder<RangeAggregati
     public String getType() {
         return NAME;
     }
+
+    @Override
+    public boolean supportsSegmentLevelResults() {
+        return true;
+    }
 }
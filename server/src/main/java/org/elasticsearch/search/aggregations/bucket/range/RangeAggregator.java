@@ -18,9 +18,14 @@
  */
 package org.elasticsearch.search.aggregations.bucket.range;
 
+import org.apache.lucene.index.IndexOptions;
 import org.apache.lucene.index.LeafReaderContext;
+import org.apache.lucene.index.PointValues;
+import org.apache.lucene.search.CollectionTerminatedException;
+import org.apache.lucene.search.MatchAllDocsQuery;
 import org.apache.lucene.search.ScoreMode;
 import org.elasticsearch.common.ParseField;
+import org.elasticsearch.common.collect.Tuple;
 import org.elasticsearch.common.io.stream.StreamInput;
 import org.elasticsearch.common.io.stream.StreamOutput;
 import org.elasticsearch.common.io.stream.Writeable;
@@ -31,6 +36,9 @@ import org.elasticsearch.common.xcontent.ToXContentObject;
 import org.elasticsearch.common.xcontent.XContentBuilder;
 import org.elasticsearch.common.xcontent.XContentParser;
 import org.elasticsearch.index.fielddata.SortedNumericDoubleValues;
+import org.elasticsearch.index.mapper.DateFieldMapper;
+import org.elasticsearch.index.mapper.MappedFieldType;
+import org.elasticsearch.index.mapper.NumberFieldMapper;
 import org.elasticsearch.search.DocValueFormat;
 import org.elasticsearch.search.aggregations.Aggregator;
 import org.elasticsearch.search.aggregations.AggregatorFactories;
@@ -41,6 +49,7 @@ import org.elasticsearch.search.aggregations.LeafBucketCollectorBase;
 import org.elasticsearch.search.aggregations.NonCollectingAggregator;
 import org.elasticsearch.search.aggregations.bucket.BucketsAggregator;
 import org.elasticsearch.search.aggregations.support.ValuesSource;
+import org.elasticsearch.search.aggregations.support.ValuesSourceConfig;
 import org.elasticsearch.search.internal.SearchContext;
 
 import java.io.IOException;
@@ -48,6 +57,8 @@ import java.util.ArrayList;
 import java.util.List;
 import java.util.Map;
 import java.util.Objects;
+import java.util.function.BiConsumer;
+import java.util.function.Function;
 
 import static org.elasticsearch.common.xcontent.ConstructingObjectParser.optionalConstructorArg;
 
@@ -222,9 +233,30 @@ public class RangeAggregator extends BucketsAggregator {
 
     final double[] maxTo;
 
+    /**
+     * Reads the value of a point of {@link #pointField} if the buckets can be counted from the points of a
+     * segment rather than by collecting its documents, {@code null} otherwise.
+     */
+    private final Function<byte[], Number> pointConverter;
+    private final String pointField;
+    private int segmentsCountedFromPoints = 0;
+
+    public RangeAggregator(String name, AggregatorFactories factories, ValuesSourceConfig config,
+            InternalRange.Factory rangeFactory, Range[] ranges, boolean keyed, SearchContext context,
+            Aggregator parent, Map<String, Object> metadata) throws IOException {
+        this(name, factories, (ValuesSource.Numeric) config.getValuesSource(), config.format(), rangeFactory, ranges, keyed, context,
+            parent, metadata, getPointConverterOrNull(context, parent, factories, config));
+    }
+
     public RangeAggregator(String name, AggregatorFactories factories, ValuesSource.Numeric valuesSource, DocValueFormat format,
             InternalRange.Factory rangeFactory, Range[] ranges, boolean keyed, SearchContext context,
             Aggregator parent, Map<String, Object> metadata) throws IOException {
+        this(name, factories, valuesSource, format, rangeFactory, ranges, keyed, context, parent, metadata, null);
+    }
+
+    private RangeAggregator(String name, AggregatorFactories factories, ValuesSource.Numeric valuesSource, DocValueFormat format,
+            InternalRange.Factory rangeFactory, Range[] ranges, boolean keyed, SearchContext context,
+            Aggregator parent, Map<String, Object> metadata, Tuple<String, Function<byte[], Number>> pointReader) throws IOException {
 
         super(name, factories, context, parent, metadata);
         assert valuesSource != null;
@@ -240,7 +272,41 @@ public class RangeAggregator extends BucketsAggregator {
         for (int i = 1; i < this.ranges.length; ++i) {
             maxTo[i] = Math.max(this.ranges[i].to,maxTo[i-1]);
         }
+        this.pointField = pointReader == null ? null : pointReader.v1();
+        this.pointConverter = pointReader == null ? null : pointReader.v2();
+    }
 
+    /**
+     * Returns the field and a converter for its point values if the buckets can be counted from the points of the
+     * segments, {@code null} otherwise. Counting gives the same doc counts as collecting only if all documents of
+     * the segments would be collected, so this requires a top level aggregation without sub-aggregations on a
+     * {@code match_all} query over a field that is read directly from the index.
+     */
+    static Tuple<String, Function<byte[], Number>> getPointConverterOrNull(SearchContext context, Aggregator parent,
+                                                                          AggregatorFactories factories, ValuesSourceConfig config) {
+        if (parent != null || factories.countAggregators() > 0) {
+            return null;
+        }
+        if (context.query() == null || context.query().getClass() != MatchAllDocsQuery.class) {
+            return null;
+        }
+        if (context.terminateAfter() != SearchContext.DEFAULT_TERMINATE_AFTER || context.minimumScore() != null) {
+            return null;
+        }
+        if (config.fieldContext() == null || config.script() != null || config.missing() != null) {
+            return null;
+        }
+        MappedFieldType fieldType = config.fieldContext().fieldType();
+        if (fieldType == null || fieldType.indexOptions() == IndexOptions.NONE) {
+            return null;
+        }
+        Function<byte[], Number> converter = null;
+        if (fieldType instanceof NumberFieldMapper.NumberFieldType) {
+            converter = ((NumberFieldMapper.NumberFieldType) fieldType)::parsePoint;
+        } else if (fieldType.getClass() == DateFieldMapper.DateFieldType.class) {
+            converter = ((DateFieldMapper.DateFieldType) fieldType).resolution()::parsePointAsMillis;
+        }
+        return converter == null ? null : new Tuple<>(config.fieldContext().field(), converter);
     }
 
     @Override
@@ -254,6 +320,21 @@ public class RangeAggregator extends BucketsAggregator {
     @Override
     public LeafBucketCollector getLeafCollector(LeafReaderContext ctx,
             final LeafBucketCollector sub) throws IOException {
+        if (pointConverter != null && ctx.reader().getLiveDocs() == null) {
+            PointValues pointValues = ctx.reader().getPointValues(pointField);
+            // points are only equivalent to documents if every document has a single value
+            if (pointValues != null && pointValues.size() == pointValues.getDocCount()) {
+                segmentsCountedFromPoints++;
+                for (int i = 0; i < ranges.length; i++) {
+                    long docCount = countPoints(pointValues, ranges[i]);
+                    if (docCount > 0) {
+                        // there is no parent aggregator so the owning bucket is always 0
+                        incrementBucketDocCount(subBucketOrdinal(0, i), Math.toIntExact(docCount));
+                    }
+                }
+                throw new CollectionTerminatedException();
+            }
+        }
         final SortedNumericDoubleValues values = valuesSource.doubleValues(ctx);
         return new LeafBucketCollectorBase(sub, values) {
             @Override
@@ -322,6 +403,47 @@ public class RangeAggregator extends BucketsAggregator {
         return owningBucketOrdinal * ranges.length + rangeOrd;
     }
 
+    /**
+     * Counts the points that fall into a range. Cells of the tree that are fully contained in the range are
+     * counted without reading their values.
+     */
+    private long countPoints(PointValues pointValues, Range range) throws IOException {
+        final long[] count = new long[1];
+        pointValues.intersect(new PointValues.IntersectVisitor() {
+            @Override
+            public void visit(int docID) {
+                count[0]++;
+            }
+
+            @Override
+            public void visit(int docID, byte[] packedValue) {
+                if (range.matches(pointConverter.apply(packedValue).doubleValue())) {
+                    count[0]++;
+                }
+            }
+
+            @Override
+            public PointValues.Relation compare(byte[] minPackedValue, byte[] maxPackedValue) {
+                double min = pointConverter.apply(minPackedValue).doubleValue();
+                double max = pointConverter.apply(maxPackedValue).doubleValue();
+                if (max < range.from || min >= range.to) {
+                    return PointValues.Relation.CELL_OUTSIDE_QUERY;
+                }
+                if (min >= range.from && max < range.to) {
+                    return PointValues.Relation.CELL_INSIDE_QUERY;
+                }
+                return PointValues.Relation.CELL_CROSSES_QUERY;
+            }
+        });
+        return count[0];
+    }
+
+    @Override
+    public void collectDebugInfo(BiConsumer<String, Object> add) {
+        super.collectDebugInfo(add);
+        add.accept("segments_counted_from_points", segmentsCountedFromPoints);
+    }
+
     @Override
     public InternalAggregation[] buildAggregations(long[] owningBucketOrds) throws IOException {
         return buildAggregationsForFixedBucketCount(owningBucketOrds, ranges.length,
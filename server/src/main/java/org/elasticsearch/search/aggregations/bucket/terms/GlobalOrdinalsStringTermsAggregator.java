@@ -24,6 +24,7 @@ import org.apache.lucene.index.IndexReader;
 import org.apache.lucene.index.LeafReaderContext;
 import org.apache.lucene.index.SortedDocValues;
 import org.apache.lucene.index.SortedSetDocValues;
+import org.apache.lucene.search.CollectionTerminatedException;
 import org.apache.lucene.util.ArrayUtil;
 import org.apache.lucene.util.BytesRef;
 import org.apache.lucene.util.PriorityQueue;
@@ -43,6 +44,7 @@ import org.elasticsearch.search.aggregations.InternalAggregation;
 import org.elasticsearch.search.aggregations.InternalMultiBucketAggregation;
 import org.elasticsearch.search.aggregations.LeafBucketCollector;
 import org.elasticsearch.search.aggregations.LeafBucketCollectorBase;
+import org.elasticsearch.search.aggregations.bucket.IndexSortedRuns;
 import org.elasticsearch.search.aggregations.bucket.terms.SignificanceLookup.BackgroundFrequencyForBytes;
 import org.elasticsearch.search.aggregations.bucket.terms.heuristic.SignificanceHeuristic;
 import org.elasticsearch.search.aggregations.support.ValuesSource;
@@ -75,8 +77,13 @@ public class GlobalOrdinalsStringTermsAggregator extends AbstractStringTermsAggr
     private final long valueCount;
     private final GlobalOrdLookupFunction lookupGlobalOrd;
     protected final CollectionStrategy collectionStrategy;
+    /**
+     * The field whose runs of documents are counted in segments sorted on it, or {@code null} if documents must be collected.
+     */
+    protected final String countedRunsField;
     protected int segmentsWithSingleValuedOrds = 0;
     protected int segmentsWithMultiValuedOrds = 0;
+    protected int segmentsWithCountedRuns = 0;
 
     public interface GlobalOrdLookupFunction {
         BytesRef apply(long ord) throws IOException;
@@ -108,6 +115,14 @@ public class GlobalOrdinalsStringTermsAggregator extends AbstractStringTermsAggr
         this.valueCount = values.getValueCount();
         this.lookupGlobalOrd = values::lookupOrd;
         this.acceptedGlobalOrdinals = includeExclude == null ? ALWAYS_TRUE : includeExclude.acceptedGlobalOrdinals(values)::get;
+        if (valuesSource instanceof ValuesSource.Bytes.WithOrdinals.FieldData && valuesSource.supportsGlobalOrdinalsMapping()
+                && IndexSortedRuns.canCountRuns(context, parent, subAggregators)) {
+            // significant terms needs to see the documents to compute the subset size
+            this.countedRunsField = this.resultStrategy instanceof StandardTermsResults
+                ? ((ValuesSource.Bytes.WithOrdinals.FieldData) valuesSource).getFieldName() : null;
+        } else {
+            this.countedRunsField = null;
+        }
         if (remapGlobalOrds) {
             this.collectionStrategy = new RemapGlobalOrds(collectsFromSingleBucket);
         } else {
@@ -129,6 +144,21 @@ public class GlobalOrdinalsStringTermsAggregator extends AbstractStringTermsAggr
         SortedDocValues singleValues = DocValues.unwrapSingleton(globalOrds);
         if (singleValues != null) {
             segmentsWithSingleValuedOrds++;
+            if (countedRunsField != null && IndexSortedRuns.isSortedOn(ctx, countedRunsField)) {
+                segmentsWithCountedRuns++;
+                final LongUnaryOperator mapping = valuesSource.globalOrdinalsMapping(ctx);
+                IndexSortedRuns.forEachRun(ctx.reader().maxDoc(),
+                    IndexSortedRuns.ordinalKeys(() -> DocValues.unwrapSingleton(valuesSource.ordinalsValues(ctx))),
+                    (segmentOrd, docCount) -> {
+                        if (segmentOrd >= 0) {
+                            long globalOrd = mapping.applyAsLong(segmentOrd);
+                            if (acceptedGlobalOrdinals.test(globalOrd)) {
+                                collectionStrategy.countGlobalOrd(0, globalOrd, docCount);
+                            }
+                        }
+                    });
+                throw new CollectionTerminatedException();
+            }
             if (acceptedGlobalOrdinals == ALWAYS_TRUE) {
                 /*
                  * Optimize when there isn't a filter because that is very
@@ -211,6 +241,7 @@ public class GlobalOrdinalsStringTermsAggregator extends AbstractStringTermsAggr
         add.accept("result_strategy", resultStrategy.describe());
         add.accept("segments_with_single_valued_ords", segmentsWithSingleValuedOrds);
         add.accept("segments_with_multi_valued_ords", segmentsWithMultiValuedOrds);
+        add.accept("segments_with_counted_runs", segmentsWithCountedRuns);
         add.accept("has_filter", acceptedGlobalOrdinals != ALWAYS_TRUE);
     }
 
@@ -308,6 +339,13 @@ public class GlobalOrdinalsStringTermsAggregator extends AbstractStringTermsAggr
             // Dense mode doesn't support include/exclude so we don't have to check it here.
             if (singleValues != null) {
                 segmentsWithSingleValuedOrds++;
+                if (countedRunsField != null && IndexSortedRuns.isSortedOn(ctx, countedRunsField)) {
+                    segmentsWithCountedRuns++;
+                    IndexSortedRuns.forEachRun(ctx.reader().maxDoc(),
+                        IndexSortedRuns.ordinalKeys(() -> DocValues.unwrapSingleton(valuesSource.ordinalsValues(ctx))),
+                        (ord, docCount) -> segmentDocCounts.increment(ord + 1, docCount));
+                    throw new CollectionTerminatedException();
+                }
                 return resultStrategy.wrapCollector(new LeafBucketCollectorBase(sub, segmentOrds) {
                     @Override
                     public void collect(int doc, long owningBucketOrd) throws IOException {
@@ -397,6 +435,10 @@ public class GlobalOrdinalsStringTermsAggregator extends AbstractStringTermsAggr
          * @param sub the sub-aggregators that that will collect the bucket data
          */
         abstract void collectGlobalOrd(long owningBucketOrd, int doc, long globalOrd, LeafBucketCollector sub) throws IOException;
+        /**
+         * Add documents to the bucket of a global ordinal without collecting them.
+         */
+        abstract void countGlobalOrd(long owningBucketOrd, long globalOrd, int docCount);
         /**
          * Convert a global ordinal into a bucket ordinal.
          */
@@ -440,6 +482,12 @@ public class GlobalOrdinalsStringTermsAggregator extends AbstractStringTermsAggr
             collectExistingBucket(sub, doc, globalOrd);
         }
 
+        @Override
+        void countGlobalOrd(long owningBucketOrd, long globalOrd, int docCount) {
+            assert owningBucketOrd == 0;
+            incrementBucketDocCount(globalOrd, docCount);
+        }
+
         @Override
         long globalOrdToBucketOrd(long owningBucketOrd, long globalOrd) {
             assert owningBucketOrd == 0;
@@ -501,6 +549,12 @@ public class GlobalOrdinalsStringTermsAggregator extends AbstractStringTermsAggr
             }
         }
 
+        @Override
+        void countGlobalOrd(long owningBucketOrd, long globalOrd, int docCount) {
+            long bucketOrd = bucketOrds.add(owningBucketOrd, globalOrd);
+            incrementBucketDocCount(bucketOrd < 0 ? -1 - bucketOrd : bucketOrd, docCount);
+        }
+
         @Override
         long globalOrdToBucketOrd(long owningBucketOrd, long globalOrd) {
             return bucketOrds.find(owningBucketOrd, globalOrd);
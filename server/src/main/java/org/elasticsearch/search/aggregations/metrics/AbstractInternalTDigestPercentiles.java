@@ -80,6 +80,11 @@ abstract class AbstractInternalTDigestPercentiles extends InternalNumericMetrics
         return state.byteSize();
     }
 
+    @Override
+    public long estimateShallowRamBytesUsed() {
+        return super.estimateShallowRamBytesUsed() + getEstimatedMemoryFootprint();
+    }
+
     /**
      * Return the internal {@link TDigestState} sketch for this metric.
      */
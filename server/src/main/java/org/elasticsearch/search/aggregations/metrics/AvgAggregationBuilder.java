@@ -95,4 +95,9 @@ public class AvgAggregationBuilder extends ValuesSourceAggregationBuilder.LeafOn
     public String getType() {
         return NAME;
     }
+
+    @Override
+    public boolean supportsSegmentLevelResults() {
+        return true;
+    }
 }
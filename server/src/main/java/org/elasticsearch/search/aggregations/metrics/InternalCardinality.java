@@ -82,6 +82,12 @@ public final class InternalCardinality extends InternalNumericMetricsAggregation
         return counts;
     }
 
+    @Override
+    public long estimateShallowRamBytesUsed() {
+        // reducing merges into the registers of a sketch of the same precision
+        return super.estimateShallowRamBytesUsed() + (counts == null ? 0 : HyperLogLogPlusPlus.memoryUsage(counts.precision()));
+    }
+
     @Override
     public InternalAggregation reduce(List<InternalAggregation> aggregations, ReduceContext reduceContext) {
         InternalCardinality reduced = null;
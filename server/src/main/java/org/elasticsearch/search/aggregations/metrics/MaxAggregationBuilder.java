@@ -97,4 +97,9 @@ public class MaxAggregationBuilder extends ValuesSourceAggregationBuilder.LeafOn
     public String getType() {
         return NAME;
     }
+
+    @Override
+    public boolean supportsSegmentLevelResults() {
+        return true;
+    }
 }
@@ -97,4 +97,9 @@ public class StatsAggregationBuilder extends ValuesSourceAggregationBuilder.Leaf
     public String getType() {
         return NAME;
     }
+
+    @Override
+    public boolean supportsSegmentLevelResults() {
+        return true;
+    }
 }
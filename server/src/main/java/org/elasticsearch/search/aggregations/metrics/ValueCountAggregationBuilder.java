@@ -104,4 +104,9 @@ public class ValueCountAggregationBuilder extends ValuesSourceAggregationBuilder
     public String getType() {
         return NAME;
     }
+
+    @Override
+    public boolean supportsSegmentLevelResults() {
+        return true;
+    }
 }
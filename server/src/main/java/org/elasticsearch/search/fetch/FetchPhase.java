@@ -21,6 +21,8 @@ package org.elasticsearch.search.fetch;
 
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
+import org.apache.lucene.codecs.StoredFieldsReader;
+import org.apache.lucene.index.LeafReader;
 import org.apache.lucene.index.LeafReaderContext;
 import org.apache.lucene.index.ReaderUtil;
 import org.apache.lucene.search.DocIdSetIterator;
@@ -30,10 +32,14 @@ import org.apache.lucene.search.Scorer;
 import org.apache.lucene.search.TotalHits;
 import org.apache.lucene.search.Weight;
 import org.apache.lucene.util.BitSet;
+import org.apache.lucene.util.ThreadInterruptedException;
 import org.elasticsearch.ExceptionsHelper;
+import org.elasticsearch.common.CheckedBiConsumer;
+import org.elasticsearch.common.Nullable;
 import org.elasticsearch.common.bytes.BytesReference;
 import org.elasticsearch.common.collect.Tuple;
 import org.elasticsearch.common.document.DocumentField;
+import org.elasticsearch.common.lucene.index.SequentialStoredFieldsLeafReader;
 import org.elasticsearch.common.lucene.search.Queries;
 import org.elasticsearch.common.xcontent.XContentHelper;
 import org.elasticsearch.common.xcontent.XContentType;
@@ -45,6 +51,7 @@ import org.elasticsearch.index.mapper.MappedFieldType;
 import org.elasticsearch.index.mapper.MapperService;
 import org.elasticsearch.index.mapper.ObjectMapper;
 import org.elasticsearch.index.mapper.SourceFieldMapper;
+import org.elasticsearch.index.query.QueryShardContext;
 import org.elasticsearch.search.SearchHit;
 import org.elasticsearch.search.SearchHits;
 import org.elasticsearch.search.SearchPhase;
@@ -52,11 +59,16 @@ import org.elasticsearch.search.SearchShardTarget;
 import org.elasticsearch.search.fetch.subphase.FetchSourceContext;
 import org.elasticsearch.search.fetch.subphase.InnerHitsContext;
 import org.elasticsearch.search.fetch.subphase.InnerHitsPhase;
+import org.elasticsearch.search.internal.FilteredSearchContext;
 import org.elasticsearch.search.internal.SearchContext;
+import org.elasticsearch.search.lookup.SearchLookup;
 import org.elasticsearch.search.lookup.SourceLookup;
 import org.elasticsearch.tasks.TaskCancelledException;
+import org.elasticsearch.threadpool.ThreadPool;
 
 import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.HashMap;
@@ -64,6 +76,12 @@ import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Supplier;
 
 import static java.util.Collections.emptyMap;
 
@@ -74,6 +92,11 @@ import static java.util.Collections.emptyMap;
 public class FetchPhase implements SearchPhase {
     private static final Logger LOGGER = LogManager.getLogger(FetchPhase.class);
 
+    /**
+     * The minimum number of adjacent documents of a segment to load them with a sequential stored fields reader.
+     */
+    static final int MIN_SEQUENTIAL_DOCS = 10;
+
     private final FetchSubPhase[] fetchSubPhases;
 
     public FetchPhase(List<FetchSubPhase> fetchSubPhases) {
@@ -92,7 +115,8 @@ public class FetchPhase implements SearchPhase {
             LOGGER.trace("{}", new SearchContextSourcePrinter(context));
         }
 
-        final FieldsVisitor fieldsVisitor;
+        // stored fields visitors are stateful, every chunk of hits that is fetched concurrently needs its own
+        final Supplier<FieldsVisitor> fieldsVisitor;
         Map<String, Set<String>> storedToRequestedFields = new HashMap<>();
         StoredFieldsContext storedFieldsContext = context.storedFieldsContext();
 
@@ -101,10 +125,11 @@ public class FetchPhase implements SearchPhase {
             if (!context.hasScriptFields() && !context.hasFetchSourceContext()) {
                 context.fetchSourceContext(new FetchSourceContext(true));
             }
-            fieldsVisitor = new FieldsVisitor(context.sourceRequested());
+            final boolean loadSource = context.sourceRequested();
+            fieldsVisitor = () -> new FieldsVisitor(loadSource);
         } else if (storedFieldsContext.fetchFields() == false) {
             // disable stored fields entirely
-            fieldsVisitor = null;
+            fieldsVisitor = () -> null;
         } else {
             for (String fieldNameOrPattern : context.storedFieldsContext().fieldNames()) {
                 if (fieldNameOrPattern.equals(SourceFieldMapper.NAME)) {
@@ -133,39 +158,27 @@ public class FetchPhase implements SearchPhase {
             boolean loadSource = context.sourceRequested();
             if (storedToRequestedFields.isEmpty()) {
                 // empty list specified, default to disable _source if no explicit indication
-                fieldsVisitor = new FieldsVisitor(loadSource);
+                fieldsVisitor = () -> new FieldsVisitor(loadSource);
             } else {
-                fieldsVisitor = new CustomFieldsVisitor(storedToRequestedFields.keySet(), loadSource);
+                final Set<String> storedFields = storedToRequestedFields.keySet();
+                fieldsVisitor = () -> new CustomFieldsVisitor(storedFields, loadSource);
             }
         }
 
         try {
-            SearchHit[] hits = new SearchHit[context.docIdsToLoadSize()];
-            FetchSubPhase.HitContext hitContext = new FetchSubPhase.HitContext();
+            DocIdToIndex[] docs = new DocIdToIndex[context.docIdsToLoadSize()];
             for (int index = 0; index < context.docIdsToLoadSize(); index++) {
-                if (context.isCancelled()) {
-                    throw new TaskCancelledException("cancelled");
-                }
-                int docId = context.docIdsToLoad()[context.docIdsToLoadFrom() + index];
-                int readerIndex = ReaderUtil.subIndex(docId, context.searcher().getIndexReader().leaves());
-                LeafReaderContext subReaderContext = context.searcher().getIndexReader().leaves().get(readerIndex);
-                int subDocId = docId - subReaderContext.docBase;
-
-                final SearchHit searchHit;
-                int rootDocId = findRootDocumentIfNested(context, subReaderContext, subDocId);
-                if (rootDocId != -1) {
-                    searchHit = createNestedSearchHit(context, docId, subDocId, rootDocId,
-                        storedToRequestedFields, subReaderContext);
-                } else {
-                    searchHit = createSearchHit(context, fieldsVisitor, docId, subDocId,
-                        storedToRequestedFields, subReaderContext);
-                }
+                docs[index] = new DocIdToIndex(context.docIdsToLoad()[context.docIdsToLoadFrom() + index], index);
+            }
+            // load the documents in doc id order so that stored fields and doc values are read forward, segment by segment
+            Arrays.sort(docs);
 
-                hits[index] = searchHit;
-                hitContext.reset(searchHit, subReaderContext, subDocId, context.searcher());
-                for (FetchSubPhase fetchSubPhase : fetchSubPhases) {
-                    fetchSubPhase.hitExecute(context, hitContext);
-                }
+            SearchHit[] hits = new SearchHit[context.docIdsToLoadSize()];
+            int chunkSize = parallelFetchChunkSize(context);
+            if (chunkSize > 0 && docs.length > chunkSize) {
+                fetchChunksConcurrently(context, fieldsVisitor, storedToRequestedFields, docs, hits, chunkSize);
+            } else {
+                fetchChunk(context, fieldsVisitor.get(), storedToRequestedFields, docs, 0, docs.length, hits);
             }
             if (context.isCancelled()) {
                 throw new TaskCancelledException("cancelled");
@@ -185,6 +198,214 @@ public class FetchPhase implements SearchPhase {
         }
     }
 
+    /**
+     * Loads the hits of {@code docs[from]} to {@code docs[to - 1]} and runs the per-hit sub phases on them.
+     */
+    private void fetchChunk(SearchContext context,
+                            FieldsVisitor fieldsVisitor,
+                            Map<String, Set<String>> storedToRequestedFields,
+                            DocIdToIndex[] docs,
+                            int from,
+                            int to,
+                            SearchHit[] hits) throws IOException {
+        FetchSubPhase.HitContext hitContext = new FetchSubPhase.HitContext();
+        List<LeafReaderContext> leaves = context.searcher().getIndexReader().leaves();
+        LeafReaderContext subReaderContext = null;
+        CheckedBiConsumer<Integer, FieldsVisitor, IOException> fieldReader = null;
+        for (int index = from; index < to; index++) {
+            if (context.isCancelled()) {
+                throw new TaskCancelledException("cancelled");
+            }
+            int docId = docs[index].docId;
+            if (subReaderContext == null || docId >= subReaderContext.docBase + subReaderContext.reader().maxDoc()) {
+                subReaderContext = leaves.get(ReaderUtil.subIndex(docId, leaves));
+                fieldReader = storedFieldsReader(subReaderContext, docs, index, to);
+            }
+            int subDocId = docId - subReaderContext.docBase;
+
+            final SearchHit searchHit;
+            int rootDocId = findRootDocumentIfNested(context, subReaderContext, subDocId);
+            if (rootDocId != -1) {
+                searchHit = createNestedSearchHit(context, docId, subDocId, rootDocId,
+                    storedToRequestedFields, subReaderContext);
+            } else {
+                searchHit = createSearchHit(context, fieldsVisitor, docId, subDocId,
+                    storedToRequestedFields, subReaderContext, fieldReader);
+            }
+
+            hits[docs[index].index] = searchHit;
+            hitContext.reset(searchHit, subReaderContext, subDocId, context.searcher());
+            for (FetchSubPhase fetchSubPhase : fetchSubPhases) {
+                fetchSubPhase.hitExecute(context, hitContext);
+            }
+        }
+    }
+
+    /**
+     * Returns the number of hits per chunk if the hits of this request can be fetched in concurrent chunks, or
+     * {@code 0} if they must be fetched sequentially.
+     */
+    private static int parallelFetchChunkSize(SearchContext context) {
+        if (context.indexShard() == null || context instanceof InnerHitsContext.InnerHitSubContext
+                || context.innerHits().getInnerHits().isEmpty() == false) {
+            // inner hits are seeded from the source of the parent hit that was fetched last
+            return 0;
+        }
+        return context.indexShard().indexSettings().getParallelFetchChunkSize();
+    }
+
+    /**
+     * Splits the doc id sorted hits into chunks of {@code chunkSize} hits that are fetched on the
+     * {@link ThreadPool.Names#SEARCH_WORKER} thread pool, each with its own {@link SearchContext#lookup()} and stored fields
+     * visitor. The calling thread fetches the first chunk and then every chunk that no worker has picked up yet, so the
+     * request progresses even if the pool is busy. The first failure is rethrown once all chunks have completed.
+     */
+    private void fetchChunksConcurrently(SearchContext context,
+                                         Supplier<FieldsVisitor> fieldsVisitor,
+                                         Map<String, Set<String>> storedToRequestedFields,
+                                         DocIdToIndex[] docs,
+                                         SearchHit[] hits,
+                                         int chunkSize) throws IOException {
+        final Executor executor = context.indexShard().getThreadPool().executor(ThreadPool.Names.SEARCH_WORKER);
+        // chunks that have not started yet are skipped as soon as one of them fails
+        final AtomicBoolean failed = new AtomicBoolean();
+        final List<FutureTask<Void>> tasks = new ArrayList<>();
+        for (int from = 0; from < docs.length; from += chunkSize) {
+            final int chunkFrom = from;
+            final int chunkTo = Math.min(docs.length, from + chunkSize);
+            tasks.add(new FutureTask<>(() -> {
+                if (failed.get() == false) {
+                    try {
+                        fetchChunk(new FetchChunkContext(context), fieldsVisitor.get(), storedToRequestedFields,
+                            docs, chunkFrom, chunkTo, hits);
+                    } catch (Exception e) {
+                        failed.set(true);
+                        throw e;
+                    }
+                }
+                return null;
+            }));
+        }
+        for (int i = 1; i < tasks.size(); i++) {
+            try {
+                executor.execute(tasks.get(i));
+            } catch (RejectedExecutionException e) {
+                // the calling thread runs the chunk below
+            }
+        }
+        // running a task that a worker already started or completed is a no-op
+        for (FutureTask<Void> task : tasks) {
+            task.run();
+        }
+        Throwable failure = null;
+        for (FutureTask<Void> task : tasks) {
+            try {
+                task.get();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new ThreadInterruptedException(e);
+            } catch (ExecutionException e) {
+                if (failure == null) {
+                    failure = e.getCause();
+                } else if (failure != e.getCause()) {
+                    failure.addSuppressed(e.getCause());
+                }
+            }
+        }
+        if (failure != null) {
+            if (failure instanceof IOException) {
+                throw (IOException) failure;
+            } else if (failure instanceof RuntimeException) {
+                throw (RuntimeException) failure;
+            } else if (failure instanceof Error) {
+                throw (Error) failure;
+            }
+            throw new IllegalStateException(failure);
+        }
+    }
+
+    /**
+     * A view of the search context for a chunk of hits that is fetched concurrently with other chunks. The per-hit sub
+     * phases keep the current document in the {@link SearchLookup} of the context, so every chunk gets its own.
+     */
+    private static class FetchChunkContext extends FilteredSearchContext {
+        private final QueryShardContext queryShardContext;
+
+        FetchChunkContext(SearchContext in) {
+            super(in);
+            this.queryShardContext = new QueryShardContext(in.getQueryShardContext());
+        }
+
+        @Override
+        public QueryShardContext getQueryShardContext() {
+            return queryShardContext;
+        }
+
+        @Override
+        public SearchLookup lookup() {
+            return queryShardContext.lookup();
+        }
+    }
+
+    static class DocIdToIndex implements Comparable<DocIdToIndex> {
+        final int docId;
+        final int index;
+
+        DocIdToIndex(int docId, int index) {
+            this.docId = docId;
+            this.index = index;
+        }
+
+        @Override
+        public int compareTo(DocIdToIndex o) {
+            return Integer.compare(docId, o.docId);
+        }
+    }
+
+    /**
+     * Returns how to read the stored fields of the documents of the segment that starts at {@code docs[from]}, looking
+     * no further than {@code docs[limit - 1]}.
+     */
+    private CheckedBiConsumer<Integer, FieldsVisitor, IOException> storedFieldsReader(LeafReaderContext subReaderContext,
+                                                                                      DocIdToIndex[] docs,
+                                                                                      int from,
+                                                                                      int limit) throws IOException {
+        final StoredFieldsReader sequentialReader = sequentialStoredFieldsReader(subReaderContext, docs, from, limit);
+        if (sequentialReader != null) {
+            return sequentialReader::visitDocument;
+        }
+        return subReaderContext.reader()::document;
+    }
+
+    /**
+     * Returns a stored fields reader for runs of adjacent doc ids, like the pages of a scroll sorted by {@code _doc}, that
+     * keeps the last decompressed block around instead of decompressing it again for every document. Returns {@code null}
+     * if the documents of the segment aren't adjacent or if the segment is wrapped by a reader that doesn't expose it.
+     */
+    @Nullable
+    static StoredFieldsReader sequentialStoredFieldsReader(LeafReaderContext subReaderContext,
+                                                           DocIdToIndex[] docs,
+                                                           int from,
+                                                           int limit) throws IOException {
+        final LeafReader reader = subReaderContext.reader();
+        if (reader instanceof SequentialStoredFieldsLeafReader
+                && ((SequentialStoredFieldsLeafReader) reader).hasSequentialStoredFieldsReader()) {
+            final int maxDoc = subReaderContext.docBase + reader.maxDoc();
+            int to = from;
+            while (to < limit && docs[to].docId < maxDoc) {
+                to++;
+            }
+            if (to - from >= MIN_SEQUENTIAL_DOCS && hasSequentialDocs(docs, from, to)) {
+                return ((SequentialStoredFieldsLeafReader) reader).getSequentialStoredFieldsReader();
+            }
+        }
+        return null;
+    }
+
+    static boolean hasSequentialDocs(DocIdToIndex[] docs, int from, int to) {
+        return to > from && docs[to - 1].docId - docs[from].docId == to - from - 1;
+    }
+
     private int findRootDocumentIfNested(SearchContext context, LeafReaderContext subReaderContext, int subDocId) throws IOException {
         if (context.mapperService().hasNested()) {
             BitSet bits = context.bitsetFilterCache()
@@ -202,11 +423,12 @@ public class FetchPhase implements SearchPhase {
                                       int docId,
                                       int subDocId,
                                       Map<String, Set<String>> storedToRequestedFields,
-                                      LeafReaderContext subReaderContext) {
+                                      LeafReaderContext subReaderContext,
+                                      CheckedBiConsumer<Integer, FieldsVisitor, IOException> fieldReader) {
         if (fieldsVisitor == null) {
             return new SearchHit(docId, null, null, null);
         }
-        loadStoredFields(context.shardTarget(), subReaderContext, fieldsVisitor, subDocId);
+        loadStoredFields(context.shardTarget(), fieldReader, fieldsVisitor, subDocId);
         fieldsVisitor.postProcess(context.mapperService());
         SearchHit searchHit;
         if (fieldsVisitor.fields().isEmpty() == false) {
@@ -241,7 +463,7 @@ public class FetchPhase implements SearchPhase {
         final boolean needSource = context.sourceRequested() || context.highlight() != null;
         if (needSource || (context instanceof InnerHitsContext.InnerHitSubContext == false)) {
             FieldsVisitor rootFieldsVisitor = new FieldsVisitor(needSource);
-            loadStoredFields(context.shardTarget(), subReaderContext, rootFieldsVisitor, rootSubDocId);
+            loadStoredFields(context.shardTarget(), subReaderContext.reader()::document, rootFieldsVisitor, rootSubDocId);
             rootFieldsVisitor.postProcess(context.mapperService());
             id = rootFieldsVisitor.id();
             source = rootFieldsVisitor.source();
@@ -255,7 +477,7 @@ public class FetchPhase implements SearchPhase {
         Map<String, DocumentField> metaFields = emptyMap();
         if (context.hasStoredFields() && !context.storedFieldsContext().fieldNames().isEmpty()) {
             FieldsVisitor nestedFieldsVisitor = new CustomFieldsVisitor(storedToRequestedFields.keySet(), false);
-            loadStoredFields(context.shardTarget(), subReaderContext, nestedFieldsVisitor, nestedSubDocId);
+            loadStoredFields(context.shardTarget(), subReaderContext.reader()::document, nestedFieldsVisitor, nestedSubDocId);
             nestedFieldsVisitor.postProcess(context.mapperService());
             if (nestedFieldsVisitor.fields().isEmpty() == false) {
                 docFields = new HashMap<>();
@@ -386,10 +608,12 @@ public class FetchPhase implements SearchPhase {
         return nestedIdentity;
     }
 
-    private void loadStoredFields(SearchShardTarget shardTarget, LeafReaderContext readerContext, FieldsVisitor fieldVisitor, int docId) {
+    private void loadStoredFields(SearchShardTarget shardTarget,
+                                  CheckedBiConsumer<Integer, FieldsVisitor, IOException> fieldReader,
+                                  FieldsVisitor fieldVisitor, int docId) {
         fieldVisitor.reset();
         try {
-            readerContext.reader().document(docId, fieldVisitor);
+            fieldReader.accept(docId, fieldVisitor);
         } catch (IOException e) {
             throw new FetchPhaseExecutionException(shardTarget, "Failed to fetch doc id [" + docId + "]", e);
         }
@@ -49,6 +49,8 @@ import org.apache.lucene.util.BitSetIterator;
 import org.apache.lucene.util.Bits;
 import org.apache.lucene.util.CombinedBitSet;
 import org.apache.lucene.util.SparseFixedBitSet;
+import org.apache.lucene.util.ThreadInterruptedException;
+import org.elasticsearch.common.Nullable;
 import org.elasticsearch.common.lucene.search.TopDocsAndMaxScore;
 import org.elasticsearch.search.DocValueFormat;
 import org.elasticsearch.search.dfs.AggregatedDfs;
@@ -66,6 +68,11 @@ import java.util.HashSet;
 import java.util.List;
 import java.util.Objects;
 import java.util.Set;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicBoolean;
 
 /**
  * Context-aware extension of {@link IndexSearcher}.
@@ -80,22 +87,50 @@ public class ContextIndexSearcher extends IndexSearcher {
     private AggregatedDfs aggregatedDfs;
     private QueryProfiler profiler;
     private MutableQueryTimeout cancellable;
+    private final Executor executor;
+    private final int maxSlices;
 
     public ContextIndexSearcher(IndexReader reader, Similarity similarity,
                                 QueryCache queryCache, QueryCachingPolicy queryCachingPolicy,
                                 boolean wrapWithExitableDirectoryReader) throws IOException {
-        this(reader, similarity, queryCache, queryCachingPolicy, new MutableQueryTimeout(), wrapWithExitableDirectoryReader);
+        this(reader, similarity, queryCache, queryCachingPolicy, wrapWithExitableDirectoryReader, null, 1);
+    }
+
+    /**
+     * Creates a searcher that partitions the leaves of the reader into at most <code>maxSlices</code> slices and
+     * searches them concurrently on the provided <code>executor</code> when a {@link CollectorManager} is used.
+     * Sequential search is used if the <code>executor</code> is <code>null</code>.
+     */
+    public ContextIndexSearcher(IndexReader reader, Similarity similarity,
+                                QueryCache queryCache, QueryCachingPolicy queryCachingPolicy,
+                                boolean wrapWithExitableDirectoryReader,
+                                @Nullable Executor executor, int maxSlices) throws IOException {
+        this(reader, similarity, queryCache, queryCachingPolicy, new MutableQueryTimeout(), wrapWithExitableDirectoryReader,
+            executor, maxSlices);
     }
 
     private ContextIndexSearcher(IndexReader reader, Similarity similarity,
                                  QueryCache queryCache, QueryCachingPolicy queryCachingPolicy,
                                  MutableQueryTimeout cancellable,
-                                 boolean wrapWithExitableDirectoryReader) throws IOException {
+                                 boolean wrapWithExitableDirectoryReader,
+                                 Executor executor, int maxSlices) throws IOException {
         super(wrapWithExitableDirectoryReader ? new ExitableDirectoryReader((DirectoryReader) reader, cancellable) : reader);
+        if (maxSlices < 1) {
+            throw new IllegalArgumentException("maxSlices must be >= 1, got " + maxSlices);
+        }
         setSimilarity(similarity);
         setQueryCache(queryCache);
         setQueryCachingPolicy(queryCachingPolicy);
         this.cancellable = cancellable;
+        this.executor = executor;
+        this.maxSlices = maxSlices;
+    }
+
+    /**
+     * Returns true if searches that use a {@link CollectorManager} are executed concurrently on slices of the leaves.
+     */
+    public boolean isConcurrent() {
+        return executor != null;
     }
 
     public void setProfiler(QueryProfiler profiler) {
@@ -180,6 +215,126 @@ public class ContextIndexSearcher extends IndexSearcher {
         result.topDocs(new TopDocsAndMaxScore(mergedTopDocs, Float.NaN), formats);
     }
 
+    /**
+     * Searches the provided <code>query</code> using a collector per slice of the leaves. All slices but the first
+     * are searched on the executor of this searcher while the calling thread searches the first one. Registered
+     * cancellation and timeout checks are honored on every slice, the first failure is rethrown once all slices
+     * have completed.
+     */
+    @Override
+    public <C extends Collector, T> T search(Query query, CollectorManager<C, T> collectorManager) throws IOException {
+        final List<List<LeafReaderContext>> slices = executor == null ? null : computeSlices(getIndexReader().leaves(), maxSlices);
+        if (slices == null || slices.size() <= 1) {
+            return super.search(query, collectorManager);
+        }
+        final List<C> collectors = new ArrayList<>(slices.size());
+        ScoreMode scoreMode = null;
+        for (int i = 0; i < slices.size(); i++) {
+            final C collector = collectorManager.newCollector();
+            if (scoreMode == null) {
+                scoreMode = collector.scoreMode();
+            } else if (scoreMode != collector.scoreMode()) {
+                throw new IllegalStateException("CollectorManager does not always produce collectors with the same score mode");
+            }
+            collectors.add(collector);
+        }
+        final Weight weight = createWeight(rewrite(query), scoreMode, 1f);
+        // slices that have not started yet are skipped as soon as one of them fails
+        final AtomicBoolean failed = new AtomicBoolean();
+        final List<FutureTask<Void>> tasks = new ArrayList<>(slices.size());
+        for (int i = 0; i < slices.size(); i++) {
+            final List<LeafReaderContext> leaves = slices.get(i);
+            final Collector collector = collectors.get(i);
+            tasks.add(new FutureTask<>(() -> {
+                if (failed.get() == false) {
+                    try {
+                        search(leaves, weight, collector);
+                    } catch (Exception e) {
+                        failed.set(true);
+                        throw e;
+                    }
+                }
+                return null;
+            }));
+        }
+        for (int i = 1; i < tasks.size(); i++) {
+            try {
+                executor.execute(tasks.get(i));
+            } catch (RejectedExecutionException e) {
+                // search the slice on the calling thread rather than failing the whole request
+                tasks.get(i).run();
+            }
+        }
+        tasks.get(0).run();
+        Throwable failure = null;
+        for (FutureTask<Void> task : tasks) {
+            try {
+                task.get();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new ThreadInterruptedException(e);
+            } catch (ExecutionException e) {
+                if (failure == null) {
+                    failure = e.getCause();
+                } else if (failure != e.getCause()) {
+                    failure.addSuppressed(e.getCause());
+                }
+            }
+        }
+        if (failure != null) {
+            if (failure instanceof IOException) {
+                throw (IOException) failure;
+            } else if (failure instanceof RuntimeException) {
+                throw (RuntimeException) failure;
+            } else if (failure instanceof Error) {
+                throw (Error) failure;
+            }
+            throw new IllegalStateException(failure);
+        }
+        return collectorManager.reduce(collectors);
+    }
+
+    /**
+     * Partitions the provided <code>leaves</code> into at most <code>maxSlices</code> slices of contiguous leaves
+     * with a similar number of documents. Each slice contains at least one leaf.
+     */
+    static List<List<LeafReaderContext>> computeSlices(List<LeafReaderContext> leaves, int maxSlices) {
+        final int numSlices = Math.min(leaves.size(), maxSlices);
+        long totalDocs = 0;
+        for (LeafReaderContext ctx : leaves) {
+            totalDocs += ctx.reader().maxDoc();
+        }
+        final long docsPerSlice = numSlices == 0 ? 0 : (totalDocs + numSlices - 1) / numSlices;
+        final List<List<LeafReaderContext>> slices = new ArrayList<>(numSlices);
+        List<LeafReaderContext> current = new ArrayList<>();
+        long currentDocs = 0;
+        for (int i = 0; i < leaves.size(); i++) {
+            final LeafReaderContext ctx = leaves.get(i);
+            current.add(ctx);
+            currentDocs += ctx.reader().maxDoc();
+            final int remainingLeaves = leaves.size() - i - 1;
+            final int remainingSlices = numSlices - slices.size() - 1;
+            // close the current slice when it is full or when the remaining leaves are needed to fill the remaining slices
+            if (remainingSlices > 0 && (currentDocs >= docsPerSlice || remainingLeaves == remainingSlices)) {
+                slices.add(current);
+                current = new ArrayList<>();
+                currentDocs = 0;
+            }
+        }
+        if (current.isEmpty() == false) {
+            slices.add(current);
+        }
+        return slices;
+    }
+
+    /**
+     * Searches the provided <code>query</code> on a single leaf of the reader of this searcher.
+     */
+    public void search(LeafReaderContext leaf, Query query, Collector collector) throws IOException {
+        final Weight weight = createWeight(rewrite(query), collector.scoreMode(), 1);
+        searchLeaf(leaf, weight, collector);
+    }
+
     @Override
     protected void search(List<LeafReaderContext> leaves, Weight weight, Collector collector) throws IOException {
         for (LeafReaderContext ctx : leaves) { // search each subreader
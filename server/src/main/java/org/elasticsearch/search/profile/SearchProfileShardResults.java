@@ -19,9 +19,11 @@ package org.elasticsearch.search.profile;
  * under the License.
  */
 
+import org.elasticsearch.Version;
 import org.elasticsearch.common.io.stream.StreamInput;
 import org.elasticsearch.common.io.stream.StreamOutput;
 import org.elasticsearch.common.io.stream.Writeable;
+import org.elasticsearch.common.unit.ByteSizeValue;
 import org.elasticsearch.common.xcontent.ToXContent.Params;
 import org.elasticsearch.common.xcontent.ToXContentFragment;
 import org.elasticsearch.common.xcontent.XContentBuilder;
@@ -43,19 +45,33 @@ import static org.elasticsearch.common.xcontent.XContentParserUtils.ensureExpect
 
 /**
  * A container class to hold all the profile results across all shards.  Internally
- * holds a map of shard ID -&gt; Profiled results
+ * holds a map of shard ID -&gt; Profiled results, as well as the peak memory that the
+ * coordinating node accounted for while reducing the aggregations of these shards.
  */
 public final class SearchProfileShardResults implements Writeable, ToXContentFragment {
 
     private static final String SEARCHES_FIELD = "searches";
     private static final String ID_FIELD = "id";
     private static final String SHARDS_FIELD = "shards";
+    private static final String AGGREGATION_REDUCE_FIELD = "aggregation_reduce";
+    private static final String PEAK_MEMORY_FIELD = "peak_memory";
+    private static final String PEAK_MEMORY_IN_BYTES_FIELD = "peak_memory_in_bytes";
     public static final String PROFILE_FIELD = "profile";
 
     private Map<String, ProfileShardResult> shardResults;
+    private final long aggregationReducePeakMemoryInBytes;
 
     public SearchProfileShardResults(Map<String, ProfileShardResult> shardResults) {
+        this(shardResults, -1);
+    }
+
+    /**
+     * @param aggregationReducePeakMemoryInBytes the peak memory that was accounted for when reducing aggregations
+     *                                           or {@code -1} if unknown
+     */
+    public SearchProfileShardResults(Map<String, ProfileShardResult> shardResults, long aggregationReducePeakMemoryInBytes) {
         this.shardResults =  Collections.unmodifiableMap(shardResults);
+        this.aggregationReducePeakMemoryInBytes = aggregationReducePeakMemoryInBytes;
     }
 
     public SearchProfileShardResults(StreamInput in) throws IOException {
@@ -68,12 +84,25 @@ public final class SearchProfileShardResults implements Writeable, ToXContentFra
             shardResults.put(key, shardResult);
         }
         shardResults = Collections.unmodifiableMap(shardResults);
+        if (in.getVersion().onOrAfter(Version.V_8_0_0)) {
+            aggregationReducePeakMemoryInBytes = in.readZLong();
+        } else {
+            aggregationReducePeakMemoryInBytes = -1;
+        }
     }
 
     public Map<String, ProfileShardResult> getShardResults() {
         return this.shardResults;
     }
 
+    /**
+     * The peak memory that the coordinating node accounted for in the request circuit breaker while it was
+     * reducing the aggregations of all shards, or {@code -1} if unknown.
+     */
+    public long getAggregationReducePeakMemoryInBytes() {
+        return aggregationReducePeakMemoryInBytes;
+    }
+
     @Override
     public void writeTo(StreamOutput out) throws IOException {
         out.writeInt(shardResults.size());
@@ -81,6 +110,9 @@ public final class SearchProfileShardResults implements Writeable, ToXContentFra
             out.writeString(entry.getKey());
             entry.getValue().writeTo(out);
         }
+        if (out.getVersion().onOrAfter(Version.V_8_0_0)) {
+            out.writeZLong(aggregationReducePeakMemoryInBytes);
+        }
     }
 
     @Override
@@ -101,7 +133,14 @@ public final class SearchProfileShardResults implements Writeable, ToXContentFra
             profileShardResult.getAggregationProfileResults().toXContent(builder, params);
             builder.endObject();
         }
-        builder.endArray().endObject();
+        builder.endArray();
+        if (aggregationReducePeakMemoryInBytes >= 0) {
+            builder.startObject(AGGREGATION_REDUCE_FIELD);
+            builder.humanReadableField(PEAK_MEMORY_IN_BYTES_FIELD, PEAK_MEMORY_FIELD,
+                new ByteSizeValue(aggregationReducePeakMemoryInBytes));
+            builder.endObject();
+        }
+        builder.endObject();
         return builder;
     }
 
@@ -109,6 +148,7 @@ public final class SearchProfileShardResults implements Writeable, ToXContentFra
         XContentParser.Token token = parser.currentToken();
         ensureExpectedToken(XContentParser.Token.START_OBJECT, token, parser::getTokenLocation);
         Map<String, ProfileShardResult> searchProfileResults = new HashMap<>();
+        long aggregationReducePeakMemoryInBytes = -1;
         while ((token = parser.nextToken()) != XContentParser.Token.END_OBJECT) {
             if (token == XContentParser.Token.START_ARRAY) {
                 if (SHARDS_FIELD.equals(parser.currentName())) {
@@ -119,10 +159,32 @@ public final class SearchProfileShardResults implements Writeable, ToXContentFra
                     parser.skipChildren();
                 }
             } else if (token == XContentParser.Token.START_OBJECT) {
+                if (AGGREGATION_REDUCE_FIELD.equals(parser.currentName())) {
+                    aggregationReducePeakMemoryInBytes = parseAggregationReducePeakMemory(parser);
+                } else {
+                    parser.skipChildren();
+                }
+            }
+        }
+        return new SearchProfileShardResults(searchProfileResults, aggregationReducePeakMemoryInBytes);
+    }
+
+    private static long parseAggregationReducePeakMemory(XContentParser parser) throws IOException {
+        long peakMemoryInBytes = -1;
+        String currentFieldName = null;
+        XContentParser.Token token;
+        while ((token = parser.nextToken()) != XContentParser.Token.END_OBJECT) {
+            if (token == XContentParser.Token.FIELD_NAME) {
+                currentFieldName = parser.currentName();
+            } else if (token.isValue()) {
+                if (PEAK_MEMORY_IN_BYTES_FIELD.equals(currentFieldName)) {
+                    peakMemoryInBytes = parser.longValue();
+                }
+            } else {
                 parser.skipChildren();
             }
         }
-        return new SearchProfileShardResults(searchProfileResults);
+        return peakMemoryInBytes;
     }
 
     private static void parseSearchProfileResultsEntry(XContentParser parser,
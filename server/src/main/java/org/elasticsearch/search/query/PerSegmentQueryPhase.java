@@ -0,0 +1,217 @@
+/*
+ * Licensed to Elasticsearch under one or more contributor
+ * license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright
+ * ownership. Elasticsearch licenses this file to you under
+ * the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.elasticsearch.search.query;
+
+import org.apache.lucene.index.LeafReaderContext;
+import org.apache.lucene.search.MultiCollector;
+import org.apache.lucene.search.TopDocs;
+import org.apache.lucene.search.TopFieldDocs;
+import org.apache.lucene.search.TotalHitCountCollector;
+import org.apache.lucene.search.TotalHits;
+import org.elasticsearch.common.io.stream.StreamInput;
+import org.elasticsearch.common.io.stream.StreamOutput;
+import org.elasticsearch.common.io.stream.Writeable;
+import org.elasticsearch.common.lucene.Lucene;
+import org.elasticsearch.common.lucene.search.TopDocsAndMaxScore;
+import org.elasticsearch.search.SearchService;
+import org.elasticsearch.search.aggregations.AggregationBuilder;
+import org.elasticsearch.search.aggregations.AggregationExecutionException;
+import org.elasticsearch.search.aggregations.AggregationInitializationException;
+import org.elasticsearch.search.aggregations.Aggregator;
+import org.elasticsearch.search.aggregations.AggregatorFactories;
+import org.elasticsearch.search.aggregations.BucketCollector;
+import org.elasticsearch.search.aggregations.InternalAggregation;
+import org.elasticsearch.search.aggregations.InternalAggregations;
+import org.elasticsearch.search.aggregations.MultiBucketCollector;
+import org.elasticsearch.search.aggregations.bucket.global.GlobalAggregator;
+import org.elasticsearch.search.internal.SearchContext;
+import org.elasticsearch.tasks.TaskCancelledException;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * Executes the query phase of requests that only count hits and compute aggregations one segment at a time, so that the
+ * request cache can cache the result of each segment and only compute the segments that are new since the last refresh.
+ * The results of the segments are partially reduced into the result of the shard.
+ */
+public final class PerSegmentQueryPhase {
+
+    private PerSegmentQueryPhase() {}
+
+    /**
+     * Can the query phase of the provided context be executed one segment at a time? This requires a request that doesn't
+     * return hits and whose aggregations all support segment level results, see
+     * {@link AggregationBuilder#supportsSegmentLevelResults()}.
+     */
+    public static boolean canExecute(SearchContext context) {
+        if (context.size() != 0
+                || context.aggregations() == null
+                || context.request().source() == null
+                || context.request().source().aggregations() == null
+                || context.scrollContext() != null
+                || context.suggest() != null
+                || context.rescore().isEmpty() == false
+                || context.parsedPostFilter() != null
+                || context.minimumScore() != null
+                || context.terminateAfter() != SearchContext.DEFAULT_TERMINATE_AFTER
+                || context.getProfilers() != null) {
+            return false;
+        }
+        if (context.timeout() != null && context.timeout().equals(SearchService.NO_TIMEOUT) == false) {
+            // a timed out segment would leave a partial result in the cache
+            return false;
+        }
+        AggregatorFactories.Builder aggregations = context.request().source().aggregations();
+        return aggregations.getAggregatorFactories().isEmpty() == false
+            && supportsSegmentLevelResults(aggregations.getAggregatorFactories());
+    }
+
+    private static boolean supportsSegmentLevelResults(Collection<AggregationBuilder> builders) {
+        for (AggregationBuilder builder : builders) {
+            if (builder.supportsSegmentLevelResults() == false || supportsSegmentLevelResults(builder.getSubAggregations()) == false) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Counts the hits and computes the aggregations of the provided segment.
+     */
+    public static SegmentResult execute(SearchContext context, LeafReaderContext leaf) throws QueryPhaseExecutionException {
+        assert canExecute(context);
+        final Aggregator[] aggregators;
+        try {
+            aggregators = context.aggregations().factories().createTopLevelAggregators(context);
+        } catch (IOException e) {
+            throw new AggregationInitializationException("Could not initialize aggregators", e);
+        }
+        assert Arrays.stream(aggregators).noneMatch(aggregator -> aggregator instanceof GlobalAggregator);
+        final TotalHitCountCollector hitCountCollector = new TotalHitCountCollector();
+        final Runnable cancellation;
+        if (context.lowLevelCancellation()) {
+            cancellation = context.searcher().addQueryCancellation(() -> {
+                if (context.getTask() != null && context.getTask().isCancelled()) {
+                    throw new TaskCancelledException("cancelled");
+                }
+            });
+        } else {
+            cancellation = null;
+        }
+        try {
+            final BucketCollector aggsCollector = MultiBucketCollector.wrap(Arrays.asList(aggregators));
+            aggsCollector.preCollection();
+            context.searcher().search(leaf, context.query(), MultiCollector.wrap(hitCountCollector, aggsCollector));
+        } catch (Exception e) {
+            throw new QueryPhaseExecutionException(context.shardTarget(), "Failed to execute main query", e);
+        } finally {
+            if (cancellation != null) {
+                context.searcher().removeQueryCancellation(cancellation);
+            }
+        }
+
+        final List<InternalAggregation> aggregations = new ArrayList<>(aggregators.length);
+        context.aggregations().resetBucketMultiConsumer();
+        for (Aggregator aggregator : aggregators) {
+            try {
+                aggregator.postCollection();
+                aggregations.add(aggregator.buildTopLevel());
+            } catch (IOException e) {
+                throw new AggregationExecutionException("Failed to build aggregation [" + aggregator.name() + "]", e);
+            }
+        }
+        return new SegmentResult(hitCountCollector.getTotalHits(), new InternalAggregations(aggregations));
+    }
+
+    /**
+     * Reduces the results of all segments into the {@link SearchContext#queryResult() query result} of the provided context.
+     */
+    public static void reduce(SearchContext context, List<SegmentResult> results, InternalAggregation.ReduceContext reduceContext) {
+        assert results.isEmpty() == false : "shards without segments must use the regular query phase";
+        long hitCount = 0;
+        final List<InternalAggregations> aggregations = new ArrayList<>(results.size());
+        for (SegmentResult result : results) {
+            hitCount += result.hitCount;
+            aggregations.add(result.aggregations);
+        }
+
+        final TotalHits totalHits;
+        final int trackTotalHitsUpTo = context.trackTotalHitsUpTo();
+        if (trackTotalHitsUpTo == SearchContext.TRACK_TOTAL_HITS_DISABLED) {
+            // for bwc hit count is set to 0, it will be converted to -1 by the coordinating node
+            totalHits = new TotalHits(0, TotalHits.Relation.GREATER_THAN_OR_EQUAL_TO);
+        } else if (hitCount > trackTotalHitsUpTo) {
+            totalHits = new TotalHits(trackTotalHitsUpTo, TotalHits.Relation.GREATER_THAN_OR_EQUAL_TO);
+        } else {
+            totalHits = new TotalHits(hitCount, TotalHits.Relation.EQUAL_TO);
+        }
+        final TopDocs topDocs;
+        if (context.sort() != null) {
+            topDocs = new TopFieldDocs(totalHits, Lucene.EMPTY_SCORE_DOCS, context.sort().sort.getSort());
+        } else {
+            topDocs = new TopDocs(totalHits, Lucene.EMPTY_SCORE_DOCS);
+        }
+
+        final QuerySearchResult queryResult = context.queryResult();
+        queryResult.searchTimedOut(false);
+        queryResult.from(context.from());
+        queryResult.size(context.size());
+        queryResult.topDocs(new TopDocsAndMaxScore(topDocs, Float.NaN), null);
+        queryResult.aggregations(InternalAggregations.reduce(aggregations, reduceContext));
+        // disable aggregations so that they don't run again
+        context.aggregations(null);
+    }
+
+    /**
+     * The number of hits and the aggregations of a single segment.
+     */
+    public static final class SegmentResult implements Writeable {
+        private final long hitCount;
+        private final InternalAggregations aggregations;
+
+        SegmentResult(long hitCount, InternalAggregations aggregations) {
+            this.hitCount = hitCount;
+            this.aggregations = aggregations;
+        }
+
+        public SegmentResult(StreamInput in) throws IOException {
+            hitCount = in.readVLong();
+            aggregations = new InternalAggregations(in);
+        }
+
+        @Override
+        public void writeTo(StreamOutput out) throws IOException {
+            out.writeVLong(hitCount);
+            aggregations.writeTo(out);
+        }
+
+        public long getHitCount() {
+            return hitCount;
+        }
+
+        public InternalAggregations getAggregations() {
+            return aggregations;
+        }
+    }
+}
@@ -335,8 +335,14 @@ public class QueryPhase implements SearchPhase {
         // add the top docs collector, the first collector context in the chain
         collectors.addFirst(topDocsFactory);
 
+        // the segments can only be searched concurrently when the top docs collector is the only collector in the chain
+        final TopDocsCollectorContext.TopDocsCollectorManager topDocsManager =
+            searcher.isConcurrent() && collectors.size() == 1 && searchContext.getProfilers() == null ?
+                topDocsFactory.createManager() : null;
         final Collector queryCollector;
-        if (searchContext.getProfilers() != null) {
+        if (topDocsManager != null) {
+            queryCollector = null;
+        } else if (searchContext.getProfilers() != null) {
             InternalProfileCollector profileCollector = QueryCollectorContext.createQueryCollectorWithProfiler(collectors);
             searchContext.getProfilers().getCurrentQueryProfiler().setCollector(profileCollector);
             queryCollector = profileCollector;
@@ -345,7 +351,11 @@ public class QueryPhase implements SearchPhase {
         }
         QuerySearchResult queryResult = searchContext.queryResult();
         try {
-            searcher.search(query, queryCollector);
+            if (topDocsManager != null) {
+                searcher.search(query, topDocsManager);
+            } else {
+                searcher.search(query, queryCollector);
+            }
         } catch (EarlyTerminatingCollector.EarlyTerminationException e) {
             queryResult.terminatedEarly(true);
         } catch (TimeExceededException e) {
@@ -354,6 +364,10 @@ public class QueryPhase implements SearchPhase {
                 // Can't rethrow TimeExceededException because not serializable
                 throw new QueryPhaseExecutionException(searchContext.shardTarget(), "Time exceeded");
             }
+            if (topDocsManager != null) {
+                // merge the hits that were collected on each slice before the timeout
+                topDocsManager.reduceCollected();
+            }
             queryResult.searchTimedOut(true);
         } finally {
             searchContext.clearReleasables(SearchContext.Lifetime.COLLECTION);
@@ -30,6 +30,7 @@ import org.apache.lucene.index.Terms;
 import org.apache.lucene.search.BooleanClause;
 import org.apache.lucene.search.BoostQuery;
 import org.apache.lucene.search.Collector;
+import org.apache.lucene.search.CollectorManager;
 import org.apache.lucene.search.ConstantScoreQuery;
 import org.apache.lucene.search.DocValuesFieldExistsQuery;
 import org.apache.lucene.search.FieldDoc;
@@ -67,6 +68,9 @@ import org.elasticsearch.search.rescore.RescoreContext;
 import org.elasticsearch.search.sort.SortAndFormats;
 
 import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
 import java.util.Objects;
 import java.util.function.Supplier;
 
@@ -98,6 +102,34 @@ abstract class TopDocsCollectorContext extends QueryCollectorContext {
         return false;
     }
 
+    /**
+     * Returns a {@link TopDocsCollectorManager} that collects the top docs concurrently on slices of the leaves,
+     * or <code>null</code> if this context can only be collected sequentially.
+     */
+    @Nullable
+    TopDocsCollectorManager createManager() {
+        return null;
+    }
+
+    /**
+     * A {@link CollectorManager} that merges the top docs of the collectors it creates into the top docs
+     * of its {@link TopDocsCollectorContext} so that {@link #postProcess(QuerySearchResult)} can be
+     * used regardless of whether the search was executed sequentially or concurrently.
+     */
+    abstract static class TopDocsCollectorManager implements CollectorManager<Collector, Void> {
+        @Override
+        public final Void reduce(Collection<Collector> collectors) throws IOException {
+            reduceCollected();
+            return null;
+        }
+
+        /**
+         * Merges the results of all collectors created so far, including the partial results
+         * of collectors whose collection was interrupted by a timeout.
+         */
+        abstract void reduceCollected() throws IOException;
+    }
+
     static class EmptyTopDocsCollectorContext extends TopDocsCollectorContext {
         private final Sort sort;
         private final Collector collector;
@@ -219,10 +251,14 @@ abstract class TopDocsCollectorContext extends QueryCollectorContext {
         }
 
         protected final @Nullable SortAndFormats sortAndFormats;
+        private final @Nullable ScoreDoc searchAfter;
+        private final boolean trackMaxScore;
+        private final int hitCountThreshold;
         private final Collector collector;
         private final Supplier<TotalHits> totalHitsSupplier;
-        private final Supplier<TopDocs> topDocsSupplier;
-        private final Supplier<Float> maxScoreSupplier;
+        // replaced by the merged top docs when the search is executed with a TopDocsCollectorManager
+        private Supplier<TopDocs> topDocsSupplier;
+        private Supplier<Float> maxScoreSupplier;
 
         /**
          * Ctr
@@ -245,6 +281,8 @@ abstract class TopDocsCollectorContext extends QueryCollectorContext {
                                               boolean hasFilterCollector) throws IOException {
             super(REASON_SEARCH_TOP_HITS, numHits);
             this.sortAndFormats = sortAndFormats;
+            this.searchAfter = searchAfter;
+            this.trackMaxScore = trackMaxScore;
 
             final TopDocsCollector<?> topDocsCollector;
 
@@ -252,24 +290,28 @@ abstract class TopDocsCollectorContext extends QueryCollectorContext {
                     && hasInfMaxScore(query)) {
                 // disable max score optimization since we have a mandatory clause
                 // that doesn't track the maximum score
-                topDocsCollector = createCollector(sortAndFormats, numHits, searchAfter, Integer.MAX_VALUE);
+                hitCountThreshold = Integer.MAX_VALUE;
+                topDocsCollector = createCollector(sortAndFormats, numHits, searchAfter, hitCountThreshold);
                 topDocsSupplier = new CachedSupplier<>(topDocsCollector::topDocs);
                 totalHitsSupplier = () -> topDocsSupplier.get().totalHits;
             } else if (trackTotalHitsUpTo == SearchContext.TRACK_TOTAL_HITS_DISABLED) {
                 // don't compute hit counts via the collector
-                topDocsCollector = createCollector(sortAndFormats, numHits, searchAfter, 1);
+                hitCountThreshold = 1;
+                topDocsCollector = createCollector(sortAndFormats, numHits, searchAfter, hitCountThreshold);
                 topDocsSupplier = new CachedSupplier<>(topDocsCollector::topDocs);
                 totalHitsSupplier = () -> new TotalHits(0, TotalHits.Relation.GREATER_THAN_OR_EQUAL_TO);
             } else {
                 // implicit total hit counts are valid only when there is no filter collector in the chain
                 final int hitCount = hasFilterCollector ? -1 : shortcutTotalHitCount(reader, query);
                 if (hitCount == -1) {
-                    topDocsCollector = createCollector(sortAndFormats, numHits, searchAfter, trackTotalHitsUpTo);
+                    hitCountThreshold = trackTotalHitsUpTo;
+                    topDocsCollector = createCollector(sortAndFormats, numHits, searchAfter, hitCountThreshold);
                     topDocsSupplier = new CachedSupplier<>(topDocsCollector::topDocs);
                     totalHitsSupplier = () -> topDocsSupplier.get().totalHits;
                 } else {
                     // don't compute hit counts via the collector
-                    topDocsCollector = createCollector(sortAndFormats, numHits, searchAfter, 1);
+                    hitCountThreshold = 1;
+                    topDocsCollector = createCollector(sortAndFormats, numHits, searchAfter, hitCountThreshold);
                     topDocsSupplier = new CachedSupplier<>(topDocsCollector::topDocs);
                     totalHitsSupplier = () -> new TotalHits(hitCount, TotalHits.Relation.EQUAL_TO);
                 }
@@ -301,6 +343,66 @@ abstract class TopDocsCollectorContext extends QueryCollectorContext {
             return collector;
         }
 
+        @Override
+        TopDocsCollectorManager createManager() {
+            return new TopDocsCollectorManager() {
+                private final List<TopDocsCollector<?>> topDocsCollectors = new ArrayList<>();
+                private final List<MaxScoreCollector> maxScoreCollectors = new ArrayList<>();
+
+                @Override
+                public Collector newCollector() {
+                    final TopDocsCollector<?> topDocsCollector = createCollector(sortAndFormats, numHits, searchAfter, hitCountThreshold);
+                    topDocsCollectors.add(topDocsCollector);
+                    MaxScoreCollector maxScoreCollector = null;
+                    if (sortAndFormats != null && trackMaxScore) {
+                        maxScoreCollector = new MaxScoreCollector();
+                        maxScoreCollectors.add(maxScoreCollector);
+                    }
+                    return MultiCollector.wrap(topDocsCollector, maxScoreCollector);
+                }
+
+                @Override
+                void reduceCollected() {
+                    final TopDocs mergedTopDocs = mergeTopDocs(topDocsCollectors);
+                    topDocsSupplier = () -> mergedTopDocs;
+                    if (maxScoreCollectors.isEmpty() == false) {
+                        float maxScore = Float.NaN;
+                        for (MaxScoreCollector maxScoreCollector : maxScoreCollectors) {
+                            final float score = maxScoreCollector.getMaxScore();
+                            if (Float.isNaN(maxScore) || score > maxScore) {
+                                maxScore = score;
+                            }
+                        }
+                        final float mergedMaxScore = maxScore;
+                        maxScoreSupplier = () -> mergedMaxScore;
+                    }
+                }
+            };
+        }
+
+        private TopDocs mergeTopDocs(List<TopDocsCollector<?>> topDocsCollectors) {
+            final TopDocs mergedTopDocs;
+            if (sortAndFormats == null) {
+                final TopDocs[] topDocs = new TopDocs[topDocsCollectors.size()];
+                for (int i = 0; i < topDocs.length; i++) {
+                    topDocs[i] = topDocsCollectors.get(i).topDocs();
+                }
+                mergedTopDocs = TopDocs.merge(numHits, topDocs);
+            } else {
+                final TopFieldDocs[] topDocs = new TopFieldDocs[topDocsCollectors.size()];
+                for (int i = 0; i < topDocs.length; i++) {
+                    topDocs[i] = (TopFieldDocs) topDocsCollectors.get(i).topDocs();
+                }
+                mergedTopDocs = TopDocs.merge(sortAndFormats.sort, numHits, topDocs);
+            }
+            // Lucene sets shards indexes during merging of topDocs from different collectors
+            // We need to reset shard index; ES will set shard index later during reduce stage
+            for (ScoreDoc scoreDoc : mergedTopDocs.scoreDocs) {
+                scoreDoc.shardIndex = -1;
+            }
+            return mergedTopDocs;
+        }
+
         TopDocsAndMaxScore newTopDocs() {
             TopDocs in = topDocsSupplier.get();
             float maxScore = maxScoreSupplier.get();
@@ -340,6 +442,13 @@ abstract class TopDocsCollectorContext extends QueryCollectorContext {
             this.numberOfShards = numberOfShards;
         }
 
+        @Override
+        TopDocsCollectorManager createManager() {
+            // scrolls export whole result sets one batch at a time, keep them sequential so that they don't take the
+            // search workers from interactive searches
+            return null;
+        }
+
         @Override
         void postProcess(QuerySearchResult result) throws IOException {
             final TopDocsAndMaxScore topDocs = newTopDocs();
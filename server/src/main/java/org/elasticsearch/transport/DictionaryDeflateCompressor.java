@@ -0,0 +1,207 @@
+/*
+ * Licensed to Elasticsearch under one or more contributor
+ * license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright
+ * ownership. Elasticsearch licenses this file to you under
+ * the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.elasticsearch.transport;
+
+import org.elasticsearch.Version;
+import org.elasticsearch.common.bytes.BytesReference;
+import org.elasticsearch.common.compress.Compressor;
+import org.elasticsearch.common.compress.CompressorFactory;
+import org.elasticsearch.common.io.stream.InputStreamStreamInput;
+import org.elasticsearch.common.io.stream.OutputStreamStreamOutput;
+import org.elasticsearch.common.io.stream.StreamInput;
+import org.elasticsearch.common.io.stream.StreamOutput;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.zip.Deflater;
+import java.util.zip.DeflaterOutputStream;
+import java.util.zip.Inflater;
+import java.util.zip.InflaterInputStream;
+
+/**
+ * A DEFLATE based {@link Compressor} for transport messages that favours speed over compression ratio. Transport
+ * messages are usually small, which leaves DEFLATE little history to find repetitions in, so both sides preset the
+ * same dictionary of strings that commonly appear in transport messages, like action names and the keys of search
+ * requests and mappings.
+ * <p>
+ * Dictionaries are part of the wire format. The last byte of the header is the id of the dictionary, and every
+ * dictionary records the first node version that knows it, so that senders only use dictionaries that the receiving
+ * node can read. A released dictionary must never change: improvements go into a new dictionary with the next id.
+ */
+final class DictionaryDeflateCompressor implements Compressor {
+
+    // must differ from the header of the DeflateCompressor, the header is followed by the id of the dictionary
+    private static final byte[] HEADER_PREFIX = new byte[]{'D', 'F', 'D'};
+    private static final int LEVEL = Deflater.BEST_SPEED;
+    private static final int BUFFER_SIZE = 4096;
+
+    // DEFLATE encodes the distance of a match, so the most frequent strings go last
+    static final DictionaryDeflateCompressor V1 = new DictionaryDeflateCompressor((byte) 1, Version.V_8_0_0, String.join("",
+        "_shards", "_seq_no", "_primary_term", "_version", "_routing", "_score", "_source", "_index", "_type", "_id", "_doc",
+        "keyword", "text", "long", "integer", "double", "float", "date", "boolean", "ip", "object", "nested", "properties",
+        "fields", "format", "analyzer", "ignore_above", "index", "type", "mappings", "settings", "aliases",
+        "aggregations", "aggs", "terms", "histogram", "date_histogram", "avg", "sum", "min", "max", "cardinality", "size",
+        "sort", "order", "asc", "desc", "from", "track_total_hits", "highlight", "includes", "excludes",
+        "query", "bool", "must", "must_not", "should", "filter", "match", "match_all", "match_phrase", "multi_match",
+        "term", "range", "gte", "lte", "gt", "lt", "exists", "field", "value", "boost", "minimum_should_match",
+        "internal:cluster/coordination/publish_state", "internal:cluster/coordination/commit_state",
+        "internal:coordination/fault_detection/follower_check", "internal:coordination/fault_detection/leader_check",
+        "cluster:monitor/nodes/stats[n]", "cluster:monitor/stats[n]", "indices:monitor/stats[n]",
+        "indices:data/read/get[s]", "indices:data/read/mget[shard][s]", "indices:data/read/search[free_context]",
+        "indices:data/read/search[phase/fetch/id]", "indices:data/read/search[phase/query]",
+        "indices:data/read/search[phase/dfs]", "indices:data/read/search[can_match]",
+        "indices:admin/seq_no/global_checkpoint_sync[r]", "indices:admin/seq_no/global_checkpoint_sync[p]",
+        "indices:data/write/bulk[s][r]", "indices:data/write/bulk[s][p]", "indices:data/write/bulk[s]"
+    ));
+
+    // from the oldest to the newest dictionary
+    private static final List<DictionaryDeflateCompressor> DICTIONARIES = List.of(V1);
+
+    private final byte[] header;
+    private final Version minimumVersion;
+    private final byte[] dictionary;
+
+    private DictionaryDeflateCompressor(byte id, Version minimumVersion, String dictionary) {
+        this.header = Arrays.copyOf(HEADER_PREFIX, HEADER_PREFIX.length + 1);
+        this.header[HEADER_PREFIX.length] = id;
+        this.minimumVersion = minimumVersion;
+        this.dictionary = dictionary.getBytes(StandardCharsets.UTF_8);
+        assert header.length == CompressorFactory.COMPRESSOR.headerLength() : "compressors must use headers of the same length";
+    }
+
+    /**
+     * Returns the compressor with the newest dictionary that nodes of the given version know, or {@code null} if they don't
+     * know any.
+     */
+    static DictionaryDeflateCompressor forVersion(Version version) {
+        for (int i = DICTIONARIES.size() - 1; i >= 0; i--) {
+            final DictionaryDeflateCompressor compressor = DICTIONARIES.get(i);
+            if (version.onOrAfter(compressor.minimumVersion)) {
+                return compressor;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Returns the compressor whose dictionary the given content was compressed with, or {@code null} if it isn't compressed
+     * with a dictionary that this node knows.
+     */
+    static DictionaryDeflateCompressor detect(BytesReference bytes) {
+        for (DictionaryDeflateCompressor compressor : DICTIONARIES) {
+            if (compressor.isCompressed(bytes)) {
+                return compressor;
+            }
+        }
+        return null;
+    }
+
+    @Override
+    public boolean isCompressed(BytesReference bytes) {
+        if (bytes.length() < header.length) {
+            return false;
+        }
+        for (int i = 0; i < header.length; ++i) {
+            if (bytes.get(i) != header[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    @Override
+    public int headerLength() {
+        return header.length;
+    }
+
+    /**
+     * Creates a raw {@link Inflater} that is ready to read content that was compressed by this compressor.
+     */
+    Inflater newInflater() {
+        final Inflater inflater = new Inflater(true);
+        inflater.setDictionary(dictionary);
+        return inflater;
+    }
+
+    @Override
+    public StreamInput streamInput(StreamInput in) throws IOException {
+        final byte[] headerBytes = new byte[header.length];
+        int len = 0;
+        while (len < headerBytes.length) {
+            final int read = in.read(headerBytes, len, headerBytes.length - len);
+            if (read == -1) {
+                break;
+            }
+            len += read;
+        }
+        if (len != header.length || Arrays.equals(headerBytes, header) == false) {
+            throw new IllegalArgumentException("Input stream is not compressed with DEFLATE and the transport dictionary!");
+        }
+
+        final Inflater inflater = newInflater();
+        InputStream decompressedIn = new InflaterInputStream(in, inflater, BUFFER_SIZE);
+        decompressedIn = new BufferedInputStream(decompressedIn, BUFFER_SIZE);
+        return new InputStreamStreamInput(decompressedIn) {
+            final AtomicBoolean closed = new AtomicBoolean(false);
+
+            public void close() throws IOException {
+                try {
+                    super.close();
+                } finally {
+                    if (closed.compareAndSet(false, true)) {
+                        // important to release native memory
+                        inflater.end();
+                    }
+                }
+            }
+        };
+    }
+
+    @Override
+    public StreamOutput streamOutput(OutputStream out) throws IOException {
+        out.write(header);
+        final Deflater deflater = new Deflater(LEVEL, true);
+        deflater.setDictionary(dictionary);
+        final boolean syncFlush = true;
+        DeflaterOutputStream deflaterOutputStream = new DeflaterOutputStream(out, deflater, BUFFER_SIZE, syncFlush);
+        OutputStream compressedOut = new BufferedOutputStream(deflaterOutputStream, BUFFER_SIZE);
+        return new OutputStreamStreamOutput(compressedOut) {
+            final AtomicBoolean closed = new AtomicBoolean(false);
+
+            public void close() throws IOException {
+                try {
+                    super.close();
+                } finally {
+                    if (closed.compareAndSet(false, true)) {
+                        // important to release native memory
+                        deflater.end();
+                    }
+                }
+            }
+        };
+    }
+}
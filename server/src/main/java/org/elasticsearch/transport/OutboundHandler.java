@@ -50,14 +50,21 @@ public final class OutboundHandler {
     private final StatsTracker statsTracker;
     private final ThreadPool threadPool;
     private final BigArrays bigArrays;
+    private final TransportCompressionScheme compressionScheme;
     private volatile TransportMessageListener messageListener = TransportMessageListener.NOOP_LISTENER;
 
     OutboundHandler(String nodeName, Version version, StatsTracker statsTracker, ThreadPool threadPool, BigArrays bigArrays) {
+        this(nodeName, version, statsTracker, threadPool, bigArrays, TransportCompressionScheme.DEFLATE);
+    }
+
+    OutboundHandler(String nodeName, Version version, StatsTracker statsTracker, ThreadPool threadPool, BigArrays bigArrays,
+                    TransportCompressionScheme compressionScheme) {
         this.nodeName = nodeName;
         this.version = version;
         this.statsTracker = statsTracker;
         this.threadPool = threadPool;
         this.bigArrays = bigArrays;
+        this.compressionScheme = compressionScheme;
     }
 
     void sendBytes(TcpChannel channel, BytesReference bytes, ActionListener<Void> listener) {
@@ -77,7 +84,7 @@ public final class OutboundHandler {
             new OutboundMessage.Request(threadPool.getThreadContext(), request, version, action, requestId, isHandshake, compressRequest);
         ActionListener<Void> listener = ActionListener.wrap(() ->
             messageListener.onRequestSent(node, requestId, action, request, options));
-        sendMessage(channel, message, listener);
+        sendMessage(channel, action, message, listener);
     }
 
     /**
@@ -92,7 +99,7 @@ public final class OutboundHandler {
         OutboundMessage.Response message = new OutboundMessage.Response(threadPool.getThreadContext(), response, version,
             requestId, isHandshake, compress);
         ActionListener<Void> listener = ActionListener.wrap(() -> messageListener.onResponseSent(requestId, action, response));
-        sendMessage(channel, message, listener);
+        sendMessage(channel, action, message, listener);
     }
 
     /**
@@ -106,11 +113,12 @@ public final class OutboundHandler {
         OutboundMessage.Response message = new OutboundMessage.Response(threadPool.getThreadContext(), tx, version, requestId,
             false, false);
         ActionListener<Void> listener = ActionListener.wrap(() -> messageListener.onResponseSent(requestId, action, error));
-        sendMessage(channel, message, listener);
+        sendMessage(channel, action, message, listener);
     }
 
-    private void sendMessage(TcpChannel channel, OutboundMessage networkMessage, ActionListener<Void> listener) throws IOException {
-        MessageSerializer serializer = new MessageSerializer(networkMessage, bigArrays);
+    private void sendMessage(TcpChannel channel, String action, OutboundMessage networkMessage,
+                             ActionListener<Void> listener) throws IOException {
+        MessageSerializer serializer = new MessageSerializer(action, networkMessage, bigArrays, compressionScheme, statsTracker);
         SendContext sendContext = new SendContext(channel, serializer, listener, serializer);
         internalSend(channel, sendContext);
     }
@@ -138,20 +146,33 @@ public final class OutboundHandler {
 
     private static class MessageSerializer implements CheckedSupplier<BytesReference, IOException>, Releasable {
 
+        private final String action;
         private OutboundMessage message;
         private final BigArrays bigArrays;
+        private final TransportCompressionScheme compressionScheme;
+        private final StatsTracker statsTracker;
         private volatile ReleasableBytesStreamOutput bytesStreamOutput;
 
-        private MessageSerializer(OutboundMessage message, BigArrays bigArrays) {
+        private MessageSerializer(String action, OutboundMessage message, BigArrays bigArrays,
+                                  TransportCompressionScheme compressionScheme, StatsTracker statsTracker) {
+            this.action = action;
             this.message = message;
             this.bigArrays = bigArrays;
+            this.compressionScheme = compressionScheme;
+            this.statsTracker = statsTracker;
         }
 
         @Override
         public BytesReference get() throws IOException {
             try {
                 bytesStreamOutput = new ReleasableBytesStreamOutput(bigArrays);
-                return message.serialize(bytesStreamOutput);
+                final long startTime = System.nanoTime();
+                final BytesReference reference = message.serialize(bytesStreamOutput, compressionScheme);
+                if (message.isCompress()) {
+                    statsTracker.markMessageCompressed(action, message.getUncompressedBytes(), message.getCompressedBytes(),
+                        System.nanoTime() - startTime);
+                }
+                return reference;
             } finally {
                 message = null;
             }
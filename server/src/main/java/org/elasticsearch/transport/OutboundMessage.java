@@ -33,6 +33,8 @@ import java.io.IOException;
 abstract class OutboundMessage extends NetworkMessage {
 
     private final Writeable message;
+    private long uncompressedBytes = -1;
+    private long compressedBytes = -1;
 
     OutboundMessage(ThreadContext threadContext, Version version, byte status, long requestId, Writeable message) {
         super(threadContext, version, status, requestId);
@@ -40,6 +42,10 @@ abstract class OutboundMessage extends NetworkMessage {
     }
 
     BytesReference serialize(BytesStreamOutput bytesStream) throws IOException {
+        return serialize(bytesStream, TransportCompressionScheme.DEFLATE);
+    }
+
+    BytesReference serialize(BytesStreamOutput bytesStream, TransportCompressionScheme compressionScheme) throws IOException {
         bytesStream.setVersion(version);
         bytesStream.skip(TcpHeader.headerSize(version));
 
@@ -53,13 +59,19 @@ abstract class OutboundMessage extends NetworkMessage {
             variableHeaderLength = Math.toIntExact(bytesStream.position() - preHeaderPosition);
         }
 
-        try (CompressibleBytesOutputStream stream =
-                 new CompressibleBytesOutputStream(bytesStream, TransportStatus.isCompress(status))) {
+        final long preMessagePosition = bytesStream.position();
+        try (CompressibleBytesOutputStream stream = new CompressibleBytesOutputStream(bytesStream, TransportStatus.isCompress(status),
+                 compressionScheme.compressor(version))) {
             stream.setVersion(version);
             if (variableHeaderLength == -1) {
                 writeVariableHeader(stream);
             }
             reference = writeMessage(stream);
+            if (isCompress()) {
+                uncompressedBytes = stream.uncompressedBytes();
+                // only count what the compressor wrote, not a zero-copy buffer that is appended uncompressed
+                compressedBytes = bytesStream.position() - preMessagePosition;
+            }
         }
 
         bytesStream.seek(0);
@@ -72,6 +84,22 @@ abstract class OutboundMessage extends NetworkMessage {
         threadContext.writeTo(stream);
     }
 
+    /**
+     * The number of bytes of the compressed part of this message before compression, or {@code -1} if the message was not
+     * compressed or not serialized yet.
+     */
+    long getUncompressedBytes() {
+        return uncompressedBytes;
+    }
+
+    /**
+     * The number of bytes of the compressed part of this message after compression, or {@code -1} if the message was not
+     * compressed or not serialized yet.
+     */
+    long getCompressedBytes() {
+        return compressedBytes;
+    }
+
     protected BytesReference writeMessage(CompressibleBytesOutputStream stream) throws IOException {
         final BytesReference zeroCopyBuffer;
         if (message instanceof BytesTransportRequest) {
@@ -21,6 +21,10 @@ package org.elasticsearch.transport;
 
 import org.elasticsearch.common.metrics.MeanMetric;
 
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 import java.util.concurrent.atomic.LongAdder;
 
 public class StatsTracker {
@@ -28,6 +32,7 @@ public class StatsTracker {
     private final LongAdder bytesRead = new LongAdder();
     private final LongAdder messagesReceived = new LongAdder();
     private final MeanMetric writeBytesMetric = new MeanMetric();
+    private final ConcurrentMap<String, CompressionMetric> compressionMetrics = new ConcurrentHashMap<>();
 
     public void markBytesRead(long bytesReceived) {
         bytesRead.add(bytesReceived);
@@ -41,6 +46,10 @@ public class StatsTracker {
         writeBytesMetric.inc(bytesWritten);
     }
 
+    public void markMessageCompressed(String action, long uncompressedBytes, long compressedBytes, long tookInNanos) {
+        compressionMetrics.computeIfAbsent(action, k -> new CompressionMetric()).inc(uncompressedBytes, compressedBytes, tookInNanos);
+    }
+
     public long getBytesRead() {
         return bytesRead.sum();
     }
@@ -61,4 +70,33 @@ public class StatsTracker {
     public long getMessagesSent() {
         return writeBytesMetric.count();
     }
+
+    /**
+     * Returns the statistics of the messages that were compressed, by action.
+     */
+    public Map<String, TransportStats.CompressionStats> getCompressionStats() {
+        final Map<String, TransportStats.CompressionStats> stats = new HashMap<>(compressionMetrics.size());
+        compressionMetrics.forEach((action, metric) -> stats.put(action, metric.stats()));
+        return stats;
+    }
+
+    private static final class CompressionMetric {
+
+        private final LongAdder count = new LongAdder();
+        private final LongAdder uncompressedBytes = new LongAdder();
+        private final LongAdder compressedBytes = new LongAdder();
+        private final LongAdder timeInNanos = new LongAdder();
+
+        void inc(long uncompressedBytes, long compressedBytes, long tookInNanos) {
+            this.count.increment();
+            this.uncompressedBytes.add(uncompressedBytes);
+            this.compressedBytes.add(compressedBytes);
+            this.timeInNanos.add(tookInNanos);
+        }
+
+        TransportStats.CompressionStats stats() {
+            return new TransportStats.CompressionStats(count.sum(), uncompressedBytes.sum(), compressedBytes.sum(),
+                timeInNanos.sum());
+        }
+    }
 }
@@ -0,0 +1,91 @@
+/*
+ * Licensed to Elasticsearch under one or more contributor
+ * license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright
+ * ownership. Elasticsearch licenses this file to you under
+ * the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.elasticsearch.transport;
+
+import org.elasticsearch.Version;
+import org.elasticsearch.common.bytes.BytesReference;
+import org.elasticsearch.common.compress.Compressor;
+import org.elasticsearch.common.compress.CompressorFactory;
+
+import java.util.Locale;
+
+/**
+ * The algorithms that compressed transport messages can be compressed with. Every compressed message starts with the
+ * header of its compressor, so the receiving side detects the scheme of each message on its own.
+ * <p>
+ * Both schemes are DEFLATE based because the receiving side inflates messages incrementally as their bytes arrive from
+ * the network. The LZ4 implementation of Lucene only compresses and decompresses whole blocks whose decompressed length
+ * is known up front, so a scheme based on it would need a block framing of its own on both sides.
+ */
+public enum TransportCompressionScheme {
+
+    /**
+     * DEFLATE with a trade-off between speed and compression ratio, understood by nodes of all versions.
+     */
+    DEFLATE {
+        @Override
+        Compressor compressor(Version version) {
+            return CompressorFactory.COMPRESSOR;
+        }
+    },
+
+    /**
+     * The fastest DEFLATE level with a dictionary of strings that are common in transport messages, which makes up for
+     * the lower level on small messages. See {@link DictionaryDeflateCompressor}.
+     */
+    DICTIONARY {
+        @Override
+        Compressor compressor(Version version) {
+            final DictionaryDeflateCompressor compressor = DictionaryDeflateCompressor.forVersion(version);
+            return compressor == null ? DEFLATE.compressor(version) : compressor;
+        }
+    };
+
+    /**
+     * Returns the compressor to compress messages for a connection of the given version with. The version of a connection is
+     * agreed on by the transport handshake, so connections to nodes that can't read this scheme fall back to {@link #DEFLATE}
+     * and connections to nodes that don't know the latest dictionary use the latest one they know.
+     */
+    abstract Compressor compressor(Version version);
+
+    /**
+     * Returns the compressor that the given compressed content was written with or {@code null} if it isn't compressed
+     * with any that this node knows.
+     */
+    static Compressor detect(BytesReference bytes) {
+        if (CompressorFactory.COMPRESSOR.isCompressed(bytes)) {
+            return CompressorFactory.COMPRESSOR;
+        }
+        return DictionaryDeflateCompressor.detect(bytes);
+    }
+
+    static int headerLength() {
+        return CompressorFactory.COMPRESSOR.headerLength();
+    }
+
+    public static TransportCompressionScheme parse(String value) {
+        return valueOf(value.toUpperCase(Locale.ROOT));
+    }
+
+    @Override
+    public String toString() {
+        return name().toLowerCase(Locale.ROOT);
+    }
+}
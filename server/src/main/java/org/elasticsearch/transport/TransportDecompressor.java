@@ -24,7 +24,7 @@ import org.apache.lucene.util.BytesRefIterator;
 import org.elasticsearch.common.bytes.BytesArray;
 import org.elasticsearch.common.bytes.BytesReference;
 import org.elasticsearch.common.bytes.ReleasableBytesReference;
-import org.elasticsearch.common.compress.CompressorFactory;
+import org.elasticsearch.common.compress.Compressor;
 import org.elasticsearch.common.recycler.Recycler;
 import org.elasticsearch.common.util.PageCacheRecycler;
 
@@ -36,7 +36,7 @@ import java.util.zip.Inflater;
 
 public class TransportDecompressor implements Closeable {
 
-    private final Inflater inflater;
+    private Inflater inflater;
     private final PageCacheRecycler recycler;
     private final ArrayDeque<Recycler.V<byte[]>> pages;
     private int pageOffset = PageCacheRecycler.BYTE_PAGE_SIZE;
@@ -44,14 +44,14 @@ public class TransportDecompressor implements Closeable {
 
     public TransportDecompressor(PageCacheRecycler recycler) {
         this.recycler = recycler;
-        inflater = new Inflater(true);
         pages = new ArrayDeque<>(4);
     }
 
     public int decompress(BytesReference bytesReference) throws IOException {
         int bytesConsumed = 0;
         if (hasReadHeader == false) {
-            if (CompressorFactory.COMPRESSOR.isCompressed(bytesReference) == false) {
+            final Compressor compressor = TransportCompressionScheme.detect(bytesReference);
+            if (compressor == null) {
                 int maxToRead = Math.min(bytesReference.length(), 10);
                 StringBuilder sb = new StringBuilder("stream marked as compressed, but no compressor found, first [")
                     .append(maxToRead).append("] content bytes out of [").append(bytesReference.length())
@@ -63,7 +63,12 @@ public class TransportDecompressor implements Closeable {
                 throw new IllegalStateException(sb.toString());
             }
             hasReadHeader = true;
-            int headerLength = CompressorFactory.COMPRESSOR.headerLength();
+            if (compressor instanceof DictionaryDeflateCompressor) {
+                inflater = ((DictionaryDeflateCompressor) compressor).newInflater();
+            } else {
+                inflater = new Inflater(true);
+            }
+            int headerLength = TransportCompressionScheme.headerLength();
             bytesReference = bytesReference.slice(headerLength, bytesReference.length() - headerLength);
             bytesConsumed += headerLength;
         }
@@ -113,11 +118,11 @@ public class TransportDecompressor implements Closeable {
     }
 
     public boolean canDecompress(int bytesAvailable) {
-        return hasReadHeader || bytesAvailable >= CompressorFactory.COMPRESSOR.headerLength();
+        return hasReadHeader || bytesAvailable >= TransportCompressionScheme.headerLength();
     }
 
     public boolean isEOS() {
-        return inflater.finished();
+        return inflater != null && inflater.finished();
     }
 
     public ReleasableBytesReference pollDecompressedPage() {
@@ -140,7 +145,9 @@ public class TransportDecompressor implements Closeable {
 
     @Override
     public void close() {
-        inflater.end();
+        if (inflater != null) {
+            inflater.end();
+        }
         for (Recycler.V<byte[]> page : pages) {
             page.close();
         }
@@ -27,6 +27,7 @@ import org.elasticsearch.common.io.stream.StreamInput;
 import org.elasticsearch.discovery.DiscoveryStats;
 import org.elasticsearch.http.HttpStats;
 import org.elasticsearch.indices.breaker.AllCircuitBreakerStats;
+import org.elasticsearch.index.mapper.SharedMappingStats;
 import org.elasticsearch.indices.breaker.CircuitBreakerStats;
 import org.elasticsearch.ingest.IngestStats;
 import org.elasticsearch.monitor.fs.FsInfo;
@@ -219,6 +220,17 @@ public class NodeStatsTests extends ESTestCase {
                     assertEquals(nodeStats.getTransport().getServerOpen(), deserializedNodeStats.getTransport().getServerOpen());
                     assertEquals(nodeStats.getTransport().getTxCount(), deserializedNodeStats.getTransport().getTxCount());
                     assertEquals(nodeStats.getTransport().getTxSize(), deserializedNodeStats.getTransport().getTxSize());
+                    assertEquals(nodeStats.getTransport().getCompressionStats().keySet(),
+                        deserializedNodeStats.getTransport().getCompressionStats().keySet());
+                    for (Map.Entry<String, TransportStats.CompressionStats> entry :
+                            nodeStats.getTransport().getCompressionStats().entrySet()) {
+                        TransportStats.CompressionStats deserialized =
+                            deserializedNodeStats.getTransport().getCompressionStats().get(entry.getKey());
+                        assertEquals(entry.getValue().getCount(), deserialized.getCount());
+                        assertEquals(entry.getValue().getUncompressedSize(), deserialized.getUncompressedSize());
+                        assertEquals(entry.getValue().getCompressedSize(), deserialized.getCompressedSize());
+                        assertEquals(entry.getValue().getTime(), deserialized.getTime());
+                    }
                 }
                 if (nodeStats.getHttp() == null) {
                     assertNull(deserializedNodeStats.getHttp());
@@ -260,6 +272,23 @@ public class NodeStatsTests extends ESTestCase {
                         assertEquals(queueStats.getTotal(), deserializedDiscoveryStats.getQueueStats().getTotal());
                         assertEquals(queueStats.getPending(), deserializedDiscoveryStats.getQueueStats().getPending());
                     }
+                    PublishClusterStateStats publishStats = discoveryStats.getPublishStats();
+                    if (publishStats == null) {
+                        assertNull(deserializedDiscoveryStats.getPublishStats());
+                    } else {
+                        PublishClusterStateStats deserializedPublishStats = deserializedDiscoveryStats.getPublishStats();
+                        assertEquals(publishStats.getFullClusterStateReceivedCount(),
+                            deserializedPublishStats.getFullClusterStateReceivedCount());
+                        assertEquals(publishStats.getPublicationCount(), deserializedPublishStats.getPublicationCount());
+                        assertEquals(publishStats.getDiffTimeMillis(), deserializedPublishStats.getDiffTimeMillis());
+                        assertEquals(publishStats.getIndexMetadataSerializationTimeMillis(),
+                            deserializedPublishStats.getIndexMetadataSerializationTimeMillis());
+                        assertEquals(publishStats.getStateSerializationTimeMillis(),
+                            deserializedPublishStats.getStateSerializationTimeMillis());
+                        assertEquals(publishStats.getIndexMetadataSerializedCount(),
+                            deserializedPublishStats.getIndexMetadataSerializedCount());
+                        assertEquals(publishStats.getIndexMetadataReusedCount(), deserializedPublishStats.getIndexMetadataReusedCount());
+                    }
                 }
                 IngestStats ingestStats = nodeStats.getIngestStats();
                 IngestStats deserializedIngestStats = deserializedNodeStats.getIngestStats();
@@ -303,6 +332,8 @@ public class NodeStatsTests extends ESTestCase {
                 } else {
                     assertEquals(adaptiveStats.getOutgoingConnections(), deserializedAdaptiveStats.getOutgoingConnections());
                     assertEquals(adaptiveStats.getRanks(), deserializedAdaptiveStats.getRanks());
+                    assertEquals(adaptiveStats.getHedgedRequests(), deserializedAdaptiveStats.getHedgedRequests());
+                    assertEquals(adaptiveStats.getHedgedRequestsWon(), deserializedAdaptiveStats.getHedgedRequestsWon());
                     adaptiveStats.getComputedStats().forEach((k, v) -> {
                         ResponseCollectorService.ComputedNodeStats aStats = adaptiveStats.getComputedStats().get(k);
                         ResponseCollectorService.ComputedNodeStats bStats = deserializedAdaptiveStats.getComputedStats().get(k);
@@ -340,6 +371,15 @@ public class NodeStatsTests extends ESTestCase {
                     assertEquals(limited, sum.getCompilationLimitTriggered());
                     assertEquals(compilations, sum.getCompilations());
                 }
+                SharedMappingStats sharedMappingStats = nodeStats.getSharedMappingStats();
+                SharedMappingStats deserializedSharedMappingStats = deserializedNodeStats.getSharedMappingStats();
+                if (sharedMappingStats == null) {
+                    assertNull(deserializedSharedMappingStats);
+                } else {
+                    assertEquals(sharedMappingStats.getMappings(), deserializedSharedMappingStats.getMappings());
+                    assertEquals(sharedMappingStats.getIndices(), deserializedSharedMappingStats.getIndices());
+                    assertEquals(sharedMappingStats.getSharedMappers(), deserializedSharedMappingStats.getSharedMappers());
+                }
             }
         }
     }
@@ -441,8 +481,17 @@ public class NodeStatsTests extends ESTestCase {
             }
             fsInfo = new FsInfo(randomNonNegativeLong(), ioStats, paths);
         }
-        TransportStats transportStats = frequently() ? new TransportStats(randomNonNegativeLong(), randomNonNegativeLong(),
-                randomNonNegativeLong(), randomNonNegativeLong(), randomNonNegativeLong()) : null;
+        TransportStats transportStats = null;
+        if (frequently()) {
+            Map<String, TransportStats.CompressionStats> compressionStats = new HashMap<>();
+            int numActions = randomIntBetween(0, 5);
+            for (int i = 0; i < numActions; i++) {
+                compressionStats.put(randomAlphaOfLengthBetween(3, 10), new TransportStats.CompressionStats(randomNonNegativeLong(),
+                    randomNonNegativeLong(), randomNonNegativeLong(), randomNonNegativeLong()));
+            }
+            transportStats = new TransportStats(randomNonNegativeLong(), randomNonNegativeLong(), randomNonNegativeLong(),
+                randomNonNegativeLong(), randomNonNegativeLong(), compressionStats);
+        }
         HttpStats httpStats = frequently() ? new HttpStats(randomNonNegativeLong(), randomNonNegativeLong()) : null;
         AllCircuitBreakerStats allCircuitBreakerStats = null;
         if (frequently()) {
@@ -463,6 +512,12 @@ public class NodeStatsTests extends ESTestCase {
                 : null,
                 randomBoolean()
                 ? new PublishClusterStateStats(
+                    randomNonNegativeLong(),
+                    randomNonNegativeLong(),
+                    randomNonNegativeLong(),
+                    randomNonNegativeLong(),
+                    randomNonNegativeLong(),
+                    randomNonNegativeLong(),
                     randomNonNegativeLong(),
                     randomNonNegativeLong(),
                     randomNonNegativeLong())
@@ -512,7 +567,9 @@ public class NodeStatsTests extends ESTestCase {
                     nodeStats.put(nodeId, stats);
                 }
             }
-            adaptiveSelectionStats = new AdaptiveSelectionStats(nodeConnections, nodeStats);
+            long hedgedRequests = randomNonNegativeLong();
+            adaptiveSelectionStats = new AdaptiveSelectionStats(nodeConnections, nodeStats, hedgedRequests,
+                randomLongBetween(0, hedgedRequests));
         }
         ScriptCacheStats scriptCacheStats = null;
         if (frequently()) {
@@ -524,10 +581,12 @@ public class NodeStatsTests extends ESTestCase {
             }
             scriptCacheStats = new ScriptCacheStats(stats);
         }
+        SharedMappingStats sharedMappingStats = frequently() ? new SharedMappingStats(randomNonNegativeLong(), randomNonNegativeLong(),
+            randomNonNegativeLong()) : null;
         //TODO NodeIndicesStats are not tested here, way too complicated to create, also they need to be migrated to Writeable yet
         return new NodeStats(node, randomNonNegativeLong(), null, osStats, processStats, jvmStats, threadPoolStats,
                 fsInfo, transportStats, httpStats, allCircuitBreakerStats, scriptStats, discoveryStats,
-                ingestStats, adaptiveSelectionStats, scriptCacheStats);
+                ingestStats, adaptiveSelectionStats, scriptCacheStats, sharedMappingStats);
     }
 
     private IngestStats.Stats getPipelineStats(List<IngestStats.PipelineStat> pipelineStats, String id) {
@@ -0,0 +1,222 @@
+/*
+ * Licensed to Elasticsearch under one or more contributor
+ * license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright
+ * ownership. Elasticsearch licenses this file to you under
+ * the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.elasticsearch.action.bulk;
+
+import org.elasticsearch.action.bulk.ColumnarBulkRequestParser.ColumnType;
+import org.elasticsearch.action.index.IndexRequest;
+import org.elasticsearch.common.bytes.BytesArray;
+import org.elasticsearch.common.bytes.BytesReference;
+import org.elasticsearch.common.io.stream.BytesStreamOutput;
+import org.elasticsearch.common.xcontent.XContentHelper;
+import org.elasticsearch.common.xcontent.XContentType;
+import org.elasticsearch.test.ESTestCase;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.hamcrest.Matchers.containsString;
+import static org.hamcrest.Matchers.equalTo;
+
+public class ColumnarBulkRequestParserTests extends ESTestCase {
+
+    public void testRoundTrip() throws IOException {
+        final int numFields = randomIntBetween(1, 10);
+        final List<String> names = new ArrayList<>();
+        final List<ColumnType> types = new ArrayList<>();
+        final ColumnarBulkRequestParser.Builder builder = new ColumnarBulkRequestParser.Builder(null);
+        for (int i = 0; i < numFields; i++) {
+            final String name = "field_" + i;
+            final ColumnType type = randomFrom(ColumnType.values());
+            names.add(name);
+            types.add(type);
+            builder.field(name, type);
+        }
+        final String[] keywords = generateRandomStringArray(10, 10, false, false);
+        final boolean withIds = randomBoolean();
+        final List<String> expectedIds = new ArrayList<>();
+        final List<Map<String, Object>> expectedSources = new ArrayList<>();
+        final int numDocs = randomIntBetween(0, 100);
+        for (int doc = 0; doc < numDocs; doc++) {
+            final Object[] values = new Object[numFields];
+            final Map<String, Object> source = new HashMap<>();
+            for (int i = 0; i < numFields; i++) {
+                if (rarely()) {
+                    continue;
+                }
+                switch (types.get(i)) {
+                    case LONG:
+                        values[i] = randomLong();
+                        break;
+                    case DOUBLE:
+                        values[i] = randomDouble();
+                        break;
+                    case BOOLEAN:
+                        values[i] = randomBoolean();
+                        break;
+                    case KEYWORD:
+                        values[i] = keywords.length == 0 ? randomAlphaOfLength(5) : randomFrom(keywords);
+                        break;
+                    default:
+                        throw new AssertionError();
+                }
+                source.put(names.get(i), values[i]);
+            }
+            final String id = withIds && randomBoolean() ? randomAlphaOfLength(10) : null;
+            expectedIds.add(id);
+            expectedSources.add(source);
+            builder.add(id, values);
+        }
+        assertThat(builder.numberOfDocuments(), equalTo(numDocs));
+
+        final List<IndexRequest> requests = new ArrayList<>();
+        ColumnarBulkRequestParser.parse(builder.build(), "index", "routing", "pipeline", randomBoolean(), requests::add);
+        assertThat(requests.size(), equalTo(numDocs));
+        for (int doc = 0; doc < numDocs; doc++) {
+            final IndexRequest request = requests.get(doc);
+            assertThat(request.index(), equalTo("index"));
+            assertThat(request.id(), equalTo(expectedIds.get(doc)));
+            assertThat(request.routing(), equalTo("routing"));
+            assertThat(request.getPipeline(), equalTo("pipeline"));
+            assertThat(request.getContentType(), equalTo(ColumnarBulkRequestParser.SOURCE_CONTENT_TYPE));
+            final Map<String, Object> source = XContentHelper.convertToMap(request.source(), false, request.getContentType()).v2();
+            final Map<String, Object> expected = expectedSources.get(doc);
+            assertThat(source.keySet(), equalTo(expected.keySet()));
+            for (Map.Entry<String, Object> field : expected.entrySet()) {
+                final Object value = source.get(field.getKey());
+                if (field.getValue() instanceof Long) {
+                    assertThat(((Number) value).longValue(), equalTo(field.getValue()));
+                } else {
+                    assertThat(value, equalTo(field.getValue()));
+                }
+            }
+        }
+    }
+
+    public void testExplicitIndex() throws IOException {
+        final BytesReference data = new ColumnarBulkRequestParser.Builder("explicit")
+            .field("field", ColumnType.KEYWORD)
+            .add("1", "value")
+            .build();
+        final List<IndexRequest> requests = new ArrayList<>();
+        ColumnarBulkRequestParser.parse(data, "default", null, null, true, requests::add);
+        assertThat(requests.size(), equalTo(1));
+        assertThat(requests.get(0).index(), equalTo("explicit"));
+
+        final IllegalArgumentException e = expectThrows(IllegalArgumentException.class,
+            () -> ColumnarBulkRequestParser.parse(data, "default", null, null, false, requests::add));
+        assertThat(e.getMessage(), equalTo("explicit index in bulk is not allowed"));
+    }
+
+    public void testMalformedContent() throws IOException {
+        IllegalArgumentException e = expectThrows(IllegalArgumentException.class,
+            () -> ColumnarBulkRequestParser.parse(new BytesArray("{ \"index\":{} }\n{}\n"), "index", null, null, true, r -> fail()));
+        assertThat(e.getMessage(), containsString("expected the header to start with"));
+
+        final BytesReference data = new ColumnarBulkRequestParser.Builder(null)
+            .field("long", ColumnType.LONG)
+            .field("keyword", ColumnType.KEYWORD)
+            .add(null, 1L, "a")
+            .add(null, null, "b")
+            .build();
+        final BytesReference truncated = data.slice(0, randomIntBetween(0, data.length() - 1));
+        e = expectThrows(IllegalArgumentException.class,
+            () -> ColumnarBulkRequestParser.parse(truncated, "index", null, null, true, r -> fail()));
+        assertThat(e.getMessage(), containsString("Malformed columnar bulk request"));
+
+        final BytesReference trailing = new BytesArray(Arrays.copyOf(BytesReference.toBytes(data), data.length() + 1));
+        e = expectThrows(IllegalArgumentException.class,
+            () -> ColumnarBulkRequestParser.parse(trailing, "index", null, null, true, r -> fail()));
+        assertThat(e.getMessage(), containsString("trailing bytes"));
+    }
+
+    public void testSourceEncoding() throws IOException {
+        final BytesReference data = new ColumnarBulkRequestParser.Builder(null)
+            .field("long", ColumnType.LONG)
+            .field("double", ColumnType.DOUBLE)
+            .field("bool\"ean", ColumnType.BOOLEAN)
+            .field("keyword", ColumnType.KEYWORD)
+            .add(null, -42L, 1.5d, true, "quote\" backslash\\ newline\n tab\t nul\u0000 unicode\u00e9\u20ac")
+            .add(null, null, Double.NaN, null, null)
+            .add(null, null, null, null, null)
+            .build();
+        final List<IndexRequest> requests = new ArrayList<>();
+        ColumnarBulkRequestParser.parse(data, "index", null, null, true, requests::add);
+        assertThat(requests.size(), equalTo(3));
+        assertThat(requests.get(0).source().utf8ToString(), equalTo("{\"long\":-42,\"double\":1.5,\"bool\\\"ean\":true,"
+            + "\"keyword\":\"quote\\\" backslash\\\\ newline\\u000a tab\\u0009 nul\\u0000 unicode\u00e9\u20ac\"}"));
+        final Map<String, Object> source = XContentHelper.convertToMap(requests.get(0).source(), false, XContentType.JSON).v2();
+        assertThat(source.get("bool\"ean"), equalTo(true));
+        assertThat(source.get("keyword"), equalTo("quote\" backslash\\ newline\n tab\t nul\u0000 unicode\u00e9\u20ac"));
+        assertThat(requests.get(1).source().utf8ToString(), equalTo("{\"double\":\"NaN\"}"));
+        assertThat(requests.get(2).source().utf8ToString(), equalTo("{}"));
+    }
+
+    public void testSurrogates() throws IOException {
+        final String value = "pair \ud83d\ude00 high \ud800 low \udc00 reversed \ude00\ud83d end \ud800";
+        final BytesReference data = new ColumnarBulkRequestParser.Builder(null)
+            .field("keyword", ColumnType.KEYWORD)
+            .add(null, value)
+            .build();
+        final List<IndexRequest> requests = new ArrayList<>();
+        ColumnarBulkRequestParser.parse(data, "index", null, null, true, requests::add);
+        assertThat(requests.size(), equalTo(1));
+        // unpaired surrogates have no UTF-8 encoding so they are escaped rather than replaced
+        assertThat(requests.get(0).source().utf8ToString(), equalTo("{\"keyword\":\"pair \ud83d\ude00 high \\ud800 low \\udc00 "
+            + "reversed \\ude00\\ud83d end \\ud800\"}"));
+        final Map<String, Object> source = XContentHelper.convertToMap(requests.get(0).source(), false, XContentType.JSON).v2();
+        assertThat(source.get("keyword"), equalTo(value));
+    }
+
+    public void testDuplicateFields() throws IOException {
+        try (BytesStreamOutput out = new BytesStreamOutput()) {
+            out.writeBytes(ColumnarBulkRequestParser.MAGIC);
+            out.writeVInt(ColumnarBulkRequestParser.CURRENT_VERSION);
+            out.writeOptionalString(null);
+            out.writeVInt(1);
+            out.writeBoolean(false);
+            out.writeVInt(2);
+            out.writeString("field");
+            out.writeByte(ColumnType.LONG.id());
+            out.writeString("field");
+            out.writeByte(ColumnType.LONG.id());
+            for (long value = 1; value <= 2; value++) {
+                out.writeByte((byte) 1);
+                out.writeZLong(value);
+            }
+            final IllegalArgumentException e = expectThrows(IllegalArgumentException.class,
+                () -> ColumnarBulkRequestParser.parse(out.bytes(), "index", null, null, true, r -> fail()));
+            assertThat(e.getMessage(), equalTo("Malformed columnar bulk request, duplicate field [field]"));
+        }
+    }
+
+    public void testBuilderValidation() {
+        final ColumnarBulkRequestParser.Builder builder = new ColumnarBulkRequestParser.Builder(null)
+            .field("long", ColumnType.LONG);
+        expectThrows(IllegalArgumentException.class, () -> builder.field("long", ColumnType.DOUBLE));
+        expectThrows(IllegalArgumentException.class, () -> builder.add(null, "not a long"));
+        expectThrows(IllegalArgumentException.class, () -> builder.add(null, 1L, 2L));
+        builder.add(null, 1L);
+        expectThrows(IllegalStateException.class, () -> builder.field("other", ColumnType.BOOLEAN));
+    }
+}
@@ -33,6 +33,9 @@ import org.apache.lucene.util.BytesRef;
 import org.elasticsearch.action.OriginalIndices;
 import org.elasticsearch.common.Strings;
 import org.elasticsearch.common.UUIDs;
+import org.elasticsearch.common.breaker.CircuitBreaker;
+import org.elasticsearch.common.breaker.CircuitBreakingException;
+import org.elasticsearch.common.breaker.NoopCircuitBreaker;
 import org.elasticsearch.common.io.stream.DelayableWriteable;
 import org.elasticsearch.common.io.stream.NamedWriteableRegistry;
 import org.elasticsearch.common.lucene.Lucene;
@@ -87,6 +90,7 @@ import static java.util.Collections.emptyMap;
 import static java.util.Collections.singletonList;
 import static org.elasticsearch.action.search.SearchProgressListener.NOOP;
 import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.greaterThan;
 import static org.hamcrest.Matchers.greaterThanOrEqualTo;
 import static org.hamcrest.Matchers.instanceOf;
 import static org.hamcrest.Matchers.lessThan;
@@ -912,4 +916,167 @@ public class SearchPhaseControllerTests extends ESTestCase {
         }
     }
 
+
+    public void testConsumerAccountsAggsInCircuitBreaker() {
+        TrackingCircuitBreaker breaker = new TrackingCircuitBreaker(Long.MAX_VALUE);
+        int bufferSize = randomIntBetween(2, 10);
+        int expectedNumResults = randomIntBetween(bufferSize + 1, 100);
+        ArraySearchPhaseResults<SearchPhaseResult> consumer = newAggsConsumer(breaker, bufferSize, expectedNumResults);
+        AtomicInteger max = new AtomicInteger();
+        for (int i = 0; i < expectedNumResults; i++) {
+            int number = randomIntBetween(1, 1000);
+            max.updateAndGet(prev -> Math.max(prev, number));
+            consumer.consumeResult(aggsResult(i, number));
+            assertThat(breaker.getUsed(), greaterThan(0L));
+        }
+        SearchPhaseController.ReducedQueryPhase reduce = consumer.reduce();
+        InternalMax internalMax = (InternalMax) reduce.aggregations.asList().get(0);
+        assertEquals(max.get(), internalMax.getValue(), 0.0D);
+        assertThat(breaker.maxUsed, greaterThan(0L));
+        assertEquals(0L, breaker.getUsed());
+        consumer.close();
+        assertEquals(0L, breaker.getUsed());
+    }
+
+    public void testConsumerTripsCircuitBreaker() {
+        TrackingCircuitBreaker breaker = new TrackingCircuitBreaker(1);
+        int bufferSize = randomIntBetween(2, 10);
+        int expectedNumResults = randomIntBetween(bufferSize + 1, 100);
+        ArraySearchPhaseResults<SearchPhaseResult> consumer = newAggsConsumer(breaker, bufferSize, expectedNumResults);
+        for (int i = 0; i < expectedNumResults; i++) {
+            consumer.consumeResult(aggsResult(i, randomIntBetween(1, 1000)));
+        }
+        expectThrows(CircuitBreakingException.class, consumer::reduce);
+        assertEquals(0L, breaker.getUsed());
+    }
+
+    public void testConsumerReleasesCircuitBreakerOnClose() {
+        TrackingCircuitBreaker breaker = new TrackingCircuitBreaker(Long.MAX_VALUE);
+        int bufferSize = randomIntBetween(2, 10);
+        int expectedNumResults = randomIntBetween(bufferSize + 1, 100);
+        ArraySearchPhaseResults<SearchPhaseResult> consumer = newAggsConsumer(breaker, bufferSize, expectedNumResults);
+        int numResults = randomIntBetween(1, expectedNumResults - 1);
+        for (int i = 0; i < numResults; i++) {
+            consumer.consumeResult(aggsResult(i, randomIntBetween(1, 1000)));
+        }
+        assertThat(breaker.getUsed(), greaterThan(0L));
+        consumer.close();
+        assertEquals(0L, breaker.getUsed());
+    }
+
+    public void testNonBatchedConsumerAccountsAggsAsResultsArrive() {
+        TrackingCircuitBreaker breaker = new TrackingCircuitBreaker(Long.MAX_VALUE);
+        int expectedNumResults = randomIntBetween(1, 10);
+        ArraySearchPhaseResults<SearchPhaseResult> consumer = newNonBatchedAggsConsumer(breaker, expectedNumResults);
+        int max = 0;
+        long previousUsed = 0;
+        for (int i = 0; i < expectedNumResults; i++) {
+            int number = randomIntBetween(1, 1000);
+            max = Math.max(max, number);
+            consumer.consumeResult(aggsResult(i, number));
+            assertThat(breaker.getUsed(), greaterThan(previousUsed));
+            previousUsed = breaker.getUsed();
+        }
+        SearchPhaseController.ReducedQueryPhase reduce = consumer.reduce();
+        InternalMax internalMax = (InternalMax) reduce.aggregations.asList().get(0);
+        assertEquals(max, internalMax.getValue(), 0.0D);
+        assertThat(breaker.maxUsed, greaterThan(previousUsed));
+        assertEquals(0L, breaker.getUsed());
+    }
+
+    public void testNonBatchedConsumerTripsCircuitBreakerAsResultsArrive() {
+        int expectedNumResults = randomIntBetween(2, 10);
+        long bytesPerResult = aggsResult(0, 1).aggregations().expand().estimateRamBytesUsed();
+        int tripAt = randomIntBetween(0, expectedNumResults - 1);
+        TrackingCircuitBreaker breaker = new TrackingCircuitBreaker(bytesPerResult * tripAt);
+        ArraySearchPhaseResults<SearchPhaseResult> consumer = newNonBatchedAggsConsumer(breaker, expectedNumResults);
+        List<QuerySearchResult> results = new ArrayList<>();
+        for (int i = 0; i < expectedNumResults; i++) {
+            QuerySearchResult result = aggsResult(i, randomIntBetween(1, 1000));
+            results.add(result);
+            consumer.consumeResult(result);
+            if (i >= tripAt) {
+                // the breaker tripped as soon as the result arrived, the aggregations of all results are dropped
+                assertEquals(0L, breaker.getUsed());
+                for (QuerySearchResult consumed : results) {
+                    assertNull(consumed.aggregations());
+                }
+            }
+        }
+        expectThrows(CircuitBreakingException.class, consumer::reduce);
+        assertEquals(0L, breaker.getUsed());
+    }
+
+    private ArraySearchPhaseResults<SearchPhaseResult> newNonBatchedAggsConsumer(CircuitBreaker breaker, int expectedNumResults) {
+        SearchPhaseController controller = new SearchPhaseController(writableRegistry(),
+            s -> InternalAggregationTestCase.emptyReduceContextBuilder(), breaker);
+        SearchRequest request = randomSearchRequest();
+        request.source(new SearchSourceBuilder().aggregation(AggregationBuilders.max("test")).size(0));
+        request.setBatchedReduceSize(randomIntBetween(Math.max(2, expectedNumResults), 100));
+        ArraySearchPhaseResults<SearchPhaseResult> consumer = controller.newSearchPhaseResults(NOOP, request, expectedNumResults);
+        assertThat(consumer, not(instanceOf(SearchPhaseController.QueryPhaseResultConsumer.class)));
+        return consumer;
+    }
+
+    private ArraySearchPhaseResults<SearchPhaseResult> newAggsConsumer(CircuitBreaker breaker, int bufferSize, int expectedNumResults) {
+        SearchPhaseController controller = new SearchPhaseController(writableRegistry(),
+            s -> InternalAggregationTestCase.emptyReduceContextBuilder(), breaker);
+        SearchRequest request = randomSearchRequest();
+        request.source(new SearchSourceBuilder().aggregation(AggregationBuilders.max("test")).size(0));
+        request.setBatchedReduceSize(bufferSize);
+        ArraySearchPhaseResults<SearchPhaseResult> consumer = controller.newSearchPhaseResults(NOOP, request, expectedNumResults);
+        assertThat(consumer, instanceOf(SearchPhaseController.QueryPhaseResultConsumer.class));
+        return consumer;
+    }
+
+    private static QuerySearchResult aggsResult(int shardIndex, int number) {
+        QuerySearchResult result = new QuerySearchResult(new SearchContextId(UUIDs.randomBase64UUID(), shardIndex),
+            new SearchShardTarget("node", new ShardId("a", "b", shardIndex), null, OriginalIndices.NONE));
+        result.topDocs(new TopDocsAndMaxScore(new TopDocs(new TotalHits(1, TotalHits.Relation.EQUAL_TO), new ScoreDoc[0]), number),
+            new DocValueFormat[0]);
+        result.aggregations(new InternalAggregations(Collections.singletonList(new InternalMax("test", (double) number,
+            DocValueFormat.RAW, Collections.emptyMap()))));
+        result.setShardIndex(shardIndex);
+        result.size(0);
+        return result;
+    }
+
+    /**
+     * A {@link CircuitBreaker} that keeps track of the bytes it was charged with and trips above a fixed limit.
+     */
+    private static class TrackingCircuitBreaker extends NoopCircuitBreaker {
+        private final long limit;
+        private long used;
+        private long maxUsed;
+
+        TrackingCircuitBreaker(long limit) {
+            super(CircuitBreaker.REQUEST);
+            this.limit = limit;
+        }
+
+        @Override
+        public synchronized double addEstimateBytesAndMaybeBreak(long bytes, String label) throws CircuitBreakingException {
+            if (used + bytes > limit) {
+                throw new CircuitBreakingException("[" + label + "] would be too large", used + bytes, limit, Durability.TRANSIENT);
+            }
+            return addWithoutBreaking(bytes);
+        }
+
+        @Override
+        public synchronized long addWithoutBreaking(long bytes) {
+            used += bytes;
+            maxUsed = Math.max(maxUsed, used);
+            return used;
+        }
+
+        @Override
+        public synchronized long getUsed() {
+            return used;
+        }
+
+        @Override
+        public long getLimit() {
+            return limit;
+        }
+    }
 }
@@ -19,6 +19,7 @@
 
 package org.elasticsearch.cluster.metadata;
 
+import org.elasticsearch.Version;
 import org.elasticsearch.action.admin.indices.rollover.MaxAgeCondition;
 import org.elasticsearch.action.admin.indices.rollover.MaxDocsCondition;
 import org.elasticsearch.action.admin.indices.rollover.MaxSizeCondition;
@@ -41,6 +42,7 @@ import org.elasticsearch.common.xcontent.json.JsonXContent;
 import org.elasticsearch.index.shard.ShardId;
 import org.elasticsearch.indices.IndicesModule;
 import org.elasticsearch.test.ESTestCase;
+import org.elasticsearch.test.VersionUtils;
 import org.junit.Before;
 
 import java.io.IOException;
@@ -138,6 +140,48 @@ public class IndexMetadataTests extends ESTestCase {
         }
     }
 
+    public void testCachedSerializedForm() throws IOException {
+        IndexMetadata metadata = IndexMetadata.builder("foo")
+            .settings(Settings.builder()
+                .put("index.version.created", 1)
+                .put("index.number_of_shards", 1)
+                .put("index.number_of_replicas", 1)
+                .build())
+            .putMapping("{\"_doc\":{\"properties\":{\"field\":{\"type\":\"keyword\"}}}}")
+            .putAlias(AliasMetadata.builder("alias"))
+            .build();
+        final BytesStreamOutput expected = new BytesStreamOutput();
+        metadata.writeTo(expected);
+
+        assertTrue(metadata.cacheSerializedForm(Version.CURRENT));
+        assertFalse(metadata.cacheSerializedForm(Version.CURRENT));
+        final BytesStreamOutput cached = new BytesStreamOutput();
+        metadata.writeTo(cached);
+        assertEquals(expected.bytes(), cached.bytes());
+        try (StreamInput in = new NamedWriteableAwareStreamInput(cached.bytes().streamInput(), writableRegistry())) {
+            assertEquals(metadata, IndexMetadata.readFrom(in));
+        }
+        // the mapping isn't part of the cached bytes, indices that share a mapping don't each hold a copy of it
+        assertEquals(expected.bytes().length() - mappingSizeInBytes(metadata.mapping()), metadata.serializedFormSizeInBytes());
+
+        // the cached bytes are only used for the version they were serialized for
+        final Version otherVersion = VersionUtils.randomPreviousCompatibleVersion(random(), Version.CURRENT);
+        final BytesStreamOutput expectedOtherVersion = new BytesStreamOutput();
+        expectedOtherVersion.setVersion(otherVersion);
+        IndexMetadata.builder(metadata).build().writeTo(expectedOtherVersion);
+        final BytesStreamOutput otherVersionOut = new BytesStreamOutput();
+        otherVersionOut.setVersion(otherVersion);
+        metadata.writeTo(otherVersionOut);
+        assertEquals(expectedOtherVersion.bytes(), otherVersionOut.bytes());
+    }
+
+    private static long mappingSizeInBytes(MappingMetadata mapping) throws IOException {
+        final BytesStreamOutput out = new BytesStreamOutput();
+        out.writeVInt(1);
+        mapping.writeTo(out);
+        return out.bytes().length();
+    }
+
     public void testGetRoutingFactor() {
         Integer numShard = randomFrom(1, 2, 4, 8, 16);
         int routingFactor = IndexMetadata.getRoutingFactor(32, numShard);
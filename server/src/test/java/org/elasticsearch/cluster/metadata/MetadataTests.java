@@ -1214,6 +1214,42 @@ public class MetadataTests extends ESTestCase {
         }
     }
 
+    public void testIndicesWithEqualMappingsShareMappingMetadata() {
+        final String mapping = "{\"_doc\":{\"properties\":{\"field\":{\"type\":\"keyword\"}}}}";
+        final Metadata.Builder builder = Metadata.builder();
+        final int numIndices = randomIntBetween(2, 10);
+        for (int i = 0; i < numIndices; i++) {
+            builder.put(IndexMetadata.builder("index-" + i)
+                .settings(settings(Version.CURRENT))
+                .numberOfShards(1)
+                .numberOfReplicas(0)
+                .putMapping(mapping));
+        }
+        builder.put(IndexMetadata.builder("other")
+            .settings(settings(Version.CURRENT))
+            .numberOfShards(1)
+            .numberOfReplicas(0)
+            .putMapping("{\"_doc\":{\"properties\":{\"field\":{\"type\":\"long\"}}}}"));
+        final Metadata metadata = builder.build();
+
+        final MappingMetadata sharedMapping = metadata.index("index-0").mapping();
+        for (int i = 1; i < numIndices; i++) {
+            assertSame(sharedMapping, metadata.index("index-" + i).mapping());
+        }
+        assertNotSame(sharedMapping, metadata.index("other").mapping());
+
+        // the shared instance is kept when metadata is rebuilt with another copy of the same mapping
+        final Metadata updated = Metadata.builder(metadata)
+            .put(IndexMetadata.builder("index-" + numIndices)
+                .settings(settings(Version.CURRENT))
+                .numberOfShards(1)
+                .numberOfReplicas(0)
+                .putMapping(mapping))
+            .build();
+        assertSame(sharedMapping, updated.index("index-" + numIndices).mapping());
+        assertSame(metadata.index("index-0"), updated.index("index-0"));
+    }
+
     public static Metadata randomMetadata() {
         Metadata.Builder md = Metadata.builder()
             .put(buildIndexMetadata("index", "alias", randomBoolean() ? null : randomBoolean()).build(), randomBoolean())
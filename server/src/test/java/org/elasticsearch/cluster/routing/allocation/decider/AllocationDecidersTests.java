@@ -36,6 +36,7 @@ import org.hamcrest.Matchers;
 
 import java.util.Collection;
 import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
 
 public class AllocationDecidersTests extends ESTestCase {
 
@@ -117,6 +118,67 @@ public class AllocationDecidersTests extends ESTestCase {
         verify(deciders.shouldAutoExpandToNode(idx, null, allocation), matcher);
     }
 
+    public void testIndexAndNodeLevelDecisionsAreMemoizedUntilRoutingChanges() {
+        final AtomicInteger indexLevelCalls = new AtomicInteger();
+        final AtomicInteger nodeLevelCalls = new AtomicInteger();
+        AllocationDeciders deciders = new AllocationDeciders(List.of(new AllocationDecider() {
+            @Override
+            public Decision canAllocate(IndexMetadata indexMetadata, RoutingNode node, RoutingAllocation allocation) {
+                indexLevelCalls.incrementAndGet();
+                return Decision.THROTTLE;
+            }
+
+            @Override
+            public Decision canAllocate(RoutingNode node, RoutingAllocation allocation) {
+                nodeLevelCalls.incrementAndGet();
+                return Decision.THROTTLE;
+            }
+        }));
+
+        ClusterState clusterState = ClusterState.builder(new ClusterName("test")).build();
+        final RoutingAllocation allocation = new RoutingAllocation(deciders,
+            clusterState.getRoutingNodes(), clusterState, null, 0L);
+        IndexMetadata idx =
+            IndexMetadata.builder("idx").settings(settings(Version.CURRENT)).numberOfShards(1).numberOfReplicas(0).build();
+        IndexMetadata otherIdx =
+            IndexMetadata.builder("other").settings(settings(Version.CURRENT)).numberOfShards(1).numberOfReplicas(0).build();
+        RoutingNode routingNode = new RoutingNode("testNode", null);
+        RoutingNode otherRoutingNode = new RoutingNode("otherNode", null);
+
+        for (int i = 0; i < 3; i++) {
+            assertEquals(Decision.Type.THROTTLE, deciders.canAllocate(idx, routingNode, allocation).type());
+            assertEquals(Decision.Type.THROTTLE, deciders.canAllocate(routingNode, allocation).type());
+        }
+        assertEquals(1, indexLevelCalls.get());
+        assertEquals(1, nodeLevelCalls.get());
+
+        deciders.canAllocate(otherIdx, routingNode, allocation);
+        deciders.canAllocate(idx, otherRoutingNode, allocation);
+        deciders.canAllocate(otherRoutingNode, allocation);
+        assertEquals(3, indexLevelCalls.get());
+        assertEquals(2, nodeLevelCalls.get());
+
+        // any change to the routing nodes makes the deciders run again
+        final ShardRouting shardRouting = ShardRouting.newUnassigned(new ShardId("idx", "_na_", 0), true,
+            RecoverySource.EmptyStoreRecoverySource.INSTANCE, new UnassignedInfo(UnassignedInfo.Reason.INDEX_CREATED, "_message"));
+        allocation.changes().unassignedInfoUpdated(shardRouting,
+            new UnassignedInfo(UnassignedInfo.Reason.ALLOCATION_FAILED, "_message"));
+        deciders.canAllocate(idx, routingNode, allocation);
+        deciders.canAllocate(routingNode, allocation);
+        assertEquals(4, indexLevelCalls.get());
+        assertEquals(3, nodeLevelCalls.get());
+
+        allocation.ignoreDisable(true);
+        deciders.canAllocate(idx, routingNode, allocation);
+        assertEquals(5, indexLevelCalls.get());
+
+        // decisions carry an explanation when debugging, so they are never reused
+        allocation.debugDecision(true);
+        deciders.canAllocate(idx, routingNode, allocation);
+        deciders.canAllocate(idx, routingNode, allocation);
+        assertEquals(7, indexLevelCalls.get());
+    }
+
     private void verify(Decision decision, Matcher<Collection<? extends Decision>> matcher) {
         assertThat(decision.type(), Matchers.equalTo(Decision.Type.YES));
         assertThat(decision, Matchers.instanceOf(Decision.Multi.class));
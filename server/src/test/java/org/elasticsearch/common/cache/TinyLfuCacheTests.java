@@ -0,0 +1,431 @@
+/*
+ * Licensed to Elasticsearch under one or more contributor
+ * license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright
+ * ownership. Elasticsearch licenses this file to you under
+ * the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.elasticsearch.common.cache;
+
+import org.elasticsearch.test.ESTestCase;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+import java.util.concurrent.BrokenBarrierException;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.CyclicBarrier;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.hamcrest.Matchers.empty;
+import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.greaterThan;
+import static org.hamcrest.Matchers.instanceOf;
+import static org.hamcrest.Matchers.lessThanOrEqualTo;
+
+public class TinyLfuCacheTests extends ESTestCase {
+
+    public void testBuilder() {
+        assertThat(CacheBuilder.<Integer, String>builder().buildTinyLfu(), instanceOf(TinyLfuCache.class));
+    }
+
+    // without a maximum weight, the cache behaves like a map
+    public void testAgainstMap() throws ExecutionException {
+        List<RemovalNotification<Integer, String>> notifications = new ArrayList<>();
+        ConcurrentCache<Integer, String> cache = CacheBuilder.<Integer, String>builder()
+            .weigher((k, v) -> v.length())
+            .removalListener(notifications::add)
+            .buildTinyLfu();
+        Map<Integer, String> expected = new HashMap<>();
+        int numberOfKeys = randomIntBetween(1, 100);
+        int numberOfOperations = randomIntBetween(100, 10000);
+        int expectedNotifications = 0;
+        for (int i = 0; i < numberOfOperations; i++) {
+            Integer key = randomIntBetween(0, numberOfKeys);
+            switch (randomInt(3)) {
+                case 0:
+                    String value = randomAlphaOfLengthBetween(1, 10);
+                    if (expected.put(key, value) != null) {
+                        expectedNotifications++;
+                    }
+                    cache.put(key, value);
+                    break;
+                case 1:
+                    assertEquals(expected.get(key), cache.get(key));
+                    break;
+                case 2:
+                    if (expected.remove(key) != null) {
+                        expectedNotifications++;
+                    }
+                    cache.invalidate(key);
+                    break;
+                case 3:
+                    String computed = expected.computeIfAbsent(key, k -> Integer.toString(k));
+                    assertEquals(computed, cache.computeIfAbsent(key, k -> Integer.toString(k)));
+                    break;
+            }
+            assertEquals(expected.size(), cache.count());
+            assertEquals(expected.values().stream().mapToLong(String::length).sum(), cache.weight());
+        }
+        assertEquals(expectedNotifications, notifications.size());
+        Set<Integer> keys = new HashSet<>();
+        cache.keys().forEach(keys::add);
+        assertEquals(expected.keySet(), keys);
+    }
+
+    public void testMaximumWeight() {
+        long maximumWeight = randomLongBetween(10, 1000);
+        Set<Integer> keys = new HashSet<>();
+        ConcurrentCache<Integer, String> cache = CacheBuilder.<Integer, String>builder()
+            .setMaximumWeight(maximumWeight)
+            .weigher((k, v) -> v.length())
+            .removalListener(notification -> {
+                assertEquals(RemovalNotification.RemovalReason.EVICTED, notification.getRemovalReason());
+                assertTrue(keys.remove(notification.getKey()));
+            })
+            .buildTinyLfu();
+        int numberOfEntries = randomIntBetween(100, 10000);
+        for (int i = 0; i < numberOfEntries; i++) {
+            keys.add(i);
+            cache.put(i, randomAlphaOfLengthBetween(1, 10));
+            if (randomBoolean()) {
+                cache.get(randomIntBetween(0, i));
+            }
+            assertThat(cache.weight(), lessThanOrEqualTo(maximumWeight));
+        }
+        cache.refresh();
+        assertEquals(keys.size(), cache.count());
+        Set<Integer> remainingKeys = new HashSet<>();
+        cache.keys().forEach(remainingKeys::add);
+        assertEquals(keys, remainingKeys);
+        assertThat(cache.stats().getEvictions(), equalTo((long) (numberOfEntries - keys.size())));
+    }
+
+    // an entry that is heavier than the cache is evicted right away
+    public void testHeavyEntry() {
+        ConcurrentCache<Integer, String> cache = CacheBuilder.<Integer, String>builder()
+            .setMaximumWeight(10)
+            .weigher((k, v) -> v.length())
+            .buildTinyLfu();
+        cache.put(1, "a");
+        cache.put(2, "0123456789A");
+        assertNull(cache.get(2));
+        assertEquals("a", cache.get(1));
+        assertEquals(1, cache.weight());
+    }
+
+    // frequently used entries survive a scan of entries that are only used once, unlike with an LRU policy
+    public void testScanResistance() {
+        int maximumWeight = 1000;
+        ConcurrentCache<Integer, Integer> tinyLfu = CacheBuilder.<Integer, Integer>builder().setMaximumWeight(maximumWeight).buildTinyLfu();
+        ConcurrentCache<Integer, Integer> lru = CacheBuilder.<Integer, Integer>builder().setMaximumWeight(maximumWeight).build();
+        int numberOfHotKeys = maximumWeight / 2;
+        for (ConcurrentCache<Integer, Integer> cache : List.of(tinyLfu, lru)) {
+            for (int round = 0; round < 3; round++) {
+                for (int key = 0; key < numberOfHotKeys; key++) {
+                    if (cache.get(key) == null) {
+                        cache.put(key, key);
+                    }
+                }
+                cache.refresh();
+            }
+            for (int key = numberOfHotKeys; key < numberOfHotKeys + 10 * maximumWeight; key++) {
+                cache.put(key, key);
+            }
+        }
+        int tinyLfuHits = 0;
+        int lruHits = 0;
+        for (int key = 0; key < numberOfHotKeys; key++) {
+            if (tinyLfu.get(key) != null) {
+                tinyLfuHits++;
+            }
+            if (lru.get(key) != null) {
+                lruHits++;
+            }
+        }
+        assertEquals(0, lruHits);
+        assertThat(tinyLfuHits, greaterThan(numberOfHotKeys * 9 / 10));
+    }
+
+    public void testExpireAfterAccess() {
+        AtomicLong now = new AtomicLong();
+        TinyLfuCache<Integer, String> cache = new TinyLfuCache<Integer, String>() {
+            @Override
+            protected long now() {
+                return now.get();
+            }
+        };
+        cache.setExpireAfterAccessNanos(1);
+        List<Integer> evictedKeys = new ArrayList<>();
+        cache.setRemovalListener(notification -> {
+            assertEquals(RemovalNotification.RemovalReason.EVICTED, notification.getRemovalReason());
+            evictedKeys.add(notification.getKey());
+        });
+        int numberOfEntries = randomIntBetween(10, 1000);
+        for (int i = 0; i < numberOfEntries; i++) {
+            cache.put(i, Integer.toString(i));
+        }
+        now.set(1);
+        for (int i = 0; i < numberOfEntries; i += 2) {
+            assertEquals(Integer.toString(i), cache.get(i));
+        }
+        now.set(2);
+        // expired entries are not returned, even before they are evicted
+        assertNull(cache.get(1));
+        cache.refresh();
+        assertEquals((numberOfEntries + 1) / 2, cache.count());
+        for (int key : evictedKeys) {
+            assertEquals(1, key % 2);
+        }
+        for (int i = 0; i < numberOfEntries; i += 2) {
+            assertEquals(Integer.toString(i), cache.get(i));
+        }
+    }
+
+    public void testExpireAfterWrite() {
+        AtomicLong now = new AtomicLong();
+        TinyLfuCache<Integer, String> cache = new TinyLfuCache<Integer, String>() {
+            @Override
+            protected long now() {
+                return now.get();
+            }
+        };
+        cache.setExpireAfterWriteNanos(1);
+        int numberOfEntries = randomIntBetween(10, 1000);
+        for (int i = 0; i < numberOfEntries; i++) {
+            cache.put(i, Integer.toString(i));
+        }
+        now.set(1);
+        for (int i = 0; i < numberOfEntries; i += 2) {
+            assertEquals(Integer.toString(i), cache.get(i));
+            cache.put(i, Integer.toString(i));
+        }
+        now.set(2);
+        cache.refresh();
+        assertEquals((numberOfEntries + 1) / 2, cache.count());
+        for (int i = 0; i < numberOfEntries; i++) {
+            assertEquals(i % 2 == 0 ? Integer.toString(i) : null, cache.get(i));
+        }
+    }
+
+    public void testComputeIfAbsentAfterExpiration() throws ExecutionException {
+        AtomicLong now = new AtomicLong();
+        TinyLfuCache<Integer, String> cache = new TinyLfuCache<Integer, String>() {
+            @Override
+            protected long now() {
+                return now.get();
+            }
+        };
+        cache.setExpireAfterAccessNanos(1);
+        assertEquals("0", cache.computeIfAbsent(1, k -> "0"));
+        now.set(2);
+        assertEquals("1", cache.computeIfAbsent(1, k -> "1"));
+        assertEquals(1, cache.count());
+    }
+
+    public void testComputeIfAbsentCallsOnce() throws BrokenBarrierException, InterruptedException {
+        int numberOfThreads = randomIntBetween(2, 16);
+        int numberOfEntries = randomIntBetween(100, 1000);
+        ConcurrentCache<Integer, String> cache = CacheBuilder.<Integer, String>builder().buildTinyLfu();
+        AtomicInteger[] loads = new AtomicInteger[numberOfEntries];
+        for (int i = 0; i < numberOfEntries; i++) {
+            loads[i] = new AtomicInteger();
+        }
+        CopyOnWriteArrayList<Exception> failures = new CopyOnWriteArrayList<>();
+        CyclicBarrier barrier = new CyclicBarrier(1 + numberOfThreads);
+        for (int i = 0; i < numberOfThreads; i++) {
+            Thread thread = new Thread(() -> {
+                try {
+                    barrier.await();
+                    for (int j = 0; j < numberOfEntries; j++) {
+                        assertEquals(Integer.toString(j), cache.computeIfAbsent(j, key -> {
+                            loads[key].incrementAndGet();
+                            return Integer.toString(key);
+                        }));
+                    }
+                    barrier.await();
+                } catch (Exception e) {
+                    failures.add(e);
+                }
+            });
+            thread.start();
+        }
+        barrier.await();
+        barrier.await();
+        assertThat(failures, empty());
+        for (AtomicInteger load : loads) {
+            assertEquals(1, load.get());
+        }
+        assertEquals(numberOfEntries, cache.count());
+    }
+
+    public void testComputeIfAbsentFailure() {
+        ConcurrentCache<Integer, String> cache = CacheBuilder.<Integer, String>builder().buildTinyLfu();
+        ExecutionException e = expectThrows(ExecutionException.class, () -> cache.computeIfAbsent(1, k -> {
+            throw new IllegalArgumentException("boom");
+        }));
+        assertThat(e.getCause(), instanceOf(IllegalArgumentException.class));
+        e = expectThrows(ExecutionException.class, () -> cache.computeIfAbsent(1, k -> null));
+        assertThat(e.getCause(), instanceOf(NullPointerException.class));
+        assertEquals(0, cache.count());
+        assertNull(cache.get(1));
+    }
+
+    public void testInvalidateWhileLoading() throws Exception {
+        List<RemovalNotification<Integer, String>> notifications = new CopyOnWriteArrayList<>();
+        ConcurrentCache<Integer, String> cache = CacheBuilder.<Integer, String>builder()
+            .removalListener(notifications::add)
+            .buildTinyLfu();
+        CountDownLatch loading = new CountDownLatch(1);
+        CountDownLatch invalidated = new CountDownLatch(1);
+        Thread thread = new Thread(() -> {
+            try {
+                assertEquals("1", cache.computeIfAbsent(1, k -> {
+                    loading.countDown();
+                    invalidated.await();
+                    return "1";
+                }));
+            } catch (ExecutionException e) {
+                throw new AssertionError(e);
+            }
+        });
+        thread.start();
+        loading.await();
+        cache.invalidate(1);
+        invalidated.countDown();
+        thread.join();
+        // the loaded value is not cached, but its removal is notified so that listeners can account for it
+        assertEquals(0, cache.count());
+        assertNull(cache.get(1));
+        assertEquals(1, notifications.size());
+        assertEquals(RemovalNotification.RemovalReason.INVALIDATED, notifications.get(0).getRemovalReason());
+    }
+
+    public void testNotifications() {
+        List<RemovalNotification<Integer, String>> notifications = new ArrayList<>();
+        ConcurrentCache<Integer, String> cache = CacheBuilder.<Integer, String>builder()
+            .removalListener(notifications::add)
+            .buildTinyLfu();
+        cache.put(1, "1");
+        cache.put(1, "2");
+        assertEquals(1, notifications.size());
+        assertEquals(RemovalNotification.RemovalReason.REPLACED, notifications.get(0).getRemovalReason());
+        assertEquals("1", notifications.get(0).getValue());
+
+        cache.invalidate(1, "1");
+        assertEquals(1, notifications.size());
+        cache.invalidate(1, "2");
+        assertEquals(2, notifications.size());
+        assertEquals(RemovalNotification.RemovalReason.INVALIDATED, notifications.get(1).getRemovalReason());
+
+        cache.put(2, "2");
+        cache.put(3, "3");
+        cache.invalidateAll();
+        assertEquals(4, notifications.size());
+        assertEquals(0, cache.count());
+        assertEquals(0, cache.weight());
+    }
+
+    public void testRemoveUsingIterator() {
+        ConcurrentCache<Integer, String> cache = CacheBuilder.<Integer, String>builder().buildTinyLfu();
+        int numberOfEntries = randomIntBetween(10, 1000);
+        for (int i = 0; i < numberOfEntries; i++) {
+            cache.put(i, Integer.toString(i));
+        }
+        Iterator<String> iterator = cache.values().iterator();
+        int removed = 0;
+        while (iterator.hasNext()) {
+            String value = iterator.next();
+            if (Integer.parseInt(value) % 2 == 0) {
+                iterator.remove();
+                removed++;
+            }
+        }
+        assertEquals(numberOfEntries - removed, cache.count());
+        for (int i = 0; i < numberOfEntries; i++) {
+            assertEquals(i % 2 == 0 ? null : Integer.toString(i), cache.get(i));
+        }
+    }
+
+    public void testTorture() throws BrokenBarrierException, InterruptedException {
+        int numberOfThreads = randomIntBetween(2, 16);
+        int numberOfEntries = randomIntBetween(1000, 10000);
+        AtomicLong notifiedWeight = new AtomicLong();
+        AtomicLong addedWeight = new AtomicLong();
+        ConcurrentCache<Integer, String> cache = CacheBuilder.<Integer, String>builder()
+            .setMaximumWeight(1000)
+            .weigher((k, v) -> v.length())
+            .removalListener(notification -> notifiedWeight.addAndGet(notification.getValue().length()))
+            .buildTinyLfu();
+        CopyOnWriteArrayList<Exception> failures = new CopyOnWriteArrayList<>();
+        CyclicBarrier barrier = new CyclicBarrier(1 + numberOfThreads);
+        for (int i = 0; i < numberOfThreads; i++) {
+            Thread thread = new Thread(() -> {
+                try {
+                    barrier.await();
+                    Random random = new Random(random().nextLong());
+                    for (int j = 0; j < numberOfEntries; j++) {
+                        Integer key = random.nextInt(numberOfEntries);
+                        switch (random.nextInt(4)) {
+                            case 0:
+                                String value = Integer.toString(j);
+                                addedWeight.addAndGet(value.length());
+                                cache.put(key, value);
+                                break;
+                            case 1:
+                                cache.invalidate(key);
+                                break;
+                            default:
+                                String loaded = cache.computeIfAbsent(key, k -> {
+                                    String v = Integer.toString(k);
+                                    addedWeight.addAndGet(v.length());
+                                    return v;
+                                });
+                                assertNotNull(loaded);
+                                break;
+                        }
+                    }
+                    barrier.await();
+                } catch (Exception e) {
+                    failures.add(e);
+                }
+            });
+            thread.start();
+        }
+        barrier.await();
+        barrier.await();
+        assertThat(failures, empty());
+        cache.refresh();
+        assertThat(cache.weight(), lessThanOrEqualTo(1000L));
+        long weight = 0;
+        int count = 0;
+        for (String value : cache.values()) {
+            weight += value.length();
+            count++;
+        }
+        assertEquals(count, cache.count());
+        assertEquals(weight, cache.weight());
+        // every value that was added to the cache is either still cached or was notified
+        assertEquals(addedWeight.get(), notifiedWeight.get() + cache.weight());
+    }
+}
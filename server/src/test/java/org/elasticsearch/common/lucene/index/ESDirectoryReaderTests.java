@@ -19,12 +19,16 @@
 
 package org.elasticsearch.common.lucene.index;
 
+import org.apache.lucene.codecs.StoredFieldsReader;
 import org.apache.lucene.document.Document;
+import org.apache.lucene.document.DocumentStoredFieldVisitor;
 import org.apache.lucene.document.Field;
+import org.apache.lucene.document.StoredField;
 import org.apache.lucene.document.StringField;
 import org.apache.lucene.index.DirectoryReader;
 import org.apache.lucene.index.IndexWriter;
 import org.apache.lucene.index.IndexWriterConfig;
+import org.apache.lucene.index.LeafReader;
 import org.apache.lucene.index.NoMergePolicy;
 import org.apache.lucene.index.Term;
 import org.apache.lucene.store.Directory;
@@ -68,4 +72,30 @@ public class ESDirectoryReaderTests extends ESTestCase {
         assertSame(ir.leaves().get(0).reader().getCoreCacheHelper().getKey(), ir2.leaves().get(0).reader().getCoreCacheHelper().getKey());
         IOUtils.close(ir, ir2, iw, dir);
     }
+
+    public void testSequentialStoredFieldsReader() throws Exception {
+        Directory dir = newDirectory();
+        IndexWriterConfig iwc = new IndexWriterConfig(null);
+        IndexWriter iw = new IndexWriter(dir, iwc);
+        int numDocs = randomIntBetween(1, 500);
+        for (int i = 0; i < numDocs; i++) {
+            Document doc = new Document();
+            doc.add(new StoredField("value", "value_" + i));
+            iw.addDocument(doc);
+        }
+        iw.forceMerge(1);
+
+        DirectoryReader ir = ElasticsearchDirectoryReader.wrap(DirectoryReader.open(iw), new ShardId("fake", "_na_", 1));
+        assertEquals(1, ir.leaves().size());
+        LeafReader leafReader = ir.leaves().get(0).reader();
+        assertTrue(leafReader instanceof SequentialStoredFieldsLeafReader);
+        StoredFieldsReader sequentialReader = ((SequentialStoredFieldsLeafReader) leafReader).getSequentialStoredFieldsReader();
+        for (int i = randomIntBetween(0, numDocs - 1); i < numDocs; i++) {
+            DocumentStoredFieldVisitor visitor = new DocumentStoredFieldVisitor();
+            sequentialReader.visitDocument(i, visitor);
+            assertEquals("value_" + i, visitor.getDocument().get("value"));
+            assertEquals(leafReader.document(i).get("value"), visitor.getDocument().get("value"));
+        }
+        IOUtils.close(ir, iw, dir);
+    }
 }
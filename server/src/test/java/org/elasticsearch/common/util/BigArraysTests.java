@@ -22,28 +22,35 @@ package org.elasticsearch.common.util;
 import org.apache.lucene.util.BytesRef;
 import org.elasticsearch.common.breaker.CircuitBreaker;
 import org.elasticsearch.common.breaker.CircuitBreakingException;
+import org.elasticsearch.common.lease.Releasables;
 import org.elasticsearch.common.settings.ClusterSettings;
 import org.elasticsearch.common.settings.Settings;
 import org.elasticsearch.common.unit.ByteSizeUnit;
 import org.elasticsearch.indices.breaker.HierarchyCircuitBreakerService;
 import org.elasticsearch.indices.breaker.NoneCircuitBreakerService;
+import org.elasticsearch.monitor.jvm.JvmInfo;
 import org.elasticsearch.test.ESTestCase;
 import org.junit.Before;
 
 import java.lang.reflect.InvocationTargetException;
 import java.lang.reflect.Method;
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collections;
 import java.util.List;
 import java.util.function.Function;
 
 import static org.elasticsearch.indices.breaker.HierarchyCircuitBreakerService.REQUEST_CIRCUIT_BREAKER_LIMIT_SETTING;
+import static org.hamcrest.Matchers.greaterThan;
 import static org.hamcrest.Matchers.greaterThanOrEqualTo;
+import static org.hamcrest.Matchers.lessThan;
+import static org.hamcrest.Matchers.lessThanOrEqualTo;
 
 public class BigArraysTests extends ESTestCase {
 
     private BigArrays randombigArrays() {
-        return new MockBigArrays(new MockPageCacheRecycler(Settings.EMPTY), new NoneCircuitBreakerService());
+        final Settings settings = Settings.builder().put(PageCacheRecycler.OFF_HEAP_SETTING.getKey(), randomBoolean()).build();
+        return new MockBigArrays(new MockPageCacheRecycler(settings), new NoneCircuitBreakerService());
     }
 
     private BigArrays bigArrays;
@@ -380,6 +387,86 @@ public class BigArraysTests extends ESTestCase {
         }
     }
 
+    public void testOffHeapArrays() {
+        final Settings settings = Settings.builder().put(PageCacheRecycler.OFF_HEAP_SETTING.getKey(), true).build();
+        final BigArrays offHeapBigArrays = new MockBigArrays(new MockPageCacheRecycler(settings), new NoneCircuitBreakerService());
+        final long longSize = randomLongBetween(PageCacheRecycler.LONG_PAGE_SIZE + 1, 1 << 18);
+        final long intSize = randomLongBetween(PageCacheRecycler.INT_PAGE_SIZE + 1, 1 << 18);
+        try (LongArray longArray = offHeapBigArrays.newLongArray(longSize);
+             DoubleArray doubleArray = offHeapBigArrays.newDoubleArray(longSize);
+             IntArray intArray = offHeapBigArrays.newIntArray(intSize);
+             FloatArray floatArray = offHeapBigArrays.newFloatArray(intSize)) {
+            // off-heap arrays are accounted for in the circuit breaker just like on-heap arrays
+            assertEquals(BigLongArray.estimateRamBytes(longSize), longArray.ramBytesUsed());
+            assertEquals(BigDoubleArray.estimateRamBytes(longSize), doubleArray.ramBytesUsed());
+            assertEquals(BigIntArray.estimateRamBytes(intSize), intArray.ramBytesUsed());
+            assertEquals(BigFloatArray.estimateRamBytes(intSize), floatArray.ramBytesUsed());
+            final long longIndex = randomLongBetween(0, longSize - 1);
+            final long intIndex = randomLongBetween(0, intSize - 1);
+            assertEquals(0L, longArray.get(longIndex));
+            assertEquals(0L, longArray.set(longIndex, 42L));
+            assertEquals(43L, longArray.increment(longIndex, 1L));
+            assertEquals(0d, doubleArray.set(longIndex, 1.5d), 0d);
+            assertEquals(3d, doubleArray.increment(longIndex, 1.5d), 0d);
+            assertEquals(0, intArray.set(intIndex, -7));
+            assertEquals(-6, intArray.increment(intIndex, 1));
+            assertEquals(0f, floatArray.set(intIndex, 0.5f), 0f);
+            assertEquals(1f, floatArray.increment(intIndex, 0.5f), 0f);
+        }
+    }
+
+    public void testOffHeapPagesAreCappedBelowDirectMemoryLimit() {
+        final long maxDirectMemory = JvmInfo.jvmInfo().getMem().getDirectMemoryMax().getBytes();
+        assertThat(maxDirectMemory, greaterThan(0L));
+        // by default off-heap pages leave room for the other users of direct memory
+        assertThat(PageCacheRecycler.MAX_OFF_HEAP_SETTING.get(Settings.EMPTY).getBytes(), lessThan(maxDirectMemory));
+
+        final int maxPages = randomIntBetween(4, 64);
+        final long maxOffHeap = (long) maxPages * PageCacheRecycler.PAGE_SIZE_IN_BYTES;
+        final PageCacheRecycler recycler = new PageCacheRecycler(Settings.builder()
+            .put(PageCacheRecycler.OFF_HEAP_SETTING.getKey(), true)
+            .put(PageCacheRecycler.MAX_OFF_HEAP_SETTING.getKey(), maxOffHeap + "b")
+            .put(PageCacheRecycler.LIMIT_OFF_HEAP_SETTING.getKey(), PageCacheRecycler.PAGE_SIZE_IN_BYTES + "b")
+            .build());
+        final HierarchyCircuitBreakerService hcbs = new HierarchyCircuitBreakerService(
+            Settings.builder()
+                .put(REQUEST_CIRCUIT_BREAKER_LIMIT_SETTING.getKey(), maxOffHeap * 4, ByteSizeUnit.BYTES)
+                .put(HierarchyCircuitBreakerService.USE_REAL_MEMORY_USAGE_SETTING.getKey(), false)
+                .build(),
+            Collections.emptyList(),
+            new ClusterSettings(Settings.EMPTY, ClusterSettings.BUILT_IN_CLUSTER_SETTINGS));
+        final BigArrays offHeapBigArrays = new BigArrays(recycler, hcbs, CircuitBreaker.REQUEST).withCircuitBreaking();
+        final CircuitBreaker breaker = hcbs.getBreaker(CircuitBreaker.REQUEST);
+
+        final List<BigArray> arrays = new ArrayList<>();
+        try {
+            // the request breaker allows more than the off-heap limit, which trips first
+            final CircuitBreakingException e = expectThrows(CircuitBreakingException.class, () -> {
+                while (true) {
+                    final long arraySize = randomLongBetween(PageCacheRecycler.LONG_PAGE_SIZE + 1, 2 * PageCacheRecycler.LONG_PAGE_SIZE);
+                    arrays.add(offHeapBigArrays.newLongArray(arraySize));
+                }
+            });
+            assertEquals(maxOffHeap, e.getByteLimit());
+            assertThat(recycler.directBytesAllocated(), lessThanOrEqualTo(maxOffHeap));
+            // pages of the array that failed to allocate are released and removed from the breaker
+            assertEquals(arrays.stream().mapToLong(BigArray::ramBytesUsed).sum(), breaker.getUsed());
+
+            // growing an array past the limit trips too and leaves the array as it was
+            final LongArray array = (LongArray) arrays.get(0);
+            final long size = array.size();
+            expectThrows(CircuitBreakingException.class, () -> offHeapBigArrays.resize(array, size + maxOffHeap / Long.BYTES));
+            assertEquals(size, array.size());
+            assertThat(recycler.directBytesAllocated(), lessThanOrEqualTo(maxOffHeap));
+            assertEquals(arrays.stream().mapToLong(BigArray::ramBytesUsed).sum(), breaker.getUsed());
+        } finally {
+            Releasables.close(arrays);
+        }
+        assertEquals(0, breaker.getUsed());
+        // released pages are dropped unless they are kept for reuse
+        assertThat(recycler.directBytesAllocated(), lessThanOrEqualTo((long) PageCacheRecycler.PAGE_SIZE_IN_BYTES));
+    }
+
     public void testEstimatedBytesSameAsActualBytes() throws Exception {
         final int maxSize = 1 << scaledRandomIntBetween(15, 22);
         final long size = randomIntBetween((1 << 14) + 1, maxSize);
@@ -26,9 +26,11 @@ import org.junit.Before;
 import java.io.IOException;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
 import java.util.concurrent.BrokenBarrierException;
 import java.util.concurrent.CountDownLatch;
 import java.util.concurrent.CyclicBarrier;
+import java.util.concurrent.Executor;
 import java.util.concurrent.Semaphore;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.TimeoutException;
@@ -285,4 +287,58 @@ public class AsyncIOProcessorTests extends ESTestCase {
         assertEquals(threadCount, received.get());
         threads.forEach(t -> assertFalse(t.isAlive()));
     }
+
+    public void testProcessOnExecutor() throws Exception {
+        final EsThreadPoolExecutor executor =
+            EsExecutors.newFixed(getTestName(), 1, -1, EsExecutors.daemonThreadFactory("test"), threadContext, false);
+        try {
+            final CountDownLatch blockWrite = new CountDownLatch(1);
+            final AtomicInteger received = new AtomicInteger(0);
+            final AtomicInteger batches = new AtomicInteger(0);
+            final Set<Thread> writerThreads = ConcurrentCollections.newConcurrentSet();
+            final int count = randomIntBetween(2, 100);
+            // the queue must fit all items as they are put while the first write is blocked
+            AsyncIOProcessor<Object> processor = new AsyncIOProcessor<Object>(logger, count, threadContext) {
+                @Override
+                protected Executor getExecutor() {
+                    return executor;
+                }
+
+                @Override
+                protected void write(List<Tuple<Object, Consumer<Exception>>> candidates) throws IOException {
+                    try {
+                        assertTrue(blockWrite.await(10, TimeUnit.SECONDS));
+                    } catch (InterruptedException e) {
+                        throw new AssertionError(e);
+                    }
+                    writerThreads.add(Thread.currentThread());
+                    batches.incrementAndGet();
+                    received.addAndGet(candidates.size());
+                }
+            };
+            final CountDownLatch notified = new CountDownLatch(count);
+            final Thread caller = Thread.currentThread();
+            for (int i = 0; i < count; i++) {
+                final int item = i;
+                threadContext.putTransient("item", item);
+                // the caller is not blocked even though the first write doesn't complete until all items are put
+                processor.put(new Object(), e -> {
+                    assertNull(e);
+                    assertNotSame(caller, Thread.currentThread());
+                    assertEquals(Integer.valueOf(item), threadContext.getTransient("item"));
+                    notified.countDown();
+                });
+                threadContext.stashContext();
+            }
+            blockWrite.countDown();
+            assertTrue(notified.await(10, TimeUnit.SECONDS));
+            assertEquals(count, received.get());
+            // the items that were put while the first one was written are grouped
+            assertTrue(batches.get() <= 2);
+            assertEquals(1, writerThreads.size());
+            assertFalse(writerThreads.contains(caller));
+        } finally {
+            terminate(executor);
+        }
+    }
 }
@@ -21,9 +21,16 @@ package org.elasticsearch.gateway;
 import org.apache.logging.log4j.Level;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
+import org.apache.lucene.document.Document;
+import org.apache.lucene.document.Field;
+import org.apache.lucene.document.StoredField;
+import org.apache.lucene.document.StringField;
+import org.apache.lucene.index.DirectoryReader;
 import org.apache.lucene.index.IndexWriter;
 import org.apache.lucene.index.IndexWriterConfig;
 import org.apache.lucene.index.Term;
+import org.apache.lucene.search.IndexSearcher;
+import org.apache.lucene.search.TermQuery;
 import org.apache.lucene.store.Directory;
 import org.apache.lucene.store.FilterDirectory;
 import org.apache.lucene.store.IOContext;
@@ -34,16 +41,24 @@ import org.elasticsearch.cluster.ClusterName;
 import org.elasticsearch.cluster.ClusterState;
 import org.elasticsearch.cluster.coordination.CoordinationMetadata;
 import org.elasticsearch.cluster.metadata.IndexMetadata;
+import org.elasticsearch.cluster.metadata.MappingMetadata;
 import org.elasticsearch.cluster.metadata.Metadata;
 import org.elasticsearch.cluster.node.DiscoveryNode;
 import org.elasticsearch.cluster.node.DiscoveryNodes;
 import org.elasticsearch.common.UUIDs;
+import org.elasticsearch.common.bytes.BytesReference;
+import org.elasticsearch.common.compress.CompressedXContent;
+import org.elasticsearch.common.io.stream.BytesStreamOutput;
 import org.elasticsearch.common.logging.Loggers;
 import org.elasticsearch.common.settings.ClusterSettings;
 import org.elasticsearch.common.settings.Settings;
 import org.elasticsearch.common.util.BigArrays;
 import org.elasticsearch.common.util.MockBigArrays;
 import org.elasticsearch.common.util.MockPageCacheRecycler;
+import org.elasticsearch.common.xcontent.ToXContent;
+import org.elasticsearch.common.xcontent.XContentBuilder;
+import org.elasticsearch.common.xcontent.XContentFactory;
+import org.elasticsearch.common.xcontent.XContentType;
 import org.elasticsearch.core.internal.io.IOUtils;
 import org.elasticsearch.env.Environment;
 import org.elasticsearch.env.NodeEnvironment;
@@ -57,16 +72,20 @@ import org.elasticsearch.test.junit.annotations.TestLogging;
 
 import java.io.IOError;
 import java.io.IOException;
+import java.nio.charset.StandardCharsets;
 import java.nio.file.Path;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collection;
 import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
 import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.concurrent.atomic.AtomicLong;
 import java.util.stream.Collectors;
 import java.util.stream.Stream;
+import java.util.zip.Deflater;
+import java.util.zip.DeflaterOutputStream;
 
 import static org.hamcrest.Matchers.allOf;
 import static org.hamcrest.Matchers.containsString;
@@ -773,6 +792,194 @@ public class PersistedClusterStateServiceTests extends ESTestCase {
         }
     }
 
+    public void testStoresSharedMappingsOnce() throws IOException {
+        final String sharedMapping = "{\"_doc\":{\"properties\":{\"message\":{\"type\":\"text\"}}}}";
+        final String otherMapping = "{\"_doc\":{\"properties\":{\"count\":{\"type\":\"long\"}}}}";
+        try (NodeEnvironment nodeEnvironment = newNodeEnvironment(createDataPaths())) {
+            final PersistedClusterStateService persistedClusterStateService = newPersistedClusterStateService(nodeEnvironment);
+            try (Writer writer = persistedClusterStateService.createWriter()) {
+                ClusterState clusterState = loadPersistedClusterState(persistedClusterStateService);
+                writeState(writer, 0L, ClusterState.builder(clusterState)
+                        .metadata(Metadata.builder(clusterState.metadata())
+                            .put(indexWithMapping("first", sharedMapping))
+                            .put(indexWithMapping("second", sharedMapping))
+                            .put(indexWithMapping("other", otherMapping))
+                            .put(IndexMetadata.builder("unmapped").settings(indexSettings())))
+                        .incrementVersion().build(),
+                    clusterState);
+
+                clusterState = loadPersistedClusterState(persistedClusterStateService);
+                assertThat(countMappingDocuments(nodeEnvironment), equalTo(2));
+                assertThat(clusterState.metadata().index("first").mapping().source().string(), equalTo(sharedMapping));
+                assertSame(clusterState.metadata().index("first").mapping(), clusterState.metadata().index("second").mapping());
+                assertThat(clusterState.metadata().index("other").mapping().source().string(), equalTo(otherMapping));
+                assertThat(clusterState.metadata().index("unmapped").mapping(), nullValue());
+
+                writer.writeIncrementalStateAndCommit(0L, clusterState, ClusterState.builder(clusterState)
+                        .metadata(Metadata.builder(clusterState.metadata()).remove("first").remove("other"))
+                        .incrementVersion().build());
+
+                clusterState = loadPersistedClusterState(persistedClusterStateService);
+                assertThat(countMappingDocuments(nodeEnvironment), equalTo(1));
+                assertThat(clusterState.metadata().index("second").mapping().source().string(), equalTo(sharedMapping));
+
+                writer.writeIncrementalStateAndCommit(0L, clusterState, ClusterState.builder(clusterState)
+                        .metadata(Metadata.builder(clusterState.metadata()).remove("second").put(indexWithMapping("third", otherMapping)))
+                        .incrementVersion().build());
+
+                clusterState = loadPersistedClusterState(persistedClusterStateService);
+                assertThat(countMappingDocuments(nodeEnvironment), equalTo(1));
+                assertThat(clusterState.metadata().index("third").mapping().source().string(), equalTo(otherMapping));
+                assertThat(clusterState.metadata().indices().size(), equalTo(2));
+            }
+        }
+    }
+
+    public void testLoadsIndexMetadataWithInlineMappings() throws IOException {
+        final String mapping = "{\"_doc\":{\"properties\":{\"message\":{\"type\":\"text\"}}}}";
+        try (NodeEnvironment nodeEnvironment = newNodeEnvironment(createDataPaths())) {
+            final PersistedClusterStateService persistedClusterStateService = newPersistedClusterStateService(nodeEnvironment);
+            final IndexMetadata first = indexWithMapping("first", mapping).build();
+            final IndexMetadata second = indexWithMapping("second", mapping).build();
+            try (Writer writer = persistedClusterStateService.createWriter()) {
+                final ClusterState clusterState = loadPersistedClusterState(persistedClusterStateService);
+                writeState(writer, 0L, ClusterState.builder(clusterState)
+                        .metadata(Metadata.builder(clusterState.metadata()).put(first, false).put(second, false))
+                        .incrementVersion().build(),
+                    clusterState);
+            }
+
+            // rewrite the state in the layout of earlier versions, which stored the mappings inline without an index_mapping_hash
+            for (Path dataPath : nodeEnvironment.nodeDataPaths()) {
+                try (Directory directory = new SimpleFSDirectory(dataPath.resolve(PersistedClusterStateService.METADATA_DIRECTORY_NAME));
+                     IndexWriter indexWriter = new IndexWriter(directory, new IndexWriterConfig())) {
+                    indexWriter.deleteDocuments(new Term("type", "mapping"));
+                    for (IndexMetadata indexMetadata : List.of(first, second)) {
+                        indexWriter.updateDocument(new Term("index_uuid", indexMetadata.getIndexUUID()),
+                            indexMetadataDocumentWithInlineMappings(indexMetadata));
+                    }
+                    indexWriter.commit();
+                }
+            }
+            assertThat(countMappingDocuments(nodeEnvironment), equalTo(0));
+
+            ClusterState clusterState = loadPersistedClusterState(persistedClusterStateService);
+            assertThat(clusterState.metadata().index("first").mapping().source().string(), equalTo(mapping));
+            assertSame(clusterState.metadata().index("first").mapping(), clusterState.metadata().index("second").mapping());
+
+            // the next full write moves to the current layout
+            try (Writer writer = persistedClusterStateService.createWriter()) {
+                writer.writeFullStateAndCommit(0L, clusterState);
+            }
+            assertThat(countMappingDocuments(nodeEnvironment), equalTo(1));
+            clusterState = loadPersistedClusterState(persistedClusterStateService);
+            assertThat(clusterState.metadata().index("first").mapping().source().string(), equalTo(mapping));
+            assertThat(clusterState.metadata().index("second").mapping().source().string(), equalTo(mapping));
+        }
+    }
+
+    public void testKeepsMappingsOfIndicesMovedOntoEqualMappingWithOtherCompressedBytes() throws IOException {
+        final String mapping = "{\"_doc\":{\"properties\":{\"message\":{\"type\":\"text\"}}}}";
+        // an equal mapping whose compressed bytes differ, like the ones that other nodes or earlier versions may have compressed
+        final MappingMetadata otherCompressedMapping =
+            new MappingMetadata(new CompressedXContent(deflate(mapping, Deflater.NO_COMPRESSION)));
+        try (NodeEnvironment nodeEnvironment = newNodeEnvironment(createDataPaths())) {
+            final PersistedClusterStateService persistedClusterStateService = newPersistedClusterStateService(nodeEnvironment);
+            try (Writer writer = persistedClusterStateService.createWriter()) {
+                ClusterState clusterState = loadPersistedClusterState(persistedClusterStateService);
+                final ClusterState firstState = ClusterState.builder(clusterState)
+                    .metadata(Metadata.builder(clusterState.metadata()).put(indexWithMapping("first", mapping)))
+                    .incrementVersion().build();
+                writeState(writer, 0L, firstState, clusterState);
+
+                final IndexMetadata first = firstState.metadata().index("first");
+                assertThat(otherCompressedMapping.source(), equalTo(first.mapping().source()));
+                assertFalse(Arrays.equals(otherCompressedMapping.source().compressed(), first.mapping().source().compressed()));
+
+                // the other mapping is used by more indices, so deduplication moves the first index onto it without changing its version
+                final ClusterState secondState = ClusterState.builder(firstState)
+                    .metadata(Metadata.builder(firstState.metadata())
+                        .put(IndexMetadata.builder("second").settings(indexSettings()).putMapping(otherCompressedMapping))
+                        .put(IndexMetadata.builder("third").settings(indexSettings()).putMapping(otherCompressedMapping)))
+                    .incrementVersion().build();
+                assertSame(otherCompressedMapping, secondState.metadata().index("first").mapping());
+                assertThat(secondState.metadata().index("first").getVersion(), equalTo(first.getVersion()));
+                writer.writeIncrementalStateAndCommit(0L, firstState, secondState);
+
+                clusterState = loadPersistedClusterState(persistedClusterStateService);
+                assertThat(countMappingDocuments(nodeEnvironment), equalTo(1));
+                for (String index : List.of("first", "second", "third")) {
+                    assertThat(clusterState.metadata().index(index).mapping().source().string(), equalTo(mapping));
+                }
+
+                // removing the indices that were written with the other compressed bytes keeps the mapping of the first index
+                writer.writeIncrementalStateAndCommit(0L, secondState, ClusterState.builder(secondState)
+                    .metadata(Metadata.builder(secondState.metadata()).remove("second").remove("third"))
+                    .incrementVersion().build());
+
+                clusterState = loadPersistedClusterState(persistedClusterStateService);
+                assertThat(countMappingDocuments(nodeEnvironment), equalTo(1));
+                assertThat(clusterState.metadata().index("first").mapping().source().string(), equalTo(mapping));
+            }
+        }
+    }
+
+    /**
+     * Compresses the given source like the {@link org.elasticsearch.common.compress.DeflateCompressor} does, but with the given level.
+     */
+    private static BytesReference deflate(String source, int level) throws IOException {
+        final BytesStreamOutput out = new BytesStreamOutput();
+        out.writeBytes(new byte[] { 'D', 'F', 'L', '\0' });
+        final Deflater deflater = new Deflater(level, true);
+        try (DeflaterOutputStream deflaterOutputStream = new DeflaterOutputStream(out, deflater, true)) {
+            deflaterOutputStream.write(source.getBytes(StandardCharsets.UTF_8));
+        } finally {
+            deflater.end();
+        }
+        return out.bytes();
+    }
+
+    /**
+     * Creates the document of the given index metadata like earlier versions wrote it, together with its mappings.
+     */
+    private static Document indexMetadataDocumentWithInlineMappings(IndexMetadata indexMetadata) throws IOException {
+        final XContentBuilder builder = XContentFactory.contentBuilder(XContentType.SMILE);
+        builder.startObject();
+        indexMetadata.toXContent(builder,
+            new ToXContent.MapParams(Map.of("binary", "true", Metadata.CONTEXT_MODE_PARAM, Metadata.CONTEXT_MODE_GATEWAY)));
+        builder.endObject();
+        final Document document = new Document();
+        document.add(new StringField("type", "index", Field.Store.NO));
+        document.add(new StringField("index_uuid", indexMetadata.getIndexUUID(), Field.Store.NO));
+        document.add(new StoredField("data", BytesReference.bytes(builder).toBytesRef()));
+        return document;
+    }
+
+    private static IndexMetadata.Builder indexWithMapping(String name, String mapping) {
+        return IndexMetadata.builder(name).settings(indexSettings()).putMapping(mapping);
+    }
+
+    private static Settings.Builder indexSettings() {
+        return Settings.builder()
+            .put(IndexMetadata.INDEX_NUMBER_OF_SHARDS_SETTING.getKey(), 1)
+            .put(IndexMetadata.INDEX_NUMBER_OF_REPLICAS_SETTING.getKey(), 0)
+            .put(IndexMetadata.SETTING_INDEX_VERSION_CREATED.getKey(), Version.CURRENT)
+            .put(IndexMetadata.SETTING_INDEX_UUID, UUIDs.randomBase64UUID(random()));
+    }
+
+    private static int countMappingDocuments(NodeEnvironment nodeEnvironment) throws IOException {
+        int count = -1;
+        for (Path dataPath : nodeEnvironment.nodeDataPaths()) {
+            try (Directory directory = new SimpleFSDirectory(dataPath.resolve(PersistedClusterStateService.METADATA_DIRECTORY_NAME));
+                 DirectoryReader reader = DirectoryReader.open(directory)) {
+                final int dataPathCount = new IndexSearcher(reader).count(new TermQuery(new Term("type", "mapping")));
+                assertTrue("every data path has the same mappings", count == -1 || count == dataPathCount);
+                count = dataPathCount;
+            }
+        }
+        return count;
+    }
+
     @TestLogging(value = "org.elasticsearch.gateway:WARN", reason = "to ensure that we log gateway events on WARN level")
     public void testSlowLogging() throws IOException, IllegalAccessException {
         final long slowWriteLoggingThresholdMillis;
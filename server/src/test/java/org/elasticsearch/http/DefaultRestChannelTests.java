@@ -36,6 +36,7 @@ import org.elasticsearch.common.xcontent.XContentBuilder;
 import org.elasticsearch.common.xcontent.json.JsonXContent;
 import org.elasticsearch.indices.breaker.NoneCircuitBreakerService;
 import org.elasticsearch.rest.BytesRestResponse;
+import org.elasticsearch.rest.ChunkedRestResponse;
 import org.elasticsearch.rest.RestChannel;
 import org.elasticsearch.rest.RestRequest;
 import org.elasticsearch.rest.RestResponse;
@@ -65,8 +66,10 @@ import static org.hamcrest.Matchers.hasItem;
 import static org.hamcrest.Matchers.instanceOf;
 import static org.hamcrest.Matchers.not;
 import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.eq;
 import static org.mockito.Mockito.atLeastOnce;
 import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
 
@@ -314,6 +317,46 @@ public class DefaultRestChannelTests extends ESTestCase {
         }
     }
 
+    @SuppressWarnings("unchecked")
+    public void testChunkedResponse() {
+        final TestRequest httpRequest = new TestRequest(HttpRequest.HttpVersion.HTTP_1_1, RestRequest.Method.GET, "/");
+        final RestRequest request = RestRequest.request(xContentRegistry(), httpRequest, httpChannel);
+        HttpHandlingSettings handlingSettings = HttpHandlingSettings.fromSettings(Settings.EMPTY);
+
+        DefaultRestChannel channel = new DefaultRestChannel(httpChannel, httpRequest, request, bigArrays, handlingSettings,
+            threadPool.getThreadContext(), null);
+        final BytesReference chunk = new BytesArray("chunk");
+        final List<ChunkedRestResponse.ChunkWriter> writers = new ArrayList<>();
+        channel.sendResponse(new ChunkedRestResponse(RestStatus.OK, "application/x-ndjson") {
+            @Override
+            public void writeBody(ChunkWriter writer) {
+                writers.add(writer);
+            }
+        });
+        Class<ActionListener<Void>> listenerClass = (Class<ActionListener<Void>>) (Class) ActionListener.class;
+        ArgumentCaptor<HttpResponse> responseCaptor = ArgumentCaptor.forClass(HttpResponse.class);
+        ArgumentCaptor<ActionListener<Void>> listenerCaptor = ArgumentCaptor.forClass(listenerClass);
+        verify(httpChannel).sendResponse(responseCaptor.capture(), listenerCaptor.capture());
+        TestResponse response = (TestResponse) responseCaptor.getValue();
+        assertThat(response.content(), equalTo(BytesArray.EMPTY));
+        assertThat(response.headers.get(DefaultRestChannel.CONTENT_TYPE), equalTo(Collections.singletonList("application/x-ndjson")));
+        assertTrue("the body must only be written once the headers are sent", writers.isEmpty());
+
+        listenerCaptor.getValue().onResponse(null);
+        assertThat(writers.size(), equalTo(1));
+        final ActionListener<Void> chunkListener = ActionListener.wrap(() -> {});
+        writers.get(0).writeChunk(chunk, chunkListener);
+        verify(httpChannel).sendChunk(chunk, false, chunkListener);
+        if (randomBoolean()) {
+            writers.get(0).finish();
+            verify(httpChannel).sendChunk(eq(BytesArray.EMPTY), eq(true), any());
+            verify(httpChannel, never()).close();
+        } else {
+            writers.get(0).fail(new IllegalStateException("boom"));
+            verify(httpChannel).close();
+        }
+    }
+
     public void testUnsupportedHttpMethod() {
         final boolean close = randomBoolean();
         final HttpRequest.HttpVersion httpVersion = close ? HttpRequest.HttpVersion.HTTP_1_0 : HttpRequest.HttpVersion.HTTP_1_1;
@@ -461,6 +504,11 @@ public class DefaultRestChannelTests extends ESTestCase {
             return new TestResponse(status, content);
         }
 
+        @Override
+        public HttpResponse createChunkedResponse(RestStatus status) {
+            return new TestResponse(status, BytesArray.EMPTY);
+        }
+
         @Override
         public void release() {
         }
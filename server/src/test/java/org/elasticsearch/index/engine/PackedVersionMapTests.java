@@ -0,0 +1,133 @@
+/*
+ * Licensed to Elasticsearch under one or more contributor
+ * license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright
+ * ownership. Elasticsearch licenses this file to you under
+ * the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.elasticsearch.index.engine;
+
+import org.apache.lucene.util.BytesRef;
+import org.apache.lucene.util.RamUsageTester;
+import org.apache.lucene.util.TestUtil;
+import org.elasticsearch.index.translog.Translog;
+import org.elasticsearch.test.ESTestCase;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+
+import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.greaterThan;
+
+public class PackedVersionMapTests extends ESTestCase {
+
+    public void testAgainstHashMap() {
+        PackedVersionMap map = new PackedVersionMap(randomIntBetween(0, 100));
+        Map<BytesRef, VersionValue> expected = new HashMap<>();
+        List<BytesRef> uids = new ArrayList<>();
+        int numUids = randomIntBetween(1, 2000);
+        for (int i = 0; i < numUids; i++) {
+            uids.add(new BytesRef(TestUtil.randomSimpleString(random(), 1, 20)));
+        }
+        int numOps = randomIntBetween(100, 10000);
+        for (int i = 0; i < numOps; i++) {
+            BytesRef uid = randomFrom(uids);
+            if (rarely()) {
+                assertEquals(expected.remove(uid), map.remove(uid));
+            } else if (randomBoolean()) {
+                assertEquals(expected.get(uid), map.get(uid));
+            } else {
+                IndexVersionValue value = randomIndexVersionValue();
+                assertEquals(expected.put(uid, value), map.put(uid, value));
+            }
+            assertThat(map.size(), equalTo(expected.size()));
+        }
+        assertEquals(expected, map);
+        for (BytesRef uid : uids) {
+            // lookups must not depend on the offset of the key
+            byte[] bytes = new byte[uid.length + 4];
+            System.arraycopy(uid.bytes, uid.offset, bytes, 2, uid.length);
+            assertEquals(expected.get(uid), map.get(new BytesRef(bytes, 2, uid.length)));
+        }
+        for (BytesRef uid : uids) {
+            assertEquals(expected.remove(uid), map.remove(uid));
+        }
+        assertTrue(map.isEmpty());
+    }
+
+    public void testOnlyIndexVersionsArePacked() {
+        PackedVersionMap map = new PackedVersionMap();
+        expectThrows(IllegalArgumentException.class, () -> map.put(new BytesRef("1"), new DeleteVersionValue(1, 1, 1, 1)));
+        assertTrue(map.isEmpty());
+    }
+
+    public void testRamBytesUsed() {
+        PackedVersionMap map = new PackedVersionMap();
+        long emptyRamBytesUsed = map.ramBytesUsed();
+        assertThat(emptyRamBytesUsed, greaterThan(0L));
+        int numUids = randomIntBetween(1000, 10000);
+        for (int i = 0; i < numUids; i++) {
+            map.put(new BytesRef(TestUtil.randomSimpleString(random(), 10, 20)), randomIndexVersionValue());
+        }
+        assertThat(map.ramBytesUsed(), greaterThan(emptyRamBytesUsed));
+        long actualRamBytesUsed = RamUsageTester.sizeOf(map);
+        // less than 25% off
+        assertEquals(actualRamBytesUsed, map.ramBytesUsed(), actualRamBytesUsed / 4);
+    }
+
+    public void testConcurrentPuts() throws InterruptedException {
+        PackedVersionMap map = new PackedVersionMap();
+        int numThreads = randomIntBetween(2, 8);
+        int numUidsPerThread = randomIntBetween(100, 2000);
+        CountDownLatch startLatch = new CountDownLatch(1);
+        Thread[] threads = new Thread[numThreads];
+        for (int t = 0; t < numThreads; t++) {
+            final int threadId = t;
+            threads[t] = new Thread(() -> {
+                try {
+                    startLatch.await();
+                } catch (InterruptedException e) {
+                    throw new AssertionError(e);
+                }
+                for (int i = 0; i < numUidsPerThread; i++) {
+                    BytesRef uid = new BytesRef(threadId + "_" + i);
+                    IndexVersionValue value = new IndexVersionValue(null, i, i, threadId);
+                    assertNull(map.put(uid, value));
+                    assertEquals(value, map.get(uid));
+                }
+            });
+            threads[t].start();
+        }
+        startLatch.countDown();
+        for (Thread thread : threads) {
+            thread.join();
+        }
+        assertThat(map.size(), equalTo(numThreads * numUidsPerThread));
+        for (int t = 0; t < numThreads; t++) {
+            for (int i = 0; i < numUidsPerThread; i++) {
+                assertEquals(new IndexVersionValue(null, i, i, t), map.get(new BytesRef(t + "_" + i)));
+            }
+        }
+    }
+
+    private IndexVersionValue randomIndexVersionValue() {
+        Translog.Location location = randomBoolean() ? null
+            : new Translog.Location(randomNonNegativeLong(), randomNonNegativeLong(), randomIntBetween(1, Integer.MAX_VALUE));
+        return new IndexVersionValue(location, randomNonNegativeLong(), randomNonNegativeLong(), randomNonNegativeLong());
+    }
+}
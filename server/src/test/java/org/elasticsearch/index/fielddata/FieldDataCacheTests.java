@@ -28,24 +28,37 @@ import org.apache.lucene.index.IndexWriter;
 import org.apache.lucene.index.IndexWriterConfig;
 import org.apache.lucene.index.LeafReaderContext;
 import org.apache.lucene.index.NoMergePolicy;
+import org.apache.lucene.index.Term;
 import org.apache.lucene.store.Directory;
 import org.apache.lucene.util.BytesRef;
 import org.elasticsearch.Version;
 import org.elasticsearch.cluster.metadata.IndexMetadata;
+import org.elasticsearch.common.breaker.CircuitBreaker;
 import org.elasticsearch.common.lucene.index.ElasticsearchDirectoryReader;
+import org.elasticsearch.common.settings.ClusterSettings;
 import org.elasticsearch.common.settings.Settings;
 import org.elasticsearch.index.IndexSettings;
+import org.elasticsearch.index.fielddata.ordinals.GlobalOrdinalsIndexFieldData;
 import org.elasticsearch.index.fielddata.plain.AbstractLeafOrdinalsFieldData;
 import org.elasticsearch.index.fielddata.plain.PagedBytesIndexFieldData;
 import org.elasticsearch.index.fielddata.plain.SortedSetOrdinalsIndexFieldData;
 import org.elasticsearch.index.mapper.TextFieldMapper;
 import org.elasticsearch.index.shard.ShardId;
+import org.elasticsearch.indices.IndicesService;
+import org.elasticsearch.indices.breaker.CircuitBreakerService;
+import org.elasticsearch.indices.breaker.HierarchyCircuitBreakerService;
 import org.elasticsearch.indices.breaker.NoneCircuitBreakerService;
+import org.elasticsearch.indices.fielddata.cache.IndicesFieldDataCache;
 import org.elasticsearch.search.aggregations.support.CoreValuesSourceType;
 import org.elasticsearch.test.ESTestCase;
 import org.elasticsearch.test.FieldMaskingReader;
 
+import java.util.Collections;
+
 import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.greaterThan;
+import static org.hamcrest.Matchers.not;
+import static org.hamcrest.Matchers.sameInstance;
 
 public class FieldDataCacheTests extends ESTestCase {
 
@@ -88,9 +101,153 @@ public class FieldDataCacheTests extends ESTestCase {
         dir.close();
     }
 
+    public void testLoadGlobal_reuseOrdinalMapForSameSegments() throws Exception {
+        Directory dir = newDirectory();
+        IndexWriterConfig iwc = new IndexWriterConfig(null);
+        iwc.setMergePolicy(NoMergePolicy.INSTANCE);
+        IndexWriter iw = new IndexWriter(dir, iwc);
+        for (int i = 1; i <= 100; i++) {
+            Document doc = new Document();
+            doc.add(new SortedSetDocValuesField("field1", new BytesRef(String.valueOf(i))));
+            doc.add(new StringField("id", String.valueOf(i), Field.Store.NO));
+            iw.addDocument(doc);
+            if (i % 25 == 0) {
+                iw.commit();
+            }
+        }
+        ShardId shardId = new ShardId("_index", "_na_", 0);
+        DirectoryReader ir = ElasticsearchDirectoryReader.wrap(DirectoryReader.open(iw), shardId);
+
+        CircuitBreakerService breakerService = newFieldDataBreakerService();
+        CircuitBreaker breaker = breakerService.getBreaker(CircuitBreaker.FIELDDATA);
+        IndicesFieldDataCache indicesFieldDataCache = newIndicesFieldDataCache(breaker);
+        ShardFieldData shardFieldData = new ShardFieldData();
+        IndexFieldDataCache fieldDataCache =
+            indicesFieldDataCache.buildIndexFieldDataCache(shardFieldData, shardId.getIndex(), "field1");
+        SortedSetOrdinalsIndexFieldData fieldData = createSortedDV("field1", fieldDataCache, breakerService);
+        GlobalOrdinalsIndexFieldData first = (GlobalOrdinalsIndexFieldData) fieldData.loadGlobal(ir);
+        assertFalse(first.isReused());
+        long ordinalMapSize = first.ramBytesUsed();
+        assertThat(ordinalMapSize, greaterThan(0L));
+        assertThat(breaker.getUsed(), equalTo(ordinalMapSize));
+
+        // deleting documents doesn't change the terms dictionaries of the segments
+        iw.deleteDocuments(new Term("id", String.valueOf(randomIntBetween(1, 100))));
+        DirectoryReader afterDelete = DirectoryReader.openIfChanged(ir);
+        assertNotNull(afterDelete);
+        GlobalOrdinalsIndexFieldData second = (GlobalOrdinalsIndexFieldData) fieldData.loadGlobal(afterDelete);
+        assertThat(second, not(sameInstance(first)));
+        assertTrue(second.isReused());
+        assertThat(second.getOrdinalMap(), sameInstance(first.getOrdinalMap()));
+        // the shared ordinal map is only accounted for once
+        assertThat(breaker.getUsed(), equalTo(ordinalMapSize));
+        assertThat(shardFieldData.stats().getGlobalOrdinalsMemorySizeInBytes(), equalTo(ordinalMapSize));
+
+        // and stays accounted for until the last reader that uses it is closed
+        ir.close();
+        assertThat(breaker.getUsed(), equalTo(ordinalMapSize));
+        assertThat(shardFieldData.stats().getGlobalOrdinalsMemorySizeInBytes(), equalTo(ordinalMapSize));
+
+        // a new segment requires building the ordinal map again
+        Document doc = new Document();
+        doc.add(new SortedSetDocValuesField("field1", new BytesRef("new")));
+        iw.addDocument(doc);
+        DirectoryReader afterAdd = DirectoryReader.openIfChanged(afterDelete);
+        assertNotNull(afterAdd);
+        GlobalOrdinalsIndexFieldData third = (GlobalOrdinalsIndexFieldData) fieldData.loadGlobal(afterAdd);
+        assertFalse(third.isReused());
+        assertThat(third.getOrdinalMap().getValueCount(), equalTo(first.getOrdinalMap().getValueCount() + 1));
+
+        FieldDataStats stats = shardFieldData.stats();
+        assertThat(stats.getGlobalOrdinalsBuildCount(), equalTo(2L));
+        assertThat(stats.getGlobalOrdinalsReuseCount(), equalTo(1L));
+        assertThat(stats.getGlobalOrdinalsMemorySizeInBytes(), equalTo(ordinalMapSize + third.ramBytesUsed()));
+        assertThat(breaker.getUsed(), equalTo(ordinalMapSize + third.ramBytesUsed()));
+
+        afterDelete.close();
+        afterAdd.close();
+        assertThat(shardFieldData.stats().getGlobalOrdinalsMemorySizeInBytes(), equalTo(0L));
+        assertThat(shardFieldData.stats().getMemorySizeInBytes(), equalTo(0L));
+        assertThat(breaker.getUsed(), equalTo(0L));
+        iw.close();
+        dir.close();
+        indicesFieldDataCache.close();
+    }
+
+    public void testLoadGlobal_ordinalMapIsForgottenWithItsReaders() throws Exception {
+        Directory dir = newDirectory();
+        IndexWriterConfig iwc = new IndexWriterConfig(null);
+        iwc.setMergePolicy(NoMergePolicy.INSTANCE);
+        IndexWriter iw = new IndexWriter(dir, iwc);
+        for (int i = 1; i <= 100; i++) {
+            Document doc = new Document();
+            doc.add(new SortedSetDocValuesField("field1", new BytesRef(String.valueOf(i))));
+            doc.add(new StringField("id", String.valueOf(i), Field.Store.NO));
+            iw.addDocument(doc);
+            if (i % 25 == 0) {
+                iw.commit();
+            }
+        }
+        ShardId shardId = new ShardId("_index", "_na_", 0);
+        DirectoryReader ir = ElasticsearchDirectoryReader.wrap(DirectoryReader.open(iw), shardId);
+
+        CircuitBreakerService breakerService = newFieldDataBreakerService();
+        CircuitBreaker breaker = breakerService.getBreaker(CircuitBreaker.FIELDDATA);
+        IndicesFieldDataCache indicesFieldDataCache = newIndicesFieldDataCache(breaker);
+        ShardFieldData shardFieldData = new ShardFieldData();
+        IndexFieldDataCache fieldDataCache =
+            indicesFieldDataCache.buildIndexFieldDataCache(shardFieldData, shardId.getIndex(), "field1");
+        SortedSetOrdinalsIndexFieldData fieldData = createSortedDV("field1", fieldDataCache, breakerService);
+        GlobalOrdinalsIndexFieldData first = (GlobalOrdinalsIndexFieldData) fieldData.loadGlobal(ir);
+        assertFalse(first.isReused());
+
+        // the new reader has the same segments but the previous one is closed before global ordinals are loaded again
+        iw.deleteDocuments(new Term("id", String.valueOf(randomIntBetween(1, 100))));
+        DirectoryReader afterDelete = DirectoryReader.openIfChanged(ir);
+        assertNotNull(afterDelete);
+        ir.close();
+        assertThat(breaker.getUsed(), equalTo(0L));
+
+        // the ordinal map isn't kept around once no cached global ordinals use it anymore
+        GlobalOrdinalsIndexFieldData second = (GlobalOrdinalsIndexFieldData) fieldData.loadGlobal(afterDelete);
+        assertFalse(second.isReused());
+        assertThat(second.getOrdinalMap(), not(sameInstance(first.getOrdinalMap())));
+        assertThat(breaker.getUsed(), equalTo(second.ramBytesUsed()));
+
+        afterDelete.close();
+        assertThat(breaker.getUsed(), equalTo(0L));
+        iw.close();
+        dir.close();
+        indicesFieldDataCache.close();
+    }
+
+    private static CircuitBreakerService newFieldDataBreakerService() {
+        return new HierarchyCircuitBreakerService(
+            Settings.builder().put(HierarchyCircuitBreakerService.USE_REAL_MEMORY_USAGE_SETTING.getKey(), false).build(),
+            Collections.emptyList(),
+            new ClusterSettings(Settings.EMPTY, ClusterSettings.BUILT_IN_CLUSTER_SETTINGS));
+    }
+
+    /**
+     * Creates a cache that releases the memory of removed fielddata from the provided breaker, like {@link IndicesService} does.
+     */
+    private static IndicesFieldDataCache newIndicesFieldDataCache(CircuitBreaker breaker) {
+        return new IndicesFieldDataCache(Settings.EMPTY, new IndexFieldDataCache.Listener() {
+            @Override
+            public void onRemoval(ShardId shardId, String fieldName, boolean wasEvicted, long sizeInBytes) {
+                breaker.addWithoutBreaking(-sizeInBytes);
+            }
+        });
+    }
+
     private SortedSetOrdinalsIndexFieldData createSortedDV(String fieldName, IndexFieldDataCache indexFieldDataCache) {
+        return createSortedDV(fieldName, indexFieldDataCache, new NoneCircuitBreakerService());
+    }
+
+    private SortedSetOrdinalsIndexFieldData createSortedDV(String fieldName, IndexFieldDataCache indexFieldDataCache,
+                                                           CircuitBreakerService breakerService) {
         return new SortedSetOrdinalsIndexFieldData(createIndexSettings(), indexFieldDataCache, fieldName, CoreValuesSourceType.BYTES,
-            new NoneCircuitBreakerService(), AbstractLeafOrdinalsFieldData.DEFAULT_SCRIPT_FUNCTION);
+            breakerService, AbstractLeafOrdinalsFieldData.DEFAULT_SCRIPT_FUNCTION);
     }
 
     private PagedBytesIndexFieldData createPagedBytes(String fieldName, IndexFieldDataCache indexFieldDataCache) {
@@ -0,0 +1,159 @@
+/*
+ * Licensed to Elasticsearch under one or more contributor
+ * license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright
+ * ownership. Elasticsearch licenses this file to you under
+ * the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.elasticsearch.index.mapper;
+
+import org.elasticsearch.cluster.metadata.IndexMetadata;
+import org.elasticsearch.common.UUIDs;
+import org.elasticsearch.common.compress.CompressedXContent;
+import org.elasticsearch.common.settings.Settings;
+import org.elasticsearch.index.IndexService;
+import org.elasticsearch.index.mapper.MapperService.MergeReason;
+import org.elasticsearch.indices.IndicesService;
+import org.elasticsearch.test.ESSingleNodeTestCase;
+
+import static org.elasticsearch.indices.cluster.IndicesClusterStateService.AllocatedIndices.IndexRemovalReason.NO_LONGER_ASSIGNED;
+import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.greaterThan;
+import static org.hamcrest.Matchers.not;
+import static org.hamcrest.Matchers.nullValue;
+import static org.hamcrest.Matchers.sameInstance;
+
+public class SharedMappingsTests extends ESSingleNodeTestCase {
+
+    public void testIndicesWithEqualMappingsShareMapping() {
+        final MapperService first = createIndex("test1", Settings.EMPTY, "_doc", "field", "type=keyword").mapperService();
+        final MapperService second = createIndex("test2", Settings.builder().put("index.number_of_replicas", 1).build(),
+            "_doc", "field", "type=keyword").mapperService();
+        final MapperService other = createIndex("test3", Settings.EMPTY, "_doc", "field", "type=text").mapperService();
+
+        assertThat(second.documentMapper().mapping(), sameInstance(first.documentMapper().mapping()));
+        assertThat(second.documentMapper(), not(sameInstance(first.documentMapper())));
+        assertThat(other.documentMapper().mapping(), not(sameInstance(first.documentMapper().mapping())));
+
+        final SharedMappingStats stats = client().admin().cluster().prepareNodesStats().clear().setSharedMappings(true).get()
+            .getNodes().get(0).getSharedMappingStats();
+        assertThat(stats.getMappings(), equalTo(2L));
+        assertThat(stats.getIndices(), equalTo(3L));
+        assertThat(stats.getSharedMappers(), greaterThan(0L));
+    }
+
+    public void testIndicesWithDifferentAnalysisSettingsDoNotShareMapping() {
+        final MapperService first = createIndex("test1", Settings.EMPTY, "_doc", "field", "type=text").mapperService();
+        final MapperService second = createIndex("test2", Settings.builder()
+            .put("index.analysis.analyzer.default.type", "whitespace").build(), "_doc", "field", "type=text").mapperService();
+
+        assertThat(second.documentMapper().mapping(), not(sameInstance(first.documentMapper().mapping())));
+    }
+
+    public void testReadsAnalysisFiles() {
+        assertFalse(SharedMappings.readsAnalysisFiles(Settings.builder()
+            .put("index.analysis.analyzer.my_analyzer.type", "standard")
+            .putList("index.analysis.analyzer.my_analyzer.stopwords", "a", "the")
+            .put("index.number_of_replicas", 1)
+            .build()));
+        for (String fileSetting : new String[] {
+            "index.analysis.filter.my_filter.synonyms_path",
+            "index.analysis.analyzer.my_analyzer.stopwords_path",
+            "index.analysis.tokenizer.my_tokenizer.user_dictionary",
+            "index.analysis.tokenizer.my_tokenizer.rule_files" }) {
+            assertTrue(fileSetting, SharedMappings.readsAnalysisFiles(Settings.builder().put(fileSetting, "analysis/file.txt").build()));
+        }
+        assertTrue(SharedMappings.readsAnalysisFiles(Settings.builder()
+            .put("index.analysis.filter.my_filter.type", "hunspell")
+            .put("index.analysis.filter.my_filter.locale", "en_US")
+            .build()));
+    }
+
+    public void testMappingUpdateStopsSharing() throws Exception {
+        final MapperService first = createIndex("test1", Settings.EMPTY, "_doc", "field", "type=keyword").mapperService();
+        final MapperService second = createIndex("test2", Settings.EMPTY, "_doc", "field", "type=keyword").mapperService();
+        final Mapping shared = first.documentMapper().mapping();
+
+        client().admin().indices().preparePutMapping("test1").setSource("other", "type=long").get();
+
+        assertThat(first.documentMapper().mapping(), not(sameInstance(shared)));
+        assertThat(first.fieldType("other"), not(nullValue()));
+        assertThat(second.documentMapper().mapping(), sameInstance(shared));
+        assertThat(second.fieldType("other"), nullValue());
+
+        final IndicesService indicesService = getInstanceFromNode(IndicesService.class);
+        assertThat(indicesService.getSharedMappingStats().getSharedMappers(), equalTo(0L));
+
+        client().admin().indices().preparePutMapping("test2").setSource("other", "type=long").get();
+        assertThat(second.documentMapper().mapping(), sameInstance(first.documentMapper().mapping()));
+
+        client().admin().indices().prepareDelete("test1", "test2").get();
+        assertBusy(() -> assertThat(indicesService.getSharedMappingStats().getMappings(), equalTo(0L)));
+    }
+
+    public void testDisabled() throws Exception {
+        final MapperService mapperService = createIndex("test", Settings.EMPTY, "_doc", "field", "type=keyword").mapperService();
+        final SharedMappings sharedMappings =
+            new SharedMappings(Settings.builder().put(SharedMappings.SHARE_PARSED_MAPPINGS_SETTING.getKey(), false).build());
+        final DocumentMapper mapper = mapperService.parse("_doc", new CompressedXContent("{\"_doc\":{}}"));
+        assertThat(sharedMappings.acquire(mapperService, mapper), nullValue());
+        assertThat(sharedMappings.stats().getMappings(), equalTo(0L));
+    }
+
+    public void testPreflightDoesNotAcquire() throws Exception {
+        final MapperService mapperService = createIndex("test", Settings.EMPTY, "_doc", "field", "type=keyword").mapperService();
+        final IndicesService indicesService = getInstanceFromNode(IndicesService.class);
+        final SharedMappingStats before = indicesService.getSharedMappingStats();
+        mapperService.merge("_doc", new CompressedXContent("{\"_doc\":{\"properties\":{\"other\":{\"type\":\"long\"}}}}"),
+            MergeReason.MAPPING_UPDATE_PREFLIGHT);
+        final SharedMappingStats after = indicesService.getSharedMappingStats();
+        assertThat(after.getMappings(), equalTo(before.getMappings()));
+        assertThat(after.getIndices(), equalTo(before.getIndices()));
+    }
+
+    public void testTemporaryIndicesDoNotShareMappings() throws Exception {
+        final MapperService mapperService = createIndex("test", Settings.EMPTY, "_doc", "field", "type=keyword").mapperService();
+        final IndicesService indicesService = getInstanceFromNode(IndicesService.class);
+        final SharedMappingStats before = indicesService.getSharedMappingStats();
+        final IndexMetadata existing = client().admin().cluster().prepareState().get().getState().metadata().index("test");
+        final IndexMetadata temporary = IndexMetadata.builder(existing)
+            .index("temporary")
+            .settings(Settings.builder().put(existing.getSettings()).put(IndexMetadata.SETTING_INDEX_UUID, UUIDs.randomBase64UUID()))
+            .build();
+
+        // the path that the master takes to apply mapping and alias updates to indices it doesn't hold
+        final IndexService indexService = indicesService.createTemporaryIndex(temporary);
+        try {
+            indexService.mapperService().merge(temporary, MergeReason.MAPPING_RECOVERY);
+            assertThat(indexService.mapperService().documentMapper().mapping(),
+                not(sameInstance(mapperService.documentMapper().mapping())));
+            assertThat(indicesService.getSharedMappingStats().getIndices(), equalTo(before.getIndices()));
+        } finally {
+            indicesService.removeIndex(temporary.getIndex(), NO_LONGER_ASSIGNED, "created for test");
+        }
+
+        // the path that validates index templates and metadata
+        indicesService.withTempIndexService(temporary, tempIndexService -> {
+            tempIndexService.mapperService().merge(temporary, MergeReason.MAPPING_RECOVERY);
+            assertThat(tempIndexService.mapperService().documentMapper().mapping(),
+                not(sameInstance(mapperService.documentMapper().mapping())));
+            return null;
+        });
+
+        final SharedMappingStats after = indicesService.getSharedMappingStats();
+        assertThat(after.getMappings(), equalTo(before.getMappings()));
+        assertThat(after.getIndices(), equalTo(before.getIndices()));
+    }
+}
@@ -140,6 +140,7 @@ import java.nio.file.attribute.BasicFileAttributes;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collections;
+import java.util.HashMap;
 import java.util.HashSet;
 import java.util.List;
 import java.util.Locale;
@@ -2085,6 +2086,45 @@ public class IndexShardTests extends IndexShardTestCase {
         closeShards(newShard);
     }
 
+    public void testRecoverFromStoreWithConcurrentTranslogReplay() throws IOException {
+        final int concurrency = randomIntBetween(2, 8);
+        final IndexShard shard = newStartedShard(true,
+            Settings.builder().put(IndexSettings.INDEX_TRANSLOG_RECOVERY_CONCURRENCY_SETTING.getKey(), concurrency).build());
+        final int totalOps = randomIntBetween(1, 3 * IndexShard.TRANSLOG_RECOVERY_BATCH_SIZE);
+        final Map<String, Long> expectedSeqNos = new HashMap<>();
+        for (int i = 0; i < totalOps; i++) {
+            final String id = Integer.toString(randomInt(100));
+            if (rarely()) {
+                deleteDoc(shard, id);
+                expectedSeqNos.remove(id);
+            } else {
+                indexDoc(shard, "_doc", id);
+                expectedSeqNos.put(id, (long) i);
+            }
+        }
+        IndexShard newShard = reinitShard(shard);
+        DiscoveryNode localNode = new DiscoveryNode("foo", buildNewFakeTransportAddress(), emptyMap(), emptySet(), Version.CURRENT);
+        newShard.markAsRecovering("store", new RecoveryState(newShard.routingEntry(), localNode, null));
+        assertTrue(recoverFromStore(newShard));
+        final RecoveryState.Translog translogStats = newShard.recoveryState().getTranslog();
+        assertEquals(totalOps, translogStats.recoveredOperations());
+        assertEquals(concurrency, translogStats.replayThreads());
+        assertEquals(totalOps, translogStats.replayedOperations());
+        assertThat(translogStats.replayedOperationsPerSecond(), greaterThanOrEqualTo(0.0));
+        IndexShardTestCase.updateRoutingEntry(newShard, newShard.routingEntry().moveToStarted());
+        assertThat(newShard.getLocalCheckpoint(), equalTo(totalOps - 1L));
+        assertThat(getShardDocUIDs(newShard), equalTo(expectedSeqNos.keySet()));
+        // the operations on a document must have been replayed in order
+        for (Map.Entry<String, Long> expected : expectedSeqNos.entrySet()) {
+            final String id = expected.getKey();
+            try (Engine.GetResult get = newShard.get(new Engine.Get(false, false, id, new Term(IdFieldMapper.NAME, Uid.encodeId(id))))) {
+                assertTrue(get.exists());
+                assertThat(get.docIdAndVersion().seqNo, equalTo(expected.getValue()));
+            }
+        }
+        closeShards(newShard);
+    }
+
     public void testRecoverFromStalePrimaryForceNewHistoryUUID() throws IOException {
         final IndexShard shard = newStartedShard(true);
         int totalOps = randomInt(10);
@@ -26,6 +26,8 @@ import org.apache.lucene.index.DirectoryReader;
 import org.apache.lucene.index.IndexReader;
 import org.apache.lucene.index.IndexWriter;
 import org.apache.lucene.index.IndexWriterConfig;
+import org.apache.lucene.index.LeafReader;
+import org.apache.lucene.index.NoMergePolicy;
 import org.apache.lucene.index.Term;
 import org.apache.lucene.search.IndexSearcher;
 import org.apache.lucene.search.TermQuery;
@@ -55,7 +57,7 @@ public class IndicesRequestCacheTests extends ESTestCase {
 
     public void testBasicOperationsCache() throws Exception {
         ShardRequestCache requestCacheStats = new ShardRequestCache();
-        IndicesRequestCache cache = new IndicesRequestCache(Settings.EMPTY);
+        IndicesRequestCache cache = new IndicesRequestCache(randomPolicySettings());
         Directory dir = newDirectory();
         IndexWriter writer = new IndexWriter(dir, newIndexWriterConfig());
 
@@ -331,6 +333,88 @@ public class IndicesRequestCacheTests extends ESTestCase {
             StringField.TYPE_STORED));
     }
 
+    public void testSegmentLevelCache() throws Exception {
+        ShardRequestCache requestCacheStats = new ShardRequestCache();
+        IndicesRequestCache cache = new IndicesRequestCache(Settings.EMPTY);
+        AtomicBoolean indexShard = new AtomicBoolean(true);
+        Directory dir = newDirectory();
+        IndexWriter writer = new IndexWriter(dir, newIndexWriterConfig().setMergePolicy(NoMergePolicy.INSTANCE));
+        writer.addDocument(newDoc(0, "foo"));
+        writer.commit();
+        DirectoryReader reader = DirectoryReader.open(dir);
+        assertEquals(1, reader.leaves().size());
+        TermQueryBuilder termQuery = new TermQueryBuilder("id", "0");
+        BytesReference termBytes = XContentHelper.toXContent(termQuery, XContentType.JSON, false);
+        TestEntity entity = new TestEntity(requestCacheStats, indexShard, true);
+
+        LeafLoader loader = new LeafLoader(reader.leaves().get(0).reader());
+        BytesReference value = cache.getOrCompute(entity, loader, reader.leaves().get(0).reader(), termBytes, termQuery::toString);
+        assertEquals(1, value.streamInput().readVInt());
+        assertFalse(loader.loadedFromCache);
+        assertEquals(0, requestCacheStats.stats().getSegmentHitCount());
+        assertEquals(1, requestCacheStats.stats().getSegmentMissCount());
+        assertEquals(0, requestCacheStats.stats().getMissCount());
+
+        // a new segment doesn't invalidate the result of the existing one
+        writer.addDocument(newDoc(1, "bar"));
+        writer.commit();
+        DirectoryReader secondReader = DirectoryReader.openIfChanged(reader);
+        assertEquals(2, secondReader.leaves().size());
+        for (int i = 0; i < secondReader.leaves().size(); i++) {
+            LeafReader leaf = secondReader.leaves().get(i).reader();
+            loader = new LeafLoader(leaf);
+            value = cache.getOrCompute(entity, loader, leaf, termBytes, termQuery::toString);
+            assertEquals(1, value.streamInput().readVInt());
+            assertEquals(i == 0, loader.loadedFromCache);
+        }
+        assertEquals(1, requestCacheStats.stats().getSegmentHitCount());
+        assertEquals(2, requestCacheStats.stats().getSegmentMissCount());
+        assertEquals(0, requestCacheStats.stats().getHitCount());
+        assertEquals(2, cache.count());
+        assertEquals(2, cache.numRegisteredCloseListeners());
+
+        // deletes invalidate the result of the segment
+        writer.deleteDocuments(new Term("id", "0"));
+        writer.commit();
+        DirectoryReader thirdReader = DirectoryReader.openIfChanged(secondReader);
+        LeafReader leaf = thirdReader.leaves().get(0).reader();
+        loader = new LeafLoader(leaf);
+        value = cache.getOrCompute(entity, loader, leaf, termBytes, termQuery::toString);
+        assertEquals(0, value.streamInput().readVInt());
+        assertFalse(loader.loadedFromCache);
+        assertEquals(3, requestCacheStats.stats().getSegmentMissCount());
+
+        // entries are released when their segment is closed
+        IOUtils.close(reader, secondReader);
+        cache.cleanCache();
+        assertEquals(2, cache.count());
+        IOUtils.close(thirdReader);
+        cache.cleanCache();
+        assertEquals(0, cache.count());
+        assertEquals(0, requestCacheStats.stats().getMemorySize().bytesAsInt());
+        assertEquals(0, cache.numRegisteredCloseListeners());
+        IOUtils.close(writer, dir, cache);
+    }
+
+    private static class LeafLoader implements CheckedSupplier<BytesReference, IOException> {
+
+        private final LeafReader reader;
+        public boolean loadedFromCache = true;
+
+        LeafLoader(LeafReader reader) {
+            this.reader = reader;
+        }
+
+        @Override
+        public BytesReference get() throws IOException {
+            try (BytesStreamOutput out = new BytesStreamOutput()) {
+                out.writeVInt(reader.numDocs());
+                loadedFromCache = false;
+                return out.bytes();
+            }
+        }
+    }
+
     private static class Loader implements CheckedSupplier<BytesReference, IOException> {
 
         private final DirectoryReader reader;
@@ -362,7 +446,7 @@ public class IndicesRequestCacheTests extends ESTestCase {
 
     public void testInvalidate() throws Exception {
         ShardRequestCache requestCacheStats = new ShardRequestCache();
-        IndicesRequestCache cache = new IndicesRequestCache(Settings.EMPTY);
+        IndicesRequestCache cache = new IndicesRequestCache(randomPolicySettings());
         Directory dir = newDirectory();
         IndexWriter writer = new IndexWriter(dir, newIndexWriterConfig());
 
@@ -429,6 +513,16 @@ public class IndicesRequestCacheTests extends ESTestCase {
         assertEquals(0, cache.numRegisteredCloseListeners());
     }
 
+    public void testPolicySetting() {
+        IllegalArgumentException e = expectThrows(IllegalArgumentException.class,
+            () -> new IndicesRequestCache(Settings.builder().put(IndicesRequestCache.INDICES_CACHE_QUERY_POLICY.getKey(), "lfu").build()));
+        assertEquals("indices.requests.cache.policy must be one of [lru, tiny_lfu] but was: lfu", e.getMessage());
+    }
+
+    private static Settings randomPolicySettings() {
+        return Settings.builder().put(IndicesRequestCache.INDICES_CACHE_QUERY_POLICY.getKey(), randomFrom("lru", "tiny_lfu")).build();
+    }
+
     public void testEqualsKey() throws IOException {
         AtomicBoolean trueBoolean = new AtomicBoolean(true);
         AtomicBoolean falseBoolean = new AtomicBoolean(false);
@@ -509,9 +603,20 @@ public class IndicesRequestCacheTests extends ESTestCase {
     private class TestEntity extends AbstractIndexShardCacheEntity {
         private final AtomicBoolean standInForIndexShard;
         private final ShardRequestCache shardRequestCache;
+        private final boolean segmentLevel;
         private TestEntity(ShardRequestCache shardRequestCache, AtomicBoolean standInForIndexShard) {
+            this(shardRequestCache, standInForIndexShard, false);
+        }
+
+        private TestEntity(ShardRequestCache shardRequestCache, AtomicBoolean standInForIndexShard, boolean segmentLevel) {
             this.standInForIndexShard = standInForIndexShard;
             this.shardRequestCache = shardRequestCache;
+            this.segmentLevel = segmentLevel;
+        }
+
+        @Override
+        protected boolean isSegmentLevel() {
+            return segmentLevel;
         }
 
         @Override
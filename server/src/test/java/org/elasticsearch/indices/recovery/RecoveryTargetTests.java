@@ -28,6 +28,7 @@ import org.elasticsearch.common.Strings;
 import org.elasticsearch.common.io.stream.BytesStreamOutput;
 import org.elasticsearch.common.io.stream.StreamInput;
 import org.elasticsearch.common.io.stream.Writeable;
+import org.elasticsearch.common.unit.TimeValue;
 import org.elasticsearch.index.shard.ShardId;
 import org.elasticsearch.indices.recovery.RecoveryState.File;
 import org.elasticsearch.indices.recovery.RecoveryState.Index;
@@ -41,6 +42,7 @@ import java.io.IOException;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collections;
+import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.concurrent.atomic.AtomicReference;
 
@@ -419,6 +421,14 @@ public class RecoveryTargetTests extends ESTestCase {
             assertThat(streamer.lastRead().recoveredPercent(), either(greaterThanOrEqualTo(0.f)).or(equalTo(-1.f)));
         }
 
+        int replayThreads = randomIntBetween(1, 8);
+        long replayTimeInNanos = randomLongBetween(1, TimeUnit.MINUTES.toNanos(10));
+        translog.addReplay(replayThreads, ops, replayTimeInNanos);
+        assertThat(translog.replayThreads(), equalTo(replayThreads));
+        assertThat(translog.replayedOperations(), equalTo(ops));
+        assertThat(translog.replayTime(), equalTo(TimeValue.nsecToMSec(replayTimeInNanos)));
+        assertThat(translog.replayedOperationsPerSecond(), closeTo(ops * 1e9 / replayTimeInNanos, 1e-6));
+
         boolean stopped = false;
         if (randomBoolean()) {
             translog.stop();
@@ -430,9 +440,13 @@ public class RecoveryTargetTests extends ESTestCase {
             ops = 0;
             totalOps = Translog.UNKNOWN;
             totalOpsOnStart = Translog.UNKNOWN;
+            replayThreads = 0;
+            replayTimeInNanos = 0;
             assertThat(translog.recoveredOperations(), equalTo(0));
             assertThat(translog.totalOperationsOnStart(), equalTo(Translog.UNKNOWN));
             assertThat(translog.totalOperations(), equalTo(Translog.UNKNOWN));
+            assertThat(translog.replayThreads(), equalTo(0));
+            assertThat(translog.replayedOperationsPerSecond(), equalTo(0.0));
         }
 
         stop.set(true);
@@ -441,6 +455,9 @@ public class RecoveryTargetTests extends ESTestCase {
         assertThat(lastRead.recoveredOperations(), equalTo(ops));
         assertThat(lastRead.totalOperations(), equalTo(totalOps));
         assertThat(lastRead.totalOperationsOnStart(), equalTo(totalOpsOnStart));
+        assertThat(lastRead.replayThreads(), equalTo(replayThreads));
+        assertThat(lastRead.replayedOperations(), equalTo(ops));
+        assertThat(lastRead.replayTime(), equalTo(TimeValue.nsecToMSec(replayTimeInNanos)));
         assertThat(lastRead.startTime(), equalTo(translog.startTime()));
         assertThat(lastRead.stopTime(), equalTo(translog.stopTime()));
 
@@ -34,6 +34,7 @@ import org.elasticsearch.threadpool.ThreadPool;
 import org.junit.After;
 import org.junit.Before;
 
+import java.util.Collections;
 import java.util.Map;
 import java.util.concurrent.CountDownLatch;
 
@@ -137,4 +138,59 @@ public class ResponseCollectorServiceTests extends ESTestCase {
         assertTrue(nodeStats.containsKey("node1"));
         assertFalse(nodeStats.containsKey("node2"));
     }
+
+    public void testResponseTimePercentile() {
+        assertThat(collector.getResponseTimePercentile("node0", 95), equalTo(-1L));
+        for (int i = 1; i < ResponseCollectorService.MIN_RESPONSE_TIMES; i++) {
+            collector.addNodeStatistics("node0", 1, i, 10);
+        }
+        assertThat(collector.getResponseTimePercentile("node0", 95), equalTo(-1L));
+        collector.addNodeStatistics("node0", 1, ResponseCollectorService.MIN_RESPONSE_TIMES, 10);
+        assertThat(collector.getResponseTimePercentile("node0", 50), equalTo(ResponseCollectorService.MIN_RESPONSE_TIMES / 2L));
+        assertThat(collector.getResponseTimePercentile("node0", 100), equalTo((long) ResponseCollectorService.MIN_RESPONSE_TIMES));
+
+        // only the most recent response times are taken into account
+        for (int i = 0; i < ResponseCollectorService.RESPONSE_TIME_WINDOW; i++) {
+            collector.addNodeStatistics("node0", 1, 1000 + i, 10);
+        }
+        assertThat(collector.getResponseTimePercentile("node0", 100), equalTo(1000L + ResponseCollectorService.RESPONSE_TIME_WINDOW - 1));
+        assertThat(collector.getResponseTimePercentile("node0", 95), greaterThan(1000L));
+
+        // the response times of other nodes are kept apart
+        assertThat(collector.getResponseTimePercentile("node1", 95), equalTo(-1L));
+        for (int i = 0; i < ResponseCollectorService.MIN_RESPONSE_TIMES; i++) {
+            collector.addNodeStatistics("node1", 1, 1, 10);
+        }
+        assertThat(collector.getResponseTimePercentile("node1", 100), equalTo(1L));
+        assertThat(collector.getResponseTimePercentile("node0", 95), greaterThan(1000L));
+
+        collector.removeNode("node1");
+        assertThat(collector.getResponseTimePercentile("node1", 95), equalTo(-1L));
+    }
+
+    public void testHedgedRequestReservations() {
+        final int maxInFlight = randomIntBetween(1, 10);
+        for (int i = 0; i < maxInFlight; i++) {
+            assertTrue(collector.tryReserveHedgedRequest(maxInFlight));
+        }
+        assertFalse(collector.tryReserveHedgedRequest(maxInFlight));
+        assertTrue(collector.tryReserveHedgedRequest(maxInFlight + 1));
+        collector.releaseHedgedRequest();
+        collector.releaseHedgedRequest();
+        assertTrue(collector.tryReserveHedgedRequest(maxInFlight));
+    }
+
+    public void testHedgedRequestStats() {
+        final int hedged = randomIntBetween(0, 10);
+        final int won = randomIntBetween(0, hedged);
+        for (int i = 0; i < hedged; i++) {
+            collector.onHedgedRequest();
+        }
+        for (int i = 0; i < won; i++) {
+            collector.onHedgedRequestWon();
+        }
+        final AdaptiveSelectionStats stats = collector.getAdaptiveStats(Collections.emptyMap());
+        assertThat(stats.getHedgedRequests(), equalTo((long) hedged));
+        assertThat(stats.getHedgedRequestsWon(), equalTo((long) won));
+    }
 }
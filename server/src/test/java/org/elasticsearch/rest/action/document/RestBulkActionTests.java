@@ -21,9 +21,13 @@ package org.elasticsearch.rest.action.document;
 
 import org.elasticsearch.Version;
 import org.elasticsearch.action.bulk.BulkRequest;
+import org.elasticsearch.action.bulk.ColumnarBulkRequestParser;
+import org.elasticsearch.action.index.IndexRequest;
 import org.elasticsearch.action.update.UpdateRequest;
 import org.elasticsearch.client.node.NodeClient;
 import org.elasticsearch.common.bytes.BytesArray;
+import org.elasticsearch.common.bytes.BytesReference;
+import org.elasticsearch.common.xcontent.XContentHelper;
 import org.elasticsearch.common.xcontent.XContentType;
 import org.elasticsearch.rest.RestChannel;
 import org.elasticsearch.rest.RestRequest;
@@ -32,7 +36,9 @@ import org.elasticsearch.test.rest.FakeRestRequest;
 import org.hamcrest.CustomMatcher;
 import org.mockito.Mockito;
 
+import java.util.Collections;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 
 import static org.mockito.Matchers.any;
@@ -73,4 +79,38 @@ public class RestBulkActionTests extends ESTestCase {
                 }
             }), any());
     }
+
+    public void testBulkColumnar() throws Exception {
+        final NodeClient mockClient = mock(NodeClient.class);
+        final BytesReference content = new ColumnarBulkRequestParser.Builder(null)
+            .field("field1", ColumnarBulkRequestParser.ColumnType.KEYWORD)
+            .field("field2", ColumnarBulkRequestParser.ColumnType.LONG)
+            .add("1", "val1", 1L)
+            .add("2", "val2", null)
+            .build();
+        final Map<String, List<String>> headers = new HashMap<>();
+        headers.put("Content-Type", Collections.singletonList(ColumnarBulkRequestParser.MEDIA_TYPE));
+        new RestBulkAction(settings(Version.CURRENT).build())
+            .handleRequest(
+                new FakeRestRequest.Builder(xContentRegistry()).withPath("my_index/_bulk").withHeaders(headers)
+                    .withContent(content, null).withMethod(RestRequest.Method.POST).build(),
+                mock(RestChannel.class), mockClient
+            );
+        Mockito.verify(mockClient)
+            .bulk(argThat(new CustomMatcher<BulkRequest>("Columnar index requests") {
+                @Override
+                public boolean matches(final Object item) {
+                    BulkRequest request = (BulkRequest) item;
+                    if (request.requests().size() != 2) {
+                        return false;
+                    }
+                    IndexRequest first = (IndexRequest) request.requests().get(0);
+                    IndexRequest second = (IndexRequest) request.requests().get(1);
+                    return "my_index".equals(first.index()) && "1".equals(first.id())
+                        && XContentHelper.convertToMap(first.source(), false, first.getContentType()).v2().size() == 2
+                        && "2".equals(second.id())
+                        && XContentHelper.convertToMap(second.source(), false, second.getContentType()).v2().size() == 1;
+                }
+            }), any());
+    }
 }
@@ -0,0 +1,82 @@
+/*
+ * Licensed to Elasticsearch under one or more contributor
+ * license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright
+ * ownership. Elasticsearch licenses this file to you under
+ * the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.elasticsearch.rest.action.search;
+
+import org.elasticsearch.client.node.NodeClient;
+import org.elasticsearch.common.bytes.BytesArray;
+import org.elasticsearch.common.bytes.BytesReference;
+import org.elasticsearch.common.xcontent.ToXContent;
+import org.elasticsearch.common.xcontent.XContentHelper;
+import org.elasticsearch.common.xcontent.XContentType;
+import org.elasticsearch.rest.RestRequest;
+import org.elasticsearch.search.SearchHit;
+import org.elasticsearch.test.rest.FakeRestRequest;
+import org.elasticsearch.test.rest.RestActionTestCase;
+import org.junit.Before;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.Collections;
+import java.util.Map;
+
+import static org.hamcrest.Matchers.containsString;
+import static org.hamcrest.Matchers.equalTo;
+import static org.mockito.Mockito.mock;
+
+public class RestExportActionTests extends RestActionTestCase {
+
+    private RestExportAction action;
+
+    @Before
+    public void setUpAction() {
+        action = new RestExportAction();
+        controller().registerHandler(action);
+    }
+
+    public void testFromIsRejected() {
+        FakeRestRequest request = new FakeRestRequest.Builder(xContentRegistry())
+            .withMethod(RestRequest.Method.POST)
+            .withPath("/test/_export")
+            .withParams(Map.of("index", "test", "from", "10"))
+            .build();
+        IllegalArgumentException e = expectThrows(IllegalArgumentException.class,
+            () -> action.prepareRequest(request, mock(NodeClient.class)));
+        assertThat(e.getMessage(), containsString("[from] is not supported"));
+    }
+
+    public void testToNdJson() throws IOException {
+        int numHits = randomIntBetween(0, 10);
+        SearchHit[] hits = new SearchHit[numHits];
+        for (int i = 0; i < numHits; i++) {
+            hits[i] = new SearchHit(i, "id" + i, Collections.emptyMap(), Collections.emptyMap());
+            hits[i].sourceRef(new BytesArray("{\"field\":" + i + "}"));
+        }
+        BytesReference ndjson = RestExportAction.toNdJson(hits, ToXContent.EMPTY_PARAMS);
+
+        String[] lines = ndjson.utf8ToString().split("\n");
+        assertThat(ndjson.length() == 0 ? 0 : lines.length, equalTo(numHits));
+        for (int i = 0; i < numHits; i++) {
+            Map<String, Object> hit = XContentHelper.convertToMap(
+                new BytesArray(lines[i].getBytes(StandardCharsets.UTF_8)), false, XContentType.JSON).v2();
+            assertThat(hit.get("_id"), equalTo("id" + i));
+            assertThat(hit.get("_source"), equalTo(Map.of("field", i)));
+        }
+    }
+}
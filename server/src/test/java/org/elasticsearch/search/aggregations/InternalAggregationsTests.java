@@ -18,6 +18,7 @@
  */
 package org.elasticsearch.search.aggregations;
 
+import org.apache.lucene.util.BytesRef;
 import org.elasticsearch.Version;
 import org.elasticsearch.common.io.stream.BytesStreamOutput;
 import org.elasticsearch.common.io.stream.NamedWriteableAwareStreamInput;
@@ -29,6 +30,7 @@ import org.elasticsearch.search.SearchModule;
 import org.elasticsearch.search.aggregations.bucket.histogram.InternalDateHistogramTests;
 import org.elasticsearch.search.aggregations.bucket.terms.StringTerms;
 import org.elasticsearch.search.aggregations.bucket.terms.StringTermsTests;
+import org.elasticsearch.search.aggregations.metrics.InternalMax;
 import org.elasticsearch.search.aggregations.pipeline.InternalSimpleValueTests;
 import org.elasticsearch.search.aggregations.pipeline.MaxBucketPipelineAggregationBuilder;
 import org.elasticsearch.search.aggregations.pipeline.PipelineAggregator;
@@ -74,6 +76,23 @@ public class InternalAggregationsTests extends ESTestCase {
         assertEquals(2, reducedAggs.aggregations.size());
     }
 
+    public void testEstimateRamBytesUsed() {
+        final int numBuckets = randomIntBetween(1, 100);
+        final List<StringTerms.Bucket> buckets = new ArrayList<>();
+        for (int i = 0; i < numBuckets; i++) {
+            final InternalAggregations subAggregations = new InternalAggregations(singletonList(
+                new InternalMax("max", randomDouble(), DocValueFormat.RAW, emptyMap())));
+            buckets.add(new StringTerms.Bucket(new BytesRef("term_" + i), randomNonNegativeLong(), subAggregations, false, 0,
+                DocValueFormat.RAW));
+        }
+        final InternalAggregation terms = new StringTerms("name", BucketOrder.key(true),
+            10, 1, Collections.emptyMap(), DocValueFormat.RAW, 25, false, 10, buckets, 0);
+        final InternalAggregations aggregations = new InternalAggregations(singletonList(terms));
+        assertEquals(InternalAggregation.SHALLOW_RAM_BYTES_USED + numBuckets * (InternalAggregation.BUCKET_RAM_BYTES_USED
+            + InternalAggregation.SHALLOW_RAM_BYTES_USED), aggregations.estimateRamBytesUsed());
+        assertEquals(0, InternalAggregations.EMPTY.estimateRamBytesUsed());
+    }
+
     private InternalAggregation.ReduceContextBuilder maxBucketReduceContext() {
         MaxBucketPipelineAggregationBuilder maxBucketPipelineAggregationBuilder = new MaxBucketPipelineAggregationBuilder("test", "test");
         PipelineAggregator.PipelineTree tree =
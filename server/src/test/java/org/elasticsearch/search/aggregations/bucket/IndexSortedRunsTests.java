@@ -0,0 +1,72 @@
+/*
+ * Licensed to Elasticsearch under one or more contributor
+ * license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright
+ * ownership. Elasticsearch licenses this file to you under
+ * the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.elasticsearch.search.aggregations.bucket;
+
+import org.elasticsearch.test.ESTestCase;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.hamcrest.Matchers.lessThanOrEqualTo;
+
+public class IndexSortedRunsTests extends ESTestCase {
+
+    public void testForEachRun() throws IOException {
+        List<Long> expectedKeys = new ArrayList<>();
+        List<Integer> expectedCounts = new ArrayList<>();
+        List<Long> docKeys = new ArrayList<>();
+        int numRuns = randomIntBetween(1, 50);
+        long key = randomLongBetween(-1000, 1000);
+        for (int run = 0; run < numRuns; run++) {
+            key += randomIntBetween(1, 10);
+            int docCount = randomBoolean() ? randomIntBetween(1, 5) : randomIntBetween(1, 5000);
+            expectedKeys.add(key);
+            expectedCounts.add(docCount);
+            for (int i = 0; i < docCount; i++) {
+                docKeys.add(key);
+            }
+        }
+
+        List<Long> keys = new ArrayList<>();
+        List<Integer> counts = new ArrayList<>();
+        int[] lookups = new int[1];
+        IndexSortedRuns.forEachRun(docKeys.size(), doc -> {
+            lookups[0]++;
+            return docKeys.get(doc);
+        }, (runKey, docCount) -> {
+            keys.add(runKey);
+            counts.add(docCount);
+        });
+        assertEquals(expectedKeys, keys);
+        assertEquals(expectedCounts, counts);
+        // every run needs a logarithmic number of lookups rather than one per document
+        assertThat(lookups[0], lessThanOrEqualTo(numRuns * 30));
+    }
+
+    public void testSingleDoc() throws IOException {
+        List<Long> keys = new ArrayList<>();
+        IndexSortedRuns.forEachRun(1, doc -> 42, (runKey, docCount) -> {
+            keys.add(runKey);
+            assertEquals(1, docCount);
+        });
+        assertEquals(List.of(42L), keys);
+    }
+}
@@ -26,13 +26,18 @@ import org.apache.lucene.document.SortedSetDocValuesField;
 import org.apache.lucene.index.DirectoryReader;
 import org.apache.lucene.index.IndexOptions;
 import org.apache.lucene.index.IndexReader;
+import org.apache.lucene.index.IndexWriterConfig;
 import org.apache.lucene.index.RandomIndexWriter;
 import org.apache.lucene.search.IndexSearcher;
 import org.apache.lucene.search.MatchAllDocsQuery;
 import org.apache.lucene.search.MatchNoDocsQuery;
 import org.apache.lucene.search.Query;
+import org.apache.lucene.search.Sort;
+import org.apache.lucene.search.SortField;
+import org.apache.lucene.search.SortedNumericSortField;
 import org.apache.lucene.store.Directory;
 import org.apache.lucene.util.BytesRef;
+import org.apache.lucene.util.TestUtil;
 import org.elasticsearch.common.CheckedConsumer;
 import org.elasticsearch.common.time.DateFormatters;
 import org.elasticsearch.index.mapper.DateFieldMapper;
@@ -45,10 +50,16 @@ import org.elasticsearch.search.aggregations.bucket.terms.TermsAggregationBuilde
 import org.elasticsearch.search.aggregations.support.AggregationInspectionHelper;
 
 import java.io.IOException;
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.time.ZonedDateTime;
+import java.time.temporal.ChronoUnit;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collections;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.function.Consumer;
 
 import static java.util.stream.Collectors.toList;
@@ -1180,6 +1191,49 @@ public class DateHistogramAggregatorTests extends AggregatorTestCase {
         assertWarnings("[interval] on [date_histogram] is deprecated, use [fixed_interval] or [calendar_interval] in the future.");
     }
 
+    public void testIndexSortedSegments() throws IOException {
+        DateFieldMapper.DateFieldType fieldType = aggregableDateFieldType(false, false);
+        Map<Long, Long> expected = new HashMap<>();
+        try (Directory directory = newDirectory()) {
+            IndexWriterConfig config = newIndexWriterConfig();
+            SortField sortField = new SortedNumericSortField(AGGREGABLE_DATE, SortField.Type.LONG, randomBoolean());
+            // documents without a value are sorted last, like with index.sort.missing: _last
+            sortField.setMissingValue(sortField.getReverse() ? Long.MIN_VALUE : Long.MAX_VALUE);
+            config.setIndexSort(new Sort(sortField));
+            config.setCodec(TestUtil.getDefaultCodec());
+            try (RandomIndexWriter indexWriter = new RandomIndexWriter(random(), directory, config)) {
+                long start = asLong("2020-01-01T00:00:00.000Z");
+                long end = asLong("2021-01-01T00:00:00.000Z");
+                int numDocs = randomIntBetween(1, 1000);
+                for (int i = 0; i < numDocs; i++) {
+                    Document document = new Document();
+                    if (frequently() || i == 0) {
+                        long instant = randomLongBetween(start, end - 1);
+                        document.add(new SortedNumericDocValuesField(AGGREGABLE_DATE, instant));
+                        long month = Instant.ofEpochMilli(instant).atZone(ZoneOffset.UTC)
+                            .withDayOfMonth(1).truncatedTo(ChronoUnit.DAYS).toInstant().toEpochMilli();
+                        expected.merge(month, 1L, Long::sum);
+                    }
+                    indexWriter.addDocument(document);
+                }
+            }
+
+            try (IndexReader indexReader = DirectoryReader.open(directory)) {
+                IndexSearcher indexSearcher = new IndexSearcher(indexReader);
+                DateHistogramAggregationBuilder aggregationBuilder = new DateHistogramAggregationBuilder("_name")
+                    .calendarInterval(DateHistogramInterval.MONTH)
+                    .field(AGGREGABLE_DATE)
+                    .minDocCount(1L);
+                InternalDateHistogram histogram = search(indexSearcher, new MatchAllDocsQuery(), aggregationBuilder, fieldType);
+                assertEquals(expected.size(), histogram.getBuckets().size());
+                for (InternalDateHistogram.Bucket bucket : histogram.getBuckets()) {
+                    long key = ((ZonedDateTime) bucket.getKey()).toInstant().toEpochMilli();
+                    assertEquals(expected.get(key), Long.valueOf(bucket.getDocCount()));
+                }
+            }
+        }
+    }
+
     public void testIllegalInterval() throws IOException {
         IllegalArgumentException e = expectThrows(IllegalArgumentException.class, () -> testSearchCase(new MatchAllDocsQuery(),
             Collections.emptyList(),
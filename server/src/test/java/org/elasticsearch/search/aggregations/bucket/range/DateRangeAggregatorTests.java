@@ -19,10 +19,12 @@
 
 package org.elasticsearch.search.aggregations.bucket.range;
 
+import org.apache.lucene.document.LongPoint;
 import org.apache.lucene.document.NumericDocValuesField;
 import org.apache.lucene.document.SortedNumericDocValuesField;
 import org.apache.lucene.document.SortedSetDocValuesField;
 import org.apache.lucene.index.DirectoryReader;
+import org.apache.lucene.index.IndexOptions;
 import org.apache.lucene.index.IndexReader;
 import org.apache.lucene.index.RandomIndexWriter;
 import org.apache.lucene.search.IndexSearcher;
@@ -85,6 +87,40 @@ public class DateRangeAggregatorTests extends AggregatorTestCase {
         });
     }
 
+    public void testCountsFromPoints() throws IOException {
+        DateFieldMapper.DateFieldType fieldType = new DateFieldMapper.Builder(DATE_FIELD_NAME).fieldType();
+        fieldType.setHasDocValues(true);
+        fieldType.setIndexOptions(IndexOptions.DOCS);
+        fieldType.setName(DATE_FIELD_NAME);
+        DateRangeAggregationBuilder aggregationBuilder = new DateRangeAggregationBuilder("test_range_agg")
+            .field(DATE_FIELD_NAME)
+            .addUnboundedTo("2016-01-01")
+            .addRange("2016-01-01", "2016-02-01")
+            .addUnboundedFrom("2016-02-01");
+        long start = ZonedDateTime.of(2015, 12, 1, 0, 0, 0, 0, ZoneOffset.UTC).toInstant().toEpochMilli();
+        long end = ZonedDateTime.of(2016, 3, 1, 0, 0, 0, 0, ZoneOffset.UTC).toInstant().toEpochMilli();
+        long january = ZonedDateTime.of(2016, 1, 1, 0, 0, 0, 0, ZoneOffset.UTC).toInstant().toEpochMilli();
+        long february = ZonedDateTime.of(2016, 2, 1, 0, 0, 0, 0, ZoneOffset.UTC).toInstant().toEpochMilli();
+        long[] expected = new long[3];
+        int numDocs = randomIntBetween(1, 1000);
+        long[] values = new long[numDocs];
+        for (int i = 0; i < numDocs; i++) {
+            values[i] = randomFrom(randomLongBetween(start, end), january, february);
+            expected[values[i] < january ? 0 : values[i] < february ? 1 : 2]++;
+        }
+        testCase(aggregationBuilder, new MatchAllDocsQuery(), iw -> {
+            for (long value : values) {
+                iw.addDocument(List.of(new LongPoint(DATE_FIELD_NAME, value), new SortedNumericDocValuesField(DATE_FIELD_NAME, value)));
+            }
+        }, range -> {
+            List<? extends InternalRange.Bucket> ranges = range.getBuckets();
+            assertEquals(3, ranges.size());
+            for (int i = 0; i < expected.length; i++) {
+                assertEquals(expected[i], ranges.get(i).getDocCount());
+            }
+        }, fieldType);
+    }
+
     public void testMatchesNumericDocValues() throws IOException {
         testBothResolutions(new MatchAllDocsQuery(), iw -> {
             iw.addDocument(singleton(new NumericDocValuesField(DATE_FIELD_NAME, milli1)));
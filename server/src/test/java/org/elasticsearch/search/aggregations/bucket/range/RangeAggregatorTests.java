@@ -19,10 +19,13 @@
 
 package org.elasticsearch.search.aggregations.bucket.range;
 
+import org.apache.lucene.document.Document;
+import org.apache.lucene.document.IntPoint;
 import org.apache.lucene.document.NumericDocValuesField;
 import org.apache.lucene.document.SortedNumericDocValuesField;
 import org.apache.lucene.document.SortedSetDocValuesField;
 import org.apache.lucene.index.DirectoryReader;
+import org.apache.lucene.index.IndexOptions;
 import org.apache.lucene.index.IndexReader;
 import org.apache.lucene.index.RandomIndexWriter;
 import org.apache.lucene.search.IndexSearcher;
@@ -93,6 +96,57 @@ public class RangeAggregatorTests extends AggregatorTestCase {
         });
     }
 
+    public void testCountsFromPoints() throws IOException {
+        MappedFieldType fieldType = new NumberFieldMapper.NumberFieldType(NumberFieldMapper.NumberType.INTEGER);
+        fieldType.setName(NUMBER_FIELD_NAME);
+        fieldType.setIndexOptions(IndexOptions.DOCS);
+        RangeAggregationBuilder aggregationBuilder = new RangeAggregationBuilder("test_range_agg")
+            .field(NUMBER_FIELD_NAME)
+            .addUnboundedTo(10d)
+            .addRange(5d, 50d)
+            .addRange(20d, 30d)
+            .addUnboundedFrom(80d);
+        // multi-valued documents can't be counted from the points and must fall back to collecting
+        boolean multiValued = randomBoolean();
+        long[] expected = new long[4];
+        try (Directory directory = newDirectory()) {
+            try (RandomIndexWriter indexWriter = new RandomIndexWriter(random(), directory)) {
+                int numDocs = randomIntBetween(1, 2000);
+                for (int i = 0; i < numDocs; i++) {
+                    Document document = new Document();
+                    int numValues = multiValued ? randomIntBetween(0, 3) : randomIntBetween(0, 1);
+                    boolean[] matches = new boolean[expected.length];
+                    for (int v = 0; v < numValues; v++) {
+                        int value = randomIntBetween(-10, 100);
+                        document.add(new IntPoint(NUMBER_FIELD_NAME, value));
+                        document.add(new SortedNumericDocValuesField(NUMBER_FIELD_NAME, value));
+                        matches[0] |= value < 10;
+                        matches[1] |= value >= 5 && value < 50;
+                        matches[2] |= value >= 20 && value < 30;
+                        matches[3] |= value >= 80;
+                    }
+                    for (int r = 0; r < expected.length; r++) {
+                        if (matches[r]) {
+                            expected[r]++;
+                        }
+                    }
+                    indexWriter.addDocument(document);
+                }
+            }
+
+            try (IndexReader indexReader = DirectoryReader.open(directory)) {
+                IndexSearcher indexSearcher = new IndexSearcher(indexReader);
+                InternalRange<? extends InternalRange.Bucket, ? extends InternalRange> range = search(indexSearcher,
+                    new MatchAllDocsQuery(), aggregationBuilder, fieldType);
+                List<? extends InternalRange.Bucket> buckets = range.getBuckets();
+                assertEquals(expected.length, buckets.size());
+                for (int r = 0; r < expected.length; r++) {
+                    assertEquals(expected[r], buckets.get(r).getDocCount());
+                }
+            }
+        }
+    }
+
     public void testDateFieldMillisecondResolution() throws IOException {
         DateFieldMapper.Builder builder = new DateFieldMapper.Builder(DATE_FIELD_NAME)
             .withResolution(DateFieldMapper.Resolution.MILLISECONDS);
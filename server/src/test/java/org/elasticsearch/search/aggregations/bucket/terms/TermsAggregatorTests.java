@@ -30,15 +30,19 @@ import org.apache.lucene.document.SortedSetDocValuesField;
 import org.apache.lucene.document.StringField;
 import org.apache.lucene.index.DirectoryReader;
 import org.apache.lucene.index.IndexReader;
+import org.apache.lucene.index.IndexWriterConfig;
 import org.apache.lucene.index.IndexableField;
 import org.apache.lucene.index.RandomIndexWriter;
 import org.apache.lucene.search.DocValuesFieldExistsQuery;
 import org.apache.lucene.search.IndexSearcher;
 import org.apache.lucene.search.MatchAllDocsQuery;
+import org.apache.lucene.search.Sort;
+import org.apache.lucene.search.SortedSetSortField;
 import org.apache.lucene.search.TotalHits;
 import org.apache.lucene.store.Directory;
 import org.apache.lucene.util.BytesRef;
 import org.apache.lucene.util.NumericUtils;
+import org.apache.lucene.util.TestUtil;
 import org.elasticsearch.common.geo.GeoPoint;
 import org.elasticsearch.common.network.InetAddresses;
 import org.elasticsearch.common.settings.Settings;
@@ -277,6 +281,46 @@ public class TermsAggregatorTests extends AggregatorTestCase {
         }
     }
 
+    public void testIndexSortedSegments() throws Exception {
+        Map<String, Long> expected = new HashMap<>();
+        try (Directory directory = newDirectory()) {
+            IndexWriterConfig config = newIndexWriterConfig();
+            config.setIndexSort(new Sort(new SortedSetSortField("string", false)));
+            config.setCodec(TestUtil.getDefaultCodec());
+            try (RandomIndexWriter indexWriter = new RandomIndexWriter(random(), directory, config)) {
+                int numDocs = randomIntBetween(1, 1000);
+                for (int i = 0; i < numDocs; i++) {
+                    Document document = new Document();
+                    if (randomBoolean() || i == 0) {
+                        String value = "value" + randomIntBetween(0, 20);
+                        document.add(new SortedSetDocValuesField("string", new BytesRef(value)));
+                        expected.merge(value, 1L, Long::sum);
+                    }
+                    indexWriter.addDocument(document);
+                }
+                try (IndexReader indexReader = indexWriter.getReader()) {
+                    IndexSearcher indexSearcher = new IndexSearcher(indexReader);
+                    for (TermsAggregatorFactory.ExecutionMode executionMode : TermsAggregatorFactory.ExecutionMode.values()) {
+                        TermsAggregationBuilder aggregationBuilder = new TermsAggregationBuilder("_name")
+                            .userValueTypeHint(ValueType.STRING)
+                            .executionHint(executionMode.toString())
+                            .field("string")
+                            .size(expected.size());
+                        MappedFieldType fieldType = new KeywordFieldMapper.KeywordFieldType();
+                        fieldType.setName("string");
+                        fieldType.setHasDocValues(true);
+
+                        Terms result = search(indexSearcher, new MatchAllDocsQuery(), aggregationBuilder, fieldType);
+                        assertEquals(expected.size(), result.getBuckets().size());
+                        for (Terms.Bucket bucket : result.getBuckets()) {
+                            assertEquals(expected.get(bucket.getKeyAsString()), Long.valueOf(bucket.getDocCount()));
+                        }
+                    }
+                }
+            }
+        }
+    }
+
     public void testStringIncludeExclude() throws Exception {
         try (Directory directory = newDirectory()) {
             try (RandomIndexWriter indexWriter = new RandomIndexWriter(random(), directory)) {
@@ -0,0 +1,139 @@
+/*
+ * Licensed to Elasticsearch under one or more contributor
+ * license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright
+ * ownership. Elasticsearch licenses this file to you under
+ * the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.elasticsearch.search.fetch;
+
+import org.apache.lucene.codecs.StoredFieldsReader;
+import org.apache.lucene.document.Document;
+import org.apache.lucene.document.DocumentStoredFieldVisitor;
+import org.apache.lucene.document.Field;
+import org.apache.lucene.document.StoredField;
+import org.apache.lucene.document.StringField;
+import org.apache.lucene.index.DirectoryReader;
+import org.apache.lucene.index.IndexWriter;
+import org.apache.lucene.index.LeafReaderContext;
+import org.apache.lucene.search.IndexSearcher;
+import org.apache.lucene.store.Directory;
+import org.elasticsearch.common.lucene.index.ElasticsearchDirectoryReader;
+import org.elasticsearch.common.lucene.index.SequentialStoredFieldsLeafReader;
+import org.elasticsearch.index.shard.ShardId;
+import org.elasticsearch.search.internal.ContextIndexSearcher;
+import org.elasticsearch.test.ESTestCase;
+import org.elasticsearch.test.FieldMaskingReader;
+
+import java.io.IOException;
+import java.util.Arrays;
+
+import static org.hamcrest.Matchers.instanceOf;
+
+public class FetchPhaseTests extends ESTestCase {
+
+    public void testSequentialDocs() {
+        final int numDocs = randomIntBetween(1, 100);
+        final int start = randomIntBetween(0, Short.MAX_VALUE);
+        final FetchPhase.DocIdToIndex[] docs = new FetchPhase.DocIdToIndex[numDocs];
+        for (int i = 0; i < numDocs; i++) {
+            docs[i] = new FetchPhase.DocIdToIndex(start + i, i);
+        }
+        assertTrue(FetchPhase.hasSequentialDocs(docs, 0, numDocs));
+        final int from = randomIntBetween(0, numDocs - 1);
+        final int to = randomIntBetween(from + 1, numDocs);
+        assertTrue(FetchPhase.hasSequentialDocs(docs, from, to));
+        assertFalse(FetchPhase.hasSequentialDocs(docs, from, from));
+
+        if (numDocs > 1) {
+            final int gap = randomIntBetween(1, numDocs - 1);
+            for (int i = gap; i < numDocs; i++) {
+                docs[i] = new FetchPhase.DocIdToIndex(start + i + randomIntBetween(1, 10), i);
+            }
+            assertFalse(FetchPhase.hasSequentialDocs(docs, 0, numDocs));
+            assertTrue(FetchPhase.hasSequentialDocs(docs, 0, gap));
+        }
+    }
+
+    public void testDocIdToIndexOrder() {
+        final int numDocs = randomIntBetween(1, 100);
+        final FetchPhase.DocIdToIndex[] docs = new FetchPhase.DocIdToIndex[numDocs];
+        for (int i = 0; i < numDocs; i++) {
+            docs[i] = new FetchPhase.DocIdToIndex(randomIntBetween(0, 1000), i);
+        }
+        final FetchPhase.DocIdToIndex[] sorted = docs.clone();
+        Arrays.sort(sorted);
+        final boolean[] seen = new boolean[numDocs];
+        for (int i = 0; i < numDocs; i++) {
+            if (i > 0) {
+                assertTrue(sorted[i - 1].docId <= sorted[i].docId);
+            }
+            assertFalse(seen[sorted[i].index]);
+            seen[sorted[i].index] = true;
+            assertSame(docs[sorted[i].index], sorted[i]);
+        }
+    }
+
+    public void testSequentialStoredFieldsThroughContextIndexSearcher() throws IOException {
+        final int numDocs = randomIntBetween(FetchPhase.MIN_SEQUENTIAL_DOCS, 200);
+        try (Directory dir = newDirectory()) {
+            try (IndexWriter writer = new IndexWriter(dir, newIndexWriterConfig())) {
+                for (int i = 0; i < numDocs; i++) {
+                    Document doc = new Document();
+                    doc.add(new StringField("id", Integer.toString(i), Field.Store.YES));
+                    doc.add(new StoredField("value", randomAlphaOfLength(10)));
+                    writer.addDocument(doc);
+                }
+                writer.forceMerge(1);
+            }
+            try (DirectoryReader reader = ElasticsearchDirectoryReader.wrap(DirectoryReader.open(dir), new ShardId("_index", "_na_", 0))) {
+                ContextIndexSearcher searcher = new ContextIndexSearcher(reader, IndexSearcher.getDefaultSimilarity(),
+                    IndexSearcher.getDefaultQueryCache(), IndexSearcher.getDefaultQueryCachingPolicy(), true);
+                // cancellation wraps every segment, which must still expose sequential stored fields
+                searcher.addQueryCancellation(() -> {});
+                LeafReaderContext leaf = searcher.getIndexReader().leaves().get(0);
+                assertThat(leaf.reader(), instanceOf(SequentialStoredFieldsLeafReader.class));
+
+                final int from = randomIntBetween(0, numDocs - FetchPhase.MIN_SEQUENTIAL_DOCS);
+                final int to = randomIntBetween(from + FetchPhase.MIN_SEQUENTIAL_DOCS, numDocs);
+                final FetchPhase.DocIdToIndex[] docs = new FetchPhase.DocIdToIndex[to - from];
+                for (int i = 0; i < docs.length; i++) {
+                    docs[i] = new FetchPhase.DocIdToIndex(from + i, i);
+                }
+                StoredFieldsReader sequentialReader = FetchPhase.sequentialStoredFieldsReader(leaf, docs, 0, docs.length);
+                assertNotNull(sequentialReader);
+                for (FetchPhase.DocIdToIndex doc : docs) {
+                    DocumentStoredFieldVisitor expected = new DocumentStoredFieldVisitor();
+                    leaf.reader().document(doc.docId, expected);
+                    DocumentStoredFieldVisitor actual = new DocumentStoredFieldVisitor();
+                    sequentialReader.visitDocument(doc.docId, actual);
+                    assertEquals(Integer.toString(doc.docId), actual.getDocument().get("id"));
+                    assertEquals(expected.getDocument().get("value"), actual.getDocument().get("value"));
+                }
+
+                // too few documents
+                assertNull(FetchPhase.sequentialStoredFieldsReader(leaf, docs, 0, FetchPhase.MIN_SEQUENTIAL_DOCS - 1));
+                // readers that don't expose sequential stored fields are read randomly
+                try (DirectoryReader masked = new FieldMaskingReader("value", reader)) {
+                    ContextIndexSearcher maskedSearcher = new ContextIndexSearcher(masked, IndexSearcher.getDefaultSimilarity(),
+                        IndexSearcher.getDefaultQueryCache(), IndexSearcher.getDefaultQueryCachingPolicy(), true);
+                    maskedSearcher.addQueryCancellation(() -> {});
+                    LeafReaderContext maskedLeaf = maskedSearcher.getIndexReader().leaves().get(0);
+                    assertNull(FetchPhase.sequentialStoredFieldsReader(maskedLeaf, docs, 0, docs.length));
+                }
+            }
+        }
+    }
+}
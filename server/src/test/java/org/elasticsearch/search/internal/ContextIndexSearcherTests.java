@@ -67,14 +67,19 @@ import org.elasticsearch.index.IndexSettings;
 import org.elasticsearch.index.cache.bitset.BitsetFilterCache;
 import org.elasticsearch.index.shard.ShardId;
 import org.elasticsearch.search.aggregations.LeafBucketCollector;
+import org.elasticsearch.tasks.TaskCancelledException;
 import org.elasticsearch.test.ESTestCase;
 import org.elasticsearch.test.IndexSettingsModule;
 
 import java.io.IOException;
 import java.io.UncheckedIOException;
+import java.util.ArrayList;
 import java.util.Collections;
 import java.util.IdentityHashMap;
+import java.util.List;
 import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 
 import static org.elasticsearch.search.internal.ContextIndexSearcher.intersectScorerAndBitSet;
 import static org.elasticsearch.search.internal.ExitableDirectoryReader.ExitableLeafReader;
@@ -271,6 +276,79 @@ public class ContextIndexSearcherTests extends ESTestCase {
         IOUtils.close(reader, w, dir);
     }
 
+    public void testComputeSlices() throws IOException {
+        Directory dir = newDirectory();
+        IndexWriter w = new IndexWriter(dir, new IndexWriterConfig(new StandardAnalyzer()).setMergePolicy(NoMergePolicy.INSTANCE));
+        int numSegments = randomIntBetween(1, 20);
+        for (int i = 0; i < numSegments; i++) {
+            int numDocs = randomIntBetween(1, 20);
+            for (int j = 0; j < numDocs; j++) {
+                w.addDocument(new Document());
+            }
+            w.commit();
+        }
+        w.close();
+        DirectoryReader reader = DirectoryReader.open(dir);
+        int maxSlices = randomIntBetween(1, 25);
+        List<List<LeafReaderContext>> slices = ContextIndexSearcher.computeSlices(reader.leaves(), maxSlices);
+        assertThat(slices.size(), equalTo(Math.min(maxSlices, reader.leaves().size())));
+        List<LeafReaderContext> leaves = new ArrayList<>();
+        for (List<LeafReaderContext> slice : slices) {
+            assertFalse(slice.isEmpty());
+            leaves.addAll(slice);
+        }
+        // slices are made of contiguous leaves
+        assertEquals(reader.leaves(), leaves);
+        assertThat(ContextIndexSearcher.computeSlices(Collections.emptyList(), maxSlices).size(), equalTo(0));
+        IOUtils.close(reader, dir);
+    }
+
+    public void testConcurrentSearch() throws Exception {
+        Directory dir = newDirectory();
+        IndexWriter w = new IndexWriter(dir, new IndexWriterConfig(new StandardAnalyzer()).setMergePolicy(NoMergePolicy.INSTANCE));
+        int numSegments = randomIntBetween(2, 10);
+        int numMatches = 0;
+        for (int i = 0; i < numSegments; i++) {
+            int numDocs = randomIntBetween(1, 50);
+            for (int j = 0; j < numDocs; j++) {
+                Document document = new Document();
+                boolean match = randomBoolean();
+                document.add(new StringField("field", match ? "value" : "other", Field.Store.NO));
+                numMatches += match ? 1 : 0;
+                w.addDocument(document);
+            }
+            w.commit();
+        }
+        w.close();
+        DirectoryReader reader = DirectoryReader.open(dir);
+        ExecutorService executor = Executors.newFixedThreadPool(randomIntBetween(1, 4));
+        try {
+            ContextIndexSearcher searcher = new ContextIndexSearcher(reader, IndexSearcher.getDefaultSimilarity(),
+                IndexSearcher.getDefaultQueryCache(), IndexSearcher.getDefaultQueryCachingPolicy(), false,
+                executor, randomIntBetween(2, 8));
+            assertTrue(searcher.isConcurrent());
+            IndexSearcher sequentialSearcher = new IndexSearcher(reader);
+            Query query = new TermQuery(new Term("field", "value"));
+            TopDocs topDocs = searcher.search(query, 10);
+            TopDocs expected = sequentialSearcher.search(query, 10);
+            assertEquals(numMatches, topDocs.totalHits.value);
+            assertEquals(expected.totalHits, topDocs.totalHits);
+            assertEquals(expected.scoreDocs.length, topDocs.scoreDocs.length);
+            for (int i = 0; i < expected.scoreDocs.length; i++) {
+                assertEquals(expected.scoreDocs[i].doc, topDocs.scoreDocs[i].doc);
+            }
+
+            // cancellation checks are honored on every slice
+            searcher.addQueryCancellation(() -> {
+                throw new TaskCancelledException("cancelled");
+            });
+            expectThrows(TaskCancelledException.class, () -> searcher.search(new MatchAllDocsQuery(), 10));
+        } finally {
+            terminate(executor);
+            IOUtils.close(reader, dir);
+        }
+    }
+
     private SparseFixedBitSet query(LeafReaderContext leaf, String field, String value) throws IOException {
         SparseFixedBitSet sparseFixedBitSet = new SparseFixedBitSet(leaf.reader().maxDoc());
         TermsEnum tenum = leaf.reader().terms(field).iterator();
@@ -523,6 +523,31 @@ public class QueryPhaseTests extends IndexShardTestCase {
         dir.close();
     }
 
+    public void testConcurrentCollection() throws Exception {
+        Directory dir = newDirectory();
+        RandomIndexWriter w = new RandomIndexWriter(random(), dir, newIndexWriterConfig());
+        final int numDocs = scaledRandomIntBetween(10, 100);
+        for (int i = 0; i < numDocs; ++i) {
+            w.addDocument(new Document());
+        }
+        w.close();
+        IndexReader reader = DirectoryReader.open(dir);
+        TestSearchContext context = new TestSearchContext(null, indexShard, newContextSearcher(reader));
+        context.parsedQuery(new ParsedQuery(new MatchAllDocsQuery()));
+        context.setSize(randomIntBetween(1, 10));
+        assertNotNull(TopDocsCollectorContext.createTopDocsCollectorContext(context, false).createManager());
+
+        // scrolls are always collected sequentially
+        ScrollContext scrollContext = new ScrollContext();
+        scrollContext.lastEmittedDoc = null;
+        scrollContext.maxScore = Float.NaN;
+        scrollContext.totalHits = null;
+        context.scrollContext(scrollContext);
+        assertNull(TopDocsCollectorContext.createTopDocsCollectorContext(context, false).createManager());
+        reader.close();
+        dir.close();
+    }
+
     public void testIndexSortScrollOptimization() throws Exception {
         Directory dir = newDirectory();
         final Sort indexSort = new Sort(
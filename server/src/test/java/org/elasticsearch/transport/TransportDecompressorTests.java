@@ -19,6 +19,8 @@
 
 package org.elasticsearch.transport;
 
+import org.elasticsearch.Version;
+import org.elasticsearch.common.bytes.BytesArray;
 import org.elasticsearch.common.bytes.BytesReference;
 import org.elasticsearch.common.bytes.CompositeBytesReference;
 import org.elasticsearch.common.bytes.ReleasableBytesReference;
@@ -30,9 +32,13 @@ import org.elasticsearch.common.io.stream.StreamOutput;
 import org.elasticsearch.common.lease.Releasables;
 import org.elasticsearch.common.util.PageCacheRecycler;
 import org.elasticsearch.test.ESTestCase;
+import org.elasticsearch.test.VersionUtils;
 
 import java.io.IOException;
 
+import static org.hamcrest.Matchers.containsString;
+import static org.hamcrest.Matchers.lessThan;
+
 public class TransportDecompressorTests extends ESTestCase {
 
     public void testSimpleCompression() throws IOException {
@@ -55,6 +61,56 @@ public class TransportDecompressorTests extends ESTestCase {
         }
     }
 
+    public void testDictionaryCompression() throws IOException {
+        final String action = "indices:data/read/search[phase/query]";
+        try (BytesStreamOutput output = new BytesStreamOutput(); BytesStreamOutput deflateOutput = new BytesStreamOutput()) {
+            StreamOutput dictionaryStream = DictionaryDeflateCompressor.V1.streamOutput(Streams.flushOnCloseStream(output));
+            dictionaryStream.writeString(action);
+            dictionaryStream.close();
+            StreamOutput deflateStream = CompressorFactory.COMPRESSOR.streamOutput(Streams.flushOnCloseStream(deflateOutput));
+            deflateStream.writeString(action);
+            deflateStream.close();
+
+            BytesReference bytes = output.bytes();
+            assertThat(bytes.length(), lessThan(deflateOutput.bytes().length()));
+            assertSame(DictionaryDeflateCompressor.V1, TransportCompressionScheme.detect(bytes));
+            assertSame(CompressorFactory.COMPRESSOR, TransportCompressionScheme.detect(deflateOutput.bytes()));
+
+            TransportDecompressor decompressor = new TransportDecompressor(PageCacheRecycler.NON_RECYCLING_INSTANCE);
+            int bytesConsumed = decompressor.decompress(bytes);
+            assertEquals(bytes.length(), bytesConsumed);
+            assertTrue(decompressor.isEOS());
+            ReleasableBytesReference releasableBytesReference = decompressor.pollDecompressedPage();
+            assertEquals(action, releasableBytesReference.streamInput().readString());
+            releasableBytesReference.close();
+            decompressor.close();
+        }
+    }
+
+    public void testCompressionSchemeForVersion() {
+        assertSame(DictionaryDeflateCompressor.V1, TransportCompressionScheme.DICTIONARY.compressor(Version.CURRENT));
+        assertSame(CompressorFactory.COMPRESSOR, TransportCompressionScheme.DICTIONARY.compressor(
+            VersionUtils.getPreviousVersion(Version.V_8_0_0)));
+        assertSame(CompressorFactory.COMPRESSOR, TransportCompressionScheme.DEFLATE.compressor(Version.CURRENT));
+    }
+
+    public void testUnknownDictionary() throws IOException {
+        try (BytesStreamOutput output = new BytesStreamOutput()) {
+            StreamOutput dictionaryStream = DictionaryDeflateCompressor.V1.streamOutput(Streams.flushOnCloseStream(output));
+            dictionaryStream.writeString("indices:data/read/search[phase/query]");
+            dictionaryStream.close();
+            // a dictionary id that a newer node may use but this node doesn't know
+            final byte[] bytes = BytesReference.toBytes(output.bytes());
+            bytes[DictionaryDeflateCompressor.V1.headerLength() - 1] = Byte.MAX_VALUE;
+            assertNull(TransportCompressionScheme.detect(new BytesArray(bytes)));
+
+            TransportDecompressor decompressor = new TransportDecompressor(PageCacheRecycler.NON_RECYCLING_INSTANCE);
+            IllegalStateException e = expectThrows(IllegalStateException.class, () -> decompressor.decompress(new BytesArray(bytes)));
+            assertThat(e.getMessage(), containsString("no compressor found"));
+            decompressor.close();
+        }
+    }
+
     public void testMultiPageCompression() throws IOException {
         try (BytesStreamOutput output = new BytesStreamOutput()) {
             StreamOutput deflateStream = CompressorFactory.COMPRESSOR.streamOutput(Streams.flushOnCloseStream(output));
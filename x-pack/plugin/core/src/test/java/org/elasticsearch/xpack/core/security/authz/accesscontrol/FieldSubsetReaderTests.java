@@ -8,6 +8,7 @@ package org.elasticsearch.xpack.core.security.authz.accesscontrol;
 import org.apache.lucene.analysis.MockAnalyzer;
 import org.apache.lucene.document.BinaryDocValuesField;
 import org.apache.lucene.document.Document;
+import org.apache.lucene.document.DocumentStoredFieldVisitor;
 import org.apache.lucene.document.Field;
 import org.apache.lucene.document.FieldType;
 import org.apache.lucene.document.IntPoint;
@@ -202,6 +203,36 @@ public class FieldSubsetReaderTests extends ESTestCase {
         IOUtils.close(ir, iw, dir);
     }
 
+    /**
+     * test filtering two stored fields (string) through the stored fields reader for sequential access
+     */
+    public void testSequentialStoredFields() throws Exception {
+        Directory dir = newDirectory();
+        IndexWriterConfig iwc = new IndexWriterConfig(null);
+        IndexWriter iw = new IndexWriter(dir, iwc);
+
+        // add document with 2 fields
+        Document doc = new Document();
+        doc.add(new StoredField("fieldA", "testA"));
+        doc.add(new StoredField("fieldB", "testB"));
+        iw.addDocument(doc);
+
+        // open reader
+        DirectoryReader ir = FieldSubsetReader.wrap(DirectoryReader.open(iw), new CharacterRunAutomaton(Automata.makeString("fieldA")));
+        FieldSubsetReader leafReader = (FieldSubsetReader) ir.leaves().get(0).reader();
+        assertTrue(leafReader.hasSequentialStoredFieldsReader());
+
+        // see only one field
+        DocumentStoredFieldVisitor visitor = new DocumentStoredFieldVisitor();
+        leafReader.getSequentialStoredFieldsReader().visitDocument(0, visitor);
+        Document d2 = visitor.getDocument();
+        assertEquals(1, d2.getFields().size());
+        assertEquals("testA", d2.get("fieldA"));
+
+        TestUtil.checkReader(ir);
+        IOUtils.close(ir, iw, dir);
+    }
+
     /**
      * test filtering two stored fields (binary)
      */
@@ -0,0 +1,175 @@
+/*
+ * Copyright Elasticsearch B.V. and/or licensed to Elasticsearch B.V. under one
+ * or more contributor license agreements. Licensed under the Elastic License;
+ * you may not use this file except in compliance with the Elastic License.
+ */
+
+package org.elasticsearch.xpack.vectors.benchmark;
+
+import org.apache.lucene.document.BinaryDocValuesField;
+import org.apache.lucene.document.Document;
+import org.apache.lucene.index.DirectoryReader;
+import org.apache.lucene.index.DocValues;
+import org.apache.lucene.index.IndexWriter;
+import org.apache.lucene.index.IndexWriterConfig;
+import org.apache.lucene.index.LeafReader;
+import org.apache.lucene.search.ScoreDoc;
+import org.apache.lucene.search.TopDocs;
+import org.apache.lucene.store.ByteBuffersDirectory;
+import org.apache.lucene.store.Directory;
+import org.apache.lucene.util.BytesRef;
+import org.elasticsearch.xpack.vectors.mapper.VectorSimilarity;
+import org.elasticsearch.xpack.vectors.query.HnswGraph;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.HashSet;
+import java.util.Random;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares the latency of a {@code knn} search of a single segment through its HNSW graph with the exact scan of
+ * every vector that {@code script_score} queries with {@code cosineSimilarity} or {@code l2norm} do, minus the script
+ * overhead. The recall of the graph against the exact scan is printed once the graph is built.
+ * <p>
+ * Run with {@code gradlew -p x-pack/plugin/vectors/benchmarks run --args ' KnnSearchBenchmark'}.
+ */
+@Fork(1)
+@Warmup(iterations = 5)
+@Measurement(iterations = 10)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@State(Scope.Benchmark)
+@SuppressWarnings("unused") // invoked by benchmarking framework
+public class KnnSearchBenchmark {
+    private static final int NUM_QUERIES = 100;
+
+    @Param({ "10000", "100000" })
+    public int numDocs;
+
+    @Param({ "128" })
+    public int dims;
+
+    @Param({ "cosine", "l2_norm" })
+    public String similarity;
+
+    @Param({ "10" })
+    public int k;
+
+    @Param({ "100" })
+    public int numCandidates;
+
+    @Param({ "16" })
+    public int m;
+
+    @Param({ "100" })
+    public int efConstruction;
+
+    private VectorSimilarity vectorSimilarity;
+    private Directory directory;
+    private DirectoryReader reader;
+    private LeafReader leafReader;
+    private HnswGraph graph;
+    private float[][] queries;
+    private int query;
+
+    @Setup
+    public void setup() throws IOException {
+        vectorSimilarity = VectorSimilarity.fromString(similarity);
+        final Random random = new Random(42);
+        directory = new ByteBuffersDirectory();
+        try (IndexWriter writer = new IndexWriter(directory, new IndexWriterConfig())) {
+            for (int i = 0; i < numDocs; i++) {
+                Document doc = new Document();
+                doc.add(new BinaryDocValuesField("vector", encode(randomVector(random, dims))));
+                writer.addDocument(doc);
+            }
+            writer.forceMerge(1);
+        }
+        reader = DirectoryReader.open(directory);
+        leafReader = reader.leaves().get(0).reader();
+        queries = new float[NUM_QUERIES][];
+        for (int i = 0; i < NUM_QUERIES; i++) {
+            queries[i] = randomVector(random, dims);
+        }
+
+        final long startTimeNanos = System.nanoTime();
+        graph = HnswGraph.build(DocValues.getBinary(leafReader, "vector"), vectorSimilarity, dims, m, efConstruction);
+        final long buildTimeMillis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startTimeNanos);
+
+        int found = 0;
+        for (float[] queryVector : queries) {
+            final Set<Integer> expected = new HashSet<>();
+            for (ScoreDoc scoreDoc : exact(queryVector).scoreDocs) {
+                expected.add(scoreDoc.doc);
+            }
+            for (ScoreDoc scoreDoc : graph.search(queryVector, k, numCandidates, null).scoreDocs) {
+                if (expected.contains(scoreDoc.doc)) {
+                    found++;
+                }
+            }
+        }
+        System.out.printf("%nbuilt graph of [%d] vectors in [%d ms] using [%d bytes], recall@%d: %.4f%n",
+            numDocs, buildTimeMillis, graph.ramBytesUsed(), k, (double) found / (NUM_QUERIES * k));
+    }
+
+    @TearDown
+    public void tearDown() throws IOException {
+        reader.close();
+        directory.close();
+    }
+
+    @Benchmark
+    public TopDocs hnsw() {
+        return graph.search(nextQuery(), k, numCandidates, null);
+    }
+
+    @Benchmark
+    public TopDocs exact() throws IOException {
+        return exact(nextQuery());
+    }
+
+    private TopDocs exact(float[] queryVector) throws IOException {
+        return HnswGraph.exactSearch(DocValues.getBinary(leafReader, "vector"), vectorSimilarity, dims, queryVector, k, null);
+    }
+
+    private float[] nextQuery() {
+        query = (query + 1) % NUM_QUERIES;
+        return queries[query];
+    }
+
+    private static float[] randomVector(Random random, int dims) {
+        float[] vector = new float[dims];
+        for (int dim = 0; dim < dims; dim++) {
+            vector[dim] = random.nextFloat() * 2 - 1;
+        }
+        return vector;
+    }
+
+    /**
+     * Encodes vectors like the {@code dense_vector} field does, with their magnitude appended.
+     */
+    private static BytesRef encode(float[] vector) {
+        ByteBuffer byteBuffer = ByteBuffer.allocate(Float.BYTES * (vector.length + 1));
+        double dotProduct = 0;
+        for (float value : vector) {
+            byteBuffer.putFloat(value);
+            dotProduct += value * value;
+        }
+        byteBuffer.putFloat((float) Math.sqrt(dotProduct));
+        return new BytesRef(byteBuffer.array());
+    }
+}
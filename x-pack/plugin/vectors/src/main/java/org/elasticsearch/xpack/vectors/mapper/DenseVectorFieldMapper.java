@@ -13,6 +13,8 @@ import org.apache.lucene.search.DocValuesFieldExistsQuery;
 import org.apache.lucene.search.Query;
 import org.apache.lucene.util.BytesRef;
 import org.elasticsearch.Version;
+import org.elasticsearch.common.breaker.CircuitBreaker;
+import org.elasticsearch.common.breaker.NoopCircuitBreaker;
 import org.elasticsearch.common.settings.Settings;
 import org.elasticsearch.common.xcontent.XContentBuilder;
 import org.elasticsearch.common.xcontent.XContentParser.Token;
@@ -24,8 +26,12 @@ import org.elasticsearch.index.mapper.Mapper;
 import org.elasticsearch.index.mapper.MapperParsingException;
 import org.elasticsearch.index.mapper.ParseContext;
 import org.elasticsearch.index.query.QueryShardContext;
+import org.elasticsearch.index.query.QueryShardException;
+import org.elasticsearch.indices.breaker.CircuitBreakerService;
 import org.elasticsearch.search.DocValueFormat;
 import org.elasticsearch.search.aggregations.support.CoreValuesSourceType;
+import org.elasticsearch.xpack.vectors.query.HnswGraphCache;
+import org.elasticsearch.xpack.vectors.query.KnnVectorQuery;
 import org.elasticsearch.xpack.vectors.query.VectorIndexFieldData;
 
 import java.io.IOException;
@@ -33,6 +39,8 @@ import java.nio.ByteBuffer;
 import java.time.ZoneId;
 import java.util.List;
 import java.util.Map;
+import java.util.Objects;
+import java.util.function.Supplier;
 
 import static org.elasticsearch.common.xcontent.XContentParserUtils.ensureExpectedToken;
 
@@ -44,6 +52,8 @@ public class DenseVectorFieldMapper extends FieldMapper {
     public static final String CONTENT_TYPE = "dense_vector";
     public static short MAX_DIMS_COUNT = 2048; //maximum allowed number of dimensions
     private static final byte INT_BYTES = 4;
+    public static final int DEFAULT_M = 16;
+    public static final int DEFAULT_EF_CONSTRUCTION = 100;
 
     public static class Defaults {
         public static final MappedFieldType FIELD_TYPE = new DenseVectorFieldType();
@@ -59,12 +69,44 @@ public class DenseVectorFieldMapper extends FieldMapper {
 
     public static class Builder extends FieldMapper.Builder<Builder> {
         private int dims = 0;
+        private VectorSimilarity similarity;
+        private int m = DEFAULT_M;
+        private int efConstruction = DEFAULT_EF_CONSTRUCTION;
+        private HnswGraphCache graphCache;
 
         public Builder(String name) {
             super(name, Defaults.FIELD_TYPE, Defaults.FIELD_TYPE);
             builder = this;
         }
 
+        /**
+         * Sets the similarity used by the {@code knn} query, vectors can only be searched with a script otherwise.
+         */
+        public Builder similarity(VectorSimilarity similarity) {
+            this.similarity = similarity;
+            return this;
+        }
+
+        /**
+         * Sets the number of neighbours of each node and the size of the beam used to build the HNSW graph.
+         */
+        public Builder hnswParameters(int m, int efConstruction) {
+            if (m < 2 || m > 512) {
+                throw new MapperParsingException("[m] for field [" + name + "] should be in the range [2, 512]");
+            }
+            if (efConstruction < 1 || efConstruction > 4096) {
+                throw new MapperParsingException("[ef_construction] for field [" + name + "] should be in the range [1, 4096]");
+            }
+            this.m = m;
+            this.efConstruction = efConstruction;
+            return this;
+        }
+
+        public Builder graphCache(HnswGraphCache graphCache) {
+            this.graphCache = graphCache;
+            return this;
+        }
+
         public Builder dims(int dims) {
             if ((dims > MAX_DIMS_COUNT) || (dims < 1)) {
                 throw new MapperParsingException("The number of dimensions for field [" + name +
@@ -78,6 +120,9 @@ public class DenseVectorFieldMapper extends FieldMapper {
         protected void setupFieldType(BuilderContext context) {
             super.setupFieldType(context);
             fieldType().setDims(dims);
+            fieldType().setVectorSimilarity(similarity);
+            fieldType().setHnswParameters(m, efConstruction);
+            fieldType().setGraphCache(graphCache);
         }
 
         @Override
@@ -95,25 +140,69 @@ public class DenseVectorFieldMapper extends FieldMapper {
     }
 
     public static class TypeParser implements Mapper.TypeParser {
+        private final Supplier<HnswGraphCache> graphCache;
+
+        /**
+         * @param graphCache supplies the node level graph cache, which is created after the mappers are registered
+         */
+        public TypeParser(Supplier<HnswGraphCache> graphCache) {
+            this.graphCache = graphCache;
+        }
+
         @Override
         public Mapper.Builder<?> parse(String name, Map<String, Object> node, ParserContext parserContext) throws MapperParsingException {
             DenseVectorFieldMapper.Builder builder = new DenseVectorFieldMapper.Builder(name);
+            builder.graphCache(graphCache.get());
             Object dimsField = node.remove("dims");
             if (dimsField == null) {
                 throw new MapperParsingException("The [dims] property must be specified for field [" + name + "].");
             }
             int dims = XContentMapValues.nodeIntegerValue(dimsField);
+            Object similarityField = node.remove("similarity");
+            if (similarityField != null) {
+                try {
+                    builder.similarity(VectorSimilarity.fromString(similarityField.toString()));
+                } catch (IllegalArgumentException e) {
+                    throw new MapperParsingException("Failed to parse [similarity] of field [" + name + "]", e);
+                }
+            }
+            Object indexOptionsField = node.remove("index_options");
+            if (indexOptionsField != null) {
+                if (similarityField == null) {
+                    throw new MapperParsingException("The [similarity] property must be specified for field [" + name +
+                        "] to use [index_options].");
+                }
+                if (indexOptionsField instanceof Map == false) {
+                    throw new MapperParsingException("The [index_options] property of field [" + name + "] must be an object");
+                }
+                Map<String, Object> indexOptions = XContentMapValues.nodeMapValue(indexOptionsField, "index_options");
+                int m = XContentMapValues.nodeIntegerValue(indexOptions.remove("m"), DEFAULT_M);
+                int efConstruction = XContentMapValues.nodeIntegerValue(indexOptions.remove("ef_construction"), DEFAULT_EF_CONSTRUCTION);
+                if (indexOptions.isEmpty() == false) {
+                    throw new MapperParsingException("Unknown [index_options] " + indexOptions.keySet() + " for field [" + name + "]");
+                }
+                builder.hnswParameters(m, efConstruction);
+            }
             return builder.dims(dims);
         }
     }
 
     public static final class DenseVectorFieldType extends MappedFieldType {
         private int dims;
+        private VectorSimilarity vectorSimilarity;
+        private int m = DEFAULT_M;
+        private int efConstruction = DEFAULT_EF_CONSTRUCTION;
+        private HnswGraphCache graphCache;
 
         public DenseVectorFieldType() {}
 
         protected DenseVectorFieldType(DenseVectorFieldType ref) {
             super(ref);
+            this.dims = ref.dims;
+            this.vectorSimilarity = ref.vectorSimilarity;
+            this.m = ref.m;
+            this.efConstruction = ref.efConstruction;
+            this.graphCache = ref.graphCache;
         }
 
         public DenseVectorFieldType clone() {
@@ -128,6 +217,60 @@ public class DenseVectorFieldMapper extends FieldMapper {
             this.dims = dims;
         }
 
+        VectorSimilarity vectorSimilarity() {
+            return vectorSimilarity;
+        }
+
+        void setVectorSimilarity(VectorSimilarity vectorSimilarity) {
+            checkIfFrozen();
+            this.vectorSimilarity = vectorSimilarity;
+        }
+
+        void setHnswParameters(int m, int efConstruction) {
+            checkIfFrozen();
+            this.m = m;
+            this.efConstruction = efConstruction;
+        }
+
+        void setGraphCache(HnswGraphCache graphCache) {
+            checkIfFrozen();
+            this.graphCache = graphCache;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (super.equals(o) == false) {
+                return false;
+            }
+            DenseVectorFieldType that = (DenseVectorFieldType) o;
+            return vectorSimilarity == that.vectorSimilarity && m == that.m && efConstruction == that.efConstruction;
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(super.hashCode(), vectorSimilarity, m, efConstruction);
+        }
+
+        /**
+         * Returns a query that finds the <code>k</code> documents whose vector is the most similar to the provided one.
+         */
+        public Query knnQuery(float[] queryVector, int k, int numCandidates, QueryShardContext context) {
+            if (vectorSimilarity == null || graphCache == null) {
+                throw new QueryShardException(context, "Field [" + name() + "] of type [" + typeName() +
+                    "] can only be searched with a [knn] query when a [similarity] is set in the mapping");
+            }
+            if (queryVector.length != dims) {
+                throw new QueryShardException(context, "The query vector has a different number of dimensions [" +
+                    queryVector.length + "] than the document vectors [" + dims + "].");
+            }
+            // graphs hold a copy of the vectors of their segment, like fielddata
+            final CircuitBreakerService breakerService = context.bigArrays().breakerService();
+            final CircuitBreaker breaker = breakerService == null
+                ? new NoopCircuitBreaker(CircuitBreaker.FIELDDATA)
+                : breakerService.getBreaker(CircuitBreaker.FIELDDATA);
+            return new KnnVectorQuery(name(), queryVector, k, numCandidates, vectorSimilarity, m, efConstruction, graphCache, breaker);
+        }
+
         @Override
         public String typeName() {
             return CONTENT_TYPE;
@@ -226,6 +369,15 @@ public class DenseVectorFieldMapper extends FieldMapper {
     protected void doXContentBody(XContentBuilder builder, boolean includeDefaults, Params params) throws IOException {
         super.doXContentBody(builder, includeDefaults, params);
         builder.field("dims", fieldType().dims());
+        if (fieldType().vectorSimilarity != null) {
+            builder.field("similarity", fieldType().vectorSimilarity.getName());
+            if (includeDefaults || fieldType().m != DEFAULT_M || fieldType().efConstruction != DEFAULT_EF_CONSTRUCTION) {
+                builder.startObject("index_options");
+                builder.field("m", fieldType().m);
+                builder.field("ef_construction", fieldType().efConstruction);
+                builder.endObject();
+            }
+        }
     }
 
     @Override
@@ -234,6 +386,12 @@ public class DenseVectorFieldMapper extends FieldMapper {
         if (this.fieldType().dims() != otherType.dims()) {
             conflicts.add("mapper [" + name() + "] has different dims");
         }
+        if (this.fieldType().vectorSimilarity != otherType.vectorSimilarity) {
+            conflicts.add("mapper [" + name() + "] has different [similarity]");
+        }
+        if (this.fieldType().m != otherType.m || this.fieldType().efConstruction != otherType.efConstruction) {
+            conflicts.add("mapper [" + name() + "] has different [index_options]");
+        }
     }
 
     @Override
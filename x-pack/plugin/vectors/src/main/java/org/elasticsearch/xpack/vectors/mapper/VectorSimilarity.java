@@ -0,0 +1,103 @@
+/*
+ * Copyright Elasticsearch B.V. and/or licensed to Elasticsearch B.V. under one
+ * or more contributor license agreements. Licensed under the Elastic License;
+ * you may not use this file except in compliance with the Elastic License.
+ */
+
+
+package org.elasticsearch.xpack.vectors.mapper;
+
+import java.util.Locale;
+
+/**
+ * The similarity used to compare dense vectors that are searched with the {@code knn} query.
+ * Scores are always positive so that they can be used as Lucene scores, higher is more similar.
+ */
+public enum VectorSimilarity {
+    /**
+     * Cosine similarity, vectors are normalized to unit length before they are compared.
+     */
+    COSINE {
+        @Override
+        public boolean normalize() {
+            return true;
+        }
+
+        @Override
+        public float score(float[] a, float[] b) {
+            return (1f + dotProduct(a, b)) / 2f;
+        }
+    },
+    /**
+     * Dot product, intended for vectors that are already normalized to unit length.
+     */
+    DOT_PRODUCT {
+        @Override
+        public float score(float[] a, float[] b) {
+            return Math.max((1f + dotProduct(a, b)) / 2f, 0f);
+        }
+    },
+    /**
+     * Euclidean distance.
+     */
+    L2_NORM {
+        @Override
+        public float score(float[] a, float[] b) {
+            float squareDistance = 0f;
+            for (int dim = 0; dim < a.length; dim++) {
+                float diff = a[dim] - b[dim];
+                squareDistance += diff * diff;
+            }
+            return 1f / (1f + squareDistance);
+        }
+    };
+
+    /**
+     * Returns true if vectors must be normalized to unit length before being compared with this similarity.
+     */
+    public boolean normalize() {
+        return false;
+    }
+
+    /**
+     * Computes the similarity of the provided vectors, higher is more similar.
+     */
+    public abstract float score(float[] a, float[] b);
+
+    public String getName() {
+        return name().toLowerCase(Locale.ROOT);
+    }
+
+    public static VectorSimilarity fromString(String name) {
+        for (VectorSimilarity similarity : values()) {
+            if (similarity.getName().equals(name)) {
+                return similarity;
+            }
+        }
+        throw new IllegalArgumentException("unknown vector similarity [" + name + "], must be one of [cosine, dot_product, l2_norm]");
+    }
+
+    static float dotProduct(float[] a, float[] b) {
+        float dotProduct = 0f;
+        for (int dim = 0; dim < a.length; dim++) {
+            dotProduct += a[dim] * b[dim];
+        }
+        return dotProduct;
+    }
+
+    /**
+     * Normalizes the provided vector to unit length in place.
+     */
+    public static void normalize(float[] vector) {
+        double magnitude = 0.0;
+        for (float value : vector) {
+            magnitude += value * value;
+        }
+        magnitude = Math.sqrt(magnitude);
+        if (magnitude > 0) {
+            for (int dim = 0; dim < vector.length; dim++) {
+                vector[dim] /= magnitude;
+            }
+        }
+    }
+}
@@ -0,0 +1,483 @@
+/*
+ * Copyright Elasticsearch B.V. and/or licensed to Elasticsearch B.V. under one
+ * or more contributor license agreements. Licensed under the Elastic License;
+ * you may not use this file except in compliance with the Elastic License.
+ */
+
+
+package org.elasticsearch.xpack.vectors.query;
+
+import org.apache.lucene.index.BinaryDocValues;
+import org.apache.lucene.search.DocIdSetIterator;
+import org.apache.lucene.search.ScoreDoc;
+import org.apache.lucene.search.TopDocs;
+import org.apache.lucene.search.TotalHits;
+import org.apache.lucene.util.Accountable;
+import org.apache.lucene.util.ArrayUtil;
+import org.apache.lucene.util.Bits;
+import org.apache.lucene.util.BytesRef;
+import org.apache.lucene.util.NumericUtils;
+import org.apache.lucene.util.PriorityQueue;
+import org.apache.lucene.util.RamUsageEstimator;
+import org.apache.lucene.util.SparseFixedBitSet;
+import org.elasticsearch.common.Nullable;
+import org.elasticsearch.xpack.vectors.mapper.VectorSimilarity;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.Random;
+
+/**
+ * A Hierarchical Navigable Small World graph over the dense vectors of a single segment. Nodes are connected to
+ * their closest neighbours on a number of layers, higher layers being exponentially sparser than lower ones.
+ * Searches greedily descend from the entry point of the top layer and run a best-first beam search on the bottom
+ * layer, which visits a number of vectors that grows logarithmically with the number of documents in the segment.
+ *
+ * The graph keeps a copy of the vectors it indexes on heap, see {@link #ramBytesUsed()}. It is not thread-safe
+ * while it is being built, but concurrent searches are safe once {@link #build} returned.
+ */
+public final class HnswGraph implements Accountable {
+
+    // fixed so that copies of the same segment build the same graph and return the same hits
+    private static final long SEED = 0x5EED_6A7E_F00DL;
+
+    private final VectorSimilarity similarity;
+    private final int dims;
+    private final int maxConn;
+    private final int beamWidth;
+    private final double levelMultiplier;
+    private final Random random;
+
+    private int size;
+    private int[] docs = new int[0];
+    private float[][] vectors = new float[0][];
+    private NeighborArray[][] neighbors = new NeighborArray[0][];
+    private int entryPoint = -1;
+    private int maxLevel = -1;
+    private long ramBytesUsed;
+
+    /**
+     * @param similarity the similarity used to compare vectors
+     * @param dims the number of dimensions of the vectors
+     * @param maxConn the number of neighbours a node is connected to on each layer, twice as many on the bottom layer
+     * @param beamWidth the number of candidates considered when looking for the neighbours of a new node
+     */
+    HnswGraph(VectorSimilarity similarity, int dims, int maxConn, int beamWidth) {
+        if (maxConn < 2) {
+            throw new IllegalArgumentException("maxConn must be >= 2, got " + maxConn);
+        }
+        if (beamWidth < 1) {
+            throw new IllegalArgumentException("beamWidth must be >= 1, got " + beamWidth);
+        }
+        this.similarity = similarity;
+        this.dims = dims;
+        this.maxConn = maxConn;
+        this.beamWidth = beamWidth;
+        this.levelMultiplier = 1 / Math.log(maxConn);
+        this.random = new Random(SEED);
+    }
+
+    /**
+     * Builds the graph of the encoded dense vectors of the provided doc values.
+     */
+    public static HnswGraph build(BinaryDocValues values, VectorSimilarity similarity, int dims,
+                                  int maxConn, int beamWidth) throws IOException {
+        HnswGraph graph = new HnswGraph(similarity, dims, maxConn, beamWidth);
+        for (int doc = values.nextDoc(); doc != DocIdSetIterator.NO_MORE_DOCS; doc = values.nextDoc()) {
+            graph.add(doc, decode(values.binaryValue(), dims));
+        }
+        return graph;
+    }
+
+    /**
+     * Returns the <code>k</code> documents of the provided doc values that are the most similar to the provided
+     * <code>query</code> vector by comparing the query with every vector, which is what the graph approximates.
+     *
+     * @param acceptDocs the documents that can be returned, or <code>null</code> if all documents are accepted
+     */
+    public static TopDocs exactSearch(BinaryDocValues values, VectorSimilarity similarity, int dims, float[] query, int k,
+                                      @Nullable Bits acceptDocs) throws IOException {
+        if (query.length != dims) {
+            throw new IllegalArgumentException("The query vector has a different number of dimensions [" +
+                query.length + "] than the document vectors [" + dims + "].");
+        }
+        if (similarity.normalize()) {
+            query = query.clone();
+            VectorSimilarity.normalize(query);
+        }
+        final PriorityQueue<ScoreDoc> queue = new PriorityQueue<>(k) {
+            @Override
+            protected boolean lessThan(ScoreDoc a, ScoreDoc b) {
+                return a.score == b.score ? a.doc > b.doc : a.score < b.score;
+            }
+        };
+        for (int doc = values.nextDoc(); doc != DocIdSetIterator.NO_MORE_DOCS; doc = values.nextDoc()) {
+            if (acceptDocs != null && acceptDocs.get(doc) == false) {
+                continue;
+            }
+            final float[] vector = decode(values.binaryValue(), dims);
+            if (similarity.normalize()) {
+                VectorSimilarity.normalize(vector);
+            }
+            queue.insertWithOverflow(new ScoreDoc(doc, similarity.score(query, vector)));
+        }
+        final ScoreDoc[] scoreDocs = new ScoreDoc[queue.size()];
+        for (int i = scoreDocs.length - 1; i >= 0; i--) {
+            scoreDocs[i] = queue.pop();
+        }
+        return new TopDocs(new TotalHits(scoreDocs.length, TotalHits.Relation.EQUAL_TO), scoreDocs);
+    }
+
+    private static float[] decode(BytesRef encoded, int dims) {
+        // the magnitude that is appended to vectors of recent indices is ignored
+        ByteBuffer byteBuffer = ByteBuffer.wrap(encoded.bytes, encoded.offset, encoded.length);
+        float[] vector = new float[dims];
+        for (int dim = 0; dim < dims; dim++) {
+            vector[dim] = byteBuffer.getFloat();
+        }
+        return vector;
+    }
+
+    /**
+     * Returns the number of vectors in the graph.
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Adds the vector of the provided document to the graph. Documents must be added in increasing order.
+     */
+    void add(int doc, float[] vector) {
+        if (vector.length != dims) {
+            throw new IllegalArgumentException("expected a vector with [" + dims + "] dimensions, got [" + vector.length + "]");
+        }
+        assert size == 0 || docs[size - 1] < doc : "documents must be added in order";
+        if (similarity.normalize()) {
+            VectorSimilarity.normalize(vector);
+        }
+        final int node = size++;
+        if (node == docs.length) {
+            int newLength = ArrayUtil.oversize(size, Integer.BYTES);
+            docs = Arrays.copyOf(docs, newLength);
+            vectors = Arrays.copyOf(vectors, newLength);
+            neighbors = Arrays.copyOf(neighbors, newLength);
+        }
+        docs[node] = doc;
+        vectors[node] = vector;
+        final int level = randomLevel();
+        neighbors[node] = new NeighborArray[level + 1];
+        for (int l = 0; l <= level; l++) {
+            neighbors[node][l] = new NeighborArray(maxConnOnLevel(l) + 1);
+            ramBytesUsed += neighbors[node][l].ramBytesUsed();
+        }
+        ramBytesUsed += Integer.BYTES + RamUsageEstimator.sizeOf(vector) + 2 * RamUsageEstimator.NUM_BYTES_OBJECT_REF;
+
+        if (entryPoint == -1) {
+            entryPoint = node;
+            maxLevel = level;
+            return;
+        }
+        int ep = entryPoint;
+        for (int l = maxLevel; l > level; l--) {
+            ep = greedySearch(vector, ep, l);
+        }
+        int[] entryPoints = new int[] { ep };
+        for (int l = Math.min(level, maxLevel); l >= 0; l--) {
+            long[] candidates = searchLayer(vector, entryPoints, beamWidth, l, null);
+            connect(node, candidates, l);
+            entryPoints = new int[candidates.length];
+            for (int i = 0; i < candidates.length; i++) {
+                entryPoints[i] = decodeNode(candidates[i]);
+            }
+        }
+        if (level > maxLevel) {
+            maxLevel = level;
+            entryPoint = node;
+        }
+    }
+
+    /**
+     * Returns the <code>k</code> documents that are the most similar to the provided <code>query</code> vector,
+     * exploring <code>numCandidates</code> candidates on the bottom layer of the graph.
+     *
+     * @param acceptDocs the documents that can be returned, or <code>null</code> if all documents are accepted
+     */
+    public TopDocs search(float[] query, int k, int numCandidates, @Nullable Bits acceptDocs) {
+        if (query.length != dims) {
+            throw new IllegalArgumentException("The query vector has a different number of dimensions [" +
+                query.length + "] than the document vectors [" + dims + "].");
+        }
+        if (size == 0) {
+            return new TopDocs(new TotalHits(0, TotalHits.Relation.EQUAL_TO), new ScoreDoc[0]);
+        }
+        if (similarity.normalize()) {
+            query = query.clone();
+            VectorSimilarity.normalize(query);
+        }
+        int ep = entryPoint;
+        for (int l = maxLevel; l > 0; l--) {
+            ep = greedySearch(query, ep, l);
+        }
+        long[] results = searchLayer(query, new int[] { ep }, Math.max(k, numCandidates), 0, acceptDocs);
+        ScoreDoc[] scoreDocs = new ScoreDoc[Math.min(k, results.length)];
+        for (int i = 0; i < scoreDocs.length; i++) {
+            scoreDocs[i] = new ScoreDoc(docs[decodeNode(results[i])], decodeScore(results[i]));
+        }
+        return new TopDocs(new TotalHits(scoreDocs.length, TotalHits.Relation.EQUAL_TO), scoreDocs);
+    }
+
+    @Override
+    public long ramBytesUsed() {
+        return ramBytesUsed;
+    }
+
+    private int maxConnOnLevel(int level) {
+        return level == 0 ? maxConn * 2 : maxConn;
+    }
+
+    private int randomLevel() {
+        // 1 - nextDouble() is in (0, 1] so that the logarithm is finite
+        return (int) (-Math.log(1 - random.nextDouble()) * levelMultiplier);
+    }
+
+    private float score(float[] query, int node) {
+        return similarity.score(query, vectors[node]);
+    }
+
+    /**
+     * Moves from the provided entry point to the neighbour that is the most similar to the query
+     * until no neighbour is more similar than the current node.
+     */
+    private int greedySearch(float[] query, int entryPoint, int level) {
+        int current = entryPoint;
+        float currentScore = score(query, current);
+        boolean changed = true;
+        while (changed) {
+            changed = false;
+            NeighborArray neighborArray = neighbors[current][level];
+            for (int i = 0; i < neighborArray.size; i++) {
+                int neighbor = neighborArray.nodes[i];
+                float score = score(query, neighbor);
+                if (score > currentScore) {
+                    current = neighbor;
+                    currentScore = score;
+                    changed = true;
+                }
+            }
+        }
+        return current;
+    }
+
+    /**
+     * Beam search on the provided level of the graph.
+     *
+     * @return the at most <code>ef</code> best accepted nodes, encoded with their score and ordered from the most to the least similar
+     */
+    private long[] searchLayer(float[] query, int[] entryPoints, int ef, int level, @Nullable Bits acceptDocs) {
+        // sparse so that the cost of the bit set does not grow linearly with the size of the graph
+        final SparseFixedBitSet visited = new SparseFixedBitSet(size);
+        // candidates are negated so that the most similar one is at the top of the heap
+        final LongHeap candidates = new LongHeap(ef);
+        final LongHeap results = new LongHeap(ef + 1);
+        for (int ep : entryPoints) {
+            if (visited.get(ep) == false) {
+                visited.set(ep);
+                long encoded = encode(ep, score(query, ep));
+                candidates.push(-encoded);
+                if (acceptDocs == null || acceptDocs.get(docs[ep])) {
+                    results.push(encoded);
+                    if (results.size() > ef) {
+                        results.pop();
+                    }
+                }
+            }
+        }
+        while (candidates.size() > 0) {
+            final long candidate = -candidates.pop();
+            if (results.size() >= ef && decodeScore(candidate) < decodeScore(results.top())) {
+                // the best candidate is worse than all results, we are done
+                break;
+            }
+            final NeighborArray neighborArray = neighbors[decodeNode(candidate)][level];
+            for (int i = 0; i < neighborArray.size; i++) {
+                final int neighbor = neighborArray.nodes[i];
+                if (visited.get(neighbor)) {
+                    continue;
+                }
+                visited.set(neighbor);
+                final float score = score(query, neighbor);
+                if (results.size() < ef || score > decodeScore(results.top())) {
+                    final long encoded = encode(neighbor, score);
+                    candidates.push(-encoded);
+                    if (acceptDocs == null || acceptDocs.get(docs[neighbor])) {
+                        results.push(encoded);
+                        if (results.size() > ef) {
+                            results.pop();
+                        }
+                    }
+                }
+            }
+        }
+        final long[] sorted = new long[results.size()];
+        for (int i = sorted.length - 1; i >= 0; i--) {
+            sorted[i] = results.pop();
+        }
+        return sorted;
+    }
+
+    /**
+     * Connects the provided node to a diverse set of its closest candidates and adds the reverse connections,
+     * dropping the least similar neighbour of nodes that end up with too many connections.
+     */
+    private void connect(int node, long[] candidates, int level) {
+        final NeighborArray selected = neighbors[node][level];
+        // prefer candidates that are closer to the new node than to the already selected neighbours
+        for (int i = 0; i < candidates.length && selected.size < maxConn; i++) {
+            final int candidate = decodeNode(candidates[i]);
+            final float score = decodeScore(candidates[i]);
+            boolean diverse = true;
+            for (int j = 0; j < selected.size && diverse; j++) {
+                diverse = similarity.score(vectors[candidate], vectors[selected.nodes[j]]) <= score;
+            }
+            if (diverse) {
+                selected.add(candidate, score);
+            }
+        }
+        // fill up the remaining connections with the closest candidates that were pruned
+        for (int i = 0; i < candidates.length && selected.size < maxConn; i++) {
+            final int candidate = decodeNode(candidates[i]);
+            if (selected.contains(candidate) == false) {
+                selected.add(candidate, decodeScore(candidates[i]));
+            }
+        }
+        final int maxConnOnLevel = maxConnOnLevel(level);
+        for (int i = 0; i < selected.size; i++) {
+            final NeighborArray reverse = neighbors[selected.nodes[i]][level];
+            reverse.add(node, selected.scores[i]);
+            if (reverse.size > maxConnOnLevel) {
+                reverse.removeLeastSimilar();
+            }
+        }
+    }
+
+    private static long encode(int node, float score) {
+        assert node >= 0;
+        return (((long) NumericUtils.floatToSortableInt(score)) << 32) | node;
+    }
+
+    private static int decodeNode(long encoded) {
+        return (int) encoded;
+    }
+
+    private static float decodeScore(long encoded) {
+        return NumericUtils.sortableIntToFloat((int) (encoded >> 32));
+    }
+
+    /**
+     * The neighbours of a node on a given level along with their similarity to the node.
+     */
+    private static final class NeighborArray {
+        private final int[] nodes;
+        private final float[] scores;
+        private int size;
+
+        NeighborArray(int capacity) {
+            this.nodes = new int[capacity];
+            this.scores = new float[capacity];
+        }
+
+        void add(int node, float score) {
+            nodes[size] = node;
+            scores[size] = score;
+            size++;
+        }
+
+        boolean contains(int node) {
+            for (int i = 0; i < size; i++) {
+                if (nodes[i] == node) {
+                    return true;
+                }
+            }
+            return false;
+        }
+
+        void removeLeastSimilar() {
+            int leastSimilar = 0;
+            for (int i = 1; i < size; i++) {
+                if (scores[i] < scores[leastSimilar]) {
+                    leastSimilar = i;
+                }
+            }
+            size--;
+            nodes[leastSimilar] = nodes[size];
+            scores[leastSimilar] = scores[size];
+        }
+
+        long ramBytesUsed() {
+            return RamUsageEstimator.NUM_BYTES_OBJECT_HEADER + Integer.BYTES + 2 * RamUsageEstimator.NUM_BYTES_OBJECT_REF
+                + RamUsageEstimator.sizeOf(nodes) + RamUsageEstimator.sizeOf(scores);
+        }
+    }
+
+    /**
+     * A binary min-heap of longs.
+     */
+    private static final class LongHeap {
+        private long[] heap;
+        private int size;
+
+        LongHeap(int initialCapacity) {
+            this.heap = new long[Math.max(1, initialCapacity)];
+        }
+
+        int size() {
+            return size;
+        }
+
+        long top() {
+            assert size > 0;
+            return heap[0];
+        }
+
+        void push(long value) {
+            if (size == heap.length) {
+                heap = ArrayUtil.grow(heap, size + 1);
+            }
+            int i = size++;
+            while (i > 0) {
+                int parent = (i - 1) >>> 1;
+                if (heap[parent] <= value) {
+                    break;
+                }
+                heap[i] = heap[parent];
+                i = parent;
+            }
+            heap[i] = value;
+        }
+
+        long pop() {
+            assert size > 0;
+            final long result = heap[0];
+            final long last = heap[--size];
+            int i = 0;
+            while (true) {
+                int child = 2 * i + 1;
+                if (child >= size) {
+                    break;
+                }
+                if (child + 1 < size && heap[child + 1] < heap[child]) {
+                    child++;
+                }
+                if (last <= heap[child]) {
+                    break;
+                }
+                heap[i] = heap[child];
+                i = child;
+            }
+            heap[i] = last;
+            return result;
+        }
+    }
+}
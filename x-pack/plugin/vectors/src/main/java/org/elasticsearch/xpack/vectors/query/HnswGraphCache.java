@@ -0,0 +1,259 @@
+/*
+ * Copyright Elasticsearch B.V. and/or licensed to Elasticsearch B.V. under one
+ * or more contributor license agreements. Licensed under the Elastic License;
+ * you may not use this file except in compliance with the Elastic License.
+ */
+
+
+package org.elasticsearch.xpack.vectors.query;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.apache.logging.log4j.message.ParameterizedMessage;
+import org.apache.lucene.index.BinaryDocValues;
+import org.apache.lucene.index.DocValues;
+import org.apache.lucene.index.FilterLeafReader;
+import org.apache.lucene.index.IndexReader;
+import org.apache.lucene.index.LeafReader;
+import org.apache.lucene.util.Accountable;
+import org.apache.lucene.util.RamUsageEstimator;
+import org.elasticsearch.common.Nullable;
+import org.elasticsearch.common.breaker.CircuitBreaker;
+import org.elasticsearch.common.breaker.CircuitBreakingException;
+import org.elasticsearch.common.cache.Cache;
+import org.elasticsearch.common.cache.CacheBuilder;
+import org.elasticsearch.common.cache.RemovalNotification;
+import org.elasticsearch.common.settings.Setting;
+import org.elasticsearch.common.settings.Setting.Property;
+import org.elasticsearch.common.settings.Settings;
+import org.elasticsearch.common.unit.ByteSizeValue;
+import org.elasticsearch.common.unit.TimeValue;
+import org.elasticsearch.common.util.concurrent.AbstractRunnable;
+import org.elasticsearch.common.util.concurrent.ConcurrentCollections;
+import org.elasticsearch.common.util.concurrent.EsExecutors;
+import org.elasticsearch.threadpool.ExecutorBuilder;
+import org.elasticsearch.threadpool.ScalingExecutorBuilder;
+import org.elasticsearch.xpack.vectors.mapper.VectorSimilarity;
+
+import java.io.IOException;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.Executor;
+
+/**
+ * A node level cache of the {@link HnswGraph}s of dense vector fields. Graphs are built per segment in the background
+ * on the {@value #THREAD_POOL_NAME} thread pool the first time a segment is searched with a {@code knn} query, so that
+ * searches never wait for a graph: segments without a graph are searched exactly until their graph is ready.
+ * <p>
+ * Graphs hold a copy of the vectors of their segment, so their memory is charged to the fielddata circuit breaker
+ * and the cache is bounded by {@link #CACHE_SIZE_SETTING}. Graphs are evicted when the cache is full and released
+ * when their segment is closed, so that merged segments get a graph of their own once they are searched.
+ */
+public final class HnswGraphCache implements Accountable {
+
+    private static final Logger logger = LogManager.getLogger(HnswGraphCache.class);
+
+    public static final String THREAD_POOL_NAME = "vectors_hnsw_build";
+
+    public static final Setting<ByteSizeValue> CACHE_SIZE_SETTING =
+        Setting.memorySizeSetting("xpack.vectors.hnsw.cache.size", "10%", Property.NodeScope);
+
+    private final Cache<Key, Entry> cache;
+    private final Set<Key> building = ConcurrentCollections.newConcurrentSet();
+    private final Executor executor;
+
+    public HnswGraphCache(Settings settings, Executor executor) {
+        this.cache = CacheBuilder.<Key, Entry>builder()
+            .setMaximumWeight(CACHE_SIZE_SETTING.get(settings).getBytes())
+            .weigher((key, entry) -> entry.graph.ramBytesUsed())
+            .removalListener(this::onRemoval)
+            .build();
+        this.executor = Objects.requireNonNull(executor);
+    }
+
+    /**
+     * Builds graphs on at most half of the allocated processors so that searches and indexing keep up while graphs
+     * are built after a refresh or a merge.
+     */
+    public static ExecutorBuilder<?> executorBuilder(Settings settings) {
+        final int maxThreads = Math.max(1, EsExecutors.allocatedProcessors(settings) / 2);
+        return new ScalingExecutorBuilder(THREAD_POOL_NAME, 1, maxThreads, TimeValue.timeValueMinutes(5));
+    }
+
+    /**
+     * Returns the graph of the provided field for the provided segment, or {@code null} if it isn't built yet in
+     * which case the build is started in the background. Graphs are built from the unwrapped segment so that they
+     * can be shared by readers that filter documents, callers must filter the hits with the live docs of the provided
+     * reader.
+     *
+     * @param breaker the breaker that the memory of the graph is charged to
+     */
+    @Nullable
+    public HnswGraph getGraph(LeafReader reader, String field, VectorSimilarity similarity, int dims, int maxConn, int beamWidth,
+                              CircuitBreaker breaker) {
+        final LeafReader segmentReader = FilterLeafReader.unwrap(reader);
+        final IndexReader.CacheHelper cacheHelper = segmentReader.getCoreCacheHelper();
+        if (cacheHelper == null) {
+            // the reader can't be cached, it is searched exactly
+            return null;
+        }
+        final Key key = new Key(cacheHelper.getKey(), field, similarity, dims, maxConn, beamWidth);
+        final Entry entry = cache.get(key);
+        if (entry != null) {
+            return entry.graph;
+        }
+        if (building.add(key)) {
+            startBuild(segmentReader, cacheHelper, key, breaker);
+        }
+        // the build may already be done if the executor runs tasks on the calling thread
+        final Entry built = cache.get(key);
+        return built == null ? null : built.graph;
+    }
+
+    private void startBuild(LeafReader segmentReader, IndexReader.CacheHelper cacheHelper, Key key, CircuitBreaker breaker) {
+        // the segment must stay open until the graph is built, it may be closed by a refresh in the meantime otherwise
+        if (segmentReader.tryIncRef() == false) {
+            building.remove(key);
+            return;
+        }
+        try {
+            executor.execute(new AbstractRunnable() {
+                @Override
+                protected void doRun() throws Exception {
+                    final HnswGraph graph = build(segmentReader, key, breaker);
+                    cacheHelper.addClosedListener(closedKey -> cache.invalidate(key));
+                    cache.put(key, new Entry(graph, breaker));
+                }
+
+                @Override
+                public void onFailure(Exception e) {
+                    if (e instanceof CircuitBreakingException) {
+                        // the segment is searched exactly until there is enough memory to build the graph
+                        logger.debug(new ParameterizedMessage("not enough memory to build hnsw graph of field [{}]", key.field), e);
+                    } else {
+                        logger.warn(new ParameterizedMessage("failed to build hnsw graph of field [{}]", key.field), e);
+                    }
+                }
+
+                @Override
+                public void onAfter() {
+                    building.remove(key);
+                    try {
+                        segmentReader.decRef();
+                    } catch (IOException e) {
+                        logger.warn("failed to release segment after building hnsw graph", e);
+                    }
+                }
+            });
+        } catch (RuntimeException e) {
+            building.remove(key);
+            try {
+                segmentReader.decRef();
+            } catch (IOException inner) {
+                e.addSuppressed(inner);
+            }
+            logger.debug(new ParameterizedMessage("failed to start building hnsw graph of field [{}]", key.field), e);
+        }
+    }
+
+    private static HnswGraph build(LeafReader reader, Key key, CircuitBreaker breaker) throws IOException {
+        final long startTimeNanos = System.nanoTime();
+        final BinaryDocValues values = DocValues.getBinary(reader, key.field);
+        // reserve memory for the vectors and the bottom layer before copying them, the graph is charged precisely once built
+        final long estimate = estimateRamBytesUsed(reader.maxDoc(), key.dims, key.maxConn);
+        breaker.addEstimateBytesAndMaybeBreak(estimate, "hnsw graph [" + key.field + "]");
+        final HnswGraph graph;
+        try {
+            graph = HnswGraph.build(values, key.similarity, key.dims, key.maxConn, key.beamWidth);
+        } catch (Exception e) {
+            breaker.addWithoutBreaking(-estimate);
+            throw e;
+        }
+        breaker.addWithoutBreaking(graph.ramBytesUsed() - estimate);
+        if (logger.isDebugEnabled()) {
+            logger.debug("built hnsw graph of field [{}] with [{}] vectors in [{}ms], using [{}]", key.field, graph.size(),
+                (System.nanoTime() - startTimeNanos) / 1_000_000, new ByteSizeValue(graph.ramBytesUsed()));
+        }
+        return graph;
+    }
+
+    /**
+     * Estimates the memory of the graph of a segment whose documents all have a vector, assuming that every node is only
+     * on the bottom layer, where it has twice as many neighbours as on the upper layers.
+     */
+    static long estimateRamBytesUsed(int numDocs, int dims, int maxConn) {
+        final long perVector = RamUsageEstimator.NUM_BYTES_ARRAY_HEADER + (long) dims * Float.BYTES
+            + RamUsageEstimator.NUM_BYTES_ARRAY_HEADER + (2L * maxConn + 1) * (Integer.BYTES + Float.BYTES);
+        return numDocs * perVector;
+    }
+
+    private void onRemoval(RemovalNotification<Key, Entry> notification) {
+        final Entry entry = notification.getValue();
+        entry.breaker.addWithoutBreaking(-entry.graph.ramBytesUsed());
+    }
+
+    /**
+     * Returns the number of cached graphs.
+     */
+    public int numGraphs() {
+        return cache.count();
+    }
+
+    /**
+     * Evicts all graphs.
+     */
+    public void clear() {
+        cache.invalidateAll();
+    }
+
+    @Override
+    public long ramBytesUsed() {
+        return cache.weight();
+    }
+
+    private static final class Entry {
+        private final HnswGraph graph;
+        private final CircuitBreaker breaker;
+
+        private Entry(HnswGraph graph, CircuitBreaker breaker) {
+            this.graph = graph;
+            this.breaker = breaker;
+        }
+    }
+
+    private static final class Key {
+        private final IndexReader.CacheKey segment;
+        private final String field;
+        private final VectorSimilarity similarity;
+        private final int dims;
+        private final int maxConn;
+        private final int beamWidth;
+
+        private Key(IndexReader.CacheKey segment, String field, VectorSimilarity similarity, int dims, int maxConn, int beamWidth) {
+            this.segment = segment;
+            this.field = field;
+            this.similarity = similarity;
+            this.dims = dims;
+            this.maxConn = maxConn;
+            this.beamWidth = beamWidth;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) return true;
+            if (o == null || getClass() != o.getClass()) return false;
+            Key that = (Key) o;
+            return dims == that.dims &&
+                maxConn == that.maxConn &&
+                beamWidth == that.beamWidth &&
+                segment == that.segment &&
+                field.equals(that.field) &&
+                similarity == that.similarity;
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(segment, field, similarity, dims, maxConn, beamWidth);
+        }
+    }
+}
@@ -0,0 +1,168 @@
+/*
+ * Copyright Elasticsearch B.V. and/or licensed to Elasticsearch B.V. under one
+ * or more contributor license agreements. Licensed under the Elastic License;
+ * you may not use this file except in compliance with the Elastic License.
+ */
+
+
+package org.elasticsearch.xpack.vectors.query;
+
+import org.apache.lucene.index.IndexReaderContext;
+import org.apache.lucene.index.LeafReaderContext;
+import org.apache.lucene.index.Term;
+import org.apache.lucene.search.DocIdSetIterator;
+import org.apache.lucene.search.Explanation;
+import org.apache.lucene.search.IndexSearcher;
+import org.apache.lucene.search.Query;
+import org.apache.lucene.search.QueryVisitor;
+import org.apache.lucene.search.ScoreMode;
+import org.apache.lucene.search.Scorer;
+import org.apache.lucene.search.Weight;
+
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.Objects;
+import java.util.Set;
+
+/**
+ * A query that matches a fixed set of top level documents with precomputed scores, the result of
+ * rewriting a {@link KnnVectorQuery} against a reader. The doc ids are only valid for that reader, so
+ * the query is only equal to queries that were rewritten against the same reader and it is never cached.
+ */
+final class KnnScoreDocQuery extends Query {
+
+    // the top level context of the reader that the doc ids belong to
+    private final IndexReaderContext readerContext;
+    // sorted by doc id
+    private final int[] docs;
+    private final float[] scores;
+
+    KnnScoreDocQuery(IndexReaderContext readerContext, int[] docs, float[] scores) {
+        assert docs.length == scores.length;
+        this.readerContext = readerContext;
+        this.docs = docs;
+        this.scores = scores;
+    }
+
+    @Override
+    public Weight createWeight(IndexSearcher searcher, ScoreMode scoreMode, float boost) throws IOException {
+        if (searcher.getTopReaderContext() != readerContext) {
+            throw new IllegalStateException("the query was rewritten against a different reader");
+        }
+        return new Weight(this) {
+            @Override
+            public void extractTerms(Set<Term> terms) {
+            }
+
+            @Override
+            public Explanation explain(LeafReaderContext context, int doc) throws IOException {
+                final int index = Arrays.binarySearch(docs, context.docBase + doc);
+                if (index < 0) {
+                    return Explanation.noMatch("not in the top k nearest neighbours");
+                }
+                return Explanation.match(boost * scores[index], "vector similarity among the top k nearest neighbours");
+            }
+
+            @Override
+            public Scorer scorer(LeafReaderContext context) throws IOException {
+                // the range of docs that belong to this segment
+                final int from = lowerBound(context.docBase);
+                final int to = lowerBound(context.docBase + context.reader().maxDoc());
+                if (from == to) {
+                    return null;
+                }
+                return new Scorer(this) {
+                    int index = from - 1;
+
+                    final DocIdSetIterator iterator = new DocIdSetIterator() {
+                        @Override
+                        public int docID() {
+                            if (index < from) {
+                                return -1;
+                            } else if (index >= to) {
+                                return NO_MORE_DOCS;
+                            }
+                            return docs[index] - context.docBase;
+                        }
+
+                        @Override
+                        public int nextDoc() {
+                            index++;
+                            return docID();
+                        }
+
+                        @Override
+                        public int advance(int target) {
+                            index = Math.max(index + 1, lowerBound(context.docBase + target));
+                            return docID();
+                        }
+
+                        @Override
+                        public long cost() {
+                            return to - from;
+                        }
+                    };
+
+                    @Override
+                    public DocIdSetIterator iterator() {
+                        return iterator;
+                    }
+
+                    @Override
+                    public float getMaxScore(int upTo) {
+                        float maxScore = 0f;
+                        for (int i = from; i < to; i++) {
+                            maxScore = Math.max(maxScore, scores[i]);
+                        }
+                        return boost * maxScore;
+                    }
+
+                    @Override
+                    public float score() {
+                        return boost * scores[index];
+                    }
+
+                    @Override
+                    public int docID() {
+                        return iterator.docID();
+                    }
+                };
+            }
+
+            @Override
+            public boolean isCacheable(LeafReaderContext ctx) {
+                // the matches of a segment depend on the other segments of the reader
+                return false;
+            }
+        };
+    }
+
+    private int lowerBound(int doc) {
+        final int index = Arrays.binarySearch(docs, doc);
+        return index < 0 ? -1 - index : index;
+    }
+
+    @Override
+    public void visit(QueryVisitor visitor) {
+        visitor.visitLeaf(this);
+    }
+
+    @Override
+    public String toString(String field) {
+        return "KnnScoreDocQuery{docs=" + docs.length + "}";
+    }
+
+    @Override
+    public boolean equals(Object obj) {
+        if (sameClassAs(obj) == false) {
+            return false;
+        }
+        KnnScoreDocQuery other = (KnnScoreDocQuery) obj;
+        return readerContext == other.readerContext && Arrays.equals(docs, other.docs) && Arrays.equals(scores, other.scores);
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(classHash(), System.identityHashCode(readerContext), Arrays.hashCode(docs), Arrays.hashCode(scores));
+    }
+}
@@ -0,0 +1,129 @@
+/*
+ * Copyright Elasticsearch B.V. and/or licensed to Elasticsearch B.V. under one
+ * or more contributor license agreements. Licensed under the Elastic License;
+ * you may not use this file except in compliance with the Elastic License.
+ */
+
+
+package org.elasticsearch.xpack.vectors.query;
+
+import org.apache.lucene.index.DocValues;
+import org.apache.lucene.index.IndexReader;
+import org.apache.lucene.index.LeafReaderContext;
+import org.apache.lucene.search.MatchNoDocsQuery;
+import org.apache.lucene.search.Query;
+import org.apache.lucene.search.QueryVisitor;
+import org.apache.lucene.search.ScoreDoc;
+import org.apache.lucene.search.TopDocs;
+import org.apache.lucene.search.TotalHits;
+import org.elasticsearch.common.breaker.CircuitBreaker;
+import org.elasticsearch.xpack.vectors.mapper.VectorSimilarity;
+
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.Objects;
+
+/**
+ * A query that finds the <code>k</code> documents whose dense vector is the most similar to a query vector using
+ * the {@link HnswGraph} of each segment. The top hits of all segments are computed when the query is rewritten and
+ * the query is rewritten into a {@link KnnScoreDocQuery} that matches these documents with their similarity as score.
+ * Segments whose graph is still being built are searched exactly.
+ */
+public class KnnVectorQuery extends Query {
+
+    private final String field;
+    private final float[] queryVector;
+    private final int k;
+    private final int numCandidates;
+    private final VectorSimilarity similarity;
+    private final int maxConn;
+    private final int beamWidth;
+    private final HnswGraphCache graphCache;
+    private final CircuitBreaker breaker;
+
+    public KnnVectorQuery(String field, float[] queryVector, int k, int numCandidates, VectorSimilarity similarity,
+                          int maxConn, int beamWidth, HnswGraphCache graphCache, CircuitBreaker breaker) {
+        this.field = Objects.requireNonNull(field);
+        this.queryVector = Objects.requireNonNull(queryVector);
+        this.k = k;
+        this.numCandidates = numCandidates;
+        this.similarity = Objects.requireNonNull(similarity);
+        this.maxConn = maxConn;
+        this.beamWidth = beamWidth;
+        this.graphCache = Objects.requireNonNull(graphCache);
+        this.breaker = Objects.requireNonNull(breaker);
+    }
+
+    @Override
+    public Query rewrite(IndexReader reader) throws IOException {
+        final TopDocs[] perLeafTopDocs = new TopDocs[reader.leaves().size()];
+        for (LeafReaderContext ctx : reader.leaves()) {
+            perLeafTopDocs[ctx.ord] = searchLeaf(ctx);
+        }
+        final TopDocs topDocs = TopDocs.merge(k, perLeafTopDocs);
+        if (topDocs.scoreDocs.length == 0) {
+            return new MatchNoDocsQuery("no vectors for field [" + field + "]");
+        }
+        final ScoreDoc[] scoreDocs = topDocs.scoreDocs.clone();
+        Arrays.sort(scoreDocs, (a, b) -> Integer.compare(a.doc, b.doc));
+        final int[] docs = new int[scoreDocs.length];
+        final float[] scores = new float[scoreDocs.length];
+        for (int i = 0; i < scoreDocs.length; i++) {
+            docs[i] = scoreDocs[i].doc;
+            scores[i] = scoreDocs[i].score;
+        }
+        return new KnnScoreDocQuery(reader.getContext(), docs, scores);
+    }
+
+    private TopDocs searchLeaf(LeafReaderContext ctx) throws IOException {
+        final TopDocs topDocs;
+        if (ctx.reader().getFieldInfos().fieldInfo(field) == null) {
+            // the field doesn't exist in this segment or it is hidden by the reader
+            topDocs = new TopDocs(new TotalHits(0, TotalHits.Relation.EQUAL_TO), new ScoreDoc[0]);
+        } else {
+            final HnswGraph graph = graphCache.getGraph(ctx.reader(), field, similarity, queryVector.length, maxConn, beamWidth, breaker);
+            if (graph != null) {
+                topDocs = graph.search(queryVector, k, numCandidates, ctx.reader().getLiveDocs());
+            } else {
+                topDocs = HnswGraph.exactSearch(DocValues.getBinary(ctx.reader(), field), similarity, queryVector.length, queryVector, k,
+                    ctx.reader().getLiveDocs());
+            }
+        }
+        for (ScoreDoc scoreDoc : topDocs.scoreDocs) {
+            scoreDoc.doc += ctx.docBase;
+        }
+        return topDocs;
+    }
+
+    @Override
+    public void visit(QueryVisitor visitor) {
+        if (visitor.acceptField(field)) {
+            visitor.visitLeaf(this);
+        }
+    }
+
+    @Override
+    public String toString(String field) {
+        return "KnnVectorQuery{field=" + this.field + ", k=" + k + ", num_candidates=" + numCandidates + "}";
+    }
+
+    @Override
+    public boolean equals(Object obj) {
+        if (sameClassAs(obj) == false) {
+            return false;
+        }
+        KnnVectorQuery other = (KnnVectorQuery) obj;
+        return field.equals(other.field) &&
+            Arrays.equals(queryVector, other.queryVector) &&
+            k == other.k &&
+            numCandidates == other.numCandidates &&
+            similarity == other.similarity &&
+            maxConn == other.maxConn &&
+            beamWidth == other.beamWidth;
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(classHash(), field, Arrays.hashCode(queryVector), k, numCandidates, similarity, maxConn, beamWidth);
+    }
+}
@@ -55,6 +55,14 @@ public class DenseVectorFieldMapperTests extends FieldMapperTestCase<DenseVector
             a.dims(3);
             b.dims(4);
         });
+        addModifier("similarity", false, (a, b) -> {
+            a.similarity(VectorSimilarity.COSINE);
+            b.similarity(VectorSimilarity.L2_NORM);
+        });
+        addModifier("index_options", false, (a, b) -> {
+            a.hnswParameters(16, 100);
+            b.hnswParameters(32, 100);
+        });
     }
 
     // this allows to set indexVersion as it is a private setting
@@ -79,6 +87,58 @@ public class DenseVectorFieldMapperTests extends FieldMapperTestCase<DenseVector
         assertEquals(e.getMessage(), "The number of dimensions for field [my-dense-vector] should be in the range [1, 2048]");
     }
 
+    public void testSimilarityAndIndexOptions() throws IOException {
+        IndexService indexService = createIndex("test-index");
+        DocumentMapperParser parser = indexService.mapperService().documentMapperParser();
+        String mapping = Strings.toString(XContentFactory.jsonBuilder()
+            .startObject()
+            .startObject("_doc")
+            .startObject("properties")
+            .startObject("my-dense-vector").field("type", "dense_vector").field("dims", 3).field("similarity", "dot_product")
+            .startObject("index_options").field("m", 32).field("ef_construction", 200).endObject()
+            .endObject()
+            .endObject()
+            .endObject()
+            .endObject());
+        DocumentMapper mapper = parser.parse("_doc", new CompressedXContent(mapping));
+        assertEquals(mapping, mapper.mappingSource().toString());
+        DenseVectorFieldMapper fieldMapper = (DenseVectorFieldMapper) mapper.mappers().getMapper("my-dense-vector");
+        assertEquals(VectorSimilarity.DOT_PRODUCT, fieldMapper.fieldType().vectorSimilarity());
+    }
+
+    public void testIndexOptionsRequireSimilarity() throws IOException {
+        IndexService indexService = createIndex("test-index");
+        DocumentMapperParser parser = indexService.mapperService().documentMapperParser();
+        String mapping = Strings.toString(XContentFactory.jsonBuilder()
+            .startObject()
+            .startObject("_doc")
+            .startObject("properties")
+            .startObject("my-dense-vector").field("type", "dense_vector").field("dims", 3)
+            .startObject("index_options").field("m", 32).endObject()
+            .endObject()
+            .endObject()
+            .endObject()
+            .endObject());
+        MapperParsingException e = expectThrows(MapperParsingException.class, () -> parser.parse("_doc", new CompressedXContent(mapping)));
+        assertThat(e.getMessage(), containsString("The [similarity] property must be specified for field [my-dense-vector]"));
+    }
+
+    public void testUnknownSimilarity() throws IOException {
+        IndexService indexService = createIndex("test-index");
+        DocumentMapperParser parser = indexService.mapperService().documentMapperParser();
+        String mapping = Strings.toString(XContentFactory.jsonBuilder()
+            .startObject()
+            .startObject("_doc")
+            .startObject("properties")
+            .startObject("my-dense-vector").field("type", "dense_vector").field("dims", 3).field("similarity", "hamming")
+            .endObject()
+            .endObject()
+            .endObject()
+            .endObject());
+        MapperParsingException e = expectThrows(MapperParsingException.class, () -> parser.parse("_doc", new CompressedXContent(mapping)));
+        assertThat(e.getMessage(), containsString("Failed to parse [similarity] of field [my-dense-vector]"));
+    }
+
     public void testDefaults() throws Exception {
         Version indexVersion = Version.CURRENT;
         IndexService indexService = createIndex("test-index");
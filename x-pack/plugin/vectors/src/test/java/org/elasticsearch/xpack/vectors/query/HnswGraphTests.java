@@ -0,0 +1,163 @@
+/*
+ * Copyright Elasticsearch B.V. and/or licensed to Elasticsearch B.V. under one
+ * or more contributor license agreements. Licensed under the Elastic License;
+ * you may not use this file except in compliance with the Elastic License.
+ */
+
+
+package org.elasticsearch.xpack.vectors.query;
+
+import org.apache.lucene.search.ScoreDoc;
+import org.apache.lucene.search.TopDocs;
+import org.apache.lucene.util.FixedBitSet;
+import org.elasticsearch.test.ESTestCase;
+import org.elasticsearch.xpack.vectors.mapper.VectorSimilarity;
+
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.Set;
+
+import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.greaterThan;
+import static org.hamcrest.Matchers.greaterThanOrEqualTo;
+import static org.hamcrest.Matchers.lessThanOrEqualTo;
+
+public class HnswGraphTests extends ESTestCase {
+
+    public void testEmptyGraph() {
+        HnswGraph graph = new HnswGraph(randomFrom(VectorSimilarity.values()), 3, 16, 100);
+        TopDocs topDocs = graph.search(new float[] { 1, 2, 3 }, 10, 100, null);
+        assertThat(topDocs.scoreDocs.length, equalTo(0));
+    }
+
+    public void testExactWithFewVectors() {
+        VectorSimilarity similarity = randomFrom(VectorSimilarity.values());
+        int dims = randomIntBetween(2, 8);
+        int numVectors = randomIntBetween(1, 20);
+        float[][] vectors = randomVectors(numVectors, dims);
+        HnswGraph graph = buildGraph(similarity, vectors, 16, 100);
+        assertThat(graph.size(), equalTo(numVectors));
+        float[] query = randomVector(dims);
+        // the beam is wider than the graph so all vectors are visited
+        TopDocs topDocs = graph.search(query, numVectors, 100, null);
+        ScoreDoc[] expected = bruteForce(similarity, vectors, query, numVectors, null);
+        assertThat(topDocs.scoreDocs.length, equalTo(expected.length));
+        for (int i = 0; i < expected.length; i++) {
+            assertEquals(expected[i].score, topDocs.scoreDocs[i].score, 1e-5f);
+        }
+    }
+
+    public void testRecall() {
+        VectorSimilarity similarity = randomFrom(VectorSimilarity.values());
+        int dims = randomIntBetween(8, 32);
+        int numVectors = randomIntBetween(1000, 3000);
+        float[][] vectors = randomVectors(numVectors, dims);
+        HnswGraph graph = buildGraph(similarity, vectors, 16, 100);
+        assertThat(graph.ramBytesUsed(), greaterThan((long) numVectors * dims * Float.BYTES));
+
+        int k = 10;
+        int numQueries = 20;
+        int found = 0;
+        for (int i = 0; i < numQueries; i++) {
+            float[] query = randomVector(dims);
+            TopDocs topDocs = graph.search(query, k, 100, null);
+            assertThat(topDocs.scoreDocs.length, equalTo(k));
+            for (int j = 1; j < k; j++) {
+                assertThat(topDocs.scoreDocs[j].score, lessThanOrEqualTo(topDocs.scoreDocs[j - 1].score));
+            }
+            Set<Integer> expected = new HashSet<>();
+            for (ScoreDoc scoreDoc : bruteForce(similarity, vectors, query, k, null)) {
+                expected.add(scoreDoc.doc);
+            }
+            for (ScoreDoc scoreDoc : topDocs.scoreDocs) {
+                if (expected.contains(scoreDoc.doc)) {
+                    found++;
+                }
+            }
+        }
+        double recall = (double) found / (numQueries * k);
+        assertThat("recall was " + recall, recall, greaterThanOrEqualTo(0.9));
+    }
+
+    public void testAcceptDocs() {
+        VectorSimilarity similarity = randomFrom(VectorSimilarity.values());
+        int dims = randomIntBetween(2, 8);
+        int numVectors = randomIntBetween(50, 200);
+        float[][] vectors = randomVectors(numVectors, dims);
+        HnswGraph graph = buildGraph(similarity, vectors, 8, 50);
+        FixedBitSet acceptDocs = new FixedBitSet(numVectors);
+        for (int i = 0; i < numVectors; i++) {
+            if (randomBoolean()) {
+                acceptDocs.set(i);
+            }
+        }
+        TopDocs topDocs = graph.search(randomVector(dims), 10, 50, acceptDocs);
+        assertThat(topDocs.scoreDocs.length, lessThanOrEqualTo(10));
+        for (ScoreDoc scoreDoc : topDocs.scoreDocs) {
+            assertTrue(acceptDocs.get(scoreDoc.doc));
+        }
+    }
+
+    public void testSameGraphForSameVectors() {
+        VectorSimilarity similarity = randomFrom(VectorSimilarity.values());
+        int dims = randomIntBetween(2, 8);
+        float[][] vectors = randomVectors(randomIntBetween(50, 200), dims);
+        HnswGraph graph1 = buildGraph(similarity, vectors, 8, 20);
+        HnswGraph graph2 = buildGraph(similarity, vectors, 8, 20);
+        float[] query = randomVector(dims);
+        ScoreDoc[] hits1 = graph1.search(query, 10, 20, null).scoreDocs;
+        ScoreDoc[] hits2 = graph2.search(query, 10, 20, null).scoreDocs;
+        assertThat(hits1.length, equalTo(hits2.length));
+        for (int i = 0; i < hits1.length; i++) {
+            assertThat(hits1[i].doc, equalTo(hits2[i].doc));
+        }
+    }
+
+    private static HnswGraph buildGraph(VectorSimilarity similarity, float[][] vectors, int maxConn, int beamWidth) {
+        HnswGraph graph = new HnswGraph(similarity, vectors[0].length, maxConn, beamWidth);
+        for (int doc = 0; doc < vectors.length; doc++) {
+            graph.add(doc, vectors[doc].clone());
+        }
+        return graph;
+    }
+
+    static ScoreDoc[] bruteForce(VectorSimilarity similarity, float[][] vectors, float[] query, int k, FixedBitSet acceptDocs) {
+        float[] normalizedQuery = query.clone();
+        if (similarity.normalize()) {
+            VectorSimilarity.normalize(normalizedQuery);
+        }
+        ScoreDoc[] scoreDocs = new ScoreDoc[vectors.length];
+        int numDocs = 0;
+        for (int doc = 0; doc < vectors.length; doc++) {
+            if (acceptDocs == null || acceptDocs.get(doc)) {
+                float[] vector = vectors[doc].clone();
+                if (similarity.normalize()) {
+                    VectorSimilarity.normalize(vector);
+                }
+                scoreDocs[numDocs++] = new ScoreDoc(doc, similarity.score(normalizedQuery, vector));
+            }
+        }
+        scoreDocs = Arrays.copyOf(scoreDocs, numDocs);
+        Arrays.sort(scoreDocs, Comparator.comparingDouble((ScoreDoc scoreDoc) -> scoreDoc.score).reversed());
+        return Arrays.copyOf(scoreDocs, Math.min(k, numDocs));
+    }
+
+    static float[][] randomVectors(int numVectors, int dims) {
+        float[][] vectors = new float[numVectors][];
+        for (int i = 0; i < numVectors; i++) {
+            vectors[i] = randomVector(dims);
+        }
+        return vectors;
+    }
+
+    static float[] randomVector(int dims) {
+        float[] vector = new float[dims];
+        for (int dim = 0; dim < dims; dim++) {
+            vector[dim] = randomFloat() * 2 - 1;
+        }
+        // unit vectors are expected by the dot product similarity
+        VectorSimilarity.normalize(vector);
+        return vector;
+    }
+}
@@ -0,0 +1,301 @@
+/*
+ * Copyright Elasticsearch B.V. and/or licensed to Elasticsearch B.V. under one
+ * or more contributor license agreements. Licensed under the Elastic License;
+ * you may not use this file except in compliance with the Elastic License.
+ */
+
+
+package org.elasticsearch.xpack.vectors.query;
+
+import org.apache.lucene.document.BinaryDocValuesField;
+import org.apache.lucene.document.Document;
+import org.apache.lucene.document.Field;
+import org.apache.lucene.document.StringField;
+import org.apache.lucene.index.DirectoryReader;
+import org.apache.lucene.index.IndexReader;
+import org.apache.lucene.index.IndexWriter;
+import org.apache.lucene.index.Term;
+import org.apache.lucene.search.IndexSearcher;
+import org.apache.lucene.search.LRUQueryCache;
+import org.apache.lucene.search.MatchNoDocsQuery;
+import org.apache.lucene.search.Query;
+import org.apache.lucene.search.QueryCachingPolicy;
+import org.apache.lucene.search.ScoreDoc;
+import org.apache.lucene.search.ScoreMode;
+import org.apache.lucene.search.TopDocs;
+import org.apache.lucene.store.Directory;
+import org.apache.lucene.util.BytesRef;
+import org.elasticsearch.common.breaker.CircuitBreaker;
+import org.elasticsearch.common.breaker.NoopCircuitBreaker;
+import org.elasticsearch.common.settings.ClusterSettings;
+import org.elasticsearch.common.settings.Settings;
+import org.elasticsearch.common.util.concurrent.EsExecutors;
+import org.elasticsearch.indices.breaker.HierarchyCircuitBreakerService;
+import org.elasticsearch.test.ESTestCase;
+import org.elasticsearch.xpack.vectors.mapper.VectorSimilarity;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.greaterThan;
+import static org.hamcrest.Matchers.instanceOf;
+import static org.hamcrest.Matchers.lessThanOrEqualTo;
+
+public class KnnVectorQueryTests extends ESTestCase {
+
+    public void testSearch() throws IOException {
+        VectorSimilarity similarity = randomFrom(VectorSimilarity.values());
+        int dims = randomIntBetween(2, 8);
+        int numDocs = randomIntBetween(10, 200);
+        float[][] vectors = HnswGraphTests.randomVectors(numDocs, dims);
+        Set<String> deleted = new HashSet<>();
+        CircuitBreaker breaker = newBreaker("100mb");
+        HnswGraphCache graphCache = new HnswGraphCache(Settings.EMPTY, EsExecutors.newDirectExecutorService());
+        try (Directory dir = newDirectory()) {
+            try (IndexWriter writer = new IndexWriter(dir, newIndexWriterConfig())) {
+                for (int i = 0; i < numDocs; i++) {
+                    Document doc = new Document();
+                    doc.add(new StringField("id", Integer.toString(i), Field.Store.YES));
+                    doc.add(new BinaryDocValuesField("vector", encode(vectors[i])));
+                    writer.addDocument(doc);
+                    if (rarely()) {
+                        writer.commit();
+                    }
+                }
+                for (int i = 0; i < numDocs; i++) {
+                    if (randomInt(10) == 0) {
+                        deleted.add(Integer.toString(i));
+                        writer.deleteDocuments(new Term("id", Integer.toString(i)));
+                    }
+                }
+            }
+            try (IndexReader reader = DirectoryReader.open(dir)) {
+                IndexSearcher searcher = new IndexSearcher(reader);
+                int k = randomIntBetween(1, 10);
+                float[] queryVector = HnswGraphTests.randomVector(dims);
+                // the beam is wider than the segments so the results are exact
+                KnnVectorQuery query = new KnnVectorQuery("vector", queryVector, k, 1000, similarity, 16, 1000, graphCache, breaker);
+                TopDocs topDocs = searcher.search(query, numDocs);
+                assertThat(topDocs.scoreDocs.length, equalTo(Math.min(k, numDocs - deleted.size())));
+                assertThat(graphCache.numGraphs(), equalTo(reader.leaves().size()));
+                assertThat(breaker.getUsed(), equalTo(graphCache.ramBytesUsed()));
+
+                float[][] liveVectors = new float[numDocs - deleted.size()][];
+                int numLive = 0;
+                for (int i = 0; i < numDocs; i++) {
+                    if (deleted.contains(Integer.toString(i)) == false) {
+                        liveVectors[numLive++] = vectors[i];
+                    }
+                }
+                ScoreDoc[] bruteForce = HnswGraphTests.bruteForce(similarity, liveVectors, queryVector, k, null);
+                for (int i = 0; i < topDocs.scoreDocs.length; i++) {
+                    assertEquals(bruteForce[i].score, topDocs.scoreDocs[i].score, 1e-5f);
+                    String id = searcher.doc(topDocs.scoreDocs[i].doc).get("id");
+                    assertFalse(deleted.contains(id));
+                    if (i > 0) {
+                        assertThat(topDocs.scoreDocs[i].score, lessThanOrEqualTo(topDocs.scoreDocs[i - 1].score));
+                    }
+                }
+
+                // the graphs are built once per segment
+                long ramBytesUsed = graphCache.ramBytesUsed();
+                searcher.search(query, numDocs);
+                assertThat(graphCache.ramBytesUsed(), equalTo(ramBytesUsed));
+            }
+        }
+        // graphs are released when segments are closed
+        assertThat(graphCache.numGraphs(), equalTo(0));
+        assertThat(graphCache.ramBytesUsed(), equalTo(0L));
+        assertThat(breaker.getUsed(), equalTo(0L));
+    }
+
+    public void testSearchesExactlyWhileGraphsAreBuilt() throws IOException {
+        VectorSimilarity similarity = randomFrom(VectorSimilarity.values());
+        int dims = randomIntBetween(2, 8);
+        int numDocs = randomIntBetween(10, 200);
+        float[][] vectors = HnswGraphTests.randomVectors(numDocs, dims);
+        List<Runnable> builds = new ArrayList<>();
+        CircuitBreaker breaker = newBreaker("100mb");
+        HnswGraphCache graphCache = new HnswGraphCache(Settings.EMPTY, builds::add);
+        try (Directory dir = newDirectory()) {
+            indexVectors(dir, vectors);
+            try (IndexReader reader = DirectoryReader.open(dir)) {
+                IndexSearcher searcher = new IndexSearcher(reader);
+                int k = randomIntBetween(1, 10);
+                float[] queryVector = HnswGraphTests.randomVector(dims);
+                KnnVectorQuery query = new KnnVectorQuery("vector", queryVector, k, 1000, similarity, 16, 1000, graphCache, breaker);
+                TopDocs exact = searcher.search(query, numDocs);
+                assertThat(graphCache.numGraphs(), equalTo(0));
+                assertThat(breaker.getUsed(), equalTo(0L));
+                // every segment is only built once even if it is searched again before its graph is ready
+                searcher.search(query, numDocs);
+                assertThat(builds.size(), equalTo(reader.leaves().size()));
+
+                ScoreDoc[] bruteForce = HnswGraphTests.bruteForce(similarity, vectors, queryVector, k, null);
+                assertThat(exact.scoreDocs.length, equalTo(bruteForce.length));
+                for (int i = 0; i < exact.scoreDocs.length; i++) {
+                    assertEquals(bruteForce[i].score, exact.scoreDocs[i].score, 1e-5f);
+                }
+
+                builds.forEach(Runnable::run);
+                assertThat(graphCache.numGraphs(), equalTo(reader.leaves().size()));
+                TopDocs approximate = searcher.search(query, numDocs);
+                for (int i = 0; i < approximate.scoreDocs.length; i++) {
+                    assertEquals(bruteForce[i].score, approximate.scoreDocs[i].score, 1e-5f);
+                }
+            }
+        }
+        assertThat(graphCache.numGraphs(), equalTo(0));
+        assertThat(breaker.getUsed(), equalTo(0L));
+    }
+
+    public void testBreakerPreventsBuild() throws IOException {
+        float[][] vectors = HnswGraphTests.randomVectors(100, 16);
+        CircuitBreaker breaker = newBreaker("1kb");
+        HnswGraphCache graphCache = new HnswGraphCache(Settings.EMPTY, EsExecutors.newDirectExecutorService());
+        try (Directory dir = newDirectory()) {
+            indexVectors(dir, vectors);
+            try (IndexReader reader = DirectoryReader.open(dir)) {
+                IndexSearcher searcher = new IndexSearcher(reader);
+                KnnVectorQuery query = new KnnVectorQuery("vector", HnswGraphTests.randomVector(16), 5, 100,
+                    VectorSimilarity.L2_NORM, 16, 100, graphCache, breaker);
+                assertThat(searcher.search(query, 10).scoreDocs.length, equalTo(5));
+                assertThat(graphCache.numGraphs(), equalTo(0));
+                assertThat(breaker.getTrippedCount(), greaterThan(0L));
+                assertThat(breaker.getUsed(), equalTo(0L));
+            }
+        }
+    }
+
+    public void testEviction() throws IOException {
+        float[][] vectors = HnswGraphTests.randomVectors(100, 16);
+        CircuitBreaker breaker = newBreaker("100mb");
+        Settings settings = Settings.builder().put(HnswGraphCache.CACHE_SIZE_SETTING.getKey(), "1kb").build();
+        HnswGraphCache graphCache = new HnswGraphCache(settings, EsExecutors.newDirectExecutorService());
+        try (Directory dir = newDirectory()) {
+            indexVectors(dir, vectors);
+            try (IndexReader reader = DirectoryReader.open(dir)) {
+                IndexSearcher searcher = new IndexSearcher(reader);
+                KnnVectorQuery query = new KnnVectorQuery("vector", HnswGraphTests.randomVector(16), 5, 100,
+                    VectorSimilarity.L2_NORM, 16, 100, graphCache, breaker);
+                assertThat(searcher.search(query, 10).scoreDocs.length, equalTo(5));
+                // the graphs are larger than the cache, so they are evicted as soon as they are built
+                assertThat(graphCache.numGraphs(), equalTo(0));
+                assertThat(breaker.getUsed(), equalTo(0L));
+            }
+        }
+    }
+
+    public void testSearchAcrossReaders() throws IOException {
+        VectorSimilarity similarity = randomFrom(VectorSimilarity.values());
+        int dims = randomIntBetween(2, 8);
+        float[][] vectors = HnswGraphTests.randomVectors(randomIntBetween(10, 100), dims);
+        float[][] moreVectors = HnswGraphTests.randomVectors(randomIntBetween(10, 100), dims);
+        float[][] allVectors = new float[vectors.length + moreVectors.length][];
+        System.arraycopy(vectors, 0, allVectors, 0, vectors.length);
+        System.arraycopy(moreVectors, 0, allVectors, vectors.length, moreVectors.length);
+        HnswGraphCache graphCache = new HnswGraphCache(Settings.EMPTY, EsExecutors.newDirectExecutorService());
+        // a cache that would cache every query on every segment, shared by the searchers of both readers
+        LRUQueryCache queryCache = new LRUQueryCache(1000, Long.MAX_VALUE, context -> true, Float.POSITIVE_INFINITY);
+        try (Directory dir = newDirectory()) {
+            indexVectors(dir, vectors);
+            try (DirectoryReader reader = DirectoryReader.open(dir)) {
+                indexVectors(dir, moreVectors);
+                try (DirectoryReader otherReader = DirectoryReader.openIfChanged(reader)) {
+                    int k = randomIntBetween(1, 10);
+                    float[] queryVector = HnswGraphTests.randomVector(dims);
+                    KnnVectorQuery query = new KnnVectorQuery("vector", queryVector, k, 1000, similarity, 16, 1000, graphCache,
+                        new NoopCircuitBreaker(CircuitBreaker.FIELDDATA));
+
+                    IndexSearcher searcher = newCachingSearcher(reader, queryCache);
+                    IndexSearcher otherSearcher = newCachingSearcher(otherReader, queryCache);
+                    for (int i = 0; i < 2; i++) {
+                        assertScores(HnswGraphTests.bruteForce(similarity, vectors, queryVector, k, null), searcher.search(query, k));
+                        assertScores(HnswGraphTests.bruteForce(similarity, allVectors, queryVector, k, null),
+                            otherSearcher.search(query, k));
+                    }
+                    assertThat(queryCache.getCacheSize(), equalTo(0L));
+
+                    // the rewritten queries are bound to their reader, even to readers of the same segments
+                    try (DirectoryReader sameSegmentsReader = DirectoryReader.open(dir)) {
+                        Query rewritten = query.rewrite(otherReader);
+                        Query sameSegmentsRewritten = query.rewrite(sameSegmentsReader);
+                        assertEquals(rewritten, query.rewrite(otherReader));
+                        assertNotEquals(rewritten, sameSegmentsRewritten);
+                        expectThrows(IllegalStateException.class,
+                            () -> new IndexSearcher(sameSegmentsReader).createWeight(rewritten, ScoreMode.COMPLETE, 1f));
+                    }
+                }
+            }
+        }
+    }
+
+    private static IndexSearcher newCachingSearcher(IndexReader reader, LRUQueryCache queryCache) {
+        IndexSearcher searcher = new IndexSearcher(reader);
+        searcher.setQueryCache(queryCache);
+        searcher.setQueryCachingPolicy(QueryCachingPolicy.ALWAYS_CACHE);
+        return searcher;
+    }
+
+    private static void assertScores(ScoreDoc[] expected, TopDocs topDocs) {
+        assertThat(topDocs.scoreDocs.length, equalTo(expected.length));
+        for (int i = 0; i < expected.length; i++) {
+            assertEquals(expected[i].score, topDocs.scoreDocs[i].score, 1e-5f);
+        }
+    }
+
+    public void testMissingField() throws IOException {
+        HnswGraphCache graphCache = new HnswGraphCache(Settings.EMPTY, EsExecutors.newDirectExecutorService());
+        try (Directory dir = newDirectory()) {
+            try (IndexWriter writer = new IndexWriter(dir, newIndexWriterConfig())) {
+                Document doc = new Document();
+                doc.add(new StringField("id", "1", Field.Store.YES));
+                writer.addDocument(doc);
+            }
+            try (IndexReader reader = DirectoryReader.open(dir)) {
+                KnnVectorQuery query = new KnnVectorQuery("vector", new float[] { 1, 2 }, 10, 100,
+                    VectorSimilarity.L2_NORM, 16, 100, graphCache, new NoopCircuitBreaker(CircuitBreaker.FIELDDATA));
+                Query rewritten = query.rewrite(reader);
+                assertThat(rewritten, instanceOf(MatchNoDocsQuery.class));
+                assertThat(graphCache.numGraphs(), equalTo(0));
+            }
+        }
+    }
+
+    private static void indexVectors(Directory dir, float[][] vectors) throws IOException {
+        try (IndexWriter writer = new IndexWriter(dir, newIndexWriterConfig())) {
+            for (float[] vector : vectors) {
+                Document doc = new Document();
+                doc.add(new BinaryDocValuesField("vector", encode(vector)));
+                writer.addDocument(doc);
+            }
+        }
+    }
+
+    private static CircuitBreaker newBreaker(String limit) {
+        Settings settings = Settings.builder()
+            .put(HierarchyCircuitBreakerService.USE_REAL_MEMORY_USAGE_SETTING.getKey(), false)
+            .put(HierarchyCircuitBreakerService.FIELDDATA_CIRCUIT_BREAKER_LIMIT_SETTING.getKey(), limit)
+            .put(HierarchyCircuitBreakerService.FIELDDATA_CIRCUIT_BREAKER_OVERHEAD_SETTING.getKey(), 1.0)
+            .build();
+        return new HierarchyCircuitBreakerService(settings, Collections.emptyList(),
+            new ClusterSettings(settings, ClusterSettings.BUILT_IN_CLUSTER_SETTINGS)).getBreaker(CircuitBreaker.FIELDDATA);
+    }
+
+    private static BytesRef encode(float[] vector) {
+        ByteBuffer byteBuffer = ByteBuffer.allocate(Float.BYTES * (vector.length + 1));
+        double dotProduct = 0;
+        for (float value : vector) {
+            byteBuffer.putFloat(value);
+            dotProduct += value * value;
+        }
+        byteBuffer.putFloat((float) Math.sqrt(dotProduct));
+        return new BytesRef(byteBuffer.array());
+    }
+}